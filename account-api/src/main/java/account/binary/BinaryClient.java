@@ -0,0 +1,189 @@
+package account.binary;
+
+import account.exception.AccountApiBadRequest;
+import account.exception.AccountApiUnavailable;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pipelining client of {@link BinaryServer}: requests are sent without waiting for previous responses,
+ * reader thread completes futures by correlation id.
+ * <p>
+ * Futures fail with {@link AccountApiBadRequest} and {@link AccountApiUnavailable} the same way
+ * as {@link account.service.AccountService} methods throw them.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class BinaryClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BinaryProtocol.MAX_REQUEST_LENGTH + 4);
+    private final ConcurrentMap<Long, CompletableFuture<Account>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final Thread reader;
+
+    private volatile boolean closed;
+
+    public BinaryClient(InetSocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        this.reader = new Thread(this::read, "account-binary-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public CompletableFuture<Account> createAccount(Money amount) {
+        return send(BinaryProtocol.CREATE, amount.getUnits(), 0, 0);
+    }
+
+    /**
+     * @return account, absent account fails future with {@link AccountApiBadRequest} as in http api
+     */
+    public CompletableFuture<Account> getAccount(long accountId) {
+        return send(BinaryProtocol.GET, accountId, 0, 0);
+    }
+
+    public CompletableFuture<Account> deposit(long accountId, Money amount) {
+        return send(BinaryProtocol.DEPOSIT, accountId, amount.getUnits(), 0);
+    }
+
+    public CompletableFuture<Account> withdraw(long accountId, Money amount) {
+        return send(BinaryProtocol.WITHDRAW, accountId, amount.getUnits(), 0);
+    }
+
+    /**
+     * @return future completed with {@code null} when transaction is made
+     */
+    public CompletableFuture<Void> transaction(AccountTransaction transaction) {
+        return send(
+                BinaryProtocol.TRANSFER,
+                transaction.getFromId(),
+                transaction.getToId(),
+                transaction.getAmount().getUnits()
+        ).thenApply(account -> null);
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        closed = true;
+        channel.close();
+        reader.join();
+    }
+
+    private CompletableFuture<Account> send(byte operation, long first, long second, long third) {
+        long correlationId = correlationIds.incrementAndGet();
+        CompletableFuture<Account> result = new CompletableFuture<>();
+        if (closed || !reader.isAlive()) {
+            result.completeExceptionally(new UncheckedIOException(new IOException("Connection is closed")));
+            return result;
+        }
+        pending.put(correlationId, result);
+        int payloadLength = BinaryProtocol.requestPayloadLength(operation);
+        synchronized (writeBuffer) {
+            writeBuffer.clear();
+            writeBuffer.putInt(BinaryProtocol.HEADER_LENGTH + payloadLength);
+            writeBuffer.putLong(correlationId);
+            writeBuffer.put(operation);
+            writeBuffer.putLong(first);
+            if (payloadLength > Long.BYTES) {
+                writeBuffer.putLong(second);
+            }
+            if (payloadLength > 2 * Long.BYTES) {
+                writeBuffer.putLong(third);
+            }
+            writeBuffer.flip();
+            try {
+                while (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                }
+            } catch (IOException e) {
+                pending.remove(correlationId);
+                result.completeExceptionally(new UncheckedIOException(e));
+            }
+        }
+        return result;
+    }
+
+    private void read() {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.remaining() >= Integer.BYTES
+                        && buffer.remaining() >= Integer.BYTES + buffer.getInt(buffer.position())) {
+                    complete(buffer);
+                }
+                buffer.compact();
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                failPending(e);
+            }
+        }
+        failPending(new IOException("Connection is closed"));
+    }
+
+    private void complete(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        int frameEnd = buffer.position() + length;
+        long correlationId = buffer.getLong();
+        byte status = buffer.get();
+        CompletableFuture<Account> result = pending.remove(correlationId);
+        if (status == BinaryProtocol.OK) {
+            Account account = null;
+            if (length > BinaryProtocol.HEADER_LENGTH) {
+                account = new Account.Builder()
+                        .setId(buffer.getLong())
+                        .setAmount(Money.ofUnits(buffer.getLong()))
+                        .build();
+            }
+            if (result != null) {
+                result.complete(account);
+            }
+        } else {
+            byte[] message = new byte[buffer.getShort()];
+            buffer.get(message);
+            if (result != null) {
+                result.completeExceptionally(error(status, new String(message, StandardCharsets.UTF_8)));
+            }
+        }
+        buffer.position(frameEnd);
+    }
+
+    private static RuntimeException error(byte status, String message) {
+        switch (status) {
+            case BinaryProtocol.BAD_REQUEST:
+                return new AccountApiBadRequest(message);
+            case BinaryProtocol.UNAVAILABLE:
+                return new AccountApiUnavailable(message);
+            default:
+                return new IllegalStateException(message);
+        }
+    }
+
+    private void failPending(IOException e) {
+        for (Long correlationId : pending.keySet()) {
+            CompletableFuture<Account> result = pending.remove(correlationId);
+            if (result != null) {
+                result.completeExceptionally(new UncheckedIOException(e));
+            }
+        }
+    }
+}
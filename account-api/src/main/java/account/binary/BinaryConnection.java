@@ -0,0 +1,47 @@
+package account.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client connection of {@link BinaryServer}.
+ * <p>
+ * Buffers and selection key are used by selector thread only. Workers put encoded responses
+ * into {@link #responses} and schedule connection for writing with {@link #writeScheduled}.
+ *
+ * @author fbokovikov
+ */
+class BinaryConnection {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+    final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    /**
+     * Requests taken from read buffer and not yet responded.
+     */
+    final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Reading is stopped because of too many requests in flight.
+     */
+    boolean readPaused;
+
+    volatile boolean closed;
+
+    BinaryConnection(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+}
@@ -0,0 +1,81 @@
+package account.binary;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length-prefixed binary frames of account api over TCP. All numbers are big-endian,
+ * amounts are {@link account.model.Money#getUnits() units} of server money scale.
+ * <pre>
+ * request:  int length | long correlationId | byte operation | payload
+ *   CREATE   long amount
+ *   GET      long accountId
+ *   DEPOSIT  long accountId | long amount
+ *   WITHDRAW long accountId | long amount (negative, as in http api)
+ *   TRANSFER long fromId | long toId | long amount
+ *
+ * response: int length | long correlationId | byte status | payload
+ *   OK                       long accountId | long amount (TRANSFER has empty payload)
+ *   BAD_REQUEST, UNAVAILABLE,
+ *   ERROR                    short messageLength | UTF-8 message
+ * </pre>
+ * {@code length} counts bytes after the length field. Requests of a connection may be pipelined:
+ * client sends next requests without waiting for responses, server executes them concurrently and
+ * responds in order of completion, so responses are matched to requests by correlation id.
+ *
+ * @author fbokovikov
+ */
+public final class BinaryProtocol {
+
+    public static final byte CREATE = 1;
+    public static final byte GET = 2;
+    public static final byte DEPOSIT = 3;
+    public static final byte WITHDRAW = 4;
+    public static final byte TRANSFER = 5;
+
+    public static final byte OK = 0;
+    public static final byte BAD_REQUEST = 1;
+    public static final byte UNAVAILABLE = 2;
+    public static final byte ERROR = 3;
+
+    /**
+     * Bytes of correlation id and operation (status).
+     */
+    static final int HEADER_LENGTH = Long.BYTES + 1;
+
+    /**
+     * Max length of request frame (after length field).
+     */
+    static final int MAX_REQUEST_LENGTH = HEADER_LENGTH + 3 * Long.BYTES;
+
+    static final int MAX_MESSAGE_LENGTH = 1024;
+
+    private BinaryProtocol() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return payload length of request {@code operation}, -1 for unknown operation
+     */
+    static int requestPayloadLength(byte operation) {
+        switch (operation) {
+            case CREATE:
+            case GET:
+                return Long.BYTES;
+            case DEPOSIT:
+            case WITHDRAW:
+                return 2 * Long.BYTES;
+            case TRANSFER:
+                return 3 * Long.BYTES;
+            default:
+                return -1;
+        }
+    }
+
+    static byte[] encodeMessage(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_MESSAGE_LENGTH) {
+            return bytes;
+        }
+        return message.substring(0, MAX_MESSAGE_LENGTH / 4).getBytes(StandardCharsets.UTF_8);
+    }
+}
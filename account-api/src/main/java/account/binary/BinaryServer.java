@@ -0,0 +1,393 @@
+package account.binary;
+
+import account.controller.dto.AccountTransactionDTO;
+import account.controller.dto.AccountTransactionValidator;
+import account.exception.AccountApiBadRequest;
+import account.exception.AccountApiUnavailable;
+import account.model.Account;
+import account.model.Money;
+import account.service.AccountService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking TCP listener of {@link BinaryProtocol} requests in front of the same {@link AccountService}
+ * as http api, so both front ends check and execute requests the same way.
+ * <ol>
+ *     <li>Selector thread accepts connections, reads all complete frames of a connection at once
+ *     and passes requests to workers</li>
+ *     <li>Worker calls account service and queues encoded response to connection</li>
+ *     <li>Selector thread writes all queued responses of a connection with one write</li>
+ * </ol>
+ * Connection with {@code maxInFlight} requests in progress is not read until some of them complete.
+ * Malformed frame closes connection.
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class BinaryServer implements AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(BinaryServer.class);
+
+    private final AccountService accountService;
+    private final BinaryServerSettings settings;
+    private final Queue<BinaryConnection> scheduledWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupScheduled = new AtomicBoolean();
+
+    private ExecutorService workers;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+
+    private volatile boolean running;
+
+    @Inject
+    public BinaryServer(AccountService accountService, BinaryServerSettings settings) {
+        this.accountService = accountService;
+        this.settings = settings;
+    }
+
+    /**
+     * Bind to {@link BinaryServerSettings#getPort()} and start serving requests.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("Binary server is already started");
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(settings.getPort()));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        workers = Executors.newFixedThreadPool(
+                settings.getWorkers(),
+                new ThreadFactoryBuilder().setNameFormat("account-binary-worker-%d").setDaemon(true).build()
+        );
+        running = true;
+        selectorThread = new Thread(this::run, "account-binary-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        log.info("Binary api is listening on port " + getPort());
+    }
+
+    /**
+     * @return bound port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stop accepting and reading requests, close connections after responses to requests in progress.
+     */
+    @Override
+    public synchronized void close() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        selectorThread.join();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                wakeupScheduled.set(false);
+                BinaryConnection scheduled;
+                while ((scheduled = scheduledWrites.poll()) != null) {
+                    write(scheduled);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Binary api selector failed", e);
+        } finally {
+            completeInFlight();
+            closeAll();
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        BinaryConnection connection = (BinaryConnection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                read(connection);
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(connection);
+            }
+        } catch (IOException e) {
+            log.debug("Binary connection failed", e);
+            close(connection);
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new BinaryConnection(channel, key));
+        } catch (IOException e) {
+            log.warn("Can not accept binary connection", e);
+        }
+    }
+
+    private void read(BinaryConnection connection) throws IOException {
+        if (connection.channel.read(connection.readBuffer) < 0) {
+            close(connection);
+            return;
+        }
+        dispatch(connection);
+    }
+
+    /**
+     * Pass complete requests of read buffer to workers while connection has room for more in flight.
+     */
+    private void dispatch(BinaryConnection connection) {
+        ByteBuffer buffer = connection.readBuffer;
+        buffer.flip();
+        try {
+            while (buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt(buffer.position());
+                if (length < BinaryProtocol.HEADER_LENGTH || length > BinaryProtocol.MAX_REQUEST_LENGTH) {
+                    log.debug("Bad binary frame length " + length + ", closing connection");
+                    close(connection);
+                    return;
+                }
+                if (buffer.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                if (connection.inFlight.get() >= settings.getMaxInFlight()) {
+                    pauseReading(connection);
+                    break;
+                }
+                buffer.getInt();
+                int frameEnd = buffer.position() + length;
+                long correlationId = buffer.getLong();
+                byte operation = buffer.get();
+                int payloadLength = length - BinaryProtocol.HEADER_LENGTH;
+                long first = payloadLength >= Long.BYTES ? buffer.getLong() : 0;
+                long second = payloadLength >= 2 * Long.BYTES ? buffer.getLong() : 0;
+                long third = payloadLength >= 3 * Long.BYTES ? buffer.getLong() : 0;
+                buffer.position(frameEnd);
+                connection.inFlight.incrementAndGet();
+                if (BinaryProtocol.requestPayloadLength(operation) != payloadLength) {
+                    respond(connection, error(correlationId, BinaryProtocol.BAD_REQUEST,
+                            "Unknown operation " + operation + " with payload of " + payloadLength + " bytes"));
+                    continue;
+                }
+                workers.execute(() -> respond(
+                        connection,
+                        execute(correlationId, operation, first, second, third)
+                ));
+            }
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    private ByteBuffer execute(long correlationId, byte operation, long first, long second, long third) {
+        try {
+            switch (operation) {
+                case BinaryProtocol.CREATE:
+                    return ok(correlationId, accountService.createAccount(Money.ofUnits(first)));
+                case BinaryProtocol.GET:
+                    return ok(correlationId, accountService.getAccount(first)
+                            .orElseThrow(() -> new AccountApiBadRequest("Account not found")));
+                case BinaryProtocol.DEPOSIT:
+                    return ok(correlationId, accountService.deposit(first, Money.ofUnits(second)));
+                case BinaryProtocol.WITHDRAW:
+                    return ok(correlationId, accountService.withdraw(first, Money.ofUnits(second)));
+                case BinaryProtocol.TRANSFER:
+                    var transaction = new AccountTransactionDTO(first, second, Money.ofUnits(third));
+                    AccountTransactionValidator.validate(transaction);
+                    accountService.transaction(transaction.toTransaction());
+                    return ok(correlationId);
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation);
+            }
+        } catch (AccountApiBadRequest e) {
+            return error(correlationId, BinaryProtocol.BAD_REQUEST, e.getMessage());
+        } catch (AccountApiUnavailable e) {
+            return error(correlationId, BinaryProtocol.UNAVAILABLE, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Binary request failed", e);
+            return error(correlationId, BinaryProtocol.ERROR, "Internal error");
+        }
+    }
+
+    /**
+     * Queue response and schedule connection for writing (called by workers).
+     */
+    private void respond(BinaryConnection connection, ByteBuffer response) {
+        connection.responses.add(response);
+        connection.inFlight.decrementAndGet();
+        if (connection.writeScheduled.compareAndSet(false, true)) {
+            scheduledWrites.add(connection);
+            if (wakeupScheduled.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Write queued responses as long as socket accepts them, then resume reading if it was paused.
+     */
+    private void write(BinaryConnection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.writeScheduled.set(false);
+        ByteBuffer buffer = connection.writeBuffer;
+        try {
+            while (true) {
+                ByteBuffer response = connection.responses.peek();
+                while (response != null && response.remaining() <= buffer.remaining()) {
+                    buffer.put(response);
+                    connection.responses.poll();
+                    response = connection.responses.peek();
+                }
+                buffer.flip();
+                connection.channel.write(buffer);
+                boolean written = !buffer.hasRemaining();
+                buffer.compact();
+                if (!written) {
+                    connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                if (connection.responses.isEmpty()) {
+                    connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_WRITE);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Binary connection failed", e);
+            close(connection);
+            return;
+        }
+        if (connection.readPaused && connection.inFlight.get() < settings.getMaxInFlight()) {
+            resumeReading(connection);
+        }
+    }
+
+    private void pauseReading(BinaryConnection connection) {
+        connection.readPaused = true;
+        connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+    }
+
+    private void resumeReading(BinaryConnection connection) {
+        connection.readPaused = false;
+        connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+        dispatch(connection);
+    }
+
+    private void close(BinaryConnection connection) {
+        connection.closed = true;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            log.debug("Can not close binary connection", e);
+        }
+    }
+
+    /**
+     * Wait for requests in progress and write their responses as far as sockets accept them.
+     */
+    private void completeInFlight() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Binary requests are still in progress, closing connections");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        BinaryConnection scheduled;
+        while ((scheduled = scheduledWrites.poll()) != null) {
+            write(scheduled);
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof BinaryConnection) {
+                close((BinaryConnection) key.attachment());
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            log.warn("Can not close binary server", e);
+        }
+    }
+
+    private static ByteBuffer ok(long correlationId, Account account) {
+        ByteBuffer response = header(correlationId, BinaryProtocol.OK, 2 * Long.BYTES);
+        response.putLong(account.getId());
+        response.putLong(account.getAmount().getUnits());
+        return response.flip();
+    }
+
+    private static ByteBuffer ok(long correlationId) {
+        return header(correlationId, BinaryProtocol.OK, 0).flip();
+    }
+
+    private static ByteBuffer error(long correlationId, byte status, String message) {
+        byte[] bytes = BinaryProtocol.encodeMessage(message);
+        ByteBuffer response = header(correlationId, status, Short.BYTES + bytes.length);
+        response.putShort((short) bytes.length);
+        response.put(bytes);
+        return response.flip();
+    }
+
+    private static ByteBuffer header(long correlationId, byte status, int payloadLength) {
+        int length = BinaryProtocol.HEADER_LENGTH + payloadLength;
+        ByteBuffer response = ByteBuffer.allocate(Integer.BYTES + length);
+        response.putInt(length);
+        response.putLong(correlationId);
+        response.put(status);
+        return response;
+    }
+}
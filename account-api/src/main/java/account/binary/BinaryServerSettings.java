@@ -0,0 +1,114 @@
+package account.binary;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Settings of {@link BinaryServer}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class BinaryServerSettings {
+
+    /**
+     * Whether binary listener is started next to http api.
+     */
+    private final boolean enabled;
+
+    private final int port;
+
+    /**
+     * Threads calling account service.
+     */
+    private final int workers;
+
+    /**
+     * Max requests of one connection in progress, connection is not read while it has more.
+     */
+    private final int maxInFlight;
+
+    public BinaryServerSettings(Builder builder) {
+        this.enabled = builder.enabled;
+        this.port = builder.port;
+        this.workers = builder.workers;
+        this.maxInFlight = builder.maxInFlight;
+        Preconditions.checkArgument(port >= 0 && port <= 0xFFFF, "Binary port should be in [0, 65535]");
+        Preconditions.checkArgument(workers > 0, "Binary workers count should be positive");
+        Preconditions.checkArgument(maxInFlight > 0, "Max requests in flight should be positive");
+    }
+
+    /**
+     * Settings from {@code account.binary.*} system properties.
+     */
+    public static BinaryServerSettings fromSystemProperties() {
+        return new Builder()
+                .setEnabled(Boolean.getBoolean("account.binary.enabled"))
+                .setPort(Integer.getInteger("account.binary.port", 4568))
+                .setWorkers(Integer.getInteger("account.binary.workers", 64))
+                .setMaxInFlight(Integer.getInteger("account.binary.maxInFlight", 1024))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return port to listen, 0 for any free port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public static class Builder {
+        private boolean enabled;
+        private int port = 4568;
+        private int workers = 64;
+        private int maxInFlight = 1024;
+
+        public Builder setEnabled(boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder setWorkers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        public Builder setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public BinaryServerSettings build() {
+            return new BinaryServerSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("enabled", enabled)
+                .add("port", port)
+                .add("workers", workers)
+                .add("maxInFlight", maxInFlight)
+                .toString();
+    }
+}
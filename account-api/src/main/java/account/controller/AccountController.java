@@ -1,20 +1,34 @@
 package account.controller;
 
 
+import account.controller.dto.AccountLookupResultDTO;
+import account.controller.dto.AccountTransactionBatchDTO;
+import account.controller.dto.AccountTransactionBatchResultDTO;
 import account.controller.dto.AccountTransactionDTO;
-import account.controller.dto.AccountTransactionValidator;
+import account.controller.dto.AccountTransactionParser;
 import account.controller.transformer.JsonRequestTransformer;
 import account.controller.transformer.JsonResponseTransformer;
+import account.controller.transformer.JsonStreamingRoute;
 import account.exception.AccountApiBadRequest;
+import account.exception.AccountApiUnavailable;
+import account.metrics.RequestMetrics;
 import account.model.AccountTransaction;
+import account.model.Money;
+import account.model.MultiLegTransaction;
 import account.model.ResponseError;
 import account.service.AccountService;
+import account.service.TransactionBatchSettings;
 import spark.Request;
+import spark.Route;
 import spark.Spark;
 
 import javax.inject.Inject;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 /**
  * Main application with RESTful API
@@ -29,72 +43,127 @@ public class AccountController implements SparkController {
     private static final JsonResponseTransformer RESPONSE_TRANSFORMER = new JsonResponseTransformer();
 
     private final AccountService accountService;
+    private final TransactionBatchSettings batchSettings;
+    private final RequestMetrics requestMetrics;
 
     @Inject
-    public AccountController(AccountService accountService) {
+    public AccountController(AccountService accountService, TransactionBatchSettings batchSettings,
+                             RequestMetrics requestMetrics) {
         this.accountService = accountService;
+        this.batchSettings = batchSettings;
+        this.requestMetrics = requestMetrics;
     }
 
     @Override
     public void init() {
-        Spark.post(
+        post(
                 "/accounts",
-                (request, response) ->  {
-                    BigDecimal amount = extractAmount(request);
+                json((request, response) -> {
+                    Money amount = extractAmount(request);
 
-                    response.type(APPLICATION_JSON);
                     return accountService.createAccount(amount);
-                },
-                RESPONSE_TRANSFORMER
+                })
+        );
+
+        post(
+                "/accounts/bulk",
+                json((request, response) -> {
+                    Money[] amounts = REQUEST_TRANSFORMER.parseBody(request.body(), Money[].class);
+                    if (amounts == null) {
+                        throw new AccountApiBadRequest("Amounts are not present in request");
+                    }
+                    if (amounts.length > batchSettings.getMaxSize()) {
+                        throw new AccountApiBadRequest("Too many accounts in request, max is "
+                                + batchSettings.getMaxSize());
+                    }
+
+                    return accountService.createAccounts(Arrays.asList(amounts));
+                })
+        );
+
+        get(
+                "/accounts",
+                json((request, response) -> {
+                    long[] accountIds = extractAccountIds(request);
+
+                    return getAccounts(accountIds);
+                })
+        );
+
+        post(
+                "/accounts/lookup",
+                json((request, response) -> {
+                    long[] accountIds = REQUEST_TRANSFORMER.parseBody(request.body(), long[].class);
+                    if (accountIds == null) {
+                        throw new AccountApiBadRequest("Account ids are not present in request");
+                    }
+
+                    return getAccounts(accountIds);
+                })
         );
 
-        Spark.get(
+        //registered before /accounts/:accountId, the first matching route handles request
+        get("/accounts/export", new AccountExportRoute(accountService, batchSettings.getChunkSize()));
+
+        get(
                 "/accounts/:accountId",
-                (request, response) -> {
+                json((request, response) -> {
                     long accountId = Long.parseLong(request.params("accountId"));
 
-                    response.type(APPLICATION_JSON);
                     return accountService.getAccount(accountId)
                             .orElseThrow(() -> new AccountApiBadRequest("Account not found"));
-                },
-                RESPONSE_TRANSFORMER
+                })
         );
 
-        Spark.put(
+        put(
                 "/accounts/:accountId/deposits",
-                (request, response) -> {
-                    BigDecimal amount = extractAmount(request);
+                json((request, response) -> {
+                    Money amount = extractAmount(request);
                     long accountId = Long.parseLong(request.params("accountId"));
 
-                    response.type(APPLICATION_JSON);
                     return accountService.deposit(accountId, amount);
-                },
-                RESPONSE_TRANSFORMER
+                })
         );
 
-        Spark.put(
+        put(
                 "/accounts/:accountId/withdrawals",
-                (request, response) -> {
-                    BigDecimal amount = extractAmount(request);
+                json((request, response) -> {
+                    Money amount = extractAmount(request);
                     long accountId = Long.parseLong(request.params("accountId"));
 
-                    response.type(APPLICATION_JSON);
                     return accountService.withdraw(accountId, amount);
-                },
-                RESPONSE_TRANSFORMER
+                })
         );
 
-        Spark.post(
+        post(
                 "/accounts/transactions",
-                (request, response) -> {
-                    String body = request.body();
+                json((request, response) -> {
                     AccountTransactionDTO accountTransactionDto =
-                            REQUEST_TRANSFORMER.parseBody(body, AccountTransactionDTO.class);
-                    AccountTransactionValidator.validate(accountTransactionDto);
+                            AccountTransactionParser.parseTransaction(requestBody(request));
                     accountService.transaction(accountTransactionDto.toTransaction());
                     return accountTransactionDto;
-                },
-                RESPONSE_TRANSFORMER
+                })
+        );
+
+        post(
+                "/accounts/transactions/batch",
+                json((request, response) -> {
+                    AccountTransactionBatchDTO batchDto =
+                            AccountTransactionParser.parseBatch(requestBody(request), batchSettings.getMaxSize());
+                    var results = accountService.transactions(batchDto.toTransactions(), batchDto.getMode());
+
+                    return new AccountTransactionBatchResultDTO(batchDto.getMode(), results);
+                })
+        );
+
+        post(
+                "/accounts/transactions/multi-leg",
+                json((request, response) -> {
+                    MultiLegTransaction transaction = AccountTransactionParser.parseMultiLegTransaction(
+                            requestBody(request), batchSettings.getMaxSize());
+                    accountService.transaction(transaction);
+                    return transaction;
+                })
         );
 
         Spark.exception(
@@ -106,14 +175,85 @@ public class AccountController implements SparkController {
                     response.body(RESPONSE_TRANSFORMER.render(error));
                 }
         );
+
+        Spark.exception(
+                AccountApiUnavailable.class,
+                (exception, request, response) -> {
+                    response.status(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    response.type(APPLICATION_JSON);
+                    response.header("Retry-After", "1");
+                    ResponseError error = new ResponseError(exception.getMessage());
+                    response.body(RESPONSE_TRANSFORMER.render(error));
+                }
+        );
+    }
+
+    /**
+     * Request body stream of servlet container. Spark wrapper of request would read the whole body
+     * into memory on the first access.
+     */
+    private static InputStream requestBody(Request request) throws IOException {
+        ServletRequest servletRequest = request.raw();
+        while (servletRequest instanceof ServletRequestWrapper) {
+            servletRequest = ((ServletRequestWrapper) servletRequest).getRequest();
+        }
+        return servletRequest.getInputStream();
+    }
+
+    private static Route json(Route route) {
+        return new JsonStreamingRoute(route, RESPONSE_TRANSFORMER);
+    }
+
+    private void get(String path, Route route) {
+        Spark.get(path, timed("GET", path, route));
+    }
+
+    private void post(String path, Route route) {
+        Spark.post(path, timed("POST", path, route));
+    }
+
+    private void put(String path, Route route) {
+        Spark.put(path, timed("PUT", path, route));
+    }
+
+    private Route timed(String method, String path, Route route) {
+        return new TimedRoute(route, requestMetrics.register(method, path));
+    }
+
+    /**
+     * Accounts are read by the engine while the response is written, ids are checked by the engine
+     * on the first read, before any byte of the response is sent.
+     */
+    private AccountLookupResultDTO getAccounts(long[] accountIds) {
+        return new AccountLookupResultDTO(accountIds, accountService::getAccounts);
+    }
+
+    /**
+     * Account ids from comma separated {@code ids} query param, param may repeat.
+     */
+    private static long[] extractAccountIds(Request request) {
+        String[] values = request.queryMap("ids").values();
+        if (values == null) {
+            throw new AccountApiBadRequest("Account ids are not present in request");
+        }
+        try {
+            return Arrays.stream(values)
+                    .flatMap(value -> Arrays.stream(value.split(",")))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .mapToLong(Long::parseLong)
+                    .toArray();
+        } catch (NumberFormatException e) {
+            throw new AccountApiBadRequest("Bad account id", e);
+        }
     }
 
-    private static BigDecimal extractAmount(Request request) {
+    private static Money extractAmount(Request request) {
         String amountStrValue = request.queryMap("amount").value();
         if (amountStrValue == null) {
             throw new AccountApiBadRequest("Amount is not present in request");
         }
-        BigDecimal amount = new BigDecimal(amountStrValue);
+        Money amount = Money.of(amountStrValue);
         return amount;
     }
 }
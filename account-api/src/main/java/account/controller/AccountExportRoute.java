@@ -0,0 +1,104 @@
+package account.controller;
+
+import account.controller.transformer.JsonSerializers;
+import account.controller.transformer.Utf8JsonWriter;
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.service.AccountService;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@code GET /accounts/export}: every account as newline-delimited json in ascending id order.
+ * <p>
+ * Accounts are read by keyset pages ({@link AccountService#getAccountsAfter}), every page is written
+ * and flushed before the next one is read, so memory does not depend on number of accounts and no lock
+ * or connection is held between pages. Optional {@code after} query param (id of the last received account)
+ * is the resume token of interrupted export. Response is gzipped if client accepts it.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class AccountExportRoute implements Route {
+
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final AccountService accountService;
+    private final int pageSize;
+
+    public AccountExportRoute(AccountService accountService, int pageSize) {
+        this.accountService = accountService;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        long afterId = extractAfterId(request);
+        //the first page is read before response is started, so its errors are reported with status
+        List<Account> page = accountService.getAccountsAfter(afterId, pageSize);
+        response.type(APPLICATION_NDJSON);
+        String acceptEncoding = request.headers("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        if (gzip) {
+            response.header("Content-Encoding", "gzip");
+        }
+        OutputStream out = response.raw().getOutputStream();
+        export(page, gzip ? new GZIPOutputStream(out, BUFFER_SIZE, true) : out);
+        // Spark writes nothing for committed response, it is completed by servlet container
+        return "";
+    }
+
+    /**
+     * Write {@code firstPage} and all following pages, flushing {@code out} after every page.
+     * Gzip stream is finished, output stream is not closed.
+     *
+     * @return exported accounts
+     */
+    long export(List<Account> firstPage, OutputStream out) throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter(BUFFER_SIZE).reset(out);
+        long exported = 0;
+        List<Account> page = firstPage;
+        while (true) {
+            for (Account account : page) {
+                JsonSerializers.write(account, writer);
+                writer.newLine();
+            }
+            exported += page.size();
+            writer.flush();
+            out.flush();
+            if (page.size() < pageSize) {
+                break;
+            }
+            page = accountService.getAccountsAfter(page.get(page.size() - 1).getId(), pageSize);
+        }
+        if (out instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) out).finish();
+        }
+        return exported;
+    }
+
+    private static long extractAfterId(Request request) {
+        String after = request.queryParams("after");
+        if (after == null) {
+            return 0;
+        }
+        try {
+            long afterId = Long.parseLong(after.trim());
+            if (afterId < 0) {
+                throw new AccountApiBadRequest("Bad resume token");
+            }
+            return afterId;
+        } catch (NumberFormatException e) {
+            throw new AccountApiBadRequest("Bad resume token", e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package account.controller;
+
+import account.controller.transformer.JsonResponseTransformer;
+import account.controller.dto.SupplyDTO;
+import account.controller.transformer.JsonStreamingRoute;
+import account.exception.AccountApiBadRequest;
+import account.service.AccountService;
+import account.service.audit.SupplyAuditor;
+import account.service.db.LockContentionTracker;
+import spark.Spark;
+
+import javax.inject.Inject;
+
+/**
+ * Operational endpoints.
+ * <ul>
+ *     <li>{@code GET /admin/contention?limit=N} - accounts with the highest row lock wait</li>
+ *     <li>{@code DELETE /admin/contention} - forget tracked accounts</li>
+ *     <li>{@code GET /admin/supply} - total money of all accounts and the latest supply audit</li>
+ *     <li>{@code POST /admin/supply/audit} - check supply against accounts now</li>
+ * </ul>
+ *
+ * @author fbokovikov
+ */
+public class AdminController implements SparkController {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private static final JsonResponseTransformer RESPONSE_TRANSFORMER = new JsonResponseTransformer();
+
+    private final LockContentionTracker contentionTracker;
+    private final AccountService accountService;
+    private final SupplyAuditor supplyAuditor;
+
+    @Inject
+    public AdminController(LockContentionTracker contentionTracker, AccountService accountService,
+                           SupplyAuditor supplyAuditor) {
+        this.contentionTracker = contentionTracker;
+        this.accountService = accountService;
+        this.supplyAuditor = supplyAuditor;
+    }
+
+    @Override
+    public void init() {
+        Spark.get(
+                "/admin/contention",
+                new JsonStreamingRoute((request, response) -> {
+                    String limitValue = request.queryParams("limit");
+                    int limit;
+                    try {
+                        limit = limitValue == null ? DEFAULT_LIMIT : Integer.parseInt(limitValue);
+                    } catch (NumberFormatException e) {
+                        throw new AccountApiBadRequest("Bad limit", e);
+                    }
+                    if (limit <= 0) {
+                        throw new AccountApiBadRequest("Limit should be positive");
+                    }
+                    return contentionTracker.hottest(limit);
+                }, RESPONSE_TRANSFORMER)
+        );
+
+        Spark.delete(
+                "/admin/contention",
+                (request, response) -> {
+                    contentionTracker.reset();
+                    response.status(204);
+                    return "";
+                }
+        );
+
+        Spark.get(
+                "/admin/supply",
+                new JsonStreamingRoute((request, response) ->
+                        new SupplyDTO(accountService.getTotalSupply(), supplyAuditor.getLastAudit()),
+                        RESPONSE_TRANSFORMER)
+        );
+
+        Spark.post(
+                "/admin/supply/audit",
+                new JsonStreamingRoute((request, response) -> supplyAuditor.audit(), RESPONSE_TRANSFORMER)
+        );
+    }
+}
@@ -0,0 +1,237 @@
+package account.controller;
+
+import account.db.pool.ConnectionPool;
+import account.metrics.PrometheusWriter;
+import account.metrics.RequestMetrics;
+import account.metrics.RouteMetrics;
+import account.service.AccountService;
+import account.service.audit.SupplyAudit;
+import account.service.audit.SupplyAuditor;
+import account.service.cache.CachingAccountService;
+import account.service.group.GroupCommitAccountService;
+import account.service.shard.ShardedAccountService;
+import account.service.snapshot.CommittedAccounts;
+import account.service.snapshot.SnapshotAccountService;
+import spark.Spark;
+
+import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code GET /metrics} in Prometheus text format: http routes, JDBC statements, statement cache,
+ * connection pools (of every shard too), account cache, group commit, snapshot reads and supply audits
+ * (when enabled).
+ *
+ * @author fbokovikov
+ */
+public class MetricsController implements SparkController {
+
+    /**
+     * Upper bounds of exposed buckets of group commit sizes.
+     */
+    private static final long[] GROUP_SIZE_BUCKETS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    private final RequestMetrics requestMetrics;
+    private final ConnectionPool connectionPool;
+    private final CommittedAccounts committedAccounts;
+    private final SupplyAuditor supplyAuditor;
+    private final AccountService accountService;
+
+    @Inject
+    public MetricsController(RequestMetrics requestMetrics, ConnectionPool connectionPool,
+                             CommittedAccounts committedAccounts, SupplyAuditor supplyAuditor,
+                             AccountService accountService) {
+        this.requestMetrics = requestMetrics;
+        this.connectionPool = connectionPool;
+        this.committedAccounts = committedAccounts;
+        this.supplyAuditor = supplyAuditor;
+        this.accountService = accountService;
+    }
+
+    @Override
+    public void init() {
+        Spark.get(
+                "/metrics",
+                (request, response) -> {
+                    response.type(PrometheusWriter.CONTENT_TYPE);
+                    return render();
+                }
+        );
+    }
+
+    String render() {
+        var writer = new PrometheusWriter();
+        writeRoutes(writer);
+        writeJdbc(writer);
+        //cache is bound in front of the engine only
+        if (accountService instanceof CachingAccountService) {
+            writeCache(writer, (CachingAccountService) accountService);
+        }
+        AccountService engine = engine();
+        if (engine instanceof GroupCommitAccountService) {
+            writeGroupCommit(writer, (GroupCommitAccountService) engine);
+        }
+        if (committedAccounts.isEnabled()) {
+            writeSnapshot(writer);
+        }
+        if (supplyAuditor.isEnabled()) {
+            writeSupplyAudit(writer);
+        }
+        return writer.toString();
+    }
+
+    private void writeRoutes(PrometheusWriter writer) {
+        writer.header("account_http_requests_total", "counter",
+                "Http requests by route and outcome (bad_request 400, unavailable 503, error 500).");
+        for (RouteMetrics route : requestMetrics.getRoutes()) {
+            for (RouteMetrics.Outcome outcome : RouteMetrics.Outcome.values()) {
+                writer.sample("account_http_requests_total",
+                        routeLabels(route) + "," + PrometheusWriter.label("outcome", outcome.name().toLowerCase()),
+                        route.getCount(outcome));
+            }
+        }
+        writer.header("account_http_request_duration_seconds", "histogram", "Http request handling time.");
+        for (RouteMetrics route : requestMetrics.getRoutes()) {
+            writer.nanosHistogram("account_http_request_duration_seconds", routeLabels(route), route.getLatency());
+        }
+    }
+
+    /**
+     * Metrics of the main pool have no labels, pools of shards (sharded engine) are labeled by shard index.
+     */
+    private void writeJdbc(PrometheusWriter writer) {
+        Map<String, ConnectionPool> pools = pools();
+        writer.header("account_jdbc_statement_duration_seconds", "histogram", "JDBC statement execution time.");
+        pools.forEach((labels, pool) -> writer.nanosHistogram("account_jdbc_statement_duration_seconds", labels,
+                pool.getJdbcMetrics().getStatementTime()));
+        writer.header("account_jdbc_lock_duration_seconds", "histogram",
+                "Execution time of SELECT ... FOR UPDATE, mostly row lock wait under contention.");
+        pools.forEach((labels, pool) -> writer.nanosHistogram("account_jdbc_lock_duration_seconds", labels,
+                pool.getJdbcMetrics().getLockTime()));
+        writer.header("account_jdbc_commits_total", "counter", "Committed transactions.");
+        pools.forEach((labels, pool) -> writer.sample("account_jdbc_commits_total", labels,
+                pool.getJdbcMetrics().getCommits()));
+        writer.header("account_jdbc_rollbacks_total", "counter",
+                "Rolled back transactions, including ones abandoned by rejected operations.");
+        pools.forEach((labels, pool) -> writer.sample("account_jdbc_rollbacks_total", labels,
+                pool.getJdbcMetrics().getRollbacks()));
+        writer.header("account_db_pool_acquire_duration_seconds", "histogram", "Wait for pooled connection.");
+        pools.forEach((labels, pool) -> writer.nanosHistogram("account_db_pool_acquire_duration_seconds", labels,
+                pool.getAcquireLatency()));
+        writer.header("account_db_pool_timeouts_total", "counter", "Borrowers rejected with 503.");
+        pools.forEach((labels, pool) -> writer.sample("account_db_pool_timeouts_total", labels, pool.getTimeouts()));
+        writer.header("account_db_pool_connections", "gauge", "Pooled connections by state.");
+        pools.forEach((labels, pool) -> writer
+                .sample("account_db_pool_connections", with(labels, "state", "active"), pool.getActive())
+                .sample("account_db_pool_connections", with(labels, "state", "idle"), pool.getIdle()));
+        writer.header("account_db_pool_waiters", "gauge", "Threads waiting for pooled connection.");
+        pools.forEach((labels, pool) -> writer.sample("account_db_pool_waiters", labels, pool.getWaiters()));
+        writer.header("account_jdbc_statement_cache_total", "counter",
+                "Prepared statements reused from per-connection cache (hit) or parsed by database (miss).");
+        pools.forEach((labels, pool) -> writer
+                .sample("account_jdbc_statement_cache_total", with(labels, "result", "hit"),
+                        pool.getStatementCacheHits())
+                .sample("account_jdbc_statement_cache_total", with(labels, "result", "miss"),
+                        pool.getStatementCacheMisses()));
+    }
+
+    /**
+     * @return connection pools by their labels
+     */
+    private Map<String, ConnectionPool> pools() {
+        Map<String, ConnectionPool> pools = new LinkedHashMap<>();
+        pools.put("", connectionPool);
+        AccountService engine = engine();
+        if (engine instanceof ShardedAccountService) {
+            List<ConnectionPool> shardPools = ((ShardedAccountService) engine).getShardPools();
+            for (int i = 0; i < shardPools.size(); i++) {
+                pools.put(PrometheusWriter.label("shard", String.valueOf(i)), shardPools.get(i));
+            }
+        }
+        return pools;
+    }
+
+    private static void writeCache(PrometheusWriter writer, CachingAccountService cache) {
+        writer.header("account_cache_reads_total", "counter", "Account reads by cache result.")
+                .sample("account_cache_reads_total", PrometheusWriter.label("result", "hit"), cache.getHits())
+                .sample("account_cache_reads_total", PrometheusWriter.label("result", "miss"), cache.getMisses())
+                .header("account_cache_collapsed_misses_total", "counter",
+                        "Misses served by load of a concurrent miss of the same account.")
+                .sample("account_cache_collapsed_misses_total", "", cache.getCollapsedMisses())
+                .header("account_cache_evictions_total", "counter", "Accounts evicted by size or time.")
+                .sample("account_cache_evictions_total", "", cache.getEvictions())
+                .header("account_cache_accounts", "gauge", "Accounts in cache.")
+                .sample("account_cache_accounts", "", cache.getSize());
+    }
+
+    private static void writeGroupCommit(PrometheusWriter writer, GroupCommitAccountService groupCommit) {
+        writer.header("account_group_commit_size", "histogram", "Updates committed by one database transaction.")
+                .histogram("account_group_commit_size", "", groupCommit.getGroupSizes(), GROUP_SIZE_BUCKETS);
+    }
+
+    private void writeSnapshot(PrometheusWriter writer) {
+        writer.header("account_snapshot_publish_lag_seconds", "histogram",
+                "Time from commit start to publication of committed accounts, staleness bound of snapshot reads.")
+                .nanosHistogram("account_snapshot_publish_lag_seconds", "", committedAccounts.getPublishLag())
+                .header("account_snapshot_reads_total", "counter", "Account reads by source.")
+                .sample("account_snapshot_reads_total", PrometheusWriter.label("source", "snapshot"),
+                        committedAccounts.getHits())
+                .sample("account_snapshot_reads_total", PrometheusWriter.label("source", "database"),
+                        committedAccounts.getMisses())
+                .header("account_snapshot_accounts", "gauge", "Accounts in committed snapshot.")
+                .sample("account_snapshot_accounts", "", committedAccounts.getSize())
+                .header("account_snapshot_version", "gauge", "Latest version taken by committing transaction.")
+                .sample("account_snapshot_version", "", committedAccounts.getVersion());
+    }
+
+    private void writeSupplyAudit(PrometheusWriter writer) {
+        SupplyAudit lastAudit = supplyAuditor.getLastAudit();
+        writer.header("account_supply_audits_total", "counter", "Complete checks of all supply stripes.")
+                .sample("account_supply_audits_total", "", supplyAuditor.getAudits())
+                .header("account_supply_audit_failures_total", "counter", "Checks stopped by an error.")
+                .sample("account_supply_audit_failures_total", "", supplyAuditor.getFailures())
+                .header("account_supply_discrepancies_total", "counter",
+                        "Supply stripes found differing from their accounts by all audits.")
+                .sample("account_supply_discrepancies_total", "", supplyAuditor.getDiscrepancies())
+                .header("account_supply_discrepant_stripes", "gauge",
+                        "Supply stripes differing from their accounts in the latest audit.")
+                .sample("account_supply_discrepant_stripes", "",
+                        lastAudit == null ? 0 : lastAudit.getDiscrepantStripes().size())
+                .header("account_supply_discrepancy", "gauge",
+                        "Sum of accounts minus supply in the latest audit, zero if money is conserved.")
+                .sample("account_supply_discrepancy", "",
+                        lastAudit == null ? 0 : Double.parseDouble(lastAudit.getDiscrepancy().toString()))
+                .header("account_supply_audit_duration_seconds", "histogram", "Time of complete audit.")
+                .nanosHistogram("account_supply_audit_duration_seconds", "", supplyAuditor.getDuration())
+                .header("account_supply_last_audit_timestamp_seconds", "gauge", "End of the latest audit.")
+                .sample("account_supply_last_audit_timestamp_seconds", "",
+                        lastAudit == null ? 0 : lastAudit.getFinishedAtMillis() / 1000.0);
+    }
+
+    /**
+     * @return bound engine behind cache or snapshot reads
+     */
+    private AccountService engine() {
+        if (accountService instanceof CachingAccountService) {
+            return ((CachingAccountService) accountService).getDelegate();
+        }
+        if (accountService instanceof SnapshotAccountService) {
+            return ((SnapshotAccountService) accountService).getDelegate();
+        }
+        return accountService;
+    }
+
+    /**
+     * @return {@code labels} with one more label
+     */
+    private static String with(String labels, String name, String value) {
+        return (labels.isEmpty() ? "" : labels + ",") + PrometheusWriter.label(name, value);
+    }
+
+    private static String routeLabels(RouteMetrics route) {
+        return PrometheusWriter.label("method", route.getMethod()) + ","
+                + PrometheusWriter.label("route", route.getPath());
+    }
+}
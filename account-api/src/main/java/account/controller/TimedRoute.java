@@ -0,0 +1,47 @@
+package account.controller;
+
+import account.exception.AccountApiBadRequest;
+import account.exception.AccountApiUnavailable;
+import account.metrics.RouteMetrics;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Route recording outcome and handling time of another route into its {@link RouteMetrics}.
+ * Exceptions are recorded by type (the same way they are mapped to http status) and rethrown.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class TimedRoute implements Route {
+
+    private final Route route;
+    private final RouteMetrics metrics;
+
+    public TimedRoute(Route route, RouteMetrics metrics) {
+        this.route = route;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        long start = System.nanoTime();
+        RouteMetrics.Outcome outcome = RouteMetrics.Outcome.ERROR;
+        try {
+            Object result = route.handle(request, response);
+            outcome = RouteMetrics.Outcome.OK;
+            return result;
+        } catch (AccountApiBadRequest e) {
+            outcome = RouteMetrics.Outcome.BAD_REQUEST;
+            throw e;
+        } catch (AccountApiUnavailable e) {
+            outcome = RouteMetrics.Outcome.UNAVAILABLE;
+            throw e;
+        } finally {
+            metrics.record(outcome, System.nanoTime() - start);
+        }
+    }
+}
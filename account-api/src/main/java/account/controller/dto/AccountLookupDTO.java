@@ -0,0 +1,54 @@
+package account.controller.dto;
+
+import account.model.Account;
+import account.model.Money;
+
+import javax.annotation.Nullable;
+import java.util.Optional;
+
+
+/**
+ * Result of one id of multi-get: found account or error.
+ *
+ * @author fbokovikov
+ */
+public class AccountLookupDTO {
+
+    private final long id;
+
+    @Nullable
+    private final Money amount;
+
+    @Nullable
+    private final String error;
+
+    private AccountLookupDTO(long id, @Nullable Money amount, @Nullable String error) {
+        this.id = id;
+        this.amount = amount;
+        this.error = error;
+    }
+
+    public static AccountLookupDTO of(long id, Optional<Account> account) {
+        return account
+                .map(found -> new AccountLookupDTO(id, found.getAmount(), null))
+                .orElseGet(() -> new AccountLookupDTO(id, null, "Account not found"));
+    }
+
+    public boolean isFound() {
+        return error == null;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Nullable
+    public Money getAmount() {
+        return amount;
+    }
+
+    @Nullable
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,60 @@
+package account.controller.dto;
+
+import account.model.Account;
+
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+
+/**
+ * Results of multi-get in order of requested ids, read while they are written
+ * (see {@link account.service.AccountService#getAccounts(long[], Consumer)}), so the response is not
+ * built in memory. Counts of found and missing ids are known once results are written, they follow them.
+ *
+ * @author fbokovikov
+ */
+public class AccountLookupResultDTO {
+
+    private final long[] accountIds;
+    private final BiConsumer<long[], Consumer<Optional<Account>>> lookup;
+
+    private int found;
+
+    /**
+     * @param lookup passes found account or empty for every id in order of ids
+     */
+    public AccountLookupResultDTO(long[] accountIds, BiConsumer<long[], Consumer<Optional<Account>>> lookup) {
+        this.accountIds = accountIds;
+        this.lookup = lookup;
+    }
+
+    /**
+     * Look accounts up and pass result of every id to {@code consumer} as soon as it is read.
+     */
+    public void forEach(Consumer<AccountLookupDTO> consumer) {
+        int[] index = {0};
+        found = 0;
+        lookup.accept(accountIds, account -> {
+            AccountLookupDTO result = AccountLookupDTO.of(accountIds[index[0]++], account);
+            if (result.isFound()) {
+                found++;
+            }
+            consumer.accept(result);
+        });
+    }
+
+    /**
+     * @return found accounts, known after {@link #forEach(Consumer)}
+     */
+    public int getFound() {
+        return found;
+    }
+
+    /**
+     * @return missing accounts, known after {@link #forEach(Consumer)}
+     */
+    public int getMissing() {
+        return accountIds.length - found;
+    }
+}
@@ -0,0 +1,36 @@
+package account.controller.dto;
+
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+/**
+ * @author fbokovikov
+ */
+public class AccountTransactionBatchDTO {
+
+    private final BatchMode mode;
+    private final List<AccountTransactionDTO> transactions;
+
+    public AccountTransactionBatchDTO(BatchMode mode, List<AccountTransactionDTO> transactions) {
+        this.mode = mode;
+        this.transactions = transactions;
+    }
+
+    public List<AccountTransaction> toTransactions() {
+        return transactions.stream()
+                .map(AccountTransactionDTO::toTransaction)
+                .collect(Collectors.toList());
+    }
+
+    public BatchMode getMode() {
+        return mode;
+    }
+
+    public List<AccountTransactionDTO> getTransactions() {
+        return transactions;
+    }
+}
@@ -0,0 +1,43 @@
+package account.controller.dto;
+
+import account.model.BatchMode;
+import account.model.TransactionResult;
+
+import java.util.List;
+
+
+/**
+ * Results of a transaction batch in order of its transactions.
+ *
+ * @author fbokovikov
+ */
+public class AccountTransactionBatchResultDTO {
+
+    private final BatchMode mode;
+    private final int applied;
+    private final int rejected;
+    private final List<TransactionResult> results;
+
+    public AccountTransactionBatchResultDTO(BatchMode mode, List<TransactionResult> results) {
+        this.mode = mode;
+        this.applied = (int) results.stream().filter(TransactionResult::isApplied).count();
+        this.rejected = results.size() - applied;
+        this.results = results;
+    }
+
+    public BatchMode getMode() {
+        return mode;
+    }
+
+    public int getApplied() {
+        return applied;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public List<TransactionResult> getResults() {
+        return results;
+    }
+}
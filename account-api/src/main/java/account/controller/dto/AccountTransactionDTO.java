@@ -1,8 +1,8 @@
 package account.controller.dto;
 
 import account.model.AccountTransaction;
+import account.model.Money;
 
-import java.math.BigDecimal;
 
 /**
  * @author fbokovikov
@@ -11,9 +11,9 @@ public class AccountTransactionDTO {
 
     private final Long fromId;
     private final Long toId;
-    private final BigDecimal amount;
+    private final Money amount;
 
-    public AccountTransactionDTO(Long fromId, Long toId, BigDecimal amount) {
+    public AccountTransactionDTO(Long fromId, Long toId, Money amount) {
         this.fromId = fromId;
         this.toId = toId;
         this.amount = amount;
@@ -35,7 +35,7 @@ public class AccountTransactionDTO {
         return toId;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 }
@@ -0,0 +1,294 @@
+package account.controller.dto;
+
+import account.controller.transformer.Utf8JsonReader;
+import account.exception.AccountApiBadRequest;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionLeg;
+import account.service.AccountServiceChecks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser of transaction, batch and multi-leg transaction requests without reflection.
+ * <p>
+ * Checks of {@link AccountTransactionValidator} are made while reading: a field is rejected
+ * as soon as it is read, a batch is rejected on the first bad transaction or when it gets
+ * longer than max size, the rest of request is not read. Unknown fields are skipped.
+ *
+ * @author fbokovikov
+ */
+public final class AccountTransactionParser {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final BatchMode[] MODES = BatchMode.values();
+
+    private static final ThreadLocal<Utf8JsonReader> READERS =
+            ThreadLocal.withInitial(() -> new Utf8JsonReader(BUFFER_SIZE));
+
+    private AccountTransactionParser() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return valid transaction
+     * @throws AccountApiBadRequest if request is not a json object or transaction violates common sense
+     */
+    public static AccountTransactionDTO parseTransaction(InputStream in) throws IOException {
+        Utf8JsonReader reader = READERS.get().reset(in);
+        try {
+            if (reader.isEnd() || reader.nextNull()) {
+                throw new AccountApiBadRequest("Transaction is not present in request");
+            }
+            AccountTransactionDTO transaction = readTransaction(reader);
+            expectEnd(reader);
+            return transaction;
+        } finally {
+            reader.reset(null);
+        }
+    }
+
+    /**
+     * @param maxSize max transactions in batch
+     * @return valid batch
+     * @throws AccountApiBadRequest if request is not a json object or batch or any of its transactions
+     *                              violates common sense, index of bad transaction is in message
+     */
+    public static AccountTransactionBatchDTO parseBatch(InputStream in, int maxSize) throws IOException {
+        Utf8JsonReader reader = READERS.get().reset(in);
+        try {
+            if (reader.isEnd() || reader.nextNull()) {
+                throw new AccountApiBadRequest("Transactions are not present in request");
+            }
+            BatchMode mode = null;
+            List<AccountTransactionDTO> transactions = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                CharSequence name = reader.nextName();
+                if ("mode".contentEquals(name)) {
+                    mode = reader.nextNull() ? null : readMode(reader.nextScalar());
+                } else if ("transactions".contentEquals(name)) {
+                    transactions = reader.nextNull() ? null : readTransactions(reader, maxSize);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            expectEnd(reader);
+
+            if (mode == null) {
+                throw new AccountApiBadRequest("Batch mode is not present in request");
+            }
+            if (transactions == null || transactions.isEmpty()) {
+                throw new AccountApiBadRequest("Transactions are not present in request");
+            }
+            return new AccountTransactionBatchDTO(mode, transactions);
+        } finally {
+            reader.reset(null);
+        }
+    }
+
+    /**
+     * @param maxLegs max legs of transaction
+     * @return transaction with valid legs (netting is checked by {@link AccountServiceChecks})
+     * @throws AccountApiBadRequest if request is not a json object or any leg violates common sense,
+     *                              index of bad leg is in message
+     */
+    public static MultiLegTransaction parseMultiLegTransaction(InputStream in, int maxLegs) throws IOException {
+        Utf8JsonReader reader = READERS.get().reset(in);
+        try {
+            if (reader.isEnd() || reader.nextNull()) {
+                throw new AccountApiBadRequest("Legs are not present in request");
+            }
+            List<TransactionLeg> legs = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                CharSequence name = reader.nextName();
+                if ("legs".contentEquals(name)) {
+                    legs = reader.nextNull() ? null : readLegs(reader, maxLegs);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            expectEnd(reader);
+
+            if (legs == null || legs.isEmpty()) {
+                throw new AccountApiBadRequest("Legs are not present in request");
+            }
+            return new MultiLegTransaction.Builder()
+                    .setLegs(legs)
+                    .build();
+        } finally {
+            reader.reset(null);
+        }
+    }
+
+    private static List<TransactionLeg> readLegs(Utf8JsonReader reader, int maxLegs) throws IOException {
+        List<TransactionLeg> legs = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int index = legs.size();
+            if (index == maxLegs) {
+                throw new AccountApiBadRequest("Too many legs in transaction, max is " + maxLegs);
+            }
+            if (reader.nextNull()) {
+                throw new AccountApiBadRequest(AccountServiceChecks.legError(index, "Leg is not present"));
+            }
+            try {
+                legs.add(readLeg(reader));
+            } catch (AccountApiBadRequest e) {
+                if (Utf8JsonReader.BAD_JSON.equals(e.getMessage())) {
+                    throw e;
+                }
+                throw new AccountApiBadRequest(AccountServiceChecks.legError(index, e.getMessage()), e);
+            }
+        }
+        reader.endArray();
+        return legs;
+    }
+
+    private static TransactionLeg readLeg(Utf8JsonReader reader) throws IOException {
+        long accountId = 0;
+        Money amount = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            CharSequence name = reader.nextName();
+            if ("accountId".contentEquals(name)) {
+                accountId = readId(reader);
+            } else if ("amount".contentEquals(name)) {
+                amount = reader.nextNull() ? null : readLegAmount(reader.nextScalar());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        AccountTransactionValidator.validateId(accountId == 0 ? null : accountId);
+        AccountTransactionValidator.validateLegAmount(amount);
+        return new TransactionLeg(accountId, amount);
+    }
+
+    private static List<AccountTransactionDTO> readTransactions(Utf8JsonReader reader, int maxSize)
+            throws IOException {
+        List<AccountTransactionDTO> transactions = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int index = transactions.size();
+            if (index == maxSize) {
+                throw new AccountApiBadRequest("Too many transactions in batch, max is " + maxSize);
+            }
+            if (reader.nextNull()) {
+                throw new AccountApiBadRequest(
+                        AccountServiceChecks.transactionError(index, "Transaction is not present")
+                );
+            }
+            try {
+                transactions.add(readTransaction(reader));
+            } catch (AccountApiBadRequest e) {
+                if (Utf8JsonReader.BAD_JSON.equals(e.getMessage())) {
+                    throw e;
+                }
+                throw new AccountApiBadRequest(AccountServiceChecks.transactionError(index, e.getMessage()), e);
+            }
+        }
+        reader.endArray();
+        return transactions;
+    }
+
+    private static AccountTransactionDTO readTransaction(Utf8JsonReader reader) throws IOException {
+        long fromId = 0;
+        long toId = 0;
+        Money amount = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            CharSequence name = reader.nextName();
+            if ("fromId".contentEquals(name)) {
+                fromId = readId(reader);
+                if (toId != 0) {
+                    AccountTransactionValidator.validateDifferent(fromId, toId);
+                }
+            } else if ("toId".contentEquals(name)) {
+                toId = readId(reader);
+                if (fromId != 0) {
+                    AccountTransactionValidator.validateDifferent(fromId, toId);
+                }
+            } else if ("amount".contentEquals(name)) {
+                amount = reader.nextNull() ? null : readAmount(reader.nextScalar());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        AccountTransactionValidator.validateId(fromId == 0 ? null : fromId);
+        AccountTransactionValidator.validateId(toId == 0 ? null : toId);
+        AccountTransactionValidator.validateAmount(amount);
+        return new AccountTransactionDTO(fromId, toId, amount);
+    }
+
+    /**
+     * @return positive account id
+     */
+    private static long readId(Utf8JsonReader reader) throws IOException {
+        if (reader.nextNull()) {
+            throw new AccountApiBadRequest("Account id is not present");
+        }
+        CharSequence value = reader.nextScalar();
+        long accountId = parseLong(value);
+        AccountTransactionValidator.validateId(accountId);
+        return accountId;
+    }
+
+    private static Money readAmount(CharSequence value) {
+        Money amount = Money.parse(value, 0, value.length());
+        AccountTransactionValidator.validateAmount(amount);
+        return amount;
+    }
+
+    private static Money readLegAmount(CharSequence value) {
+        Money amount = Money.parse(value, 0, value.length());
+        AccountTransactionValidator.validateLegAmount(amount);
+        return amount;
+    }
+
+    private static BatchMode readMode(CharSequence value) {
+        for (BatchMode mode : MODES) {
+            if (mode.name().contentEquals(value)) {
+                return mode;
+            }
+        }
+        throw new AccountApiBadRequest("Unknown batch mode " + value);
+    }
+
+    private static long parseLong(CharSequence value) {
+        int i = 0;
+        boolean negative = value.length() > 0 && value.charAt(0) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == value.length()) {
+            throw new AccountApiBadRequest("Bad account id");
+        }
+        long result = 0;
+        for (; i < value.length(); i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result > (Long.MAX_VALUE - digit) / 10) {
+                throw new AccountApiBadRequest("Bad account id");
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    private static void expectEnd(Utf8JsonReader reader) throws IOException {
+        if (!reader.isEnd()) {
+            throw Utf8JsonReader.badJson();
+        }
+    }
+}
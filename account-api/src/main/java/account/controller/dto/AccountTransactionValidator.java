@@ -1,8 +1,7 @@
 package account.controller.dto;
 
 import account.exception.AccountApiBadRequest;
-
-import java.math.BigDecimal;
+import account.model.Money;
 
 /**
  * Transaction request validator.
@@ -21,13 +20,17 @@ public final class AccountTransactionValidator {
     public static void validate(AccountTransactionDTO transactionDTO) {
         validateId(transactionDTO.getFromId());
         validateId(transactionDTO.getToId());
-        if (transactionDTO.getFromId() == transactionDTO.getToId()) {
+        validateDifferent(transactionDTO.getFromId(), transactionDTO.getToId());
+        validateAmount(transactionDTO.getAmount());
+    }
+
+    static void validateDifferent(long fromId, long toId) {
+        if (fromId == toId) {
             throw new AccountApiBadRequest("From should be different with to");
         }
-        validateAmount(transactionDTO.getAmount());
     }
 
-    private static void validateId(Long accountId) {
+    static void validateId(Long accountId) {
         if (accountId == null) {
             throw new AccountApiBadRequest("Account id is not present");
         }
@@ -36,12 +39,21 @@ public final class AccountTransactionValidator {
         }
     }
 
-    private static void validateAmount(BigDecimal amount) {
+    static void validateAmount(Money amount) {
         if (amount == null) {
             throw new AccountApiBadRequest("Amount is not present in request");
         }
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (!amount.isPositive()) {
             throw new AccountApiBadRequest("Transaction amount should be positive");
         }
     }
+
+    static void validateLegAmount(Money amount) {
+        if (amount == null) {
+            throw new AccountApiBadRequest("Amount is not present in request");
+        }
+        if (amount.signum() == 0) {
+            throw new AccountApiBadRequest("Leg amount should not be zero");
+        }
+    }
 }
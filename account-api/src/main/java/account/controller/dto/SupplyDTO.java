@@ -0,0 +1,33 @@
+package account.controller.dto;
+
+import account.model.Money;
+import account.service.audit.SupplyAudit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Total money of all accounts with the latest supply audit.
+ *
+ * @author fbokovikov
+ */
+public class SupplyDTO {
+
+    private final Money totalSupply;
+
+    @Nullable
+    private final SupplyAudit lastAudit;
+
+    public SupplyDTO(Money totalSupply, @Nullable SupplyAudit lastAudit) {
+        this.totalSupply = totalSupply;
+        this.lastAudit = lastAudit;
+    }
+
+    public Money getTotalSupply() {
+        return totalSupply;
+    }
+
+    @Nullable
+    public SupplyAudit getLastAudit() {
+        return lastAudit;
+    }
+}
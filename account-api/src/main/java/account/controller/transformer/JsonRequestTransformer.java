@@ -1,7 +1,9 @@
 package account.controller.transformer;
 
 import account.exception.AccountApiBadRequest;
+import account.model.Money;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 
 import javax.annotation.concurrent.ThreadSafe;
@@ -14,7 +16,9 @@ import javax.annotation.concurrent.ThreadSafe;
 @ThreadSafe
 public class JsonRequestTransformer {
 
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Money.class, new MoneyTypeAdapter())
+            .create();
 
     public <T> T parseBody(String requestBody, Class<T> tClass) {
         try {
@@ -1,25 +1,52 @@
 package account.controller.transformer;
 
-import com.google.gson.Gson;
 import spark.ResponseTransformer;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Response transformer for json view.
+ * <p>
+ * Responses are rendered with {@link JsonSerializers} straight to output stream
+ * by {@link #render(Object, OutputStream)}, every thread reuses its own {@link Utf8JsonWriter}.
  *
  * @author fbokovikov
  */
 @ThreadSafe
 public class JsonResponseTransformer implements ResponseTransformer {
 
-    /**
-     * Thread-safe json converter.
-     */
-    private static final Gson GSON = new Gson();
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<Utf8JsonWriter> WRITERS =
+            ThreadLocal.withInitial(() -> new Utf8JsonWriter(BUFFER_SIZE));
 
     @Override
-    public String render(Object model) {
-        return GSON.toJson(model);
+    public String render(@Nullable Object model) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            render(model, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write {@code model} as UTF-8 json to {@code out}, output stream is not flushed or closed.
+     */
+    public void render(@Nullable Object model, OutputStream out) throws IOException {
+        Utf8JsonWriter writer = WRITERS.get().reset(out);
+        try {
+            JsonSerializers.write(model, writer);
+            writer.flush();
+        } finally {
+            writer.reset(null);
+        }
     }
 }
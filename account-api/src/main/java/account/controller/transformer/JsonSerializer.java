@@ -0,0 +1,15 @@
+package account.controller.transformer;
+
+import java.io.IOException;
+
+/**
+ * Hand-written json serializer of one response type.
+ *
+ * @param <T> type of serialized objects
+ * @author fbokovikov
+ */
+@FunctionalInterface
+public interface JsonSerializer<T> {
+
+    void write(T value, Utf8JsonWriter out) throws IOException;
+}
@@ -0,0 +1,159 @@
+package account.controller.transformer;
+
+import account.controller.dto.AccountLookupDTO;
+import account.controller.dto.AccountLookupResultDTO;
+import account.controller.dto.AccountTransactionBatchResultDTO;
+import account.controller.dto.AccountTransactionDTO;
+import account.model.Account;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.ResponseError;
+import account.model.TransactionLeg;
+import account.model.TransactionResult;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Serializers of api responses without reflection. Output is the same as of Gson with
+ * {@link MoneyTypeAdapter}: fields in declaration order, {@code null} fields are skipped.
+ * Collections are written as arrays, objects of other types fall back to Gson.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public final class JsonSerializers {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Money.class, new MoneyTypeAdapter())
+            .create();
+
+    private static final Map<Class<?>, JsonSerializer<?>> SERIALIZERS = new IdentityHashMap<>();
+
+    static {
+        register(Account.class, (account, out) -> out.beginObject()
+                .name("id").value(account.getId())
+                .name("amount").value(account.getAmount())
+                .endObject());
+        register(AccountTransactionDTO.class, (transaction, out) -> {
+            out.beginObject();
+            if (transaction.getFromId() != null) {
+                out.name("fromId").value(transaction.getFromId());
+            }
+            if (transaction.getToId() != null) {
+                out.name("toId").value(transaction.getToId());
+            }
+            if (transaction.getAmount() != null) {
+                out.name("amount").value(transaction.getAmount());
+            }
+            out.endObject();
+        });
+        register(TransactionLeg.class, (leg, out) -> out.beginObject()
+                .name("accountId").value(leg.getAccountId())
+                .name("amount").value(leg.getAmount())
+                .endObject());
+        register(MultiLegTransaction.class, (transaction, out) -> {
+            out.beginObject().name("legs");
+            write(transaction.getLegs(), out);
+            out.endObject();
+        });
+        register(ResponseError.class, (error, out) -> {
+            out.beginObject();
+            if (error.getMessage() != null) {
+                out.name("message").value(error.getMessage());
+            }
+            out.endObject();
+        });
+        register(TransactionResult.class, (result, out) -> {
+            out.beginObject().name("status").value(result.getStatus().name());
+            if (result.getMessage() != null) {
+                out.name("message").value(result.getMessage());
+            }
+            out.endObject();
+        });
+        register(AccountTransactionBatchResultDTO.class, (batch, out) -> {
+            out.beginObject()
+                    .name("mode").value(batch.getMode().name())
+                    .name("applied").value(batch.getApplied())
+                    .name("rejected").value(batch.getRejected())
+                    .name("results");
+            write(batch.getResults(), out);
+            out.endObject();
+        });
+        register(AccountLookupDTO.class, (lookup, out) -> {
+            out.beginObject().name("id").value(lookup.getId());
+            if (lookup.getAmount() != null) {
+                out.name("amount").value(lookup.getAmount());
+            }
+            if (lookup.getError() != null) {
+                out.name("error").value(lookup.getError());
+            }
+            out.endObject();
+        });
+        register(AccountLookupResultDTO.class, (result, out) -> {
+            out.beginObject().name("accounts").beginArray();
+            try {
+                result.forEach(lookup -> {
+                    try {
+                        write(lookup, out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.endArray()
+                    .name("found").value(result.getFound())
+                    .name("missing").value(result.getMissing())
+                    .endObject();
+        });
+    }
+
+    private JsonSerializers() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Write {@code model} as json value.
+     */
+    public static void write(@Nullable Object model, Utf8JsonWriter out) throws IOException {
+        if (model == null) {
+            out.nullValue();
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        JsonSerializer<Object> serializer = (JsonSerializer<Object>) SERIALIZERS.get(model.getClass());
+        if (serializer != null) {
+            serializer.write(model, out);
+        } else if (model instanceof List && model instanceof RandomAccess) {
+            List<?> list = (List<?>) model;
+            out.beginArray();
+            for (int i = 0; i < list.size(); i++) {
+                write(list.get(i), out);
+            }
+            out.endArray();
+        } else if (model instanceof Collection) {
+            out.beginArray();
+            for (Object element : (Collection<?>) model) {
+                write(element, out);
+            }
+            out.endArray();
+        } else {
+            out.jsonValue(GSON.toJson(model));
+        }
+    }
+
+    private static <T> void register(Class<T> type, JsonSerializer<T> serializer) {
+        SERIALIZERS.put(type, serializer);
+    }
+}
@@ -0,0 +1,36 @@
+package account.controller.transformer;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Route writing result of another route as json straight to servlet output stream,
+ * without building response string.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class JsonStreamingRoute implements Route {
+
+    private static final String APPLICATION_JSON = "application/json";
+
+    private final Route route;
+    private final JsonResponseTransformer transformer;
+
+    public JsonStreamingRoute(Route route, JsonResponseTransformer transformer) {
+        this.route = route;
+        this.transformer = transformer;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        Object model = route.handle(request, response);
+        response.type(APPLICATION_JSON);
+        transformer.render(model, response.raw().getOutputStream());
+        // Spark writes nothing for empty body, response is completed by servlet container
+        return "";
+    }
+}
@@ -0,0 +1,39 @@
+package account.controller.transformer;
+
+import account.model.Money;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+
+/**
+ * Json representation of {@link Money} as plain decimal number, e.g. {@code {"amount": 10.5}}.
+ * <p>
+ * Number is read from its text, so there is no rounding through {@code double}.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class MoneyTypeAdapter extends TypeAdapter<Money> {
+
+    @Override
+    public void write(JsonWriter out, Money value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.jsonValue(value.toString());
+    }
+
+    @Override
+    public Money read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return Money.of(in.nextString());
+    }
+}
@@ -0,0 +1,383 @@
+package account.controller.transformer;
+
+import account.exception.AccountApiBadRequest;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pull json token reader decoding UTF-8 straight from input stream through a reusable byte buffer.
+ * Reader is reused for many requests of one thread with {@link #reset(InputStream)}.
+ * <p>
+ * Names and scalar values are read into one reusable char buffer and returned as {@link CharSequence},
+ * which is valid until the next read. Commas between values are checked by the reader.
+ * Malformed json is reported as {@link AccountApiBadRequest} with {@value #BAD_JSON} message.
+ *
+ * @author fbokovikov
+ */
+@NotThreadSafe
+public final class Utf8JsonReader {
+
+    public static final String BAD_JSON = "Bad json data";
+
+    private static final int MAX_DEPTH = 64;
+    private static final int MAX_SCALAR_LENGTH = 1024;
+
+    private final byte[] buffer;
+    private final StringBuilder scalar = new StringBuilder(32);
+
+    /**
+     * Whether object or array on every nesting level already had a value.
+     */
+    private final boolean[] hasValue = new boolean[MAX_DEPTH];
+
+    /**
+     * Whether every open level is object (not array).
+     */
+    private final boolean[] objects = new boolean[MAX_DEPTH];
+    private int depth;
+
+    /**
+     * Name has been read, the value after it does not need a comma.
+     */
+    private boolean afterName;
+
+    private int position;
+    private int limit;
+    private InputStream in;
+
+    public Utf8JsonReader(int bufferSize) {
+        Preconditions.checkArgument(bufferSize >= 64, "Buffer size should be at least 64 bytes");
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Start reading new document from {@code in}.
+     */
+    public Utf8JsonReader reset(@Nullable InputStream in) {
+        this.in = in;
+        this.position = 0;
+        this.limit = 0;
+        this.depth = 0;
+        this.afterName = false;
+        return this;
+    }
+
+    /**
+     * @return {@code true} if there is nothing but whitespace till the end of input
+     */
+    public boolean isEnd() throws IOException {
+        return peekNonWhitespace() == -1;
+    }
+
+    /**
+     * Consume {@code null} if it is the next value.
+     *
+     * @return {@code true} if {@code null} was consumed
+     */
+    public boolean nextNull() throws IOException {
+        if (peekNonWhitespace() != 'n') {
+            return false;
+        }
+        expectLiteral("null");
+        return true;
+    }
+
+    public void beginObject() throws IOException {
+        open('{');
+    }
+
+    public void endObject() throws IOException {
+        close('}');
+    }
+
+    public void beginArray() throws IOException {
+        open('[');
+    }
+
+    public void endArray() throws IOException {
+        close(']');
+    }
+
+    /**
+     * @return {@code true} if current object or array has one more member, comma before it is consumed
+     */
+    public boolean hasNext() throws IOException {
+        int next = peekNonWhitespace();
+        if (depth == 0 || next == -1) {
+            throw badJson();
+        }
+        if (next == '}' || next == ']') {
+            return false;
+        }
+        if (hasValue[depth - 1]) {
+            if (next != ',') {
+                throw badJson();
+            }
+            position++;
+        }
+        return true;
+    }
+
+    /**
+     * @return name of the next object member (valid until the next read)
+     */
+    public CharSequence nextName() throws IOException {
+        separate();
+        if (peekNonWhitespace() != '"') {
+            throw badJson();
+        }
+        readString();
+        if (peekNonWhitespace() != ':') {
+            throw badJson();
+        }
+        position++;
+        afterName = true;
+        return scalar;
+    }
+
+    /**
+     * Read string, number or boolean value as text (valid until the next read).
+     * Quotes are not included, escapes are decoded.
+     */
+    public CharSequence nextScalar() throws IOException {
+        separate();
+        int next = peekNonWhitespace();
+        if (next == '"') {
+            readString();
+        } else if (next == '-' || next >= '0' && next <= '9' || next == 't' || next == 'f') {
+            readLiteral();
+        } else {
+            throw badJson();
+        }
+        return scalar;
+    }
+
+    /**
+     * Skip the next value with all nested values.
+     */
+    public void skipValue() throws IOException {
+        int next = peekNonWhitespace();
+        if (next == '{' || next == '[') {
+            int level = depth;
+            if (next == '{') {
+                beginObject();
+            } else {
+                beginArray();
+            }
+            while (depth > level) {
+                if (hasNext()) {
+                    if (objects[depth - 1]) {
+                        nextName();
+                    }
+                    int value = peekNonWhitespace();
+                    if (value == '{') {
+                        beginObject();
+                    } else if (value == '[') {
+                        beginArray();
+                    } else if (!nextNull()) {
+                        nextScalar();
+                    }
+                } else if (peekNonWhitespace() == '}') {
+                    endObject();
+                } else {
+                    endArray();
+                }
+            }
+        } else if (!nextNull()) {
+            nextScalar();
+        }
+    }
+
+    public static AccountApiBadRequest badJson() {
+        return new AccountApiBadRequest(BAD_JSON);
+    }
+
+    private void open(char bracket) throws IOException {
+        separate();
+        if (depth == MAX_DEPTH) {
+            throw badJson();
+        }
+        if (peekNonWhitespace() != bracket) {
+            throw badJson();
+        }
+        position++;
+        objects[depth] = bracket == '{';
+        hasValue[depth++] = false;
+    }
+
+    private void close(char bracket) throws IOException {
+        if (depth == 0 || peekNonWhitespace() != bracket) {
+            throw badJson();
+        }
+        position++;
+        depth--;
+    }
+
+    /**
+     * Mark value of current level as read. Value after a name belongs to the name.
+     */
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            hasValue[depth - 1] = true;
+        }
+    }
+
+    private void readString() throws IOException {
+        position++;
+        scalar.setLength(0);
+        while (true) {
+            int b = read();
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                scalar.append(readEscaped());
+            } else if (b < 0x20) {
+                throw badJson();
+            } else if (b < 0x80) {
+                scalar.append((char) b);
+            } else {
+                appendMultiByte(b);
+            }
+            if (scalar.length() > MAX_SCALAR_LENGTH) {
+                throw badJson();
+            }
+        }
+    }
+
+    private char readEscaped() throws IOException {
+        int b = read();
+        switch (b) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) b;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw badJson();
+                    }
+                    code = code << 4 | digit;
+                }
+                return (char) code;
+            default:
+                throw badJson();
+        }
+    }
+
+    private void appendMultiByte(int first) throws IOException {
+        int extra;
+        int codePoint;
+        if ((first & 0xE0) == 0xC0) {
+            extra = 1;
+            codePoint = first & 0x1F;
+        } else if ((first & 0xF0) == 0xE0) {
+            extra = 2;
+            codePoint = first & 0x0F;
+        } else if ((first & 0xF8) == 0xF0) {
+            extra = 3;
+            codePoint = first & 0x07;
+        } else {
+            throw badJson();
+        }
+        for (int i = 0; i < extra; i++) {
+            int b = read();
+            if ((b & 0xC0) != 0x80) {
+                throw badJson();
+            }
+            codePoint = codePoint << 6 | b & 0x3F;
+        }
+        if (!Character.isValidCodePoint(codePoint)) {
+            throw badJson();
+        }
+        scalar.appendCodePoint(codePoint);
+    }
+
+    /**
+     * Read number or {@code true}/{@code false} till delimiter.
+     */
+    private void readLiteral() throws IOException {
+        scalar.setLength(0);
+        while (true) {
+            int b = peek();
+            if (b == -1 || b == ',' || b == '}' || b == ']' || isWhitespace(b)) {
+                break;
+            }
+            if (!(b >= '0' && b <= '9' || b >= 'a' && b <= 'z' || b == '-' || b == '+' || b == '.' || b == 'E')
+                    || scalar.length() == MAX_SCALAR_LENGTH) {
+                throw badJson();
+            }
+            scalar.append((char) b);
+            position++;
+        }
+        if (scalar.charAt(0) >= 'a' && !"true".contentEquals(scalar) && !"false".contentEquals(scalar)) {
+            throw badJson();
+        }
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        separate();
+        for (int i = 0; i < literal.length(); i++) {
+            if (read() != literal.charAt(i)) {
+                throw badJson();
+            }
+        }
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        int b = peek();
+        while (isWhitespace(b)) {
+            position++;
+            b = peek();
+        }
+        return b;
+    }
+
+    private int read() throws IOException {
+        int b = peek();
+        if (b == -1) {
+            throw badJson();
+        }
+        position++;
+        return b;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            if (in == null) {
+                return -1;
+            }
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return -1;
+            }
+            position = 0;
+            limit = read;
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
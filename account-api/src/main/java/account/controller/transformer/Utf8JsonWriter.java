@@ -0,0 +1,245 @@
+package account.controller.transformer;
+
+import account.model.Money;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Json writer encoding UTF-8 straight into a reusable byte buffer, which is flushed to output stream
+ * when full. Writer is reused for many responses of one thread with {@link #reset(OutputStream)},
+ * so rendering of a response allocates nothing.
+ * <p>
+ * Commas between values are put by the writer, caller only opens and closes objects and arrays.
+ *
+ * @author fbokovikov
+ */
+@NotThreadSafe
+public final class Utf8JsonWriter {
+
+    private static final int MAX_DEPTH = 64;
+
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final byte[] buffer;
+    private final StringBuilder scratch = new StringBuilder(24);
+
+    /**
+     * Whether object or array on every nesting level already has a value.
+     */
+    private final boolean[] hasValue = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    private int position;
+    private OutputStream out;
+
+    public Utf8JsonWriter(int bufferSize) {
+        Preconditions.checkArgument(bufferSize >= 64, "Buffer size should be at least 64 bytes");
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Start new document written to {@code out}.
+     */
+    public Utf8JsonWriter reset(OutputStream out) {
+        this.out = out;
+        this.position = 0;
+        this.depth = 0;
+        this.afterName = false;
+        return this;
+    }
+
+    public Utf8JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public Utf8JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public Utf8JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public Utf8JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Name of the next object member, should be plain ascii without characters to escape.
+     */
+    public Utf8JsonWriter name(String name) throws IOException {
+        separate();
+        ensure(name.length() + 3);
+        buffer[position++] = '"';
+        for (int i = 0; i < name.length(); i++) {
+            buffer[position++] = (byte) name.charAt(i);
+        }
+        buffer[position++] = '"';
+        buffer[position++] = ':';
+        afterName = true;
+        return this;
+    }
+
+    public Utf8JsonWriter value(long value) throws IOException {
+        separate();
+        scratch.setLength(0);
+        scratch.append(value);
+        return ascii(scratch);
+    }
+
+    public Utf8JsonWriter value(@Nullable Money value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        separate();
+        scratch.setLength(0);
+        value.appendTo(scratch);
+        return ascii(scratch);
+    }
+
+    public Utf8JsonWriter value(@Nullable String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        separate();
+        write('"');
+        utf8(value, true);
+        write('"');
+        return this;
+    }
+
+    public Utf8JsonWriter nullValue() throws IOException {
+        separate();
+        ensure(NULL.length);
+        System.arraycopy(NULL, 0, buffer, position, NULL.length);
+        position += NULL.length;
+        return this;
+    }
+
+    /**
+     * Write already encoded json value as is.
+     */
+    public Utf8JsonWriter jsonValue(String json) throws IOException {
+        separate();
+        utf8(json, false);
+        return this;
+    }
+
+    /**
+     * Line separator after top-level value, e.g. of newline-delimited json.
+     */
+    public Utf8JsonWriter newLine() throws IOException {
+        Preconditions.checkState(depth == 0, "New line inside json value");
+        write('\n');
+        return this;
+    }
+
+    /**
+     * Write buffered bytes to output stream (output stream itself is not flushed).
+     */
+    public void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private Utf8JsonWriter open(char bracket) throws IOException {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("Json nesting is deeper than " + MAX_DEPTH);
+        }
+        separate();
+        write(bracket);
+        hasValue[depth++] = false;
+        return this;
+    }
+
+    private Utf8JsonWriter close(char bracket) throws IOException {
+        depth--;
+        write(bracket);
+        return this;
+    }
+
+    /**
+     * Put comma before any value except the first one of object or array and a value after name.
+     */
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasValue[depth - 1]) {
+                write(',');
+            }
+            hasValue[depth - 1] = true;
+        }
+    }
+
+    private Utf8JsonWriter ascii(CharSequence chars) throws IOException {
+        for (int i = 0; i < chars.length(); i++) {
+            write(chars.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Encode {@code chars} to UTF-8, escaping quotes, backslashes and control characters if {@code escape}.
+     */
+    private void utf8(CharSequence chars, boolean escape) throws IOException {
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (escape && (c == '"' || c == '\\')) {
+                ensure(2);
+                buffer[position++] = '\\';
+                buffer[position++] = (byte) c;
+            } else if (escape && c < 0x20) {
+                ensure(6);
+                buffer[position++] = '\\';
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[c >> 4];
+                buffer[position++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars.length()
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                ensure(4);
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                write('?');
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private void write(char c) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flush();
+        }
+    }
+}
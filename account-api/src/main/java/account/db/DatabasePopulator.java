@@ -28,9 +28,16 @@ public class DatabasePopulator {
     }
 
     public void populateDbTables() {
+        runScripts(SCRIPTS);
+    }
+
+    /**
+     * Run SQL scripts from classpath in one connection.
+     */
+    public void runScripts(Collection<String> scripts) {
         try (var connection = dataSource.getConnection()
         ) {
-            for (var script : SCRIPTS) {
+            for (var script : scripts) {
                 var scriptInputStream = ClassLoader.getSystemClassLoader().getResourceAsStream(script);
                 var reader = new InputStreamReader(scriptInputStream);
                 RunScript.execute(connection, reader);
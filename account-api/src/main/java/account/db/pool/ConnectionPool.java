@@ -0,0 +1,262 @@
+package account.db.pool;
+
+import account.exception.AccountApiUnavailable;
+import account.metrics.Histogram;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of physical connections to the underlying {@link DataSource}.
+ * <p>
+ * Every borrowed connection holds one of {@code maxSize} permits, so number of physical connections
+ * never exceeds {@code maxSize}. Borrower waits for a permit not longer than {@code acquireTimeout},
+ * after that {@link AccountApiUnavailable} is thrown (mapped to 503 by controller).
+ * Closing borrowed connection rolls back unfinished transaction and returns connection to the pool.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private final DataSource dataSource;
+    private final ConnectionPoolSettings settings;
+
+    private final Semaphore permits;
+    /**
+     * LIFO to reuse recently returned (warm) connections first.
+     */
+    private final BlockingDeque<PhysicalConnection> idle = new LinkedBlockingDeque<>();
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final Histogram acquireLatency = new Histogram();
+    private final JdbcMetrics jdbcMetrics = new JdbcMetrics();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(DataSource dataSource, ConnectionPoolSettings settings) {
+        this.dataSource = dataSource;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getMaxSize(), true);
+        for (int i = 0; i < settings.getMinSize(); i++) {
+            idle.offerLast(openPhysical());
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        acquirePermit();
+        try {
+            PhysicalConnection physical = takeValid();
+            active.incrementAndGet();
+            acquireLatency.record(System.nanoTime() - start);
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new PooledConnection(this, physical, jdbcMetrics)
+            );
+        } catch (RuntimeException | SQLException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use credentials of underlying DataSource");
+    }
+
+    /**
+     * Borrowed connections count.
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Open connections waiting for borrower.
+     */
+    public int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * Threads waiting for free connection.
+     */
+    public int getWaiters() {
+        return waiters.get();
+    }
+
+    /**
+     * Borrowers rejected after {@code acquireTimeout}.
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Statements reused from per-connection cache.
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     * Statements parsed by database.
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * Time spent in {@link #getConnection()}, nanos.
+     */
+    public Histogram getAcquireLatency() {
+        return acquireLatency;
+    }
+
+    /**
+     * Statement timings, commits and rollbacks of borrowed connections.
+     */
+    public JdbcMetrics getJdbcMetrics() {
+        return jdbcMetrics;
+    }
+
+    public ConnectionPoolSettings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PhysicalConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Called by {@link PooledConnection} when borrower closes connection.
+     *
+     * @param physical connection to return
+     * @param broken   connection could not be reset and should be discarded
+     */
+    void release(PhysicalConnection physical, boolean broken) {
+        active.decrementAndGet();
+        if (broken || closed) {
+            physical.close();
+        } else {
+            physical.getStatementCache().release();
+            idle.offerFirst(physical);
+        }
+        permits.release();
+    }
+
+    private void acquirePermit() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        waiters.incrementAndGet();
+        try {
+            long timeoutNanos = settings.getAcquireTimeout().toNanos();
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                timeouts.increment();
+                throw new AccountApiUnavailable("Connection pool exhausted, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountApiUnavailable("Interrupted while waiting for database connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private PhysicalConnection takeValid() throws SQLException {
+        PhysicalConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (!settings.isValidateOnBorrow() || connection.isValid()) {
+                return connection;
+            }
+            connection.close();
+        }
+        return open();
+    }
+
+    private PhysicalConnection open() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        StatementCache statementCache = new StatementCache(
+                connection,
+                settings.getStatementCacheSize(),
+                statementCacheHits,
+                statementCacheMisses,
+                jdbcMetrics
+        );
+        return new PhysicalConnection(connection, statementCache);
+    }
+
+    private PhysicalConnection openPhysical() {
+        try {
+            return open();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Can not open database connection", e);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,136 @@
+package account.db.pool;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.Duration;
+
+/**
+ * Settings of {@link ConnectionPool}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class ConnectionPoolSettings {
+
+    /**
+     * Connections opened on pool start and kept open.
+     */
+    private final int minSize;
+
+    /**
+     * Upper bound of physical connections (idle and borrowed).
+     */
+    private final int maxSize;
+
+    /**
+     * How long borrower waits for free connection before pool gives up.
+     */
+    private final Duration acquireTimeout;
+
+    /**
+     * Check connection with {@link java.sql.Connection#isValid(int)} before handing it out.
+     */
+    private final boolean validateOnBorrow;
+
+    /**
+     * Prepared statements kept open per physical connection, 0 disables cache.
+     */
+    private final int statementCacheSize;
+
+    public ConnectionPoolSettings(Builder builder) {
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.acquireTimeout = builder.acquireTimeout;
+        this.validateOnBorrow = builder.validateOnBorrow;
+        this.statementCacheSize = builder.statementCacheSize;
+        Preconditions.checkArgument(minSize >= 0, "Min pool size should not be negative");
+        Preconditions.checkArgument(maxSize > 0, "Max pool size should be positive");
+        Preconditions.checkArgument(minSize <= maxSize, "Min pool size should not exceed max size");
+        Preconditions.checkArgument(!acquireTimeout.isNegative(), "Acquire timeout should not be negative");
+        Preconditions.checkArgument(statementCacheSize >= 0, "Statement cache size should not be negative");
+    }
+
+    /**
+     * Settings from {@code account.db.pool.*} system properties.
+     */
+    public static ConnectionPoolSettings fromSystemProperties() {
+        return new Builder()
+                .setMinSize(Integer.getInteger("account.db.pool.minSize", 2))
+                .setMaxSize(Integer.getInteger("account.db.pool.maxSize", 16))
+                .setAcquireTimeout(Duration.ofMillis(Long.getLong("account.db.pool.acquireTimeoutMillis", 500L)))
+                .setValidateOnBorrow(
+                        Boolean.parseBoolean(System.getProperty("account.db.pool.validateOnBorrow", "true")))
+                .setStatementCacheSize(Integer.getInteger("account.db.pool.statementCacheSize", 32))
+                .build();
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public Duration getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public static class Builder {
+        private int minSize = 2;
+        private int maxSize = 16;
+        private Duration acquireTimeout = Duration.ofMillis(500);
+        private boolean validateOnBorrow = true;
+        private int statementCacheSize = 32;
+
+        public Builder setMinSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        public Builder setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder setAcquireTimeout(Duration acquireTimeout) {
+            this.acquireTimeout = acquireTimeout;
+            return this;
+        }
+
+        public Builder setValidateOnBorrow(boolean validateOnBorrow) {
+            this.validateOnBorrow = validateOnBorrow;
+            return this;
+        }
+
+        public Builder setStatementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        public ConnectionPoolSettings build() {
+            return new ConnectionPoolSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("minSize", minSize)
+                .add("maxSize", maxSize)
+                .add("acquireTimeout", acquireTimeout)
+                .add("validateOnBorrow", validateOnBorrow)
+                .add("statementCacheSize", statementCacheSize)
+                .toString();
+    }
+}
@@ -0,0 +1,62 @@
+package account.db.pool;
+
+import account.metrics.Histogram;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings of statements executed through {@link ConnectionPool} connections and transaction outcomes.
+ * Recording is lock-free, borrowers do not contend on it.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class JdbcMetrics {
+
+    private final Histogram statementTime = new Histogram();
+    private final Histogram lockTime = new Histogram();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+
+    /**
+     * Execution time of every statement ({@code execute*} calls), nanos.
+     */
+    public Histogram getStatementTime() {
+        return statementTime;
+    }
+
+    /**
+     * Execution time of {@code SELECT ... FOR UPDATE} statements, nanos. Under contention it is mostly
+     * the wait for row locks held by other transactions.
+     */
+    public Histogram getLockTime() {
+        return lockTime;
+    }
+
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * Explicit rollbacks and transactions abandoned by borrower (rolled back when connection returns to the pool).
+     */
+    public long getRollbacks() {
+        return rollbacks.sum();
+    }
+
+    void recordStatement(long nanos, boolean locking) {
+        statementTime.record(nanos);
+        if (locking) {
+            lockTime.record(nanos);
+        }
+    }
+
+    void recordCommit() {
+        commits.increment();
+    }
+
+    void recordRollback() {
+        rollbacks.increment();
+    }
+}
@@ -0,0 +1,44 @@
+package account.db.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Open connection to database owned by the pool together with its statement cache.
+ *
+ * @author fbokovikov
+ */
+class PhysicalConnection {
+
+    private final Connection connection;
+    private final StatementCache statementCache;
+
+    PhysicalConnection(Connection connection, StatementCache statementCache) {
+        this.connection = connection;
+        this.statementCache = statementCache;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    boolean isValid() {
+        try {
+            return connection.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void close() {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            //connection is discarded anyway
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package account.db.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Handler of borrowed connection proxy: {@code close()} returns physical connection to the pool,
+ * {@code prepareStatement(sql)} goes to connection {@link StatementCache},
+ * every other call goes to physical connection until proxy is closed.
+ * Statements made past the cache are proxied by {@link StatementCache#wrap} too,
+ * none of them exposes physical connection.
+ * Commits and rollbacks (including rollback of a transaction left open by borrower) are counted in {@link JdbcMetrics}.
+ *
+ * @author fbokovikov
+ */
+class PooledConnection implements InvocationHandler {
+
+    private final ConnectionPool pool;
+    private final PhysicalConnection physical;
+    private final Connection connection;
+    private final JdbcMetrics metrics;
+
+    private boolean closed;
+
+    /**
+     * Auto-commit was switched off and transaction is not committed or rolled back yet.
+     */
+    private boolean transactionOpen;
+
+    PooledConnection(ConnectionPool pool, PhysicalConnection physical, JdbcMetrics metrics) {
+        this.pool = pool;
+        this.physical = physical;
+        this.connection = physical.getConnection();
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed || connection.isClosed();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Pooled[" + connection + "]";
+            default:
+                break;
+        }
+        if (closed) {
+            throw new SQLException("Connection is returned to the pool");
+        }
+        if (isCacheablePrepare(method, args)) {
+            int autoGeneratedKeys = args.length == 2 ? (int) args[1] : Statement.NO_GENERATED_KEYS;
+            return physical.getStatementCache().prepare((String) args[0], autoGeneratedKeys, (Connection) proxy);
+        }
+        Object result;
+        try {
+            result = method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        countTransaction(method, args);
+        if (result instanceof Statement) {
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : "";
+            return physical.getStatementCache().wrap((Statement) result, sql, (Connection) proxy);
+        }
+        return result;
+    }
+
+    private void countTransaction(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "setAutoCommit":
+                transactionOpen = !(boolean) args[0];
+                break;
+            case "commit":
+                metrics.recordCommit();
+                transactionOpen = false;
+                break;
+            case "rollback":
+                if (args == null) {
+                    metrics.recordRollback();
+                    transactionOpen = false;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * {@code prepareStatement(String)} and {@code prepareStatement(String, int)}.
+     */
+    private static boolean isCacheablePrepare(Method method, Object[] args) {
+        if (!"prepareStatement".equals(method.getName())) {
+            return false;
+        }
+        Class<?>[] types = method.getParameterTypes();
+        return types.length == 1 || (types.length == 2 && types[1] == int.class);
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pool.release(physical, !reset());
+    }
+
+    /**
+     * Roll back work borrower did not commit (also releases row locks) and restore auto-commit.
+     *
+     * @return true if connection can be reused
+     */
+    private boolean reset() {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                if (transactionOpen) {
+                    metrics.recordRollback();
+                }
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
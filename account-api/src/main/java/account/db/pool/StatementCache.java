@@ -0,0 +1,241 @@
+package account.db.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements of one physical connection.
+ * <p>
+ * Statement is parsed once per physical connection: borrower gets a proxy,
+ * {@code close()} of the proxy clears parameters and keeps statement open for the next borrower.
+ * Statements which are not cached are proxied too (and closed by {@code close()}), so every execution
+ * is timed in {@link JdbcMetrics}. {@code getConnection()} of a proxy returns the borrowed connection proxy,
+ * so closing it returns connection to the pool instead of closing physical connection.
+ * Not thread-safe, physical connection is used by one borrower at a time.
+ *
+ * @author fbokovikov
+ */
+class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final JdbcMetrics metrics;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection physical, int maxSize, LongAdder hits, LongAdder misses, JdbcMetrics metrics) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param borrowed connection proxy of the borrower, returned by {@code getConnection()} of the statement
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys, Connection borrowed) throws SQLException {
+        if (maxSize == 0) {
+            misses.increment();
+            return proxy(new Entry(physical.prepareStatement(sql, autoGeneratedKeys), sql, false), borrowed);
+        }
+        Key key = new Key(sql, autoGeneratedKeys);
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            hits.increment();
+        } else {
+            misses.increment();
+            PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+            if (entry != null) {
+                //same sql is already borrowed on this connection, do not cache second copy
+                return proxy(new Entry(statement, sql, false), borrowed);
+            }
+            entry = new Entry(statement, sql, true);
+            entries.put(key, entry);
+            evictEldest();
+        }
+        entry.inUse = true;
+        return proxy(entry, borrowed);
+    }
+
+    /**
+     * Proxy of a statement created by physical connection past the cache
+     * ({@code createStatement}, {@code prepareCall}, other {@code prepareStatement} overloads).
+     *
+     * @param sql sql of the statement, empty if it is not known yet
+     */
+    Statement wrap(Statement statement, String sql, Connection borrowed) {
+        return proxy(new Entry(statement, sql, false), borrowed);
+    }
+
+    /**
+     * Connection returns to the pool: statements borrower did not close become available again.
+     */
+    void release() {
+        for (Entry entry : entries.values()) {
+            if (entry.inUse) {
+                entry.inUse = false;
+                entry.clear();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Statement> T proxy(Entry entry, Connection borrowed) {
+        Class<?> type = entry.statement instanceof CallableStatement
+                ? CallableStatement.class
+                : entry.statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (T) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{type},
+                new BorrowedStatement(entry, borrowed, metrics)
+        );
+    }
+
+    private void evictEldest() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (!eldest.inUse) {
+                iterator.remove();
+                eldest.close();
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final int autoGeneratedKeys;
+
+        Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return autoGeneratedKeys == that.autoGeneratedKeys && sql.equals(that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+
+    private static final class Entry {
+        private final Statement statement;
+        private final boolean cached;
+
+        /**
+         * {@code SELECT ... FOR UPDATE}, its time is recorded as lock time too.
+         */
+        private final boolean locking;
+        private boolean inUse;
+
+        Entry(Statement statement, String sql, boolean cached) {
+            this.statement = statement;
+            this.cached = cached;
+            this.locking = sql.toUpperCase(Locale.ROOT).contains("FOR UPDATE");
+        }
+
+        /**
+         * Only cached entries are cleared, they are prepared statements.
+         */
+        void clear() {
+            try {
+                ((PreparedStatement) statement).clearParameters();
+                statement.clearBatch();
+            } catch (SQLException ignored) {
+                //statement is reused anyway, next borrower sets all parameters
+            }
+        }
+
+        void close() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                //connection is alive, statement is dropped anyway
+            }
+        }
+    }
+
+    /**
+     * Handler of borrowed statement proxy.
+     */
+    private static final class BorrowedStatement implements InvocationHandler {
+        private final Entry entry;
+        private final Connection borrowed;
+        private final JdbcMetrics metrics;
+        private boolean closed;
+
+        BorrowedStatement(Entry entry, Connection borrowed, JdbcMetrics metrics) {
+            this.entry = entry;
+            this.borrowed = borrowed;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (entry.cached) {
+                            entry.inUse = false;
+                            entry.clear();
+                        } else {
+                            entry.close();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            if ("getConnection".equals(method.getName())) {
+                return borrowed;
+            }
+            boolean execute = method.getName().startsWith("execute");
+            long start = execute ? System.nanoTime() : 0;
+            try {
+                return method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (execute) {
+                    metrics.recordStatement(System.nanoTime() - start, entry.locking);
+                }
+            }
+        }
+    }
+}
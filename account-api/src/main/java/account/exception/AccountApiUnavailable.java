@@ -0,0 +1,18 @@
+package account.exception;
+
+/**
+ * Exception indicates that account-api can not serve request right now (503),
+ * e.g. all database connections are busy.
+ *
+ * @author fbokovikov
+ */
+public class AccountApiUnavailable extends RuntimeException {
+
+    public AccountApiUnavailable(String message) {
+        super(message);
+    }
+
+    public AccountApiUnavailable(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
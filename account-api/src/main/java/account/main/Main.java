@@ -1,11 +1,19 @@
 package account.main;
 
+import account.binary.BinaryServer;
+import account.binary.BinaryServerSettings;
 import account.controller.AccountController;
+import account.controller.AdminController;
+import account.controller.MetricsController;
 import account.db.DatabasePopulator;
 import account.modules.MainModule;
+import account.service.AccountService;
+import account.service.audit.SupplyAuditor;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
+import java.io.IOException;
+
 /**
  * Main class to start account-api.
  *
@@ -14,13 +22,35 @@ import com.google.inject.Injector;
 public class Main {
 
     /**
-     * Populate H2 tables and start HTTP api.
+     * Populate H2 tables and start HTTP api (and binary api if enabled).
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         Injector injector = Guice.createInjector(new MainModule());
         DatabasePopulator databasePopulator = injector.getInstance(DatabasePopulator.class);
         databasePopulator.populateDbTables();
+        AccountService accountService = injector.getInstance(AccountService.class);
+        if (accountService instanceof AutoCloseable) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> close((AutoCloseable) accountService)));
+        }
+        SupplyAuditor supplyAuditor = injector.getInstance(SupplyAuditor.class);
+        supplyAuditor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> close(supplyAuditor)));
         AccountController accountController = injector.getInstance(AccountController.class);
         accountController.init();
+        injector.getInstance(MetricsController.class).init();
+        injector.getInstance(AdminController.class).init();
+        if (injector.getInstance(BinaryServerSettings.class).isEnabled()) {
+            BinaryServer binaryServer = injector.getInstance(BinaryServer.class);
+            binaryServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> close(binaryServer)));
+        }
+    }
+
+    private static void close(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            throw new IllegalStateException("Can not stop account service", e);
+        }
     }
 }
@@ -0,0 +1,109 @@
+package account.metrics;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Builder of Prometheus text exposition format (version 0.0.4).
+ *
+ * @author fbokovikov
+ */
+@NotThreadSafe
+public class PrometheusWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Upper bounds of exposed latency buckets, seconds.
+     */
+    private static final double[] SECONDS_BUCKETS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final String[] SECONDS_BUCKET_LABELS = Arrays.stream(SECONDS_BUCKETS)
+            .mapToObj(bound -> BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString())
+            .toArray(String[]::new);
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final StringBuilder text = new StringBuilder(4096);
+
+    /**
+     * {@code # HELP} and {@code # TYPE} lines, once per metric before its samples.
+     *
+     * @param type counter, gauge or histogram
+     */
+    public PrometheusWriter header(String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * @param labels comma separated {@link #label(String, String)} pairs, may be empty
+     */
+    public PrometheusWriter sample(String name, String labels, double value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+        return this;
+    }
+
+    /**
+     * Cumulative {@code _bucket} samples in seconds, {@code _sum} and {@code _count} of histogram of nanos.
+     * Bucket counts are approximate inside of {@link Histogram} buckets.
+     */
+    public PrometheusWriter nanosHistogram(String name, String labels, Histogram histogram) {
+        long count = histogram.getCount();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (int i = 0; i < SECONDS_BUCKETS.length; i++) {
+            //values recorded after count was read are not exposed, buckets stay below +Inf
+            long below = Math.min(count, histogram.getCountAtOrBelow((long) (SECONDS_BUCKETS[i] * NANOS_PER_SECOND)));
+            sample(name + "_bucket", prefix + label("le", SECONDS_BUCKET_LABELS[i]), below);
+        }
+        sample(name + "_bucket", prefix + label("le", "+Inf"), count);
+        sample(name + "_sum", labels, histogram.getSum() / NANOS_PER_SECOND);
+        sample(name + "_count", labels, count);
+        return this;
+    }
+
+    /**
+     * Cumulative {@code _bucket} samples at {@code bounds}, {@code _sum} and {@code _count} of histogram
+     * of plain values (e.g. sizes). Bucket counts are approximate inside of {@link Histogram} buckets.
+     *
+     * @param bounds ascending upper bounds of exposed buckets
+     */
+    public PrometheusWriter histogram(String name, String labels, Histogram histogram, long[] bounds) {
+        long count = histogram.getCount();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (long bound : bounds) {
+            long below = Math.min(count, histogram.getCountAtOrBelow(bound));
+            sample(name + "_bucket", prefix + label("le", Long.toString(bound)), below);
+        }
+        sample(name + "_bucket", prefix + label("le", "+Inf"), count);
+        sample(name + "_sum", labels, histogram.getSum());
+        sample(name + "_count", labels, count);
+        return this;
+    }
+
+    /**
+     * @return {@code name="value"} with escaped value
+     */
+    public static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
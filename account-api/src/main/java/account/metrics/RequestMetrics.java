@@ -0,0 +1,32 @@
+package account.metrics;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Metrics of all http routes. Routes are registered once on start, requests record into
+ * their {@link RouteMetrics} directly without lookup.
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ThreadSafe
+public class RequestMetrics {
+
+    private final List<RouteMetrics> routes = new CopyOnWriteArrayList<>();
+
+    public RouteMetrics register(String method, String path) {
+        RouteMetrics route = new RouteMetrics(method, path);
+        routes.add(route);
+        return route;
+    }
+
+    /**
+     * @return routes in order of registration
+     */
+    public List<RouteMetrics> getRoutes() {
+        return routes;
+    }
+}
@@ -0,0 +1,72 @@
+package account.metrics;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requests of one http route: outcomes and latency. Recording is lock-free.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class RouteMetrics {
+
+    /**
+     * How request ended.
+     */
+    public enum Outcome {
+        OK,
+        /**
+         * {@link account.exception.AccountApiBadRequest}, 400.
+         */
+        BAD_REQUEST,
+        /**
+         * {@link account.exception.AccountApiUnavailable}, 503.
+         */
+        UNAVAILABLE,
+        /**
+         * Any other exception, 500.
+         */
+        ERROR
+    }
+
+    private final String method;
+    private final String path;
+    private final Histogram latency = new Histogram();
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+
+    RouteMetrics(String method, String path) {
+        this.method = method;
+        this.path = path;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    public void record(Outcome outcome, long nanos) {
+        outcomes[outcome.ordinal()].increment();
+        latency.record(nanos);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return route pattern, e.g. {@code /accounts/:accountId}
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public long getCount(Outcome outcome) {
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    /**
+     * Request handling time, nanos.
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+}
@@ -4,7 +4,6 @@ import com.google.common.base.MoreObjects;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.annotation.concurrent.Immutable;
-import java.math.BigDecimal;
 import java.util.Objects;
 
 /**
@@ -21,31 +20,31 @@ public class Account {
     /**
      * Amount in pieces.
      */
-    private final BigDecimal amount;
+    private final Money amount;
 
     public Account(Builder builder) {
         this.id = Objects.requireNonNull(builder.id, "Account id should not be null!");
-        this.amount = MoreObjects.firstNonNull(builder.amount, BigDecimal.ZERO);
+        this.amount = MoreObjects.firstNonNull(builder.amount, Money.ZERO);
     }
 
     public long getId() {
         return id;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
     public static class Builder {
         private Long id;
-        private BigDecimal amount;
+        private Money amount;
 
         public Builder setId(long id) {
             this.id = id;
             return this;
         }
 
-        public Builder setAmount(BigDecimal amount) {
+        public Builder setAmount(Money amount) {
             this.amount = amount;
             return this;
         }
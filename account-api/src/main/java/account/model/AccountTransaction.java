@@ -3,7 +3,6 @@ package account.model;
 import com.google.common.base.MoreObjects;
 
 import javax.annotation.concurrent.Immutable;
-import java.math.BigDecimal;
 import java.util.Objects;
 
 /**
@@ -24,7 +23,7 @@ public class AccountTransaction {
      */
     private final long toId;
 
-    private final BigDecimal amount;
+    private final Money amount;
 
     public AccountTransaction(Builder builder) {
         this.fromId = Objects.requireNonNull(builder.fromId);
@@ -40,14 +39,14 @@ public class AccountTransaction {
         return toId;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
     public static class Builder {
         private Long fromId;
         private Long toId;
-        private BigDecimal amount;
+        private Money amount;
 
         public Builder setFromId(long fromId) {
             this.fromId = fromId;
@@ -59,7 +58,7 @@ public class AccountTransaction {
             return this;
         }
 
-        public Builder setAmount(BigDecimal amount) {
+        public Builder setAmount(Money amount) {
             this.amount = amount;
             return this;
         }
@@ -0,0 +1,19 @@
+package account.model;
+
+/**
+ * How failures of single transactions affect the rest of a transaction batch.
+ *
+ * @author fbokovikov
+ */
+public enum BatchMode {
+
+    /**
+     * Batch is applied as one database transaction: first failed transaction rejects the whole batch.
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Every transaction is applied or rejected on its own, batch is committed chunk by chunk.
+     */
+    PER_ITEM
+}
@@ -0,0 +1,209 @@
+package account.model;
+
+import account.exception.AccountApiBadRequest;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Fixed-point amount of money backed by {@code long} count of minimal pieces.
+ * <p>
+ * Scale (digits after decimal point) is the same for the whole application and is set with
+ * {@code account.money.scale} system property (4 by default). Database stores pieces
+ * ({@link #getUnits()}), so scale should not change for existing data.
+ * Arithmetic is overflow-checked.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = scale();
+
+    private static final long FACTOR = pow10(SCALE);
+
+    public static final Money ZERO = new Money(0);
+
+    private final long units;
+
+    private Money(long units) {
+        this.units = units;
+    }
+
+    /**
+     * @param units amount in minimal pieces, e.g. 12345 is 1.2345 for scale 4
+     */
+    public static Money ofUnits(long units) {
+        return units == 0 ? ZERO : new Money(units);
+    }
+
+    /**
+     * Parse plain decimal like {@code 10}, {@code -0.5}, {@code 12.3400}.
+     *
+     * @throws AccountApiBadRequest if value is not a plain decimal or has more than {@link #SCALE} fraction digits
+     */
+    public static Money of(CharSequence value) {
+        return parse(value, 0, value.length());
+    }
+
+    /**
+     * Parse plain decimal from {@code value[from, to)}.
+     *
+     * @see #of(CharSequence)
+     */
+    public static Money parse(CharSequence value, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long whole = 0;
+        int wholeDigits = 0;
+        for (; i < to && value.charAt(i) != '.'; i++, wholeDigits++) {
+            whole = appendDigit(whole, value.charAt(i));
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < to) {
+            i++;
+            for (; i < to; i++, fractionDigits++) {
+                char c = value.charAt(i);
+                if (fractionDigits < SCALE) {
+                    fraction = appendDigit(fraction, c);
+                } else if (c != '0') {
+                    appendDigit(0, c);
+                    throw new AccountApiBadRequest("Amount should have not more than " + SCALE + " fraction digits");
+                }
+            }
+        }
+        if (wholeDigits + fractionDigits == 0) {
+            throw new AccountApiBadRequest("Bad amount format");
+        }
+        for (int digits = fractionDigits; digits < SCALE; digits++) {
+            fraction *= 10;
+        }
+        long units;
+        try {
+            units = Math.addExact(Math.multiplyExact(whole, FACTOR), fraction);
+        } catch (ArithmeticException e) {
+            throw new AccountApiBadRequest("Amount is too big");
+        }
+        return ofUnits(negative ? -units : units);
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public Money plus(Money other) {
+        try {
+            return ofUnits(Math.addExact(units, other.units));
+        } catch (ArithmeticException e) {
+            throw new AccountApiBadRequest("Amount is too big");
+        }
+    }
+
+    public Money minus(Money other) {
+        try {
+            return ofUnits(Math.subtractExact(units, other.units));
+        } catch (ArithmeticException e) {
+            throw new AccountApiBadRequest("Amount is too big");
+        }
+    }
+
+    public Money negate() {
+        try {
+            return ofUnits(Math.negateExact(units));
+        } catch (ArithmeticException e) {
+            throw new AccountApiBadRequest("Amount is too big");
+        }
+    }
+
+    public int signum() {
+        return Long.signum(units);
+    }
+
+    public boolean isNegative() {
+        return units < 0;
+    }
+
+    public boolean isPositive() {
+        return units > 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(units, other.units);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money && units == ((Money) o).units);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(units);
+    }
+
+    /**
+     * Plain decimal without trailing zeros, e.g. {@code 10.5}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(24);
+        appendTo(result);
+        return result.toString();
+    }
+
+    /**
+     * Append {@link #toString()} representation without intermediate strings.
+     */
+    public void appendTo(StringBuilder out) {
+        if (units < 0) {
+            out.append('-');
+        }
+        long whole = Math.abs(units / FACTOR);
+        long fraction = Math.abs(units % FACTOR);
+        out.append(whole);
+        if (fraction == 0) {
+            return;
+        }
+        out.append('.');
+        int digits = SCALE;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        for (long f = pow10(digits - 1); f > fraction; f /= 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static long appendDigit(long value, char c) {
+        if (c < '0' || c > '9') {
+            throw new AccountApiBadRequest("Bad amount format");
+        }
+        if (value > (Long.MAX_VALUE - 9) / 10) {
+            throw new AccountApiBadRequest("Amount is too big");
+        }
+        return value * 10 + (c - '0');
+    }
+
+    private static int scale() {
+        int scale = Integer.getInteger("account.money.scale", 4);
+        if (scale < 0 || scale > 12) {
+            throw new IllegalStateException("account.money.scale should be in [0, 12]");
+        }
+        return scale;
+    }
+
+    private static long pow10(int power) {
+        long result = 1;
+        for (int i = 0; i < power; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
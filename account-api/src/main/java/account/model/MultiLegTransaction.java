@@ -0,0 +1,55 @@
+package account.model;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transaction between many accounts (e.g. split of a payment), applied atomically.
+ * <p>
+ * Legs net to zero: money taken from some accounts is added to others. An account may appear
+ * in several legs, it is changed by their sum.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class MultiLegTransaction {
+
+    private final List<TransactionLeg> legs;
+
+    public MultiLegTransaction(Builder builder) {
+        this.legs = List.copyOf(builder.legs);
+    }
+
+    public List<TransactionLeg> getLegs() {
+        return legs;
+    }
+
+    public static class Builder {
+        private final List<TransactionLeg> legs = new ArrayList<>();
+
+        public Builder addLeg(long accountId, Money amount) {
+            legs.add(new TransactionLeg(accountId, amount));
+            return this;
+        }
+
+        public Builder setLegs(List<TransactionLeg> legs) {
+            this.legs.clear();
+            this.legs.addAll(legs);
+            return this;
+        }
+
+        public MultiLegTransaction build() {
+            return new MultiLegTransaction(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("legs", legs)
+                .toString();
+    }
+}
@@ -15,4 +15,8 @@ public class ResponseError {
     public ResponseError(String message) {
         this.message = message;
     }
+
+    public String getMessage() {
+        return message;
+    }
 }
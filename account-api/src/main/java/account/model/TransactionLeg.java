@@ -0,0 +1,43 @@
+package account.model;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Objects;
+
+/**
+ * Change of one account in {@link MultiLegTransaction}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class TransactionLeg {
+
+    private final long accountId;
+
+    /**
+     * Amount added to account, negative to withdraw.
+     */
+    private final Money amount;
+
+    public TransactionLeg(long accountId, Money amount) {
+        this.accountId = accountId;
+        this.amount = Objects.requireNonNull(amount);
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("accountId", accountId)
+                .add("amount", amount)
+                .toString();
+    }
+}
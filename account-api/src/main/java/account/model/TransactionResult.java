@@ -0,0 +1,64 @@
+package account.model;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Outcome of one transaction of a batch.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class TransactionResult {
+
+    private static final TransactionResult APPLIED = new TransactionResult(Status.APPLIED, null);
+
+    private final Status status;
+
+    /**
+     * Reason of rejection, {@code null} for applied transaction.
+     */
+    @Nullable
+    private final String message;
+
+    private TransactionResult(Status status, @Nullable String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public static TransactionResult applied() {
+        return APPLIED;
+    }
+
+    public static TransactionResult rejected(String message) {
+        return new TransactionResult(Status.REJECTED, message);
+    }
+
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    @Nullable
+    public String getMessage() {
+        return message;
+    }
+
+    public enum Status {
+        APPLIED,
+        REJECTED
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("status", status)
+                .add("message", message)
+                .toString();
+    }
+}
@@ -1,16 +1,119 @@
 package account.modules;
 
+import account.service.AccountEngine;
 import account.service.AccountService;
 import account.service.H2AccountService;
+import account.service.TransactionBatchSettings;
+import account.service.audit.SupplyAuditSettings;
+import account.service.cache.AccountCacheSettings;
+import account.service.cache.CachingAccountService;
+import account.service.db.AccountDao;
+import account.service.db.AccountDaoMode;
+import account.service.db.ConditionalUpdateAccountDao;
+import account.service.db.LockContentionSettings;
+import account.service.group.GroupCommitAccountService;
+import account.service.group.GroupCommitSettings;
+import account.service.journal.JournalAccountService;
+import account.service.journal.JournalSettings;
+import account.service.memory.InMemoryAccountService;
+import account.service.memory.InMemoryEngineSettings;
+import account.service.partition.PartitionedAccountService;
+import account.service.partition.PartitionedEngineSettings;
+import account.service.shard.ShardSettings;
+import account.service.shard.ShardedAccountService;
+import account.service.snapshot.AccountReadMode;
+import account.service.snapshot.CommittedAccounts;
+import account.service.snapshot.SnapshotAccountService;
 import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
 
 /**
  * @author fbokovikov
  */
 public class AccountServiceModule extends AbstractModule {
 
+    private final AccountEngine engine;
+    private final AccountDaoMode daoMode;
+    private final AccountCacheSettings cacheSettings;
+    private final AccountReadMode readMode;
+
+    public AccountServiceModule() {
+        this(
+                AccountEngine.fromSystemProperties(),
+                AccountDaoMode.fromSystemProperties(),
+                AccountCacheSettings.fromSystemProperties(),
+                AccountReadMode.fromSystemProperties()
+        );
+    }
+
+    public AccountServiceModule(AccountEngine engine, AccountDaoMode daoMode) {
+        this(engine, daoMode, AccountCacheSettings.disabled());
+    }
+
+    public AccountServiceModule(AccountEngine engine, AccountDaoMode daoMode, AccountCacheSettings cacheSettings) {
+        this(engine, daoMode, cacheSettings, AccountReadMode.DATABASE);
+    }
+
+    public AccountServiceModule(AccountEngine engine, AccountDaoMode daoMode, AccountCacheSettings cacheSettings,
+                                AccountReadMode readMode) {
+        this.engine = engine;
+        this.daoMode = daoMode;
+        this.cacheSettings = cacheSettings;
+        this.readMode = readMode;
+    }
+
     @Override
     protected void configure() {
-        bind(AccountService.class).to(H2AccountService.class);
+        bind(TransactionBatchSettings.class).toInstance(TransactionBatchSettings.fromSystemProperties());
+        bind(LockContentionSettings.class).toInstance(LockContentionSettings.fromSystemProperties());
+        if (daoMode == AccountDaoMode.CONDITIONAL) {
+            bind(AccountDao.class).to(ConditionalUpdateAccountDao.class);
+        }
+        Class<? extends AccountService> implementation;
+        switch (engine) {
+            case MEMORY:
+                bind(InMemoryEngineSettings.class).toInstance(InMemoryEngineSettings.fromSystemProperties());
+                implementation = InMemoryAccountService.class;
+                break;
+            case GROUP_COMMIT:
+                bind(GroupCommitSettings.class).toInstance(GroupCommitSettings.fromSystemProperties());
+                implementation = GroupCommitAccountService.class;
+                break;
+            case PARTITIONED:
+                bind(PartitionedEngineSettings.class).toInstance(PartitionedEngineSettings.fromSystemProperties());
+                implementation = PartitionedAccountService.class;
+                break;
+            case JOURNAL:
+                bind(JournalSettings.class).toInstance(JournalSettings.fromSystemProperties());
+                implementation = JournalAccountService.class;
+                break;
+            case SHARDED:
+                bind(ShardSettings.class).toInstance(ShardSettings.fromSystemProperties());
+                implementation = ShardedAccountService.class;
+                break;
+            case H2:
+            default:
+                implementation = H2AccountService.class;
+                break;
+        }
+        //journal engine keeps no supply
+        bind(SupplyAuditSettings.class).toInstance(engine == AccountEngine.JOURNAL
+                ? SupplyAuditSettings.disabled()
+                : SupplyAuditSettings.fromSystemProperties());
+        //memory, partitioned and journal engines read balances from memory already
+        boolean databaseReads = engine == AccountEngine.H2 || engine == AccountEngine.GROUP_COMMIT;
+        boolean snapshotReads = databaseReads && readMode == AccountReadMode.SNAPSHOT;
+        bind(CommittedAccounts.class).toInstance(new CommittedAccounts(snapshotReads));
+        //snapshot is never stale by more than publication lag, so cache is not used with it
+        if (snapshotReads) {
+            bind(AccountService.class).annotatedWith(Names.named(SnapshotAccountService.DELEGATE)).to(implementation);
+            bind(AccountService.class).to(SnapshotAccountService.class);
+        } else if (cacheSettings.isEnabled() && databaseReads) {
+            bind(AccountCacheSettings.class).toInstance(cacheSettings);
+            bind(AccountService.class).annotatedWith(Names.named(CachingAccountService.DELEGATE)).to(implementation);
+            bind(AccountService.class).to(CachingAccountService.class);
+        } else {
+            bind(AccountService.class).to(implementation);
+        }
     }
 }
@@ -1,5 +1,7 @@
 package account.modules;
 
+import account.db.pool.ConnectionPool;
+import account.db.pool.ConnectionPoolSettings;
 import com.google.inject.AbstractModule;
 import org.h2.jdbcx.JdbcDataSource;
 
@@ -13,9 +15,21 @@ import java.time.Instant;
  */
 public class DataSourceModule extends AbstractModule {
 
+    private final ConnectionPoolSettings poolSettings;
+
+    public DataSourceModule() {
+        this(ConnectionPoolSettings.fromSystemProperties());
+    }
+
+    public DataSourceModule(ConnectionPoolSettings poolSettings) {
+        this.poolSettings = poolSettings;
+    }
+
     @Override
     protected void configure() {
-        bind(DataSource.class).toInstance(h2DataSource());
+        ConnectionPool pool = new ConnectionPool(h2DataSource(), poolSettings);
+        bind(ConnectionPool.class).toInstance(pool);
+        bind(DataSource.class).toInstance(pool);
     }
 
     private DataSource h2DataSource() {
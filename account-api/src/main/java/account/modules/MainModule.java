@@ -1,5 +1,6 @@
 package account.modules;
 
+import account.binary.BinaryServerSettings;
 import com.google.inject.AbstractModule;
 
 /**
@@ -11,5 +12,6 @@ public class MainModule extends AbstractModule {
     protected void configure() {
         install(new DataSourceModule());
         install(new AccountServiceModule());
+        bind(BinaryServerSettings.class).toInstance(BinaryServerSettings.fromSystemProperties());
     }
 }
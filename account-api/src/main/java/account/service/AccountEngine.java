@@ -0,0 +1,50 @@
+package account.service;
+
+/**
+ * {@link AccountService} implementation bound by {@code AccountServiceModule}.
+ *
+ * @author fbokovikov
+ */
+public enum AccountEngine {
+
+    /**
+     * Every operation goes to H2, see {@link H2AccountService}.
+     */
+    H2,
+
+    /**
+     * Like {@link #H2}, but concurrent deposits, withdrawals and transactions are committed in groups,
+     * see {@link account.service.group.GroupCommitAccountService}.
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Balances in memory, H2 updated in background, see {@link account.service.memory.InMemoryAccountService}.
+     */
+    MEMORY,
+
+    /**
+     * Accounts owned by single-writer partition threads, H2 updated in background,
+     * see {@link account.service.partition.PartitionedAccountService}.
+     */
+    PARTITIONED,
+
+    /**
+     * Every accepted operation appended to memory-mapped journal files, balances derived from the journal
+     * in memory, see {@link account.service.journal.JournalAccountService}.
+     */
+    JOURNAL,
+
+    /**
+     * Accounts spread between several H2 databases by id, transfers between them made with two-phase commit,
+     * see {@link account.service.shard.ShardedAccountService}.
+     */
+    SHARDED;
+
+    /**
+     * Engine from {@code account.engine} system property, {@link #H2} by default.
+     */
+    public static AccountEngine fromSystemProperties() {
+        return valueOf(System.getProperty("account.engine", H2.name()).toUpperCase().replace('-', '_'));
+    }
+}
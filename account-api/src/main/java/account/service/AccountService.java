@@ -1,10 +1,17 @@
 package account.service;
 
+import account.exception.AccountApiBadRequest;
 import account.model.Account;
 import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionResult;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service for manage accounts (create, get, update amount).
@@ -19,7 +26,24 @@ public interface AccountService {
      * @param amount initial amount on account
      * @return
      */
-    Account createAccount(BigDecimal amount);
+    Account createAccount(Money amount);
+
+    /**
+     * Create accounts with initial amounts.
+     * <p>
+     * Default implementation creates accounts one by one.
+     *
+     * @param amounts initial amounts
+     * @return created accounts in order of {@code amounts}
+     */
+    default List<Account> createAccounts(List<Money> amounts) {
+        AccountServiceChecks.checkInitialAmounts(amounts);
+        List<Account> accounts = new ArrayList<>(amounts.size());
+        for (Money amount : amounts) {
+            accounts.add(createAccount(amount));
+        }
+        return accounts;
+    }
 
     /**
      * Get account info.
@@ -29,6 +53,71 @@ public interface AccountService {
      */
     Optional<Account> getAccount(long accountId);
 
+    /**
+     * Get info of many accounts.
+     * <p>
+     * Default implementation collects {@link #getAccounts(long[], Consumer)}.
+     *
+     * @param accountIds account ids, may repeat
+     * @return found account or empty for every id in order of {@code accountIds}
+     */
+    default List<Optional<Account>> getAccounts(long[] accountIds) {
+        List<Optional<Account>> accounts = new ArrayList<>(accountIds.length);
+        getAccounts(accountIds, accounts::add);
+        return accounts;
+    }
+
+    /**
+     * Pass found account or empty for every id to {@code consumer} in order of {@code accountIds}
+     * as soon as it is read, so the whole result is not held in memory.
+     * <p>
+     * Default implementation gets accounts one by one, nothing is buffered, so number of ids is not bounded.
+     *
+     * @param accountIds account ids, may repeat
+     * @throws AccountApiBadRequest if there are no ids or, for engines reading a database, more than
+     *                              {@code account.batch.maxSize}
+     */
+    default void getAccounts(long[] accountIds, Consumer<Optional<Account>> consumer) {
+        AccountServiceChecks.checkAccountIds(accountIds, Integer.MAX_VALUE);
+        for (long accountId : accountIds) {
+            consumer.accept(getAccount(accountId));
+        }
+    }
+
+    /**
+     * Page of accounts for export: accounts with id greater than {@code afterId} in ascending id order.
+     * Accounts are read without locks, every page is read at its own moment.
+     * <p>
+     * Default implementation rejects it, engine has to list accounts in id order.
+     *
+     * @param afterId id of the last account of previous page, {@code 0} for the first page
+     * @param limit   max accounts in page, fewer accounts means the last page
+     */
+    default List<Account> getAccountsAfter(long afterId, int limit) {
+        throw new AccountApiBadRequest("Export is not supported by account engine");
+    }
+
+    /**
+     * Total money of all accounts, maintained by every write in the same commit.
+     * <p>
+     * Default implementation rejects it, engine has to keep the total.
+     */
+    default Money getTotalSupply() {
+        throw new AccountApiBadRequest("Total supply is not supported by account engine");
+    }
+
+    /**
+     * Check one supply stripe (see {@link account.service.db.SupplyChange}) against sum of its accounts.
+     * <p>
+     * Default implementation rejects it, engine has to keep the total.
+     *
+     * @param stripe stripe from {@code 0} to {@link account.service.db.SupplyChange#STRIPES} exclusive
+     * @return sum of accounts of the stripe minus its supply, zero if money is conserved
+     */
+    default Money auditSupply(int stripe) {
+        throw new AccountApiBadRequest("Total supply is not supported by account engine");
+    }
+
     /**
      * Deposit {@code amount} on account.
      *
@@ -36,7 +125,7 @@ public interface AccountService {
      * @param amount    amount to deposit on account
      * @return updated account
      */
-    Account deposit(long accountId, BigDecimal amount);
+    Account deposit(long accountId, Money amount);
 
     /**
      * Withdraw {@code amount} from account.
@@ -45,7 +134,7 @@ public interface AccountService {
      * @param amount    amount to withdraw from account
      * @return          updated account
      */
-    Account withdraw(long accountId, BigDecimal amount);
+    Account withdraw(long accountId, Money amount);
 
     /**
      * Make money transaction between two accounts.
@@ -53,4 +142,44 @@ public interface AccountService {
      * @param transaction info about accounts and transaction amount
     */
     void transaction(AccountTransaction transaction);
+
+    /**
+     * Make transaction between many accounts: all legs are applied or none of them.
+     * <p>
+     * Default implementation rejects it, engine has to change all accounts atomically.
+     *
+     * @param transaction legs netting to zero
+     */
+    default void transaction(MultiLegTransaction transaction) {
+        AccountServiceChecks.checkMultiLegTransaction(transaction);
+        throw new AccountApiBadRequest("Multi-leg transactions are not supported by account engine");
+    }
+
+    /**
+     * Make batch of transactions in given order.
+     * <p>
+     * Default implementation makes {@link #transaction(AccountTransaction)} one by one,
+     * so it supports only {@link BatchMode#PER_ITEM}.
+     *
+     * @param transactions transactions to make, later transactions see results of earlier ones
+     * @param mode         {@link BatchMode#ALL_OR_NOTHING} throws on first rejected transaction
+     *                     without applying any of them
+     * @return result of every transaction in the same order
+     */
+    default List<TransactionResult> transactions(List<AccountTransaction> transactions, BatchMode mode) {
+        AccountServiceChecks.checkTransactions(transactions);
+        if (mode != BatchMode.PER_ITEM) {
+            throw new AccountApiBadRequest("Batch mode " + mode + " is not supported by account engine");
+        }
+        List<TransactionResult> results = new ArrayList<>(transactions.size());
+        for (AccountTransaction transaction : transactions) {
+            try {
+                transaction(transaction);
+                results.add(TransactionResult.applied());
+            } catch (AccountApiBadRequest e) {
+                results.add(TransactionResult.rejected(e.getMessage()));
+            }
+        }
+        return results;
+    }
 }
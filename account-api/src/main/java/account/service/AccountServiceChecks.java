@@ -0,0 +1,152 @@
+package account.service;
+
+import account.exception.AccountApiBadRequest;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionLeg;
+
+import java.util.List;
+
+
+/**
+ * Argument checks shared by {@link AccountService} implementations.
+ *
+ * @author fbokovikov
+ */
+public final class AccountServiceChecks {
+
+    private AccountServiceChecks() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @throws AccountApiBadRequest if initial amount is negative
+     */
+    public static void checkInitialAmount(Money amount) {
+        if (amount.isNegative()) {
+            throw new AccountApiBadRequest("Can not create account with negative amount");
+        }
+    }
+
+    /**
+     * Check every initial amount of bulk creation with {@link #checkInitialAmount(Money)}.
+     *
+     * @throws AccountApiBadRequest if there are no amounts or any amount is invalid (its index is in message)
+     */
+    public static void checkInitialAmounts(List<Money> amounts) {
+        if (amounts.isEmpty()) {
+            throw new AccountApiBadRequest("Amounts are not present in request");
+        }
+        for (int i = 0; i < amounts.size(); i++) {
+            if (amounts.get(i) == null) {
+                throw new AccountApiBadRequest("Account #" + i + ": Amount is not present in request");
+            }
+            if (amounts.get(i).isNegative()) {
+                throw new AccountApiBadRequest("Account #" + i + ": Can not create account with negative amount");
+            }
+        }
+    }
+
+    /**
+     * @throws AccountApiBadRequest if deposit amount is not positive
+     */
+    public static void checkDeposit(Money amount) {
+        if (!amount.isPositive()) {
+            throw new AccountApiBadRequest("Expecting amount greater than 0 for deposit");
+        }
+    }
+
+    /**
+     * @throws AccountApiBadRequest if withdrawal amount is not negative
+     */
+    public static void checkWithdrawal(Money amount) {
+        if (!amount.isNegative()) {
+            throw new AccountApiBadRequest("Expecting amount less than 0 for withdrawal");
+        }
+    }
+
+    /**
+     * @throws AccountApiBadRequest if transaction is made on one account or amount is not positive
+     */
+    public static void checkTransaction(AccountTransaction transaction) {
+        if (transaction.getFromId() == transaction.getToId()) {
+            throw new AccountApiBadRequest("Accounts should be different for transaction");
+        }
+        if (!transaction.getAmount().isPositive()) {
+            throw new AccountApiBadRequest("Transaction amount should be positive");
+        }
+    }
+
+    /**
+     * Check every transaction of a batch with {@link #checkTransaction(AccountTransaction)}.
+     *
+     * @throws AccountApiBadRequest if batch is empty or any transaction is invalid (its index is in message)
+     */
+    public static void checkTransactions(List<AccountTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            throw new AccountApiBadRequest("Transaction batch is empty");
+        }
+        for (int i = 0; i < transactions.size(); i++) {
+            try {
+                checkTransaction(transactions.get(i));
+            } catch (AccountApiBadRequest e) {
+                throw new AccountApiBadRequest(transactionError(i, e.getMessage()), e);
+            }
+        }
+    }
+
+    /**
+     * @throws AccountApiBadRequest if transaction has less than two legs or changes one account only,
+     *                              leg amount is zero (its index is in message) or legs do not net to zero
+     */
+    public static void checkMultiLegTransaction(MultiLegTransaction transaction) {
+        List<TransactionLeg> legs = transaction.getLegs();
+        if (legs.size() < 2) {
+            throw new AccountApiBadRequest("Expecting at least 2 legs in transaction");
+        }
+        var total = Money.ZERO;
+        boolean different = false;
+        for (int i = 0; i < legs.size(); i++) {
+            different |= legs.get(i).getAccountId() != legs.get(0).getAccountId();
+            if (legs.get(i).getAmount().signum() == 0) {
+                throw new AccountApiBadRequest(legError(i, "Leg amount should not be zero"));
+            }
+            total = total.plus(legs.get(i).getAmount());
+        }
+        if (!different) {
+            throw new AccountApiBadRequest("Accounts should be different for transaction");
+        }
+        if (total.signum() != 0) {
+            throw new AccountApiBadRequest("Legs of transaction should net to zero, total is " + total);
+        }
+    }
+
+    /**
+     * Engines reading a database bound the number of ids of multi-get by {@code maxSize}.
+     *
+     * @throws AccountApiBadRequest if there are no ids or more than {@code maxSize} of them
+     */
+    public static void checkAccountIds(long[] accountIds, int maxSize) {
+        if (accountIds.length == 0) {
+            throw new AccountApiBadRequest("Account ids are not present in request");
+        }
+        if (accountIds.length > maxSize) {
+            throw new AccountApiBadRequest("Too many account ids in request, max is " + maxSize);
+        }
+    }
+
+    /**
+     * @return error message about transaction of a batch
+     */
+    public static String transactionError(int index, String message) {
+        return "Transaction #" + index + ": " + message;
+    }
+
+    /**
+     * @return error message about leg of a multi-leg transaction
+     */
+    public static String legError(int index, String message) {
+        return "Leg #" + index + ": " + message;
+    }
+}
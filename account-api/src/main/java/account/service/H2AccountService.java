@@ -1,14 +1,20 @@
 package account.service;
 
-import account.exception.AccountApiBadRequest;
 import account.model.Account;
 import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionResult;
 import account.service.db.AccountDao;
+import account.util.LongObjectHashMap;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.inject.Inject;
-import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * H2 Database implementation for {@link AccountService}.
@@ -19,49 +25,92 @@ import java.util.Optional;
 public class H2AccountService implements AccountService {
 
     private final AccountDao accountDao;
+    private final TransactionBatchSettings batchSettings;
 
     @Inject
-    public H2AccountService(AccountDao accountDao) {
+    public H2AccountService(AccountDao accountDao, TransactionBatchSettings batchSettings) {
         this.accountDao = accountDao;
+        this.batchSettings = batchSettings;
     }
 
     @Override
-    public Account createAccount(BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) < 0) {
-            throw new AccountApiBadRequest("Can not create account with negative amount");
-        }
+    public Account createAccount(Money amount) {
+        AccountServiceChecks.checkInitialAmount(amount);
         return accountDao.createAccount(amount);
     }
 
+    @Override
+    public List<Account> createAccounts(List<Money> amounts) {
+        AccountServiceChecks.checkInitialAmounts(amounts);
+        return accountDao.createAccounts(amounts, batchSettings.getChunkSize());
+    }
+
     @Override
     public Optional<Account> getAccount(long accountId) {
         return accountDao.getAccount(accountId);
     }
 
+    /**
+     * Read accounts with one query per chunk of ids. Every chunk is passed to consumer before the next one
+     * is read and no connection is held in between. At most {@code account.batch.maxSize} ids are accepted.
+     */
     @Override
-    public Account deposit(long accountId, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new AccountApiBadRequest("Expecting amount greater than 0 for deposit");
+    public void getAccounts(long[] accountIds, Consumer<Optional<Account>> consumer) {
+        AccountServiceChecks.checkAccountIds(accountIds, batchSettings.getMaxSize());
+        int chunkSize = batchSettings.getChunkSize();
+        var found = new LongObjectHashMap<Account>(Math.min(accountIds.length, chunkSize));
+        for (int from = 0; from < accountIds.length; from += chunkSize) {
+            long[] chunk = Arrays.copyOfRange(accountIds, from, Math.min(accountIds.length, from + chunkSize));
+            found.clear();
+            accountDao.getAccounts(chunk, chunkSize, found);
+            for (long accountId : chunk) {
+                consumer.accept(Optional.ofNullable(found.get(accountId)));
+            }
         }
+    }
+
+    @Override
+    public List<Account> getAccountsAfter(long afterId, int limit) {
+        return accountDao.getAccountsAfter(afterId, limit);
+    }
+
+    @Override
+    public Money getTotalSupply() {
+        return accountDao.getTotalSupply();
+    }
+
+    @Override
+    public Money auditSupply(int stripe) {
+        return accountDao.auditSupply(stripe);
+    }
+
+    @Override
+    public Account deposit(long accountId, Money amount) {
+        AccountServiceChecks.checkDeposit(amount);
         return accountDao.updateAmount(accountId, amount);
     }
 
     @Override
-    public Account withdraw(long accountId, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) >= 0) {
-            throw new AccountApiBadRequest("Expecting amount less than 0 for withdrawal");
-        }
+    public Account withdraw(long accountId, Money amount) {
+        AccountServiceChecks.checkWithdrawal(amount);
         return accountDao.updateAmount(accountId, amount);
     }
 
     @Override
     public void transaction(AccountTransaction transaction) {
-        if (transaction.getFromId() == transaction.getToId()) {
-            throw new AccountApiBadRequest("Accounts should be different for transaction");
-        }
-        if (transaction.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new AccountApiBadRequest("Transaction amount should be positive");
-        }
+        AccountServiceChecks.checkTransaction(transaction);
         accountDao.transaction(transaction);
     }
+
+    @Override
+    public void transaction(MultiLegTransaction transaction) {
+        AccountServiceChecks.checkMultiLegTransaction(transaction);
+        accountDao.transaction(transaction, batchSettings.getChunkSize());
+    }
+
+    @Override
+    public List<TransactionResult> transactions(List<AccountTransaction> transactions, BatchMode mode) {
+        AccountServiceChecks.checkTransactions(transactions);
+        return accountDao.transactions(transactions, mode, batchSettings.getChunkSize());
+    }
 }
@@ -0,0 +1,184 @@
+package account.service;
+
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionLeg;
+import account.model.TransactionResult;
+import account.util.LongObjectHashMap;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Transactions and amount changes applied one by one to locked accounts.
+ * <p>
+ * Caller locks {@link #accountIds(List)} of the batch (in this order), passes locked accounts and,
+ * after everything is applied, writes {@link #changed()} accounts back, so every account is written once
+ * with net result of the batch. Rejected operation does not change accounts, so following operations
+ * see the same amounts.
+ *
+ * @author fbokovikov
+ */
+@NotThreadSafe
+public class TransactionBatch {
+
+    private final LongObjectHashMap<Account> accounts;
+    private final LongObjectHashMap<Account> changed = new LongObjectHashMap<>();
+
+    /**
+     * @param accounts locked existing accounts of the batch by id
+     */
+    public TransactionBatch(LongObjectHashMap<Account> accounts) {
+        this.accounts = accounts;
+    }
+
+    /**
+     * @return distinct account ids of transactions in ascending (locking) order
+     */
+    public static long[] accountIds(List<AccountTransaction> transactions) {
+        long[] ids = new long[transactions.size() * 2];
+        for (int i = 0; i < transactions.size(); i++) {
+            ids[2 * i] = transactions.get(i).getFromId();
+            ids[2 * i + 1] = transactions.get(i).getToId();
+        }
+        return lockOrder(ids);
+    }
+
+    /**
+     * @return distinct account ids of legs in ascending (locking) order
+     */
+    public static long[] accountIds(MultiLegTransaction transaction) {
+        List<TransactionLeg> legs = transaction.getLegs();
+        long[] ids = new long[legs.size()];
+        for (int i = 0; i < legs.size(); i++) {
+            ids[i] = legs.get(i).getAccountId();
+        }
+        return lockOrder(ids);
+    }
+
+    /**
+     * @param ids account ids, array is sorted in place
+     * @return distinct account ids in ascending (locking) order
+     */
+    public static long[] lockOrder(long[] ids) {
+        Arrays.sort(ids);
+        int distinct = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    /**
+     * Apply transaction with the same checks (in the same order) as single transaction.
+     * Both amounts are computed before any account is changed, so overflow of the receiver
+     * is a rejection which leaves the sender as is.
+     */
+    public TransactionResult apply(AccountTransaction transaction) {
+        Account from = accounts.get(transaction.getFromId());
+        Account to = accounts.get(transaction.getToId());
+        if (from == null || to == null) {
+            return TransactionResult.rejected("Account not found");
+        }
+        var fromFinalAmount = from.getAmount().minus(transaction.getAmount());
+        if (fromFinalAmount.isNegative()) {
+            return TransactionResult.rejected("Not enough amount for transfer");
+        }
+        Money toFinalAmount;
+        try {
+            toFinalAmount = to.getAmount().plus(transaction.getAmount());
+        } catch (AccountApiBadRequest e) {
+            return TransactionResult.rejected(e.getMessage());
+        }
+        put(from, fromFinalAmount);
+        put(to, toFinalAmount);
+        return TransactionResult.applied();
+    }
+
+    /**
+     * Apply all legs or none of them: every account is changed once by net amount of its legs.
+     * Accounts are checked before amounts, like in single transaction, overflow is a rejection.
+     */
+    public TransactionResult apply(MultiLegTransaction transaction) {
+        for (TransactionLeg leg : transaction.getLegs()) {
+            if (accounts.get(leg.getAccountId()) == null) {
+                return TransactionResult.rejected("Account not found");
+            }
+        }
+        var net = new LongObjectHashMap<Money>();
+        List<Account> updated = new ArrayList<>(transaction.getLegs().size());
+        try {
+            for (TransactionLeg leg : transaction.getLegs()) {
+                Money amount = net.get(leg.getAccountId());
+                net.put(leg.getAccountId(), amount == null ? leg.getAmount() : amount.plus(leg.getAmount()));
+            }
+            //result is checked for all accounts before any of them is changed
+            net.forEachEntry((id, amount) -> {
+                if (amount.signum() != 0) {
+                    Account account = accounts.get(id);
+                    updated.add(withAmount(account, account.getAmount().plus(amount)));
+                }
+            });
+        } catch (AccountApiBadRequest e) {
+            return TransactionResult.rejected(e.getMessage());
+        }
+        for (Account account : updated) {
+            if (account.getAmount().isNegative()) {
+                return TransactionResult.rejected("Not enough amount for transfer");
+            }
+        }
+        updated.forEach(this::store);
+        return TransactionResult.applied();
+    }
+
+    /**
+     * Add {@code amountDiff} to account with the same checks as single deposit or withdrawal.
+     *
+     * @return account after the change
+     * @throws AccountApiBadRequest if account is not found or amount would become negative
+     */
+    public Account add(long accountId, Money amountDiff) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            throw new AccountApiBadRequest("Account not found");
+        }
+        var amountAfter = account.getAmount().plus(amountDiff);
+        if (amountAfter.isNegative()) {
+            throw new AccountApiBadRequest("Not enough amount for transfer");
+        }
+        return put(account, amountAfter);
+    }
+
+    /**
+     * @return accounts changed by applied operations
+     */
+    public List<Account> changed() {
+        List<Account> result = new ArrayList<>(changed.size());
+        changed.forEachEntry((id, account) -> result.add(account));
+        return result;
+    }
+
+    private Account put(Account account, Money amount) {
+        return store(withAmount(account, amount));
+    }
+
+    private Account store(Account updated) {
+        accounts.put(updated.getId(), updated);
+        changed.put(updated.getId(), updated);
+        return updated;
+    }
+
+    private static Account withAmount(Account account, Money amount) {
+        return new Account.Builder()
+                .setId(account.getId())
+                .setAmount(amount)
+                .build();
+    }
+}
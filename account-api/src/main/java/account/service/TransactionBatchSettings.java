@@ -0,0 +1,79 @@
+package account.service;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Settings of batch requests: transaction batches ({@link AccountService#transactions})
+ * and bulk account creation ({@link AccountService#createAccounts}).
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class TransactionBatchSettings {
+
+    /**
+     * Max transactions or accounts in one request.
+     */
+    private final int maxSize;
+
+    /**
+     * Transactions per database transaction (commit) of {@link account.model.BatchMode#PER_ITEM} batch
+     * and statements per JDBC batch.
+     */
+    private final int chunkSize;
+
+    public TransactionBatchSettings(Builder builder) {
+        this.maxSize = builder.maxSize;
+        this.chunkSize = builder.chunkSize;
+        Preconditions.checkArgument(maxSize > 0, "Max batch size should be positive");
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size should be positive");
+    }
+
+    /**
+     * Settings from {@code account.batch.*} system properties.
+     */
+    public static TransactionBatchSettings fromSystemProperties() {
+        return new Builder()
+                .setMaxSize(Integer.getInteger("account.batch.maxSize", 100_000))
+                .setChunkSize(Integer.getInteger("account.batch.chunkSize", 1000))
+                .build();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public static class Builder {
+        private int maxSize = 100_000;
+        private int chunkSize = 1000;
+
+        public Builder setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public TransactionBatchSettings build() {
+            return new TransactionBatchSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("maxSize", maxSize)
+                .add("chunkSize", chunkSize)
+                .toString();
+    }
+}
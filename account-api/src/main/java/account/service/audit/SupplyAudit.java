@@ -0,0 +1,86 @@
+package account.service.audit;
+
+import account.model.Money;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+
+/**
+ * Result of one check of all supply stripes by {@link SupplyAuditor}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class SupplyAudit {
+
+    private final long finishedAtMillis;
+    private final long durationMillis;
+
+    /**
+     * Stripes whose accounts do not sum up to their supply, in ascending order.
+     */
+    private final List<Integer> discrepantStripes;
+
+    /**
+     * Sum of accounts minus supply over all stripes, zero if money is conserved.
+     */
+    private final Money discrepancy;
+
+    public SupplyAudit(Builder builder) {
+        this.finishedAtMillis = builder.finishedAtMillis;
+        this.durationMillis = builder.durationMillis;
+        this.discrepantStripes = List.copyOf(builder.discrepantStripes);
+        this.discrepancy = builder.discrepancy;
+    }
+
+    public boolean isConserved() {
+        return discrepantStripes.isEmpty();
+    }
+
+    public long getFinishedAtMillis() {
+        return finishedAtMillis;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public List<Integer> getDiscrepantStripes() {
+        return discrepantStripes;
+    }
+
+    public Money getDiscrepancy() {
+        return discrepancy;
+    }
+
+    public static class Builder {
+        private long finishedAtMillis;
+        private long durationMillis;
+        private List<Integer> discrepantStripes = List.of();
+        private Money discrepancy = Money.ZERO;
+
+        public Builder setFinishedAtMillis(long finishedAtMillis) {
+            this.finishedAtMillis = finishedAtMillis;
+            return this;
+        }
+
+        public Builder setDurationMillis(long durationMillis) {
+            this.durationMillis = durationMillis;
+            return this;
+        }
+
+        public Builder setDiscrepantStripes(List<Integer> discrepantStripes) {
+            this.discrepantStripes = discrepantStripes;
+            return this;
+        }
+
+        public Builder setDiscrepancy(Money discrepancy) {
+            this.discrepancy = discrepancy;
+            return this;
+        }
+
+        public SupplyAudit build() {
+            return new SupplyAudit(this);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package account.service.audit;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.Duration;
+
+/**
+ * Settings of {@link SupplyAuditor}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class SupplyAuditSettings {
+
+    /**
+     * Pause between background audits, zero disables them.
+     */
+    private final Duration interval;
+
+    /**
+     * Threads checking stripes of one audit in parallel.
+     */
+    private final int threads;
+
+    public SupplyAuditSettings(Builder builder) {
+        this.interval = builder.interval;
+        this.threads = builder.threads;
+        Preconditions.checkArgument(!interval.isNegative(), "Audit interval should not be negative");
+        Preconditions.checkArgument(threads > 0, "Audit threads count should be positive");
+    }
+
+    /**
+     * Settings from {@code account.audit.*} system properties.
+     */
+    public static SupplyAuditSettings fromSystemProperties() {
+        return new Builder()
+                .setInterval(Duration.ofMillis(Long.getLong("account.audit.intervalMillis", 60_000)))
+                .setThreads(Integer.getInteger("account.audit.threads", 2))
+                .build();
+    }
+
+    public static SupplyAuditSettings disabled() {
+        return new Builder().setInterval(Duration.ZERO).build();
+    }
+
+    public boolean isEnabled() {
+        return !interval.isZero();
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public static class Builder {
+        private Duration interval = Duration.ofMinutes(1);
+        private int threads = 2;
+
+        public Builder setInterval(Duration interval) {
+            this.interval = interval;
+            return this;
+        }
+
+        public Builder setThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public SupplyAuditSettings build() {
+            return new SupplyAuditSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("interval", interval)
+                .add("threads", threads)
+                .toString();
+    }
+}
@@ -0,0 +1,171 @@
+package account.service.audit;
+
+import account.metrics.Histogram;
+import account.model.Money;
+import account.service.AccountService;
+import account.service.db.SupplyChange;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background check that money is conserved: every supply stripe kept by write transactions
+ * (see {@link SupplyChange}) is compared with the sum of its accounts.
+ * <ul>
+ *     <li>stripes are chunks of the scan, they are checked in parallel by {@code threads} scanner threads
+ *     of minimal priority, so a scan yields cpu to request threads</li>
+ *     <li>check of a stripe locks only its supply row for one indexed sum, writers of its accounts
+ *     wait for it at commit, accounts themselves are never locked</li>
+ *     <li>audits are made one at a time every {@code interval} after the previous one</li>
+ *     <li>discrepant stripe is logged as error and counted in metrics</li>
+ * </ul>
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ThreadSafe
+public class SupplyAuditor implements AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(SupplyAuditor.class);
+
+    private final AccountService accountService;
+    private final SupplyAuditSettings settings;
+    private final ExecutorService scanners;
+    private final ScheduledExecutorService scheduler;
+    private final Histogram duration = new Histogram();
+    private final AtomicLong audits = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong discrepancies = new AtomicLong();
+    private volatile SupplyAudit lastAudit;
+
+    @Inject
+    public SupplyAuditor(AccountService accountService, SupplyAuditSettings settings) {
+        this.accountService = accountService;
+        this.settings = settings;
+        this.scanners = Executors.newFixedThreadPool(settings.getThreads(), new ThreadFactoryBuilder()
+                .setNameFormat("account-supply-audit-%d")
+                .setDaemon(true)
+                .setPriority(Thread.MIN_PRIORITY)
+                .build());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-supply-audit");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedule background audits if they are enabled.
+     */
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        long intervalMillis = settings.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::auditQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Supply audit is started with {}", settings);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Check all stripes now, in the calling thread waiting for scanner threads.
+     */
+    public synchronized SupplyAudit audit() {
+        long start = System.nanoTime();
+        List<CompletableFuture<Money>> checks = new ArrayList<>(SupplyChange.STRIPES);
+        for (int stripe = 0; stripe < SupplyChange.STRIPES; stripe++) {
+            int current = stripe;
+            checks.add(CompletableFuture.supplyAsync(() -> accountService.auditSupply(current), scanners));
+        }
+        List<Integer> discrepantStripes = new ArrayList<>();
+        Money discrepancy = Money.ZERO;
+        try {
+            for (int stripe = 0; stripe < SupplyChange.STRIPES; stripe++) {
+                Money stripeDiscrepancy = checks.get(stripe).join();
+                if (stripeDiscrepancy.signum() != 0) {
+                    log.error("Supply stripe {} differs from its accounts by {}", stripe, stripeDiscrepancy);
+                    discrepantStripes.add(stripe);
+                    discrepancy = discrepancy.plus(stripeDiscrepancy);
+                }
+            }
+        } catch (CompletionException e) {
+            failures.incrementAndGet();
+            checks.forEach(check -> check.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        duration.record(elapsed);
+        audits.incrementAndGet();
+        discrepancies.addAndGet(discrepantStripes.size());
+        SupplyAudit audit = new SupplyAudit.Builder()
+                .setFinishedAtMillis(System.currentTimeMillis())
+                .setDurationMillis(TimeUnit.NANOSECONDS.toMillis(elapsed))
+                .setDiscrepantStripes(discrepantStripes)
+                .setDiscrepancy(discrepancy)
+                .build();
+        lastAudit = audit;
+        return audit;
+    }
+
+    /**
+     * @return the latest complete audit or {@code null} if there was none
+     */
+    @Nullable
+    public SupplyAudit getLastAudit() {
+        return lastAudit;
+    }
+
+    public Histogram getDuration() {
+        return duration;
+    }
+
+    public long getAudits() {
+        return audits.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return discrepant stripes found by all audits
+     */
+    public long getDiscrepancies() {
+        return discrepancies.get();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        scanners.shutdownNow();
+    }
+
+    private void auditQuietly() {
+        try {
+            audit();
+        } catch (RuntimeException e) {
+            log.warn("Supply audit failed", e);
+        }
+    }
+}
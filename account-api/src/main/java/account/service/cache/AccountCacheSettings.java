@@ -0,0 +1,92 @@
+package account.service.cache;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.Duration;
+
+/**
+ * Settings of {@link CachingAccountService}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class AccountCacheSettings {
+
+    /**
+     * Max cached accounts, {@code 0} disables cache.
+     */
+    private final long maxSize;
+
+    /**
+     * Time after which cached account is loaded again.
+     */
+    private final Duration expireAfterWrite;
+
+    public AccountCacheSettings(Builder builder) {
+        this.maxSize = builder.maxSize;
+        this.expireAfterWrite = builder.expireAfterWrite;
+        Preconditions.checkArgument(maxSize >= 0, "Cache size should not be negative");
+        Preconditions.checkArgument(!expireAfterWrite.isNegative() && !expireAfterWrite.isZero(),
+                "Cache expiration should be positive");
+    }
+
+    /**
+     * Settings from {@code account.cache.*} system properties.
+     */
+    public static AccountCacheSettings fromSystemProperties() {
+        return new Builder()
+                .setMaxSize(Long.getLong("account.cache.maxSize", 10_000L))
+                .setExpireAfterWrite(Duration.ofMillis(Long.getLong("account.cache.expireAfterWriteMillis", 1000L)))
+                .build();
+    }
+
+    /**
+     * Settings with cache turned off.
+     */
+    public static AccountCacheSettings disabled() {
+        return new Builder()
+                .setMaxSize(0)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public static class Builder {
+        private long maxSize = 10_000;
+        private Duration expireAfterWrite = Duration.ofSeconds(1);
+
+        public Builder setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder setExpireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+            return this;
+        }
+
+        public AccountCacheSettings build() {
+            return new AccountCacheSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("maxSize", maxSize)
+                .add("expireAfterWrite", expireAfterWrite)
+                .toString();
+    }
+}
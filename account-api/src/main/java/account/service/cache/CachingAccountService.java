@@ -0,0 +1,316 @@
+package account.service.cache;
+
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionLeg;
+import account.model.TransactionResult;
+import account.service.AccountService;
+import account.service.AccountServiceChecks;
+import account.service.TransactionBatchSettings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache of accounts in front of another {@link AccountService}.
+ * <p>
+ * Cache is bounded by size and time since load. Every write invalidates accounts it touches after
+ * the delegate returns, so a read started after acknowledged write never sees older amount:
+ * <ul>
+ *     <li>writer bumps epoch of account stripe and drops cached account under stripe lock</li>
+ *     <li>loader remembers stripe epoch before reading delegate and caches loaded account
+ *     (under stripe lock) only if epoch has not changed</li>
+ *     <li>concurrent misses of an account wait for one load, but only if it was started
+ *     in the same epoch (load started before a write could return old amount)</li>
+ * </ul>
+ * Absent accounts are not cached.
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class CachingAccountService implements AccountService, AutoCloseable {
+
+    /**
+     * Name of {@link AccountService} binding behind the cache.
+     */
+    public static final String DELEGATE = "account.cache.delegate";
+
+    private static final int STRIPES = 256;
+
+    private final AccountService delegate;
+    private final Cache<Long, Account> cache;
+    private final Object[] locks = new Object[STRIPES];
+    private final AtomicLongArray epochs = new AtomicLongArray(STRIPES);
+    private final ConcurrentMap<Long, Load> loads = new ConcurrentHashMap<>();
+    private final LongAdder collapsedMisses = new LongAdder();
+    private final TransactionBatchSettings batchSettings;
+
+    @Inject
+    public CachingAccountService(@Named(DELEGATE) AccountService delegate, AccountCacheSettings settings,
+                                 TransactionBatchSettings batchSettings) {
+        this.delegate = delegate;
+        this.batchSettings = batchSettings;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(settings.getMaxSize())
+                .expireAfterWrite(settings.getExpireAfterWrite().toNanos(), TimeUnit.NANOSECONDS)
+                .recordStats()
+                .build();
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public Account createAccount(Money amount) {
+        return delegate.createAccount(amount);
+    }
+
+    @Override
+    public List<Account> createAccounts(List<Money> amounts) {
+        return delegate.createAccounts(amounts);
+    }
+
+    @Override
+    public Optional<Account> getAccount(long accountId) {
+        Account cached = cache.getIfPresent(accountId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        int stripe = stripe(accountId);
+        long epoch = epochs.get(stripe);
+        Load started = new Load(epoch);
+        Load load = loads.compute(accountId, (id, current) ->
+                current != null && current.epoch == epoch ? current : started);
+        if (load != started) {
+            collapsedMisses.increment();
+            return await(load);
+        }
+        try {
+            Optional<Account> account = delegate.getAccount(accountId);
+            account.ifPresent(loaded -> putIfNotChanged(stripe, epoch, loaded));
+            load.result.complete(account);
+            return account;
+        } catch (RuntimeException e) {
+            load.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(accountId, load);
+        }
+    }
+
+    /**
+     * Ids are taken by chunks of {@code account.batch.chunkSize}: cached accounts of a chunk are passed as is,
+     * the rest are read from delegate with one call, then the chunk is passed to consumer.
+     * Concurrent misses of multi-get are not collapsed.
+     */
+    @Override
+    public void getAccounts(long[] accountIds, Consumer<Optional<Account>> consumer) {
+        AccountServiceChecks.checkAccountIds(accountIds, batchSettings.getMaxSize());
+        int chunkSize = batchSettings.getChunkSize();
+        for (int from = 0; from < accountIds.length; from += chunkSize) {
+            getChunk(Arrays.copyOfRange(accountIds, from, Math.min(accountIds.length, from + chunkSize)))
+                    .forEach(consumer);
+        }
+    }
+
+    private List<Optional<Account>> getChunk(long[] accountIds) {
+        List<Optional<Account>> accounts = new ArrayList<>(accountIds.length);
+        long[] missed = new long[accountIds.length];
+        long[] missedEpochs = new long[accountIds.length];
+        int misses = 0;
+        for (long accountId : accountIds) {
+            Account cached = cache.getIfPresent(accountId);
+            if (cached == null) {
+                missedEpochs[misses] = epochs.get(stripe(accountId));
+                missed[misses++] = accountId;
+            }
+            accounts.add(Optional.ofNullable(cached));
+        }
+        if (misses == 0) {
+            return accounts;
+        }
+        List<Optional<Account>> loaded = delegate.getAccounts(Arrays.copyOf(missed, misses));
+        int miss = 0;
+        for (int i = 0; i < accountIds.length; i++) {
+            if (!accounts.get(i).isPresent()) {
+                Optional<Account> account = loaded.get(miss);
+                long epoch = missedEpochs[miss++];
+                account.ifPresent(found -> putIfNotChanged(stripe(found.getId()), epoch, found));
+                accounts.set(i, account);
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Pages are not cached, they are read from delegate.
+     */
+    @Override
+    public List<Account> getAccountsAfter(long afterId, int limit) {
+        return delegate.getAccountsAfter(afterId, limit);
+    }
+
+    @Override
+    public Money getTotalSupply() {
+        return delegate.getTotalSupply();
+    }
+
+    @Override
+    public Money auditSupply(int stripe) {
+        return delegate.auditSupply(stripe);
+    }
+
+    @Override
+    public Account deposit(long accountId, Money amount) {
+        try {
+            return delegate.deposit(accountId, amount);
+        } finally {
+            invalidate(accountId);
+        }
+    }
+
+    @Override
+    public Account withdraw(long accountId, Money amount) {
+        try {
+            return delegate.withdraw(accountId, amount);
+        } finally {
+            invalidate(accountId);
+        }
+    }
+
+    @Override
+    public void transaction(AccountTransaction transaction) {
+        try {
+            delegate.transaction(transaction);
+        } finally {
+            invalidate(transaction.getFromId());
+            invalidate(transaction.getToId());
+        }
+    }
+
+    @Override
+    public void transaction(MultiLegTransaction transaction) {
+        try {
+            delegate.transaction(transaction);
+        } finally {
+            for (TransactionLeg leg : transaction.getLegs()) {
+                invalidate(leg.getAccountId());
+            }
+        }
+    }
+
+    @Override
+    public List<TransactionResult> transactions(List<AccountTransaction> transactions, BatchMode mode) {
+        try {
+            return delegate.transactions(transactions, mode);
+        } finally {
+            for (AccountTransaction transaction : transactions) {
+                invalidate(transaction.getFromId());
+                invalidate(transaction.getToId());
+            }
+        }
+    }
+
+    public long getHits() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMisses() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * @return accounts evicted by size or time (not by writes)
+     */
+    public long getEvictions() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * @return misses served by load of a concurrent miss
+     */
+    public long getCollapsedMisses() {
+        return collapsedMisses.sum();
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    /**
+     * @return service behind the cache (the engine)
+     */
+    public AccountService getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+
+    private void putIfNotChanged(int stripe, long epoch, Account account) {
+        synchronized (locks[stripe]) {
+            if (epochs.get(stripe) == epoch) {
+                cache.put(account.getId(), account);
+            }
+        }
+    }
+
+    private void invalidate(long accountId) {
+        int stripe = stripe(accountId);
+        synchronized (locks[stripe]) {
+            epochs.incrementAndGet(stripe);
+            cache.invalidate(accountId);
+        }
+    }
+
+    private static Optional<Account> await(Load load) {
+        try {
+            return load.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static int stripe(long accountId) {
+        return (int) ((accountId * 0x9E3779B97F4A7C15L) >>> 56);
+    }
+
+    /**
+     * Load of an account from delegate started in stripe {@code epoch}.
+     */
+    private static final class Load {
+        private final long epoch;
+        private final CompletableFuture<Optional<Account>> result = new CompletableFuture<>();
+
+        private Load(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -3,60 +3,176 @@ package account.service.db;
 import account.exception.AccountApiBadRequest;
 import account.model.Account;
 import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionResult;
+import account.service.AccountServiceChecks;
+import account.service.TransactionBatch;
+import account.service.snapshot.CommittedAccounts;
+import account.util.LongObjectHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import javax.inject.Inject;
 import javax.sql.DataSource;
-import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Database layer for working with accounts.
+ * <p>
+ * Every write transaction adds its net change of money to {@code ACCOUNT_SUPPLY} before commit,
+ * see {@link SupplyChange}.
+ * <p>
+ * After-images of accounts changed by every commit are published to {@link CommittedAccounts}
+ * (with version taken while rows are still locked), except {@link #updateAmounts(Collection)} of
+ * engines keeping accounts in memory.
  *
  * @author fbokovikov
  */
 public class AccountDao {
 
+    private static final Logger log = LogManager.getLogger(AccountDao.class);
+
     private static final String CREATE_ACCOUNT = "" +
             "INSERT INTO account(amount) VALUES(?)";
 
+    private static final String CREATE_ACCOUNT_WITH_ID = "" +
+            "INSERT INTO account(id, amount) VALUES(?, ?)";
+
+    private static final String NEXT_ACCOUNT_IDS = "" +
+            "SELECT S_ACCOUNT_ID.NEXTVAL FROM SYSTEM_RANGE(1, ?)";
+
     private static final String GET_ACCOUNT = "" +
             "SELECT id, amount FROM account WHERE id = ?";
 
+    private static final String GET_ACCOUNTS = "" +
+            "SELECT a.id, a.amount FROM TABLE(id BIGINT = ?) ids " +
+            "INNER JOIN account a ON a.id = ids.id";
+
+    private static final String GET_ACCOUNTS_AFTER = "" +
+            "SELECT id, amount FROM account WHERE id > ? ORDER BY id LIMIT ?";
+
     private static final String UPDATE_AMOUNT = "" +
             "UPDATE account SET amount = ? WHERE id = ?";
 
     private static final String LOCK_ACCOUNT = "" +
             GET_ACCOUNT + " FOR UPDATE";
 
+    private static final String LOCK_SUPPLY = "" +
+            "SELECT amount FROM account_supply ORDER BY stripe FOR UPDATE";
+
+    private static final String LOCK_SUPPLY_STRIPE = "" +
+            "SELECT amount FROM account_supply WHERE stripe = ? FOR UPDATE";
+
+    private static final String SUM_SUPPLY_STRIPE = "" +
+            "SELECT COALESCE(SUM(amount), 0) FROM account WHERE supply_stripe = ?";
+
     private static final AccountResultSetExtractor ACCOUNT_EXTRACTOR = new AccountResultSetExtractor();
 
     private final DataSource dataSource;
+    private final LockContentionTracker contentionTracker;
+    private final CommittedAccounts committedAccounts;
+
+    public AccountDao(DataSource dataSource, LockContentionTracker contentionTracker) {
+        this(dataSource, contentionTracker, CommittedAccounts.disabled());
+    }
 
     @Inject
-    public AccountDao(DataSource dataSource) {
+    public AccountDao(DataSource dataSource, LockContentionTracker contentionTracker,
+                      CommittedAccounts committedAccounts) {
         this.dataSource = dataSource;
+        this.contentionTracker = contentionTracker;
+        this.committedAccounts = committedAccounts;
     }
 
-    public Account createAccount(BigDecimal amount) {
+    public Account createAccount(Money amount) {
         try (var connection = dataSource.getConnection();
              var statement = connection.prepareStatement(CREATE_ACCOUNT, Statement.RETURN_GENERATED_KEYS)
         ) {
-            statement.setBigDecimal(1, amount);
-            statement.executeUpdate();
-            try (var generatedKeys = statement.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    var accountId = generatedKeys.getLong(1);
-                    return new Account.Builder()
+            connection.setAutoCommit(false);
+            try {
+                statement.setLong(1, amount.getUnits());
+                statement.executeUpdate();
+                try (var generatedKeys = statement.getGeneratedKeys()) {
+                    if (!generatedKeys.next()) {
+                        throw new AccountApiBadRequest("Can not get generated id key");
+                    }
+                    var account = new Account.Builder()
                             .setAmount(amount)
-                            .setId(accountId)
+                            .setId(generatedKeys.getLong(1))
                             .build();
-                } else {
-                    throw new AccountApiBadRequest("Can not get generated id key");
+                    new SupplyChange().add(account.getId(), amount).apply(connection);
+                    long version = committedAccounts.nextVersion();
+                    long commitStart = System.nanoTime();
+                    connection.commit();
+                    committedAccounts.publish(account, version, commitStart);
+                    return account;
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
+                throw new RuntimeException("SQL Exception", e);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    /**
+     * Create accounts in one database transaction.
+     * <ol>
+     *     <li>Take block of ids from sequence with one query</li>
+     *     <li>Insert accounts with JDBC batches of {@code batchSize}</li>
+     *     <li>Commit</li>
+     * </ol>
+     *
+     * @param amounts initial amounts
+     * @return created accounts in order of {@code amounts}
+     */
+    public List<Account> createAccounts(List<Money> amounts, int batchSize) {
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long[] accountIds = nextAccountIds(connection, amounts.size());
+                List<Account> accounts = new ArrayList<>(amounts.size());
+                var supplyChange = new SupplyChange();
+                try (var statement = connection.prepareStatement(CREATE_ACCOUNT_WITH_ID)) {
+                    for (int i = 0; i < amounts.size(); i++) {
+                        statement.setLong(1, accountIds[i]);
+                        statement.setLong(2, amounts.get(i).getUnits());
+                        statement.addBatch();
+                        if ((i + 1) % batchSize == 0 || i == amounts.size() - 1) {
+                            statement.executeBatch();
+                        }
+                        accounts.add(new Account.Builder()
+                                .setId(accountIds[i])
+                                .setAmount(amounts.get(i))
+                                .build());
+                        supplyChange.add(accountIds[i], amounts.get(i));
+                    }
                 }
+                supplyChange.apply(connection);
+                long version = committedAccounts.nextVersion();
+                long commitStart = System.nanoTime();
+                connection.commit();
+                committedAccounts.publish(accounts, version, commitStart);
+                return accounts;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw new RuntimeException("SQL Exception", e);
             }
         } catch (SQLException e) {
             throw new RuntimeException("SQL Exception", e);
@@ -72,7 +188,7 @@ public class AccountDao {
                 if (rs.next()) {
                     Account account = new Account.Builder()
                             .setId(rs.getLong("id"))
-                            .setAmount(rs.getBigDecimal("amount"))
+                            .setAmount(Money.ofUnits(rs.getLong("amount")))
                             .build();
                     return Optional.of(account);
                 } else {
@@ -84,37 +200,166 @@ public class AccountDao {
         }
     }
 
+    /**
+     * Read accounts with one query per chunk of {@code chunkSize} ids into {@code found} by id.
+     * Absent accounts are skipped. Nothing is streamed, the whole result is held in memory,
+     * so callers bound the number of ids (see {@link AccountServiceChecks#checkAccountIds}).
+     *
+     * @param accountIds account ids, may repeat
+     */
+    public void getAccounts(long[] accountIds, int chunkSize, LongObjectHashMap<Account> found) {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(GET_ACCOUNTS)
+        ) {
+            for (int from = 0; from < accountIds.length; from += chunkSize) {
+                int to = Math.min(accountIds.length, from + chunkSize);
+                Long[] chunk = new Long[to - from];
+                for (int i = from; i < to; i++) {
+                    chunk[i - from] = accountIds[i];
+                }
+                statement.setObject(1, chunk);
+                try (var rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        long accountId = rs.getLong("id");
+                        found.put(accountId, new Account.Builder()
+                                .setId(accountId)
+                                .setAmount(Money.ofUnits(rs.getLong("amount")))
+                                .build());
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    /**
+     * Keyset page of accounts: one query {@code WHERE id > afterId ORDER BY id LIMIT limit} (primary key range scan)
+     * with fetch size of the page. Plain select in auto-commit mode, so no row lock is taken and
+     * connection is returned to pool before the page is used.
+     *
+     * @return accounts with id greater than {@code afterId} in ascending id order, at most {@code limit}
+     */
+    public List<Account> getAccountsAfter(long afterId, int limit) {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(GET_ACCOUNTS_AFTER)
+        ) {
+            statement.setLong(1, afterId);
+            statement.setInt(2, limit);
+            statement.setFetchSize(limit);
+            List<Account> accounts = new ArrayList<>(Math.min(limit, 1024));
+            try (var rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(new Account.Builder()
+                            .setId(rs.getLong("id"))
+                            .setAmount(Money.ofUnits(rs.getLong("amount")))
+                            .build());
+                }
+            }
+            return accounts;
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    /**
+     * Total money of accounts: sum of {@code ACCOUNT_SUPPLY} read with all stripe rows locked for the moment
+     * of the read (in ascending order, like writers lock them), so no transaction is counted partially.
+     */
+    public Money getTotalSupply() {
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (var statement = connection.prepareStatement(LOCK_SUPPLY);
+                 var rs = statement.executeQuery()
+            ) {
+                long total = 0;
+                while (rs.next()) {
+                    total += rs.getLong(1);
+                }
+                connection.commit();
+                return Money.ofUnits(total);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw new RuntimeException("SQL Exception", e);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    /**
+     * Check supply stripe against its accounts: lock stripe row (writers of its accounts can not commit
+     * meanwhile, see {@link SupplyChange}) and sum its accounts with plain select, without account locks.
+     *
+     * @return sum of accounts of the stripe minus its supply, zero if they agree
+     */
+    public Money auditSupply(int stripe) {
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (var lockStatement = connection.prepareStatement(LOCK_SUPPLY_STRIPE);
+                 var sumStatement = connection.prepareStatement(SUM_SUPPLY_STRIPE)
+            ) {
+                lockStatement.setInt(1, stripe);
+                long supply;
+                try (var rs = lockStatement.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalArgumentException("Unknown supply stripe " + stripe);
+                    }
+                    supply = rs.getLong(1);
+                }
+                sumStatement.setInt(1, stripe);
+                long accounts;
+                try (var rs = sumStatement.executeQuery()) {
+                    rs.next();
+                    accounts = rs.getLong(1);
+                }
+                connection.commit();
+                return Money.ofUnits(accounts - supply);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw new RuntimeException("SQL Exception", e);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
     /**
      * Lock account record and add {@code amount} to account
      *
      * @param accountId  unit account id
      * @param amountDiff value to be added on account
      */
-    public Account updateAmount(long accountId, BigDecimal amountDiff) {
+    public Account updateAmount(long accountId, Money amountDiff) {
         try (var connection = dataSource.getConnection();
              var lockStatement = connection.prepareStatement(LOCK_ACCOUNT);
              var updateStatement = connection.prepareStatement(UPDATE_AMOUNT)
         ) {
             connection.setAutoCommit(false);
             lockStatement.setLong(1, accountId);
-            try (var rs = lockStatement.executeQuery()) {
+            try (var rs = executeLock(lockStatement, accountId)) {
                 if (rs.next()) {
-                    var amountBefore = rs.getBigDecimal("amount");
-                    var amountAfter = amountBefore.add(amountDiff);
-                    if (amountAfter.compareTo(BigDecimal.ZERO) < 0) {
+                    var amountBefore = Money.ofUnits(rs.getLong("amount"));
+                    var amountAfter = amountBefore.plus(amountDiff);
+                    if (amountAfter.isNegative()) {
                         throw new AccountApiBadRequest("Not enough amount for transfer");
                     }
 
-                    updateStatement.setBigDecimal(1, amountAfter);
+                    updateStatement.setLong(1, amountAfter.getUnits());
                     updateStatement.setLong(2, accountId);
                     updateStatement.executeUpdate();
+                    new SupplyChange().add(accountId, amountDiff).apply(connection);
 
+                    long version = committedAccounts.nextVersion();
+                    long commitStart = System.nanoTime();
                     connection.commit();
 
-                    return new Account.Builder()
+                    var account = new Account.Builder()
                             .setId(accountId)
                             .setAmount(amountAfter)
                             .build();
+                    committedAccounts.publish(account, version, commitStart);
+                    return account;
                 } else {
                     throw new AccountApiBadRequest("Account not found");
                 }
@@ -155,15 +400,174 @@ public class AccountDao {
                 Account to = account1 == from ? account2 : account1;
 
                 var fromAmount = from.getAmount();
-                var fromFinalAmount = fromAmount.subtract(transaction.getAmount());
-                if (fromFinalAmount.compareTo(BigDecimal.ZERO) < 0) {
+                var fromFinalAmount = fromAmount.minus(transaction.getAmount());
+                if (fromFinalAmount.isNegative()) {
                     throw new AccountApiBadRequest("Not enough amount for transfer");
                 }
 
+                var toFinalAmount = to.getAmount().plus(transaction.getAmount());
                 updateAccountAmount(connection, from.getId(), fromFinalAmount);
-                updateAccountAmount(connection, to.getId(), to.getAmount().add(transaction.getAmount()));
+                updateAccountAmount(connection, to.getId(), toFinalAmount);
+                new SupplyChange()
+                        .add(from.getId(), transaction.getAmount().negate())
+                        .add(to.getId(), transaction.getAmount())
+                        .apply(connection);
+
+                long version = committedAccounts.nextVersion();
+                long commitStart = System.nanoTime();
+                connection.commit();
+                committedAccounts.publish(List.of(
+                        new Account.Builder().setId(from.getId()).setAmount(fromFinalAmount).build(),
+                        new Account.Builder().setId(to.getId()).setAmount(toFinalAmount).build()
+                ), version, commitStart);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw new RuntimeException("SQL Exception", e);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+
+    }
+
+    /**
+     * Make transaction between many accounts in one database transaction.
+     * <ol>
+     *     <li>Lock every distinct account of the legs once, in ascending id order (the same global order as
+     *     {@link #transaction(AccountTransaction)})</li>
+     *     <li>Net legs per account and check resulting amounts</li>
+     *     <li>Write every changed account once with JDBC batches of {@code batchSize}</li>
+     *     <li>Commit</li>
+     * </ol>
+     * So locks and updates are made per account, not per leg.
+     *
+     * @throws AccountApiBadRequest if any account is not found or would get negative amount
+     */
+    public void transaction(MultiLegTransaction transaction, int batchSize) {
+        updateLocked(TransactionBatch.accountIds(transaction), batch -> {
+            var result = batch.apply(transaction);
+            if (!result.isApplied()) {
+                throw new AccountApiBadRequest(result.getMessage());
+            }
+            return result;
+        }, batchSize);
+    }
+
+    /**
+     * Make batch of transactions.
+     * <ol>
+     *     <li>Lock all accounts of a chunk in ascending id order (the same global order as
+     *     {@link #transaction(AccountTransaction)}, so batches and single transactions do not deadlock)</li>
+     *     <li>Apply transactions of the chunk one by one in memory</li>
+     *     <li>Write changed accounts with JDBC batches of {@code chunkSize}</li>
+     *     <li>Commit chunk</li>
+     * </ol>
+     * {@link BatchMode#ALL_OR_NOTHING} batch is one chunk (one commit), {@link BatchMode#PER_ITEM} batch
+     * is split into chunks of {@code chunkSize} transactions.
+     * <p>
+     * When a chunk of {@link BatchMode#PER_ITEM} batch fails (SQL error, no connection) after earlier chunks
+     * are committed, the error is not thrown: transactions of the failed chunk and of the chunks after it
+     * are reported rejected with the error message, so the caller sees which ones are applied.
+     *
+     * @return result of every transaction
+     * @throws AccountApiBadRequest on first rejected transaction of {@link BatchMode#ALL_OR_NOTHING} batch
+     * @throws RuntimeException if the first chunk fails, nothing is committed then
+     */
+    public List<TransactionResult> transactions(List<AccountTransaction> transactions, BatchMode mode,
+                                                int chunkSize) {
+        if (mode == BatchMode.ALL_OR_NOTHING) {
+            return transactionsChunk(transactions, 0, mode, chunkSize);
+        }
+        List<TransactionResult> results = new ArrayList<>(transactions.size());
+        for (int from = 0; from < transactions.size(); from += chunkSize) {
+            var chunk = transactions.subList(from, Math.min(transactions.size(), from + chunkSize));
+            try {
+                results.addAll(transactionsChunk(chunk, from, mode, chunkSize));
+            } catch (RuntimeException e) {
+                if (from == 0) {
+                    throw e;
+                }
+                log.warn("Chunk of batch failed after {} committed transactions", from, e);
+                var failed = TransactionResult.rejected("Not applied: " + e.getMessage());
+                while (results.size() < transactions.size()) {
+                    results.add(failed);
+                }
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Overwrite amounts of accounts with one JDBC batch in one transaction.
+     * Accounts are written as is, caller is responsible for amounts consistency.
+     * Amounts before overwrite are locked and read to add net change to supply.
+     *
+     * @param accounts accounts with new amounts
+     */
+    public void updateAmounts(Collection<Account> accounts) {
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long[] accountIds = new long[accounts.size()];
+                int i = 0;
+                for (Account account : accounts) {
+                    accountIds[i++] = account.getId();
+                }
+                var before = lockAccounts(connection, TransactionBatch.lockOrder(accountIds));
+                updateAmounts(connection, accounts, Math.max(1, accounts.size()));
+                var supplyChange = new SupplyChange();
+                for (Account account : accounts) {
+                    Account stored = before.get(account.getId());
+                    supplyChange.add(account.getId(), stored == null
+                            ? account.getAmount()
+                            : account.getAmount().minus(stored.getAmount()));
+                }
+                supplyChange.apply(connection);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw new RuntimeException("SQL Exception", e);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
 
+    /**
+     * Lock accounts in one database transaction, change them in memory with {@code update}
+     * and write changed accounts back with JDBC batches of {@code batchSize} before commit.
+     * <p>
+     * {@link AccountApiBadRequest} thrown by {@code update} rolls the transaction back.
+     *
+     * @param accountIds distinct account ids in ascending (locking) order, see {@link TransactionBatch#accountIds}
+     * @return result of {@code update}
+     */
+    public <T> T updateLocked(long[] accountIds, Function<TransactionBatch, T> update, int batchSize) {
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                var locked = lockAccounts(connection, accountIds);
+                long[] unitsBefore = new long[accountIds.length];
+                for (int i = 0; i < accountIds.length; i++) {
+                    Account account = locked.get(accountIds[i]);
+                    unitsBefore[i] = account == null ? 0 : account.getAmount().getUnits();
+                }
+                var batch = new TransactionBatch(locked);
+                T result = update.apply(batch);
+                List<Account> changed = batch.changed();
+                updateAmounts(connection, changed, batchSize);
+                var supplyChange = new SupplyChange();
+                for (Account account : changed) {
+                    int index = Arrays.binarySearch(accountIds, account.getId());
+                    supplyChange.add(account.getId(), account.getAmount().getUnits() - unitsBefore[index]);
+                }
+                supplyChange.apply(connection);
+                long version = committedAccounts.nextVersion();
+                long commitStart = System.nanoTime();
                 connection.commit();
+                committedAccounts.publish(changed, version, commitStart);
+                return result;
             } catch (SQLException e) {
                 connection.rollback();
                 throw new RuntimeException("SQL Exception", e);
@@ -171,21 +575,109 @@ public class AccountDao {
         } catch (SQLException e) {
             throw new RuntimeException("SQL Exception", e);
         }
+    }
 
+    private List<TransactionResult> transactionsChunk(List<AccountTransaction> chunk, int offset, BatchMode mode,
+                                                      int batchSize) {
+        return updateLocked(TransactionBatch.accountIds(chunk), batch -> {
+            List<TransactionResult> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                var result = batch.apply(chunk.get(i));
+                if (mode == BatchMode.ALL_OR_NOTHING && !result.isApplied()) {
+                    throw new AccountApiBadRequest(
+                            AccountServiceChecks.transactionError(offset + i, result.getMessage())
+                    );
+                }
+                results.add(result);
+            }
+            return results;
+        }, batchSize);
     }
 
-    private static Account lockAccount(Connection connection, long accountId) throws SQLException {
+    private static long[] nextAccountIds(Connection connection, int count) throws SQLException {
+        long[] accountIds = new long[count];
+        try (var statement = connection.prepareStatement(NEXT_ACCOUNT_IDS)) {
+            statement.setInt(1, count);
+            try (var rs = statement.executeQuery()) {
+                for (int i = 0; i < count; i++) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("Sequence returned less than " + count + " ids");
+                    }
+                    accountIds[i] = rs.getLong(1);
+                }
+            }
+        }
+        return accountIds;
+    }
+
+    /**
+     * Lock accounts one by one in given order.
+     *
+     * @return locked existing accounts by id
+     */
+    private LongObjectHashMap<Account> lockAccounts(Connection connection, long[] accountIds)
+            throws SQLException {
+        var accounts = new LongObjectHashMap<Account>();
+        try (var lockStatement = connection.prepareStatement(LOCK_ACCOUNT)) {
+            for (long accountId : accountIds) {
+                lockStatement.setLong(1, accountId);
+                try (var rs = executeLock(lockStatement, accountId)) {
+                    if (rs.next()) {
+                        accounts.put(accountId, new Account.Builder()
+                                .setId(accountId)
+                                .setAmount(Money.ofUnits(rs.getLong("amount")))
+                                .build());
+                    }
+                }
+            }
+        }
+        return accounts;
+    }
+
+    private static void updateAmounts(Connection connection, Collection<Account> accounts, int batchSize)
+            throws SQLException {
+        try (var updateStatement = connection.prepareStatement(UPDATE_AMOUNT)) {
+            int batched = 0;
+            for (Account account : accounts) {
+                updateStatement.setLong(1, account.getAmount().getUnits());
+                updateStatement.setLong(2, account.getId());
+                updateStatement.addBatch();
+                if (++batched == batchSize) {
+                    updateStatement.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                updateStatement.executeBatch();
+            }
+        }
+    }
+
+    private Account lockAccount(Connection connection, long accountId) throws SQLException {
         try (var lockStatement = connection.prepareStatement(LOCK_ACCOUNT)){
             lockStatement.setLong(1, accountId);
-            try (var resultSet = lockStatement.executeQuery()) {
+            try (var resultSet = executeLock(lockStatement, accountId)) {
                 return ACCOUNT_EXTRACTOR.extract(resultSet);
             }
         }
     }
 
-    private static void updateAccountAmount(Connection connection, long accountId, BigDecimal amount) throws SQLException {
+    /**
+     * Execute {@code SELECT ... FOR UPDATE} of one account and record its time (row lock wait)
+     * in {@link LockContentionTracker}.
+     */
+    private ResultSet executeLock(PreparedStatement lockStatement, long accountId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return lockStatement.executeQuery();
+        } finally {
+            contentionTracker.record(accountId, System.nanoTime() - start);
+        }
+    }
+
+    private static void updateAccountAmount(Connection connection, long accountId, Money amount) throws SQLException {
         try (var updateStatement = connection.prepareStatement(UPDATE_AMOUNT)) {
-            updateStatement.setBigDecimal(1, amount);
+            updateStatement.setLong(1, amount.getUnits());
             updateStatement.setLong(2, accountId);
             updateStatement.executeUpdate();
         }
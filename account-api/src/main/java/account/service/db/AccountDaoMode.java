@@ -0,0 +1,26 @@
+package account.service.db;
+
+/**
+ * How {@link AccountDao} changes account amounts.
+ *
+ * @author fbokovikov
+ */
+public enum AccountDaoMode {
+
+    /**
+     * Lock rows with {@code SELECT ... FOR UPDATE}, calculate amount in java and write it back.
+     */
+    LOCKING,
+
+    /**
+     * Single guarded {@code UPDATE ... SET amount = amount + ?} per account, see {@link ConditionalUpdateAccountDao}.
+     */
+    CONDITIONAL;
+
+    /**
+     * Mode from {@code account.dao.mode} system property, {@link #LOCKING} by default.
+     */
+    public static AccountDaoMode fromSystemProperties() {
+        return valueOf(System.getProperty("account.dao.mode", LOCKING.name()).toUpperCase());
+    }
+}
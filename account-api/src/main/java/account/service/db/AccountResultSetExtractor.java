@@ -2,6 +2,7 @@ package account.service.db;
 
 import account.exception.AccountApiBadRequest;
 import account.model.Account;
+import account.model.Money;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -16,7 +17,7 @@ class AccountResultSetExtractor {
     Account extract(ResultSet rs) {
         try {
             if (rs.next()) {
-                var amount = rs.getBigDecimal("amount");
+                var amount = Money.ofUnits(rs.getLong("amount"));
                 var id = rs.getLong("id");
                 return new Account.Builder()
                         .setId(id)
@@ -0,0 +1,196 @@
+package account.service.db;
+
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.service.snapshot.CommittedAccounts;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link AccountDao} changing amounts with guarded atomic updates instead of {@code SELECT ... FOR UPDATE}.
+ * <p>
+ * Every account is changed by single {@code UPDATE account SET amount = amount + ?} which succeeds only
+ * if amount stays non-negative, so row lock is held by database only for the statement itself and
+ * arithmetic is not done in java. Zero affected rows means account is absent or has not enough amount,
+ * this (rare) case is resolved with additional select to report the same errors as {@link AccountDao}.
+ * Time of guarded update (row lock wait included) is recorded in {@link LockContentionTracker}.
+ * BIGINT overflow of an update is reported as {@code "Amount is too big"}, as {@link Money} arithmetic
+ * of {@link AccountDao} reports it.
+ *
+ * @author fbokovikov
+ */
+public class ConditionalUpdateAccountDao extends AccountDao {
+
+    private static final String ADD_AMOUNT = "" +
+            "UPDATE account SET amount = amount + ? WHERE id = ? AND amount + ? >= 0";
+
+    private static final String GET_AMOUNT = "" +
+            "SELECT amount FROM account WHERE id = ?";
+
+    private static final String ACCOUNT_EXISTS = "" +
+            "SELECT COUNT(*) FROM account WHERE id IN (?, ?)";
+
+    /**
+     * SQLSTATE of numeric value out of range (H2 {@code NUMERIC_VALUE_OUT_OF_RANGE_1}).
+     */
+    private static final String NUMERIC_VALUE_OUT_OF_RANGE = "22003";
+
+    private final DataSource dataSource;
+    private final LockContentionTracker contentionTracker;
+    private final CommittedAccounts committedAccounts;
+
+    @Inject
+    public ConditionalUpdateAccountDao(DataSource dataSource, LockContentionTracker contentionTracker,
+                                       CommittedAccounts committedAccounts) {
+        super(dataSource, contentionTracker, committedAccounts);
+        this.dataSource = dataSource;
+        this.contentionTracker = contentionTracker;
+        this.committedAccounts = committedAccounts;
+    }
+
+    /**
+     * Add {@code amountDiff} to account: guarded update and select of the new amount in one transaction.
+     */
+    @Override
+    public Account updateAmount(long accountId, Money amountDiff) {
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (!addAmount(connection, accountId, amountDiff)) {
+                    connection.rollback();
+                    throw new AccountApiBadRequest(
+                            accountsExist(connection, accountId, accountId)
+                                    ? "Not enough amount for transfer"
+                                    : "Account not found"
+                    );
+                }
+                new SupplyChange().add(accountId, amountDiff).apply(connection);
+                var amountAfter = getAmount(connection, accountId);
+                long version = committedAccounts.nextVersion();
+                long commitStart = System.nanoTime();
+                connection.commit();
+                var account = new Account.Builder()
+                        .setId(accountId)
+                        .setAmount(amountAfter)
+                        .build();
+                committedAccounts.publish(account, version, commitStart);
+                return account;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw translate(e);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    /**
+     * Make transaction between two accounts with two guarded updates in one database transaction.
+     * <p>
+     * Accounts are updated in id order (as {@link AccountDao#transaction(AccountTransaction)} locks them)
+     * to prevent deadlocks between opposite transfers.
+     */
+    @Override
+    public void transaction(AccountTransaction transaction) {
+        long fromId = transaction.getFromId();
+        long toId = transaction.getToId();
+        Money amount = transaction.getAmount();
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                boolean updated;
+                if (fromId < toId) {
+                    updated = addAmount(connection, fromId, amount.negate())
+                            && addAmount(connection, toId, amount);
+                } else {
+                    updated = addAmount(connection, toId, amount)
+                            && addAmount(connection, fromId, amount.negate());
+                }
+                if (!updated) {
+                    connection.rollback();
+                    throw new AccountApiBadRequest(
+                            accountsExist(connection, fromId, toId)
+                                    ? "Not enough amount for transfer"
+                                    : "Account not found"
+                    );
+                }
+                new SupplyChange()
+                        .add(fromId, amount.negate())
+                        .add(toId, amount)
+                        .apply(connection);
+                if (!committedAccounts.isEnabled()) {
+                    connection.commit();
+                    return;
+                }
+                //amounts are read only for publication, rows are still locked by the updates
+                var from = new Account.Builder().setId(fromId).setAmount(getAmount(connection, fromId)).build();
+                var to = new Account.Builder().setId(toId).setAmount(getAmount(connection, toId)).build();
+                long version = committedAccounts.nextVersion();
+                long commitStart = System.nanoTime();
+                connection.commit();
+                committedAccounts.publish(List.of(from, to), version, commitStart);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw translate(e);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    /**
+     * @return false if account is not found or amount would become negative
+     */
+    private boolean addAmount(Connection connection, long accountId, Money amountDiff)
+            throws SQLException {
+        try (var statement = connection.prepareStatement(ADD_AMOUNT)) {
+            statement.setLong(1, amountDiff.getUnits());
+            statement.setLong(2, accountId);
+            statement.setLong(3, amountDiff.getUnits());
+            long start = System.nanoTime();
+            try {
+                return statement.executeUpdate() == 1;
+            } finally {
+                contentionTracker.record(accountId, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * @return bad request for overflow of amount, server error otherwise
+     */
+    private static RuntimeException translate(SQLException e) {
+        if (NUMERIC_VALUE_OUT_OF_RANGE.equals(e.getSQLState())) {
+            return new AccountApiBadRequest("Amount is too big", e);
+        }
+        return new RuntimeException("SQL Exception", e);
+    }
+
+    private static Money getAmount(Connection connection, long accountId) throws SQLException {
+        try (var statement = connection.prepareStatement(GET_AMOUNT)) {
+            statement.setLong(1, accountId);
+            try (var rs = statement.executeQuery()) {
+                rs.next();
+                return Money.ofUnits(rs.getLong(1));
+            }
+        }
+    }
+
+    private static boolean accountsExist(Connection connection, long accountId1, long accountId2)
+            throws SQLException {
+        try (var statement = connection.prepareStatement(ACCOUNT_EXISTS)) {
+            statement.setLong(1, accountId1);
+            statement.setLong(2, accountId2);
+            try (var rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getInt(1) == (accountId1 == accountId2 ? 1 : 2);
+            }
+        }
+    }
+}
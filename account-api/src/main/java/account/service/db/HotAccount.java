@@ -0,0 +1,140 @@
+package account.service.db;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Lock contention of one account reported by {@link LockContentionTracker}, times in microseconds.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class HotAccount {
+
+    private final long accountId;
+
+    /**
+     * Lock wait since account is tracked, may be overestimated by up to {@link #waitErrorMicros}
+     * (wait inherited from replaced account).
+     */
+    private final long waitMicros;
+    private final long waitErrorMicros;
+
+    /**
+     * Lock wait in the last complete window.
+     */
+    private final long lastWindowWaitMicros;
+    private final long acquisitions;
+    private final long conflicts;
+    private final long waitP50Micros;
+    private final long waitP99Micros;
+    private final long waitMaxMicros;
+
+    public HotAccount(Builder builder) {
+        this.accountId = builder.accountId;
+        this.waitMicros = builder.waitMicros;
+        this.waitErrorMicros = builder.waitErrorMicros;
+        this.lastWindowWaitMicros = builder.lastWindowWaitMicros;
+        this.acquisitions = builder.acquisitions;
+        this.conflicts = builder.conflicts;
+        this.waitP50Micros = builder.waitP50Micros;
+        this.waitP99Micros = builder.waitP99Micros;
+        this.waitMaxMicros = builder.waitMaxMicros;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public long getWaitMicros() {
+        return waitMicros;
+    }
+
+    public long getWaitErrorMicros() {
+        return waitErrorMicros;
+    }
+
+    public long getLastWindowWaitMicros() {
+        return lastWindowWaitMicros;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public long getWaitP50Micros() {
+        return waitP50Micros;
+    }
+
+    public long getWaitP99Micros() {
+        return waitP99Micros;
+    }
+
+    public long getWaitMaxMicros() {
+        return waitMaxMicros;
+    }
+
+    public static class Builder {
+        private long accountId;
+        private long waitMicros;
+        private long waitErrorMicros;
+        private long lastWindowWaitMicros;
+        private long acquisitions;
+        private long conflicts;
+        private long waitP50Micros;
+        private long waitP99Micros;
+        private long waitMaxMicros;
+
+        public Builder setAccountId(long accountId) {
+            this.accountId = accountId;
+            return this;
+        }
+
+        public Builder setWaitMicros(long waitMicros) {
+            this.waitMicros = waitMicros;
+            return this;
+        }
+
+        public Builder setWaitErrorMicros(long waitErrorMicros) {
+            this.waitErrorMicros = waitErrorMicros;
+            return this;
+        }
+
+        public Builder setLastWindowWaitMicros(long lastWindowWaitMicros) {
+            this.lastWindowWaitMicros = lastWindowWaitMicros;
+            return this;
+        }
+
+        public Builder setAcquisitions(long acquisitions) {
+            this.acquisitions = acquisitions;
+            return this;
+        }
+
+        public Builder setConflicts(long conflicts) {
+            this.conflicts = conflicts;
+            return this;
+        }
+
+        public Builder setWaitP50Micros(long waitP50Micros) {
+            this.waitP50Micros = waitP50Micros;
+            return this;
+        }
+
+        public Builder setWaitP99Micros(long waitP99Micros) {
+            this.waitP99Micros = waitP99Micros;
+            return this;
+        }
+
+        public Builder setWaitMaxMicros(long waitMaxMicros) {
+            this.waitMaxMicros = waitMaxMicros;
+            return this;
+        }
+
+        public HotAccount build() {
+            return new HotAccount(this);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package account.service.db;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.Duration;
+
+/**
+ * Settings of {@link LockContentionTracker}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class LockContentionSettings {
+
+    /**
+     * Accounts tracked at once, less contended ones are replaced.
+     */
+    private final int trackedAccounts;
+
+    /**
+     * Lock acquisition slower than this waited for another transaction (conflict).
+     */
+    private final Duration conflictWait;
+
+    /**
+     * Period of lock wait accumulated for threshold check.
+     */
+    private final Duration window;
+
+    /**
+     * Lock wait of one account in one window which is logged as hot spot.
+     */
+    private final Duration alertWait;
+
+    public LockContentionSettings(Builder builder) {
+        this.trackedAccounts = builder.trackedAccounts;
+        this.conflictWait = builder.conflictWait;
+        this.window = builder.window;
+        this.alertWait = builder.alertWait;
+        Preconditions.checkArgument(trackedAccounts > 0, "Tracked accounts count should be positive");
+        Preconditions.checkArgument(!conflictWait.isNegative(), "Conflict wait should not be negative");
+        Preconditions.checkArgument(!window.isNegative() && !window.isZero(), "Contention window should be positive");
+        Preconditions.checkArgument(!alertWait.isNegative() && !alertWait.isZero(), "Alert wait should be positive");
+    }
+
+    /**
+     * Settings from {@code account.contention.*} system properties.
+     */
+    public static LockContentionSettings fromSystemProperties() {
+        return new Builder()
+                .setTrackedAccounts(Integer.getInteger("account.contention.trackedAccounts", 128))
+                .setConflictWait(Duration.ofNanos(
+                        1000L * Integer.getInteger("account.contention.conflictMicros", 1000)))
+                .setWindow(Duration.ofMillis(Integer.getInteger("account.contention.windowMillis", 1000)))
+                .setAlertWait(Duration.ofMillis(Integer.getInteger("account.contention.alertWaitMillis", 250)))
+                .build();
+    }
+
+    public int getTrackedAccounts() {
+        return trackedAccounts;
+    }
+
+    public Duration getConflictWait() {
+        return conflictWait;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public Duration getAlertWait() {
+        return alertWait;
+    }
+
+    public static class Builder {
+        private int trackedAccounts = 128;
+        private Duration conflictWait = Duration.ofMillis(1);
+        private Duration window = Duration.ofSeconds(1);
+        private Duration alertWait = Duration.ofMillis(250);
+
+        public Builder setTrackedAccounts(int trackedAccounts) {
+            this.trackedAccounts = trackedAccounts;
+            return this;
+        }
+
+        public Builder setConflictWait(Duration conflictWait) {
+            this.conflictWait = conflictWait;
+            return this;
+        }
+
+        public Builder setWindow(Duration window) {
+            this.window = window;
+            return this;
+        }
+
+        public Builder setAlertWait(Duration alertWait) {
+            this.alertWait = alertWait;
+            return this;
+        }
+
+        public LockContentionSettings build() {
+            return new LockContentionSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("trackedAccounts", trackedAccounts)
+                .add("conflictWait", conflictWait)
+                .add("window", window)
+                .add("alertWait", alertWait)
+                .toString();
+    }
+}
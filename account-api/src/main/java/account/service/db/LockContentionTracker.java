@@ -0,0 +1,318 @@
+package account.service.db;
+
+import account.metrics.Histogram;
+import account.util.LongObjectHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded top-K of accounts by row lock wait (weighted Space-Saving sketch).
+ * <p>
+ * Every lock acquisition of {@link AccountDao} is recorded with its wait. At most {@code trackedAccounts}
+ * accounts are tracked: an untracked account replaces the least waited one and inherits its wait as error,
+ * so accounts with high total wait are never lost, only overestimated. Accounts are split into stripes by id.
+ * <p>
+ * Recording runs while row locks are held, so it takes no monitor: a record is appended to a lock-free ring
+ * buffer of its stripe and folded into the sketch later by the folder thread (or by {@link #hottest(int)}).
+ * Only when the buffer of a stripe is full, the recording thread folds it itself.
+ * <p>
+ * Account whose wait in one window reaches {@code alertWait} is logged once per window (on fold).
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ThreadSafe
+public class LockContentionTracker implements AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(LockContentionTracker.class);
+
+    private static final int STRIPES = 16;
+
+    /**
+     * Records buffered per stripe, power of two.
+     */
+    private static final int BUFFER_SIZE = 1024;
+
+    private static final long FOLD_INTERVAL_MILLIS = 10;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long conflictNanos;
+    private final long windowNanos;
+    private final long alertNanos;
+    private final ScheduledExecutorService folder;
+
+    @Inject
+    public LockContentionTracker(LockContentionSettings settings) {
+        int capacity = Math.max(1, (settings.getTrackedAccounts() + STRIPES - 1) / STRIPES);
+        long now = System.nanoTime();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(capacity, now);
+        }
+        this.conflictNanos = settings.getConflictWait().toNanos();
+        this.windowNanos = settings.getWindow().toNanos();
+        this.alertNanos = settings.getAlertWait().toNanos();
+        this.folder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-contention-folder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        folder.scheduleWithFixedDelay(this::fold, FOLD_INTERVAL_MILLIS, FOLD_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lock-free unless the buffer of the account stripe is full.
+     *
+     * @param waitNanos time of lock statement of the account
+     */
+    public void record(long accountId, long waitNanos) {
+        stripe(accountId).append(accountId, waitNanos, System.nanoTime());
+    }
+
+    /**
+     * @return at most {@code limit} tracked accounts, most waited first
+     */
+    public List<HotAccount> hottest(int limit) {
+        long now = System.nanoTime();
+        List<HotAccount> accounts = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.fold();
+            stripe.snapshot(now, accounts);
+        }
+        accounts.sort(Comparator.comparingLong(HotAccount::getWaitMicros).reversed());
+        return accounts.size() > limit ? new ArrayList<>(accounts.subList(0, limit)) : accounts;
+    }
+
+    /**
+     * Forget all tracked accounts (e.g. after hot spot is resolved).
+     */
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            stripe.reset();
+        }
+    }
+
+    @Override
+    public void close() {
+        folder.shutdownNow();
+    }
+
+    private void fold() {
+        for (Stripe stripe : stripes) {
+            stripe.fold();
+        }
+    }
+
+    private void alert(HotAccount alert) {
+        log.warn("Account {} is contended: {} ms of lock wait in {} ms "
+                        + "({} acquisitions, {} conflicts, p99 wait {} ms since tracked)",
+                alert.getAccountId(),
+                TimeUnit.MICROSECONDS.toMillis(alert.getLastWindowWaitMicros()),
+                TimeUnit.NANOSECONDS.toMillis(windowNanos),
+                alert.getAcquisitions(),
+                alert.getConflicts(),
+                TimeUnit.MICROSECONDS.toMillis(alert.getWaitP99Micros()));
+    }
+
+    private Stripe stripe(long accountId) {
+        return stripes[(int) ((accountId * 0x9E3779B97F4A7C15L) >>> 60)];
+    }
+
+    /**
+     * Sketch part guarded by stripe monitor and ring buffer of records not folded into it yet.
+     * <p>
+     * Writer claims a record by CAS of {@code writes}, sets account id and time, then publishes the record
+     * by setting its wait + 1 (never 0). Folder reads published records in order, clears them and moves
+     * {@code reads}, so writer sees the slot free before it is claimed again.
+     */
+    private final class Stripe {
+        private final AtomicLong writes = new AtomicLong();
+        private volatile long reads;
+        private final AtomicLongArray accountIds = new AtomicLongArray(BUFFER_SIZE);
+        private final AtomicLongArray times = new AtomicLongArray(BUFFER_SIZE);
+        private final AtomicLongArray waits = new AtomicLongArray(BUFFER_SIZE);
+        private final Entry[] entries;
+        private final LongObjectHashMap<Entry> byId;
+        private int size;
+        private long windowEnd;
+
+        private Stripe(int capacity, long now) {
+            this.entries = new Entry[capacity];
+            this.byId = new LongObjectHashMap<>(capacity);
+            this.windowEnd = now + windowNanos;
+        }
+
+        private void append(long accountId, long waitNanos, long now) {
+            long write;
+            while (true) {
+                write = writes.get();
+                if (write - reads >= BUFFER_SIZE) {
+                    //folder is behind or the oldest record is claimed by a thread which is not running now
+                    if (!fold()) {
+                        Thread.yield();
+                    }
+                } else if (writes.compareAndSet(write, write + 1)) {
+                    break;
+                }
+            }
+            int slot = (int) write & (BUFFER_SIZE - 1);
+            accountIds.lazySet(slot, accountId);
+            times.lazySet(slot, now);
+            waits.set(slot, waitNanos + 1);
+        }
+
+        /**
+         * Fold published records into the sketch, up to the first one claimed but not yet published.
+         *
+         * @return whether any record is folded
+         */
+        private synchronized boolean fold() {
+            long start = reads;
+            long read = start;
+            while (true) {
+                int slot = (int) read & (BUFFER_SIZE - 1);
+                long wait = waits.get(slot);
+                if (wait == 0) {
+                    break;
+                }
+                HotAccount alert = record(accountIds.get(slot), wait - 1, times.get(slot));
+                waits.lazySet(slot, 0);
+                reads = ++read;
+                if (alert != null) {
+                    alert(alert);
+                }
+            }
+            return read != start;
+        }
+
+        /**
+         * @return account to log if it crossed alert threshold with this wait
+         */
+        private HotAccount record(long accountId, long waitNanos, long now) {
+            rollWindow(now);
+            Entry entry = byId.get(accountId);
+            if (entry == null) {
+                entry = track(accountId);
+            }
+            entry.wait += waitNanos;
+            entry.acquisitions++;
+            if (waitNanos >= conflictNanos) {
+                entry.conflicts++;
+            }
+            entry.waits.record(waitNanos);
+            entry.windowWait += waitNanos;
+            if (!entry.alerted && entry.windowWait >= alertNanos) {
+                entry.alerted = true;
+                return entry.snapshot(entry.windowWait);
+            }
+            return null;
+        }
+
+        private synchronized void snapshot(long now, List<HotAccount> result) {
+            rollWindow(now);
+            for (int i = 0; i < size; i++) {
+                result.add(entries[i].snapshot(entries[i].lastWindowWait));
+            }
+        }
+
+        private synchronized void reset() {
+            fold();
+            for (int i = 0; i < size; i++) {
+                byId.remove(entries[i].accountId);
+                entries[i] = null;
+            }
+            size = 0;
+        }
+
+        /**
+         * Start tracking account in free slot or in slot of the least waited account.
+         */
+        private Entry track(long accountId) {
+            Entry entry;
+            if (size < entries.length) {
+                entry = new Entry();
+                entries[size++] = entry;
+            } else {
+                entry = entries[0];
+                for (int i = 1; i < size; i++) {
+                    if (entries[i].wait < entry.wait) {
+                        entry = entries[i];
+                    }
+                }
+                byId.remove(entry.accountId);
+                entry.replace();
+            }
+            entry.accountId = accountId;
+            byId.put(accountId, entry);
+            return entry;
+        }
+
+        private void rollWindow(long now) {
+            if (now - windowEnd < 0) {
+                return;
+            }
+            //stripe without records during the whole last window has nothing in it
+            boolean idle = now - windowEnd >= windowNanos;
+            for (int i = 0; i < size; i++) {
+                Entry entry = entries[i];
+                entry.lastWindowWait = idle ? 0 : entry.windowWait;
+                entry.windowWait = 0;
+                entry.alerted = false;
+            }
+            windowEnd = now + windowNanos - (now - windowEnd) % windowNanos;
+        }
+    }
+
+    /**
+     * Counters of one tracked account, guarded by stripe monitor.
+     */
+    private static final class Entry {
+        private final Histogram waits = new Histogram();
+        private long accountId;
+        private long wait;
+        private long waitError;
+        private long acquisitions;
+        private long conflicts;
+        private long windowWait;
+        private long lastWindowWait;
+        private boolean alerted;
+
+        /**
+         * Reuse slot for another account: total wait is kept as its error, distribution starts anew.
+         */
+        private void replace() {
+            waitError = wait;
+            acquisitions = 0;
+            conflicts = 0;
+            windowWait = 0;
+            lastWindowWait = 0;
+            alerted = false;
+            waits.reset();
+        }
+
+        private HotAccount snapshot(long windowWaitNanos) {
+            return new HotAccount.Builder()
+                    .setAccountId(accountId)
+                    .setWaitMicros(TimeUnit.NANOSECONDS.toMicros(wait))
+                    .setWaitErrorMicros(TimeUnit.NANOSECONDS.toMicros(waitError))
+                    .setLastWindowWaitMicros(TimeUnit.NANOSECONDS.toMicros(windowWaitNanos))
+                    .setAcquisitions(acquisitions)
+                    .setConflicts(conflicts)
+                    .setWaitP50Micros(TimeUnit.NANOSECONDS.toMicros(waits.getValueAtQuantile(0.5)))
+                    .setWaitP99Micros(TimeUnit.NANOSECONDS.toMicros(waits.getValueAtQuantile(0.99)))
+                    .setWaitMaxMicros(TimeUnit.NANOSECONDS.toMicros(waits.getValueAtQuantile(1)))
+                    .build();
+        }
+    }
+}
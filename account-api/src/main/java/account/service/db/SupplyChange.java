@@ -0,0 +1,98 @@
+package account.service.db;
+
+import account.model.Money;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Net change of money per supply stripe made by one database transaction.
+ * <p>
+ * Total supply is kept in {@code ACCOUNT_SUPPLY}: one row per stripe of accounts (column
+ * {@code ACCOUNT.SUPPLY_STRIPE}, see {@link #stripe(long)}). Every write transaction adds net change of every
+ * stripe it touches (zero for a transfer within a stripe) after its accounts are written, locking stripe rows
+ * in ascending order:
+ * <ul>
+ *     <li>transaction holding a stripe row waits only for higher stripe rows, never for accounts,
+ *     so stripe rows add no deadlocks</li>
+ *     <li>no writer of accounts of a stripe commits while its row is locked, so the stripe can be
+ *     checked against its accounts without locking them, see {@link AccountDao#auditSupply(int)}</li>
+ * </ul>
+ *
+ * @author fbokovikov
+ */
+@NotThreadSafe
+public final class SupplyChange {
+
+    /**
+     * Stripes of {@code ACCOUNT_SUPPLY}, the same as in {@code ACCOUNT.sql}.
+     */
+    public static final int STRIPES = 256;
+
+    private static final String ADD_SUPPLY = "" +
+            "UPDATE account_supply SET amount = amount + ? WHERE stripe = ?";
+
+    private int[] stripes = new int[4];
+    private long[] units = new long[4];
+    private int size;
+
+    /**
+     * Stripe of account: {@code MOD(id + id / 1024, STRIPES)}. High part is added since ids of a shard
+     * of sharded engine differ by multiples of 1024 and would otherwise share one stripe.
+     */
+    public static int stripe(long accountId) {
+        return (int) Math.floorMod(accountId + accountId / 1024, (long) STRIPES);
+    }
+
+    public SupplyChange add(long accountId, Money amount) {
+        return add(accountId, amount.getUnits());
+    }
+
+    /**
+     * @param amountUnits signed change of account amount in {@link Money#getUnits() pieces}
+     */
+    public SupplyChange add(long accountId, long amountUnits) {
+        int stripe = stripe(accountId);
+        int index = Arrays.binarySearch(stripes, 0, size, stripe);
+        if (index >= 0) {
+            units[index] += amountUnits;
+            return this;
+        }
+        index = -index - 1;
+        if (size == stripes.length) {
+            stripes = Arrays.copyOf(stripes, size * 2);
+            units = Arrays.copyOf(units, size * 2);
+        }
+        System.arraycopy(stripes, index, stripes, index + 1, size - index);
+        System.arraycopy(units, index, units, index + 1, size - index);
+        stripes[index] = stripe;
+        units[index] = amountUnits;
+        size++;
+        return this;
+    }
+
+    /**
+     * Lock touched stripe rows in ascending order and add net changes, called right before commit.
+     */
+    public void apply(Connection connection) throws SQLException {
+        if (size == 0) {
+            return;
+        }
+        try (var statement = connection.prepareStatement(ADD_SUPPLY)) {
+            if (size == 1) {
+                statement.setLong(1, units[0]);
+                statement.setInt(2, stripes[0]);
+                statement.executeUpdate();
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                statement.setLong(1, units[i]);
+                statement.setInt(2, stripes[i]);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
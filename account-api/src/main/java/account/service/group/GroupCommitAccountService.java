@@ -0,0 +1,203 @@
+package account.service.group;
+
+import account.exception.AccountApiUnavailable;
+import account.metrics.Histogram;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.service.AccountServiceChecks;
+import account.service.H2AccountService;
+import account.service.TransactionBatch;
+import account.service.TransactionBatchSettings;
+import account.service.db.AccountDao;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link H2AccountService} committing concurrent deposits, withdrawals and transactions in groups.
+ * <p>
+ * Callers put updates into a queue and wait. Committer thread takes the first update, collects more
+ * for {@code window} (or until {@code maxGroupSize}) and applies the whole group in one database transaction:
+ * <ol>
+ *     <li>Lock all accounts of the group in ascending id order</li>
+ *     <li>Apply updates one by one in queue order, rejected update does not change amounts</li>
+ *     <li>Write every changed account once (net result of the group) with JDBC batch</li>
+ *     <li>Commit and complete callers: each gets the amount right after its own update,
+ *     the same as if updates were made one by one in queue order</li>
+ * </ol>
+ * Account creation, reads and batches go to H2 directly.
+ * <p>
+ * Updates are queued under read lock of {@code stateLock} while running, {@link #close()} stops running under
+ * write lock, so every queued update is either committed by the committer or failed by close.
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class GroupCommitAccountService extends H2AccountService implements AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(GroupCommitAccountService.class);
+
+    private final AccountDao accountDao;
+    private final GroupCommitSettings settings;
+    private final BlockingQueue<PendingUpdate> queue = new LinkedBlockingQueue<>();
+    private final Histogram groupSizes = new Histogram();
+    private final Thread committer;
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running = true;
+
+    @Inject
+    public GroupCommitAccountService(AccountDao accountDao, TransactionBatchSettings batchSettings,
+                                     GroupCommitSettings settings) {
+        super(accountDao, batchSettings);
+        this.accountDao = accountDao;
+        this.settings = settings;
+        this.committer = new Thread(this::run, "account-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    @Override
+    public Account deposit(long accountId, Money amount) {
+        AccountServiceChecks.checkDeposit(amount);
+        return await(PendingUpdate.add(accountId, amount));
+    }
+
+    @Override
+    public Account withdraw(long accountId, Money amount) {
+        AccountServiceChecks.checkWithdrawal(amount);
+        return await(PendingUpdate.add(accountId, amount));
+    }
+
+    @Override
+    public void transaction(AccountTransaction transaction) {
+        AccountServiceChecks.checkTransaction(transaction);
+        await(PendingUpdate.transaction(transaction));
+    }
+
+    /**
+     * @return sizes of committed groups
+     */
+    public Histogram getGroupSizes() {
+        return groupSizes;
+    }
+
+    /**
+     * Reject new updates, commit queued ones and stop committer. Updates left by stopped committer
+     * (interrupted) are failed.
+     */
+    @Override
+    public void close() {
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingUpdate> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(update -> update.result.completeExceptionally(
+                new AccountApiUnavailable("Account service is stopped")));
+    }
+
+    private Account await(PendingUpdate update) {
+        stateLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new AccountApiUnavailable("Account service is stopped");
+            }
+            queue.add(update);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        try {
+            return update.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<PendingUpdate> group = new ArrayList<>(settings.getMaxGroupSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Wait for the first update, then collect more until window is over or group is full.
+     */
+    private void collect(List<PendingUpdate> group) throws InterruptedException {
+        PendingUpdate first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+        int maxGroupSize = settings.getMaxGroupSize();
+        long deadline = System.nanoTime() + settings.getWindow().toNanos();
+        while (group.size() < maxGroupSize) {
+            long left = deadline - System.nanoTime();
+            PendingUpdate next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                queue.drainTo(group, maxGroupSize - group.size());
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void commit(List<PendingUpdate> group) {
+        long[] accountIds = new long[group.size() * 2];
+        int size = 0;
+        for (PendingUpdate update : group) {
+            size = update.putAccountIds(accountIds, size);
+        }
+        try {
+            accountDao.updateLocked(
+                    TransactionBatch.lockOrder(Arrays.copyOf(accountIds, size)),
+                    batch -> {
+                        group.forEach(update -> update.applyTo(batch));
+                        return null;
+                    },
+                    group.size()
+            );
+        } catch (RuntimeException e) {
+            log.error("Can not commit group of " + group.size() + " updates", e);
+            group.forEach(update -> update.result.completeExceptionally(e));
+            return;
+        }
+        groupSizes.record(group.size());
+        group.forEach(PendingUpdate::complete);
+    }
+}
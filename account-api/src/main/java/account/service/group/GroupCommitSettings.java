@@ -0,0 +1,79 @@
+package account.service.group;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.Duration;
+
+/**
+ * Settings of {@link GroupCommitAccountService}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class GroupCommitSettings {
+
+    /**
+     * Max time to collect more updates after the first one of a group.
+     */
+    private final Duration window;
+
+    /**
+     * Max updates in one group (one database transaction).
+     */
+    private final int maxGroupSize;
+
+    public GroupCommitSettings(Builder builder) {
+        this.window = builder.window;
+        this.maxGroupSize = builder.maxGroupSize;
+        Preconditions.checkArgument(!window.isNegative(), "Group commit window should not be negative");
+        Preconditions.checkArgument(maxGroupSize > 0, "Max group size should be positive");
+    }
+
+    /**
+     * Settings from {@code account.groupCommit.*} system properties.
+     */
+    public static GroupCommitSettings fromSystemProperties() {
+        return new Builder()
+                .setWindow(Duration.ofNanos(
+                        1000 * Long.getLong("account.groupCommit.windowMicros", 500L)))
+                .setMaxGroupSize(Integer.getInteger("account.groupCommit.maxGroupSize", 512))
+                .build();
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public int getMaxGroupSize() {
+        return maxGroupSize;
+    }
+
+    public static class Builder {
+        private Duration window = Duration.ofNanos(500_000);
+        private int maxGroupSize = 512;
+
+        public Builder setWindow(Duration window) {
+            this.window = window;
+            return this;
+        }
+
+        public Builder setMaxGroupSize(int maxGroupSize) {
+            this.maxGroupSize = maxGroupSize;
+            return this;
+        }
+
+        public GroupCommitSettings build() {
+            return new GroupCommitSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("window", window)
+                .add("maxGroupSize", maxGroupSize)
+                .toString();
+    }
+}
@@ -0,0 +1,90 @@
+package account.service.group;
+
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.service.TransactionBatch;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Deposit, withdrawal or transaction waiting for group commit.
+ *
+ * @author fbokovikov
+ */
+final class PendingUpdate {
+
+    private final long accountId;
+    private final Money amountDiff;
+    private final AccountTransaction transaction;
+
+    /**
+     * Account after the update (deposit and withdrawal) or {@code null} (transaction).
+     */
+    final CompletableFuture<Account> result = new CompletableFuture<>();
+
+    private Account applied;
+    private AccountApiBadRequest rejection;
+
+    private PendingUpdate(long accountId, Money amountDiff, AccountTransaction transaction) {
+        this.accountId = accountId;
+        this.amountDiff = amountDiff;
+        this.transaction = transaction;
+    }
+
+    static PendingUpdate add(long accountId, Money amountDiff) {
+        return new PendingUpdate(accountId, amountDiff, null);
+    }
+
+    static PendingUpdate transaction(AccountTransaction transaction) {
+        return new PendingUpdate(0, null, transaction);
+    }
+
+    /**
+     * Put ids of updated accounts into {@code ids} starting from {@code offset}.
+     *
+     * @return offset after the last put id
+     */
+    int putAccountIds(long[] ids, int offset) {
+        if (transaction == null) {
+            ids[offset] = accountId;
+            return offset + 1;
+        }
+        ids[offset] = transaction.getFromId();
+        ids[offset + 1] = transaction.getToId();
+        return offset + 2;
+    }
+
+    /**
+     * Apply update to locked accounts of the group and remember its outcome till {@link #complete()}.
+     * Rejected update does not change accounts.
+     */
+    void applyTo(TransactionBatch batch) {
+        applied = null;
+        rejection = null;
+        try {
+            if (transaction == null) {
+                applied = batch.add(accountId, amountDiff);
+                return;
+            }
+            var transactionResult = batch.apply(transaction);
+            if (!transactionResult.isApplied()) {
+                rejection = new AccountApiBadRequest(transactionResult.getMessage());
+            }
+        } catch (AccountApiBadRequest e) {
+            rejection = e;
+        }
+    }
+
+    /**
+     * Complete caller with outcome of {@link #applyTo(TransactionBatch)} after commit.
+     */
+    void complete() {
+        if (rejection != null) {
+            result.completeExceptionally(rejection);
+        } else {
+            result.complete(applied);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package account.service.journal;
+
+/**
+ * When {@link Journal} forces appended records to disk.
+ *
+ * @author fbokovikov
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Operation returns after its record is on disk. Concurrent operations share one fsync.
+     */
+    ALWAYS,
+
+    /**
+     * Records are forced in background every {@code fsyncInterval}, last interval may be lost on power failure.
+     */
+    INTERVAL,
+
+    /**
+     * Operating system writes mapped pages when it decides, records survive process crash only.
+     */
+    NEVER;
+
+    /**
+     * Policy from {@code account.journal.fsync} system property, {@link #ALWAYS} by default.
+     */
+    public static FsyncPolicy fromSystemProperties() {
+        return valueOf(System.getProperty("account.journal.fsync", ALWAYS.name()).toUpperCase());
+    }
+}
@@ -0,0 +1,331 @@
+package account.service.journal;
+
+import account.exception.AccountApiBadRequest;
+import account.exception.AccountApiUnavailable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of {@link JournalRecord}s in memory-mapped segment files.
+ * <p>
+ * Segment file is named by journal position of its first byte and mapped whole, records are copied
+ * into the mapping under journal lock, so append is a sequential memory write. Record is framed as
+ * {@code int length | int crc32 | record}, zero length ends a segment. Torn record at the end of the last
+ * segment (crash during append) is dropped on open, damaged record anywhere else fails the open.
+ * <p>
+ * Durability is decided by {@link FsyncPolicy}: {@link #commit(long)} forces mapped pages of current
+ * segment once for all records appended so far, so concurrent writers share fsync.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class Journal implements AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(Journal.class);
+
+    static final int FRAME_HEADER_LENGTH = 2 * Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final JournalSettings settings;
+    private final Object forceLock = new Object();
+    private final ScheduledExecutorService syncer;
+
+    //guarded by this
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private boolean closed;
+
+    /**
+     * Journal position up to which records are on disk.
+     */
+    private volatile long syncedPosition;
+
+    /**
+     * Open journal in settings directory (create if absent) and pass existing records to {@code replay}
+     * in order of appending.
+     */
+    public Journal(JournalSettings settings, Consumer<JournalRecord> replay) {
+        this(settings, 0, replay);
+    }
+
+    /**
+     * Open journal and pass records starting at {@code replayFrom} position (e.g. of a snapshot)
+     * to {@code replay} in order of appending.
+     */
+    public Journal(JournalSettings settings, long replayFrom, Consumer<JournalRecord> replay) {
+        this.settings = settings;
+        try {
+            Files.createDirectories(settings.getDirectory());
+            List<Long> starts = segmentStarts();
+            if (starts.isEmpty()) {
+                starts = Collections.singletonList(replayFrom);
+            }
+            for (int i = 0; i < starts.size(); i++) {
+                boolean last = i == starts.size() - 1;
+                if (!last && starts.get(i + 1) <= replayFrom) {
+                    continue;
+                }
+                segmentStart = starts.get(i);
+                segment = map(segmentStart);
+                replaySegment(replayFrom, replay, last);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not open journal " + settings.getDirectory(), e);
+        }
+        if (position() < replayFrom) {
+            throw new IllegalStateException("Journal " + settings.getDirectory() + " ends at " + position()
+                    + " before replay position " + replayFrom);
+        }
+        syncedPosition = position();
+        if (settings.getFsyncPolicy() == FsyncPolicy.INTERVAL) {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "account-journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = settings.getFsyncInterval().toMillis();
+            syncer.scheduleWithFixedDelay(this::forceQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    /**
+     * @return journal position after the record, pass it to {@link #commit(long)}
+     */
+    public long append(JournalRecord record) {
+        return append(Collections.singletonList(record));
+    }
+
+    /**
+     * Append records in given order (one after another, records of other threads are not mixed in).
+     *
+     * @return journal position after the last record, pass it to {@link #commit(long)}
+     */
+    public synchronized long append(List<JournalRecord> records) {
+        if (closed) {
+            throw new AccountApiUnavailable("Account journal is closed");
+        }
+        for (JournalRecord record : records) {
+            int length = record.length();
+            if (FRAME_HEADER_LENGTH + length > settings.getSegmentSize()) {
+                throw new AccountApiBadRequest("Journal record of " + length + " bytes does not fit segment");
+            }
+        }
+        for (JournalRecord record : records) {
+            int length = record.length();
+            if (segment.remaining() < FRAME_HEADER_LENGTH + length) {
+                roll();
+            }
+            int start = segment.position();
+            segment.position(start + FRAME_HEADER_LENGTH);
+            record.writeTo(segment);
+            segment.putInt(start + Integer.BYTES, checksum(start + FRAME_HEADER_LENGTH, length));
+            segment.putInt(start, length);
+        }
+        return segmentStart + segment.position();
+    }
+
+    /**
+     * Wait until records up to {@code position} are durable as {@link FsyncPolicy} demands: force them to disk
+     * for {@link FsyncPolicy#ALWAYS}, return at once for other policies.
+     */
+    public void commit(long position) {
+        if (settings.getFsyncPolicy() == FsyncPolicy.ALWAYS) {
+            force(position);
+        }
+    }
+
+    /**
+     * @return journal position after the last appended record
+     */
+    public synchronized long position() {
+        return segmentStart + segment.position();
+    }
+
+    /**
+     * Delete segment files with all records before {@code position} (e.g. covered by a durable snapshot).
+     * Segment being appended is never deleted.
+     */
+    public void deleteSegmentsBefore(long position) {
+        try {
+            List<Long> starts = segmentStarts();
+            for (int i = 0; i + 1 < starts.size() && starts.get(i + 1) <= position; i++) {
+                Files.deleteIfExists(segmentPath(settings.getDirectory(), starts.get(i)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not delete journal segments", e);
+        }
+    }
+
+    /**
+     * Stop background fsync, force appended records and reject further appends.
+     */
+    @Override
+    public void close() {
+        if (syncer != null) {
+            syncer.shutdown();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        force(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return journal position up to which records are on disk
+     */
+    long getSyncedPosition() {
+        return syncedPosition;
+    }
+
+    /**
+     * Path of segment file starting at {@code start} journal position.
+     */
+    static Path segmentPath(Path directory, long start) {
+        return directory.resolve(String.format("%020d%s", start, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Force records up to {@code position} to disk whatever {@link FsyncPolicy} is, e.g. before a snapshot
+     * which may hold their changes is made durable.
+     */
+    public void force(long position) {
+        if (syncedPosition >= position) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (syncedPosition >= position) {
+                return;
+            }
+            MappedByteBuffer current;
+            long written;
+            synchronized (this) {
+                current = segment;
+                written = segmentStart + segment.position();
+            }
+            //previous segments were forced by roll()
+            current.force();
+            syncedPosition = written;
+        }
+    }
+
+    private void forceQuietly() {
+        try {
+            force(Long.MAX_VALUE);
+        } catch (RuntimeException e) {
+            log.error("Can not force journal to disk, will retry", e);
+        }
+    }
+
+    /**
+     * Switch appending to new segment, caller holds journal lock.
+     */
+    private void roll() {
+        if (settings.getFsyncPolicy() != FsyncPolicy.NEVER) {
+            segment.force();
+        }
+        long nextStart = segmentStart + segment.position();
+        try {
+            segment = map(nextStart);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not create journal segment", e);
+        }
+        segmentStart = nextStart;
+    }
+
+    /**
+     * Walk frames of mapped segment from its start and replay records at {@code replayFrom} and after it.
+     * Frames before {@code replayFrom} are skipped by length without decoding.
+     */
+    private void replaySegment(long replayFrom, Consumer<JournalRecord> replay, boolean last) {
+        while (segment.remaining() >= FRAME_HEADER_LENGTH) {
+            int start = segment.position();
+            int length = segment.getInt(start);
+            if (length == 0) {
+                return;
+            }
+            boolean framed = length > 0 && length <= segment.remaining() - FRAME_HEADER_LENGTH;
+            if (framed && segmentStart + start < replayFrom) {
+                segment.position(start + FRAME_HEADER_LENGTH + length);
+                continue;
+            }
+            JournalRecord record = null;
+            if (framed && segment.getInt(start + Integer.BYTES) == checksum(start + FRAME_HEADER_LENGTH, length)) {
+                segment.position(start + FRAME_HEADER_LENGTH);
+                record = JournalRecord.readFrom(segment, length);
+            }
+            if (record == null) {
+                if (!last) {
+                    throw new IllegalStateException("Journal segment " + segmentPath(settings.getDirectory(),
+                            segmentStart) + " is damaged at " + start);
+                }
+                log.warn("Torn journal record at position {} is dropped", segmentStart + start);
+                for (int i = start; i < segment.limit(); i++) {
+                    segment.put(i, (byte) 0);
+                }
+                segment.position(start);
+                return;
+            }
+            segment.position(start + FRAME_HEADER_LENGTH + length);
+            replay.accept(record);
+        }
+    }
+
+    private int checksum(int from, int length) {
+        ByteBuffer bytes = segment.duplicate();
+        bytes.limit(from + length).position(from);
+        crc.reset();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private List<Long> segmentStarts() throws IOException {
+        try (Stream<Path> files = Files.list(settings.getDirectory())) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Map existing segment whole or create new one of configured size. Mapping stays valid after channel
+     * is closed and is released by GC.
+     */
+    private MappedByteBuffer map(long start) throws IOException {
+        Path path = segmentPath(settings.getDirectory(), start);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = Math.max(channel.size(), settings.getSegmentSize());
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
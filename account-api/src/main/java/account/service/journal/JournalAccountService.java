@@ -0,0 +1,401 @@
+package account.service.journal;
+
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionResult;
+import account.service.AccountService;
+import account.service.AccountServiceChecks;
+import account.service.TransactionBatch;
+import account.service.TransactionBatchSettings;
+import account.service.memory.StripedAccounts;
+import account.util.LongObjectHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Event-sourced implementation for {@link AccountService}: every accepted operation is appended
+ * to {@link Journal}, balances are derived from the journal in memory.
+ * <ul>
+ *     <li>on start latest {@link Snapshot} is loaded into {@link StripedAccounts} and journal is replayed
+ *     from snapshot position, ids continue after the largest one</li>
+ *     <li>operation checks amounts under stripe locks and appends its record before releasing them,
+ *     so records of an account are in the same order as its changes in memory and a snapshot taken
+ *     after the record sees the change</li>
+ *     <li>caller waits for fsync (see {@link FsyncPolicy}) after locks are released</li>
+ *     <li>snapshot is written in background every {@code snapshotInterval} and on close, journal segments
+ *     before it are deleted</li>
+ * </ul>
+ * Writes are sequential appends, H2 is not used.
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class JournalAccountService implements AccountService, AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(JournalAccountService.class);
+
+    private static final int STRIPES = 64;
+
+    private final JournalSettings settings;
+    private final TransactionBatchSettings batchSettings;
+    private final StripedAccounts accounts;
+    private final AtomicLong lastId = new AtomicLong();
+    private final Journal journal;
+    private final ScheduledExecutorService snapshotter;
+
+    @Inject
+    public JournalAccountService(JournalSettings settings, TransactionBatchSettings batchSettings) {
+        this.settings = settings;
+        this.batchSettings = batchSettings;
+        Optional<Snapshot> snapshot = Snapshot.latest(settings.getDirectory());
+        this.accounts = new StripedAccounts(STRIPES, snapshot.map(Snapshot::getCount).orElse(0L));
+        long replayFrom = snapshot.map(this::load).orElse(0L);
+        this.journal = new Journal(settings, replayFrom, this::replay);
+        if (settings.isSnapshotEnabled()) {
+            this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "account-journal-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = settings.getSnapshotInterval().toMillis();
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.snapshotter = null;
+        }
+    }
+
+    @Override
+    public Account createAccount(Money amount) {
+        AccountServiceChecks.checkInitialAmount(amount);
+        Account account = account(lastId.incrementAndGet(), amount);
+        long position;
+        int[] locked = accounts.lock(account.getId());
+        try {
+            position = journal.append(JournalRecord.create(account));
+            accounts.replaceLocked(account);
+        } finally {
+            accounts.unlock(locked);
+        }
+        journal.commit(position);
+        return account;
+    }
+
+    @Override
+    public List<Account> createAccounts(List<Money> amounts) {
+        AccountServiceChecks.checkInitialAmounts(amounts);
+        long firstId = lastId.getAndAdd(amounts.size()) + 1;
+        long[] ids = new long[amounts.size()];
+        List<Account> created = new ArrayList<>(amounts.size());
+        List<JournalRecord> records = new ArrayList<>(amounts.size());
+        for (int i = 0; i < amounts.size(); i++) {
+            Account account = account(firstId + i, amounts.get(i));
+            ids[i] = account.getId();
+            created.add(account);
+            records.add(JournalRecord.create(account));
+        }
+        long position;
+        int[] locked = accounts.lock(ids);
+        try {
+            position = journal.append(records);
+            created.forEach(accounts::replaceLocked);
+        } finally {
+            accounts.unlock(locked);
+        }
+        journal.commit(position);
+        return created;
+    }
+
+    @Override
+    public Optional<Account> getAccount(long accountId) {
+        return Optional.ofNullable(accounts.get(accountId));
+    }
+
+    /**
+     * Ids are dense (taken from {@code lastId}), so the page is a range of ids after {@code afterId},
+     * ids reserved by creations in progress are skipped.
+     */
+    @Override
+    public List<Account> getAccountsAfter(long afterId, int limit) {
+        List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+        long maxId = lastId.get();
+        for (long id = Math.max(0, afterId) + 1; id <= maxId && page.size() < limit; id++) {
+            Account account = accounts.get(id);
+            if (account != null) {
+                page.add(account);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public Account deposit(long accountId, Money amount) {
+        AccountServiceChecks.checkDeposit(amount);
+        return updateAmount(accountId, amount, updated -> JournalRecord.deposit(updated, amount));
+    }
+
+    @Override
+    public Account withdraw(long accountId, Money amount) {
+        AccountServiceChecks.checkWithdrawal(amount);
+        return updateAmount(accountId, amount, updated -> JournalRecord.withdrawal(updated, amount));
+    }
+
+    @Override
+    public void transaction(AccountTransaction transaction) {
+        AccountServiceChecks.checkTransaction(transaction);
+        long position;
+        int[] locked = accounts.lock(transaction.getFromId(), transaction.getToId());
+        try {
+            Account from = accounts.getLocked(transaction.getFromId());
+            Account to = accounts.getLocked(transaction.getToId());
+            if (from == null || to == null) {
+                throw new AccountApiBadRequest("Account not found");
+            }
+            var fromFinalAmount = from.getAmount().minus(transaction.getAmount());
+            if (fromFinalAmount.isNegative()) {
+                throw new AccountApiBadRequest("Not enough amount for transfer");
+            }
+            Account fromAfter = account(from.getId(), fromFinalAmount);
+            Account toAfter = account(to.getId(), to.getAmount().plus(transaction.getAmount()));
+            position = journal.append(JournalRecord.transfer(transaction, fromAfter, toAfter));
+            accounts.replaceLocked(fromAfter);
+            accounts.replaceLocked(toAfter);
+        } finally {
+            accounts.unlock(locked);
+        }
+        journal.commit(position);
+    }
+
+    /**
+     * Make transaction holding stripe locks of all accounts of the legs. Every changed account gets one
+     * deposit or withdrawal leg of its net amount, legs are appended as one multi-leg record.
+     */
+    @Override
+    public void transaction(MultiLegTransaction transaction) {
+        AccountServiceChecks.checkMultiLegTransaction(transaction);
+        long[] accountIds = TransactionBatch.accountIds(transaction);
+        long position;
+        int[] locked = accounts.lock(accountIds);
+        try {
+            var lockedAccounts = new LongObjectHashMap<Account>();
+            for (long accountId : accountIds) {
+                Account account = accounts.getLocked(accountId);
+                if (account != null) {
+                    lockedAccounts.put(accountId, account);
+                }
+            }
+            var batch = new TransactionBatch(lockedAccounts);
+            var result = batch.apply(transaction);
+            if (!result.isApplied()) {
+                throw new AccountApiBadRequest(result.getMessage());
+            }
+            List<Account> changed = batch.changed();
+            List<JournalRecord> legs = new ArrayList<>(changed.size());
+            for (Account account : changed) {
+                var amount = account.getAmount().minus(accounts.getLocked(account.getId()).getAmount());
+                legs.add(amount.isNegative()
+                        ? JournalRecord.withdrawal(account, amount)
+                        : JournalRecord.deposit(account, amount));
+            }
+            position = journal.append(JournalRecord.multiLeg(legs));
+            changed.forEach(accounts::replaceLocked);
+        } finally {
+            accounts.unlock(locked);
+        }
+        journal.commit(position);
+    }
+
+    /**
+     * Make batch holding stripe locks of all accounts of a chunk, {@link BatchMode#ALL_OR_NOTHING} batch
+     * is one chunk. Applied transactions of a chunk are appended together, caller waits for one fsync.
+     */
+    @Override
+    public List<TransactionResult> transactions(List<AccountTransaction> transactions, BatchMode mode) {
+        AccountServiceChecks.checkTransactions(transactions);
+        int chunkSize = mode == BatchMode.ALL_OR_NOTHING ? transactions.size() : batchSettings.getChunkSize();
+        List<TransactionResult> results = new ArrayList<>(transactions.size());
+        long position = 0;
+        for (int from = 0; from < transactions.size(); from += chunkSize) {
+            var chunk = transactions.subList(from, Math.min(transactions.size(), from + chunkSize));
+            position = Math.max(position, transactionsChunk(chunk, from, mode, results));
+        }
+        journal.commit(position);
+        return results;
+    }
+
+    /**
+     * Write snapshot of all accounts and delete journal segments and snapshots before it.
+     * Operations are not stopped, see {@link Snapshot}.
+     */
+    public synchronized Snapshot snapshot() {
+        long start = System.nanoTime();
+        long position = journal.position();
+        Snapshot snapshot = Snapshot.write(settings.getDirectory(), position, accounts, journal);
+        Snapshot.deleteBefore(settings.getDirectory(), snapshot);
+        journal.deleteSegmentsBefore(position);
+        log.info("Snapshot of {} accounts is written in {} ms",
+                snapshot.getCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return snapshot;
+    }
+
+    /**
+     * Stop background snapshots, force journal to disk and write last snapshot (if snapshots are enabled),
+     * so next start replays nothing.
+     */
+    @Override
+    public void close() {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+            try {
+                snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        journal.close();
+        if (settings.isSnapshotEnabled()) {
+            snapshot();
+        }
+    }
+
+    /**
+     * @return journal position after records of the chunk, 0 if nothing was applied
+     */
+    private long transactionsChunk(List<AccountTransaction> chunk, int offset, BatchMode mode,
+                                   List<TransactionResult> results) {
+        long[] accountIds = TransactionBatch.accountIds(chunk);
+        int[] locked = accounts.lock(accountIds);
+        try {
+            var lockedAccounts = new LongObjectHashMap<Account>();
+            for (long accountId : accountIds) {
+                Account account = accounts.getLocked(accountId);
+                if (account != null) {
+                    lockedAccounts.put(accountId, account);
+                }
+            }
+            var batch = new TransactionBatch(lockedAccounts);
+            List<JournalRecord> records = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                var transaction = chunk.get(i);
+                var result = batch.apply(transaction);
+                if (result.isApplied()) {
+                    //batch puts changed accounts back to lockedAccounts
+                    records.add(JournalRecord.transfer(transaction,
+                            lockedAccounts.get(transaction.getFromId()), lockedAccounts.get(transaction.getToId())));
+                } else if (mode == BatchMode.ALL_OR_NOTHING) {
+                    throw new AccountApiBadRequest(
+                            AccountServiceChecks.transactionError(offset + i, result.getMessage())
+                    );
+                }
+                results.add(result);
+            }
+            if (records.isEmpty()) {
+                return 0;
+            }
+            long position = journal.append(records);
+            batch.changed().forEach(accounts::replaceLocked);
+            return position;
+        } finally {
+            accounts.unlock(locked);
+        }
+    }
+
+    private Account updateAmount(long accountId, Money amountDiff, Function<Account, JournalRecord> record) {
+        Account updated;
+        long position;
+        int[] locked = accounts.lock(accountId);
+        try {
+            Account account = accounts.getLocked(accountId);
+            if (account == null) {
+                throw new AccountApiBadRequest("Account not found");
+            }
+            var amountAfter = account.getAmount().plus(amountDiff);
+            if (amountAfter.isNegative()) {
+                throw new AccountApiBadRequest("Not enough amount for transfer");
+            }
+            updated = account(accountId, amountAfter);
+            position = journal.append(record.apply(updated));
+            accounts.replaceLocked(updated);
+        } finally {
+            accounts.unlock(locked);
+        }
+        journal.commit(position);
+        return updated;
+    }
+
+    /**
+     * Load snapshot into memory.
+     *
+     * @return journal position to replay from
+     */
+    private long load(Snapshot snapshot) {
+        long start = System.nanoTime();
+        snapshot.load(settings.getLoadThreads(), accounts::putIfAbsent);
+        lastId.accumulateAndGet(snapshot.getMaxId(), Math::max);
+        log.info("{} accounts are loaded from {} in {} ms", snapshot.getCount(), snapshot.getFile(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return snapshot.getJournalPosition();
+    }
+
+    /**
+     * Apply record of journal being opened: set amounts of record, records are trusted and applied
+     * without checks.
+     */
+    private void replay(JournalRecord record) {
+        if (record.getType() == JournalRecord.Type.MULTI_LEG) {
+            record.getLegs().forEach(this::replay);
+            return;
+        }
+        restore(record.getAccountId(), record.getBalance());
+        if (record.getType() == JournalRecord.Type.CREATE) {
+            lastId.accumulateAndGet(record.getAccountId(), Math::max);
+        } else if (record.getType() == JournalRecord.Type.TRANSFER) {
+            restore(record.getToId(), record.getToBalance());
+        }
+    }
+
+    Journal getJournal() {
+        return journal;
+    }
+
+    private void restore(long accountId, Money amount) {
+        int[] locked = accounts.lock(accountId);
+        try {
+            accounts.replaceLocked(account(accountId, amount));
+        } finally {
+            accounts.unlock(locked);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("Can not write snapshot, will retry", e);
+        }
+    }
+
+    private static Account account(long id, Money amount) {
+        return new Account.Builder()
+                .setId(id)
+                .setAmount(amount)
+                .build();
+    }
+}
@@ -0,0 +1,265 @@
+package account.service.journal;
+
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accepted account operation written to {@link Journal}. Records are facts: they are replayed
+ * without checks, so only operations that passed all checks are written.
+ * <p>
+ * Record carries amounts of changed accounts after the operation, so replay sets amounts instead of adding
+ * to them and replaying a record twice (over a snapshot taken while it was appended) gives the same result.
+ * <pre>
+ * CREATE     byte type | long accountId | long amount
+ * DEPOSIT,
+ * WITHDRAWAL byte type | long accountId | long amount (negative for WITHDRAWAL) | long balance
+ * TRANSFER   byte type | long fromId | long toId | long amount | long fromBalance | long toBalance
+ * MULTI_LEG  byte type | int count | count * (long accountId | long net amount | long balance)
+ * </pre>
+ * Amounts are {@link Money#getUnits() units}. Multi-leg transaction is one record (one frame of the journal),
+ * so a torn append never replays part of its legs.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public final class JournalRecord {
+
+    private final Type type;
+    private final long accountId;
+
+    /**
+     * Account receiving money of {@link Type#TRANSFER}, 0 for other types.
+     */
+    private final long toId;
+
+    private final Money amount;
+
+    /**
+     * Amount of {@link #accountId} after the operation.
+     */
+    private final Money balance;
+
+    /**
+     * Amount of {@link #toId} after the operation, {@code null} for types other than {@link Type#TRANSFER}.
+     */
+    @Nullable
+    private final Money toBalance;
+
+    /**
+     * Changes of accounts of {@link Type#MULTI_LEG} as deposit or withdrawal records, empty for other types.
+     */
+    private final List<JournalRecord> legs;
+
+    private JournalRecord(Type type, long accountId, long toId, Money amount, Money balance,
+                          @Nullable Money toBalance) {
+        this(type, accountId, toId, amount, balance, toBalance, List.of());
+    }
+
+    private JournalRecord(Type type, long accountId, long toId, Money amount, Money balance,
+                          @Nullable Money toBalance, List<JournalRecord> legs) {
+        this.type = type;
+        this.accountId = accountId;
+        this.toId = toId;
+        this.amount = amount;
+        this.balance = balance;
+        this.toBalance = toBalance;
+        this.legs = legs;
+    }
+
+    public static JournalRecord create(Account account) {
+        return new JournalRecord(Type.CREATE, account.getId(), 0, account.getAmount(), account.getAmount(), null);
+    }
+
+    /**
+     * @param account account after deposit
+     */
+    public static JournalRecord deposit(Account account, Money amount) {
+        return new JournalRecord(Type.DEPOSIT, account.getId(), 0, amount, account.getAmount(), null);
+    }
+
+    /**
+     * @param account account after withdrawal
+     * @param amount  negative amount as passed to {@code AccountService.withdraw}
+     */
+    public static JournalRecord withdrawal(Account account, Money amount) {
+        return new JournalRecord(Type.WITHDRAWAL, account.getId(), 0, amount, account.getAmount(), null);
+    }
+
+    /**
+     * @param from sender after transaction
+     * @param to   receiver after transaction
+     */
+    public static JournalRecord transfer(AccountTransaction transaction, Account from, Account to) {
+        return new JournalRecord(Type.TRANSFER, transaction.getFromId(), transaction.getToId(),
+                transaction.getAmount(), from.getAmount(), to.getAmount());
+    }
+
+    /**
+     * @param legs deposit or withdrawal record of net amount of every changed account
+     */
+    public static JournalRecord multiLeg(List<JournalRecord> legs) {
+        for (JournalRecord leg : legs) {
+            if (leg.getType() != Type.DEPOSIT && leg.getType() != Type.WITHDRAWAL) {
+                throw new IllegalArgumentException("Leg should be deposit or withdrawal: " + leg);
+            }
+        }
+        return new JournalRecord(Type.MULTI_LEG, 0, 0, Money.ZERO, Money.ZERO, null, List.copyOf(legs));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return created or changed account, sender of {@link Type#TRANSFER}
+     */
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public long getToId() {
+        return toId;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public Money getBalance() {
+        return balance;
+    }
+
+    @Nullable
+    public Money getToBalance() {
+        return toBalance;
+    }
+
+    public List<JournalRecord> getLegs() {
+        return legs;
+    }
+
+    /**
+     * @return bytes of encoded record
+     */
+    int length() {
+        return type == Type.MULTI_LEG ? multiLegLength(legs.size()) : type.length;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.put(type.code);
+        if (type == Type.MULTI_LEG) {
+            buffer.putInt(legs.size());
+            for (JournalRecord leg : legs) {
+                buffer.putLong(leg.accountId);
+                buffer.putLong(leg.amount.getUnits());
+                buffer.putLong(leg.balance.getUnits());
+            }
+            return;
+        }
+        buffer.putLong(accountId);
+        if (type == Type.TRANSFER) {
+            buffer.putLong(toId);
+        }
+        buffer.putLong(amount.getUnits());
+        if (type != Type.CREATE) {
+            buffer.putLong(balance.getUnits());
+        }
+        if (type == Type.TRANSFER) {
+            buffer.putLong(toBalance.getUnits());
+        }
+    }
+
+    /**
+     * @return record of {@code length} bytes or {@code null} if bytes are not a record
+     */
+    @Nullable
+    static JournalRecord readFrom(ByteBuffer buffer, int length) {
+        Type type = Type.of(buffer.get());
+        if (type == Type.MULTI_LEG) {
+            return readMultiLeg(buffer, length);
+        }
+        if (type == null || type.length != length) {
+            return null;
+        }
+        long accountId = buffer.getLong();
+        long toId = type == Type.TRANSFER ? buffer.getLong() : 0;
+        Money amount = Money.ofUnits(buffer.getLong());
+        Money balance = type == Type.CREATE ? amount : Money.ofUnits(buffer.getLong());
+        Money toBalance = type == Type.TRANSFER ? Money.ofUnits(buffer.getLong()) : null;
+        return new JournalRecord(type, accountId, toId, amount, balance, toBalance);
+    }
+
+    @Nullable
+    private static JournalRecord readMultiLeg(ByteBuffer buffer, int length) {
+        if (length < 1 + Integer.BYTES) {
+            return null;
+        }
+        int count = buffer.getInt();
+        if (count <= 0 || multiLegLength(count) != length) {
+            return null;
+        }
+        List<JournalRecord> legs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long accountId = buffer.getLong();
+            Money amount = Money.ofUnits(buffer.getLong());
+            Money balance = Money.ofUnits(buffer.getLong());
+            legs.add(new JournalRecord(amount.isNegative() ? Type.WITHDRAWAL : Type.DEPOSIT, accountId, 0,
+                    amount, balance, null));
+        }
+        return new JournalRecord(Type.MULTI_LEG, 0, 0, Money.ZERO, Money.ZERO, null, legs);
+    }
+
+    private static int multiLegLength(int count) {
+        return 1 + Integer.BYTES + count * 3 * Long.BYTES;
+    }
+
+    public enum Type {
+        CREATE(1, 2),
+        DEPOSIT(2, 3),
+        WITHDRAWAL(3, 3),
+        TRANSFER(4, 5),
+        /**
+         * Variable length, see {@link #length()}.
+         */
+        MULTI_LEG(5, 0);
+
+        private final byte code;
+        private final int length;
+
+        Type(int code, int longs) {
+            this.code = (byte) code;
+            this.length = 1 + longs * Long.BYTES;
+        }
+
+        @Nullable
+        static Type of(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("type", type)
+                .add("accountId", accountId)
+                .add("toId", toId)
+                .add("amount", amount)
+                .add("balance", balance)
+                .add("toBalance", toBalance)
+                .add("legs", legs)
+                .toString();
+    }
+}
@@ -0,0 +1,174 @@
+package account.service.journal;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Settings of {@link JournalAccountService}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class JournalSettings {
+
+    /**
+     * Directory of journal segments.
+     */
+    private final Path directory;
+
+    /**
+     * Bytes of new segment file, whole segment is memory-mapped.
+     */
+    private final int segmentSize;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    /**
+     * Period of background fsync of {@link FsyncPolicy#INTERVAL} policy.
+     */
+    private final Duration fsyncInterval;
+
+    /**
+     * Period of writing {@link Snapshot} of all accounts, zero disables snapshots.
+     */
+    private final Duration snapshotInterval;
+
+    /**
+     * Threads reading snapshot on start.
+     */
+    private final int loadThreads;
+
+    public JournalSettings(Builder builder) {
+        this.directory = builder.directory;
+        this.segmentSize = builder.segmentSize;
+        this.fsyncPolicy = builder.fsyncPolicy;
+        this.fsyncInterval = builder.fsyncInterval;
+        this.snapshotInterval = builder.snapshotInterval;
+        this.loadThreads = builder.loadThreads;
+        Preconditions.checkArgument(directory != null, "Journal directory should be set");
+        Preconditions.checkArgument(segmentSize >= 1024, "Journal segment should be at least 1024 bytes");
+        Preconditions.checkArgument(fsyncPolicy != null, "Fsync policy should be set");
+        Preconditions.checkArgument(!fsyncInterval.isNegative() && !fsyncInterval.isZero(),
+                "Fsync interval should be positive");
+        Preconditions.checkArgument(!snapshotInterval.isNegative(), "Snapshot interval should not be negative");
+        Preconditions.checkArgument(loadThreads > 0, "Load threads count should be positive");
+    }
+
+    /**
+     * Settings from {@code account.journal.*} system properties. Without {@code account.journal.dir}
+     * journal is written to new temporary directory, so nothing is restored after restart
+     * (like in-memory H2 database).
+     */
+    public static JournalSettings fromSystemProperties() {
+        String directory = System.getProperty("account.journal.dir");
+        return new Builder()
+                .setDirectory(directory == null ? temporaryDirectory() : Paths.get(directory))
+                .setSegmentSize(Integer.getInteger("account.journal.segmentSizeMb", 64) << 20)
+                .setFsyncPolicy(FsyncPolicy.fromSystemProperties())
+                .setFsyncInterval(Duration.ofMillis(Long.getLong("account.journal.fsyncIntervalMillis", 10L)))
+                .setSnapshotInterval(Duration.ofMillis(Long.getLong("account.journal.snapshotIntervalMillis",
+                        60_000L)))
+                .setLoadThreads(Integer.getInteger("account.journal.loadThreads",
+                        Runtime.getRuntime().availableProcessors()))
+                .build();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public Duration getFsyncInterval() {
+        return fsyncInterval;
+    }
+
+    public Duration getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public boolean isSnapshotEnabled() {
+        return !snapshotInterval.isZero();
+    }
+
+    public int getLoadThreads() {
+        return loadThreads;
+    }
+
+    private static Path temporaryDirectory() {
+        try {
+            return Files.createTempDirectory("account-journal");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not create journal directory", e);
+        }
+    }
+
+    public static class Builder {
+        private Path directory;
+        private int segmentSize = 64 << 20;
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.ALWAYS;
+        private Duration fsyncInterval = Duration.ofMillis(10);
+        private Duration snapshotInterval = Duration.ofMinutes(1);
+        private int loadThreads = Runtime.getRuntime().availableProcessors();
+
+        public Builder setDirectory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        public Builder setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+            this.fsyncPolicy = fsyncPolicy;
+            return this;
+        }
+
+        public Builder setFsyncInterval(Duration fsyncInterval) {
+            this.fsyncInterval = fsyncInterval;
+            return this;
+        }
+
+        public Builder setSnapshotInterval(Duration snapshotInterval) {
+            this.snapshotInterval = snapshotInterval;
+            return this;
+        }
+
+        public Builder setLoadThreads(int loadThreads) {
+            this.loadThreads = loadThreads;
+            return this;
+        }
+
+        public JournalSettings build() {
+            return new JournalSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("directory", directory)
+                .add("segmentSize", segmentSize)
+                .add("fsyncPolicy", fsyncPolicy)
+                .add("fsyncInterval", fsyncInterval)
+                .add("snapshotInterval", snapshotInterval)
+                .add("loadThreads", loadThreads)
+                .toString();
+    }
+}
@@ -0,0 +1,288 @@
+package account.service.journal;
+
+import account.model.Account;
+import account.model.Money;
+import account.service.memory.StripedAccounts;
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Binary snapshot of all accounts taken at a {@link Journal} position.
+ * <pre>
+ * int magic | int version | long journalPosition | long count | long maxId | (long id | long amount) * count
+ * </pre>
+ * Snapshot is written to temporary file, forced and renamed, so a file with snapshot name is complete.
+ * Accounts are copied stripe by stripe while operations go on (see {@link StripedAccounts#forEachStripe}),
+ * journal position is taken before copying, so replaying journal from it over the snapshot gives current
+ * amounts (records carry amounts after operation, see {@link JournalRecord}).
+ * A stripe copied late may hold changes of records appended after that position, so journal is forced
+ * up to its position after copying and before the rename: otherwise a crash could restore a snapshot
+ * with the sender of a transfer debited and its receiver (copied earlier) never credited.
+ * <p>
+ * Loading maps the file in ranges read by parallel threads.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+@ParametersAreNonnullByDefault
+public class Snapshot {
+
+    private static final int MAGIC = 0x41534E50;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 2 * Integer.BYTES + 3 * Long.BYTES;
+    private static final int ENTRY_LENGTH = 2 * Long.BYTES;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    /**
+     * Entries of one mapping, mapped region must be below 2 GB.
+     */
+    private static final int ENTRIES_PER_MAPPING = 1 << 24;
+
+    /**
+     * Smaller snapshots are not split between threads.
+     */
+    private static final int MIN_ENTRIES_PER_THREAD = 1 << 16;
+
+    private final Path file;
+    private final long journalPosition;
+    private final long count;
+    private final long maxId;
+
+    private Snapshot(Path file, long journalPosition, long count, long maxId) {
+        this.file = file;
+        this.journalPosition = journalPosition;
+        this.count = count;
+        this.maxId = maxId;
+    }
+
+    /**
+     * Write accounts to new snapshot in {@code directory}.
+     *
+     * @param journalPosition journal position taken before accounts are copied
+     * @param journal         journal forced up to its position once accounts are copied
+     */
+    public static Snapshot write(Path directory, long journalPosition, StripedAccounts accounts, Journal journal) {
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, journalPosition, SUFFIX));
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        long[] countAndMaxId = new long[2];
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(ENTRY_LENGTH * 64 * 1024);
+            channel.position(HEADER_LENGTH);
+            accounts.forEachStripe(stripe -> {
+                for (Account account : stripe) {
+                    if (!buffer.hasRemaining()) {
+                        writeFully(channel, buffer);
+                    }
+                    buffer.putLong(account.getId());
+                    buffer.putLong(account.getAmount().getUnits());
+                    countAndMaxId[0]++;
+                    countAndMaxId[1] = Math.max(countAndMaxId[1], account.getId());
+                }
+            });
+            writeFully(channel, buffer);
+            //every change copied above is appended by now, see class doc
+            journal.force(journal.position());
+            buffer.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(journalPosition)
+                    .putLong(countAndMaxId[0])
+                    .putLong(countAndMaxId[1]);
+            buffer.flip();
+            channel.write(buffer, 0);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not write snapshot " + temporary, e);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not rename snapshot " + temporary, e);
+        }
+        return new Snapshot(file, journalPosition, countAndMaxId[0], countAndMaxId[1]);
+    }
+
+    /**
+     * @return snapshot with the largest journal position in {@code directory}
+     */
+    public static Optional<Snapshot> latest(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return Optional.empty();
+        }
+        List<Path> files = files(directory);
+        if (files.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(open(files.get(files.size() - 1)));
+    }
+
+    /**
+     * Delete snapshots older than {@code snapshot} and temporary files left by failed writes.
+     */
+    public static void deleteBefore(Path directory, Snapshot snapshot) {
+        try {
+            for (Path file : files(directory)) {
+                if (!file.equals(snapshot.file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            try (Stream<Path> temporary = Files.list(directory)) {
+                for (Path file : temporary.filter(Snapshot::isTemporary).collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not delete old snapshots", e);
+        }
+    }
+
+    /**
+     * Pass every account of snapshot to {@code consumer} from {@code threads} threads at most.
+     *
+     * @param consumer thread-safe consumer
+     */
+    public void load(int threads, Consumer<Account> consumer) {
+        int parts = (int) Math.max(1, Math.min(threads, count / MIN_ENTRIES_PER_THREAD));
+        long entriesPerPart = (count + parts - 1) / parts;
+        ExecutorService loaders = Executors.newFixedThreadPool(parts, runnable -> {
+            Thread thread = new Thread(runnable, "account-snapshot-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<CompletableFuture<Void>> loads = new ArrayList<>(parts);
+            for (long from = 0; from < count; from += entriesPerPart) {
+                long partFrom = from;
+                long partTo = Math.min(count, from + entriesPerPart);
+                loads.add(CompletableFuture.runAsync(() -> load(channel, partFrom, partTo, consumer), loaders));
+            }
+            CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).join();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not read snapshot " + file, e);
+        } finally {
+            loaders.shutdown();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return journal position to replay records from
+     */
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return largest account id in snapshot, 0 for empty snapshot
+     */
+    public long getMaxId() {
+        return maxId;
+    }
+
+    private static void load(FileChannel channel, long from, long to, Consumer<Account> consumer) {
+        try {
+            for (long mappingFrom = from; mappingFrom < to; mappingFrom += ENTRIES_PER_MAPPING) {
+                long entries = Math.min(ENTRIES_PER_MAPPING, to - mappingFrom);
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_LENGTH + mappingFrom * ENTRY_LENGTH, entries * ENTRY_LENGTH);
+                for (long i = 0; i < entries; i++) {
+                    consumer.accept(new Account.Builder()
+                            .setId(mapping.getLong())
+                            .setAmount(Money.ofUnits(mapping.getLong()))
+                            .build());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Snapshot open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                //read whole header
+            }
+            header.flip();
+            if (header.remaining() < HEADER_LENGTH || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalStateException("Snapshot " + file + " has unknown format");
+            }
+            Snapshot snapshot = new Snapshot(file, header.getLong(), header.getLong(), header.getLong());
+            if (channel.size() != HEADER_LENGTH + snapshot.count * ENTRY_LENGTH) {
+                throw new IllegalStateException("Snapshot " + file + " is damaged");
+            }
+            return snapshot;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not read snapshot " + file, e);
+        }
+    }
+
+    /**
+     * @return snapshot files in ascending journal position order
+     */
+    private static List<Path> files(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not list snapshots of " + directory, e);
+        }
+    }
+
+    private static boolean isTemporary(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX + ".tmp");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("file", file)
+                .add("journalPosition", journalPosition)
+                .add("count", count)
+                .add("maxId", maxId)
+                .toString();
+    }
+}
@@ -0,0 +1,309 @@
+package account.service.memory;
+
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionResult;
+import account.service.AccountService;
+import account.service.AccountServiceChecks;
+import account.service.TransactionBatch;
+import account.service.TransactionBatchSettings;
+import account.service.db.AccountDao;
+import account.util.LongObjectHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory implementation for {@link AccountService} with write-behind to H2.
+ * <p>
+ * Balances are read and changed in {@link StripedAccounts}, H2 stays the system of record:
+ * <ul>
+ *     <li>accounts are created in H2 synchronously (H2 sequence gives ids)</li>
+ *     <li>account is loaded from H2 on first access</li>
+ *     <li>changed accounts are written to H2 in background with JDBC batches
+ *     every {@code flushInterval}</li>
+ * </ul>
+ * Engine expects to be the only writer of H2 account amounts.
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class InMemoryAccountService implements AccountService, AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(InMemoryAccountService.class);
+
+    private final AccountDao accountDao;
+    private final InMemoryEngineSettings settings;
+    private final TransactionBatchSettings batchSettings;
+    private final StripedAccounts accounts;
+    private final ScheduledExecutorService flusher;
+
+    @Inject
+    public InMemoryAccountService(AccountDao accountDao, InMemoryEngineSettings settings,
+                                  TransactionBatchSettings batchSettings) {
+        this.accountDao = accountDao;
+        this.settings = settings;
+        this.batchSettings = batchSettings;
+        this.accounts = new StripedAccounts(settings.getStripes());
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = settings.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Account createAccount(Money amount) {
+        AccountServiceChecks.checkInitialAmount(amount);
+        Account account = accountDao.createAccount(amount);
+        return accounts.putIfAbsent(account);
+    }
+
+    @Override
+    public List<Account> createAccounts(List<Money> amounts) {
+        AccountServiceChecks.checkInitialAmounts(amounts);
+        List<Account> created = accountDao.createAccounts(amounts, batchSettings.getChunkSize());
+        created.forEach(accounts::putIfAbsent);
+        return created;
+    }
+
+    @Override
+    public Optional<Account> getAccount(long accountId) {
+        return Optional.ofNullable(find(accountId));
+    }
+
+    /**
+     * Ids of the page are read from database (accounts are inserted there on creation), amounts are taken
+     * from memory, which is newer than write-behind storage. Accounts are not loaded into memory by export.
+     */
+    @Override
+    public List<Account> getAccountsAfter(long afterId, int limit) {
+        List<Account> stored = accountDao.getAccountsAfter(afterId, limit);
+        List<Account> page = new ArrayList<>(stored.size());
+        for (Account account : stored) {
+            Account current = accounts.get(account.getId());
+            page.add(current != null ? current : account);
+        }
+        return page;
+    }
+
+    /**
+     * Supply of the database: it lags memory by writes not flushed yet.
+     */
+    @Override
+    public Money getTotalSupply() {
+        return accountDao.getTotalSupply();
+    }
+
+    @Override
+    public Money auditSupply(int stripe) {
+        return accountDao.auditSupply(stripe);
+    }
+
+    @Override
+    public Account deposit(long accountId, Money amount) {
+        AccountServiceChecks.checkDeposit(amount);
+        return updateAmount(accountId, amount);
+    }
+
+    @Override
+    public Account withdraw(long accountId, Money amount) {
+        AccountServiceChecks.checkWithdrawal(amount);
+        return updateAmount(accountId, amount);
+    }
+
+    @Override
+    public void transaction(AccountTransaction transaction) {
+        AccountServiceChecks.checkTransaction(transaction);
+        //both accounts are checked before amount (like AccountDao does)
+        if (find(transaction.getFromId()) == null || find(transaction.getToId()) == null) {
+            throw new AccountApiBadRequest("Account not found");
+        }
+        int[] locked = accounts.lock(transaction.getFromId(), transaction.getToId());
+        try {
+            Account from = accounts.getLocked(transaction.getFromId());
+            Account to = accounts.getLocked(transaction.getToId());
+            var fromFinalAmount = from.getAmount().minus(transaction.getAmount());
+            if (fromFinalAmount.isNegative()) {
+                throw new AccountApiBadRequest("Not enough amount for transfer");
+            }
+            accounts.putLocked(withAmount(from, fromFinalAmount));
+            accounts.putLocked(withAmount(to, to.getAmount().plus(transaction.getAmount())));
+        } finally {
+            accounts.unlock(locked);
+        }
+    }
+
+    /**
+     * Make transaction holding stripe locks of all accounts of the legs, every account is changed once.
+     */
+    @Override
+    public void transaction(MultiLegTransaction transaction) {
+        AccountServiceChecks.checkMultiLegTransaction(transaction);
+        updateLocked(TransactionBatch.accountIds(transaction), batch -> {
+            var result = batch.apply(transaction);
+            if (!result.isApplied()) {
+                throw new AccountApiBadRequest(result.getMessage());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Make batch holding stripe locks of all accounts of a chunk, {@link BatchMode#ALL_OR_NOTHING} batch
+     * is one chunk.
+     */
+    @Override
+    public List<TransactionResult> transactions(List<AccountTransaction> transactions, BatchMode mode) {
+        AccountServiceChecks.checkTransactions(transactions);
+        if (mode == BatchMode.ALL_OR_NOTHING) {
+            return transactionsChunk(transactions, 0, mode);
+        }
+        int chunkSize = batchSettings.getChunkSize();
+        List<TransactionResult> results = new ArrayList<>(transactions.size());
+        for (int from = 0; from < transactions.size(); from += chunkSize) {
+            var chunk = transactions.subList(from, Math.min(transactions.size(), from + chunkSize));
+            results.addAll(transactionsChunk(chunk, from, mode));
+        }
+        return results;
+    }
+
+    /**
+     * Write all changed accounts to H2.
+     */
+    public synchronized void flush() {
+        List<Account> dirty = accounts.drainDirty();
+        int batchSize = settings.getFlushBatchSize();
+        for (int from = 0; from < dirty.size(); from += batchSize) {
+            List<Account> batch = dirty.subList(from, Math.min(dirty.size(), from + batchSize));
+            try {
+                accountDao.updateAmounts(batch);
+            } catch (RuntimeException e) {
+                accounts.redirty(dirty.subList(from, dirty.size()));
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stop background writing and write remaining changes.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(settings.getFlushInterval().toMillis() * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private List<TransactionResult> transactionsChunk(List<AccountTransaction> chunk, int offset, BatchMode mode) {
+        return updateLocked(TransactionBatch.accountIds(chunk), batch -> {
+            List<TransactionResult> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                var result = batch.apply(chunk.get(i));
+                if (mode == BatchMode.ALL_OR_NOTHING && !result.isApplied()) {
+                    throw new AccountApiBadRequest(
+                            AccountServiceChecks.transactionError(offset + i, result.getMessage())
+                    );
+                }
+                results.add(result);
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Load accounts, lock their stripes, change them with {@code update} and put changed accounts back
+     * before unlock. {@link AccountApiBadRequest} thrown by {@code update} leaves accounts unchanged.
+     *
+     * @param accountIds distinct account ids in ascending (locking) order
+     */
+    private <T> T updateLocked(long[] accountIds, Function<TransactionBatch, T> update) {
+        for (long accountId : accountIds) {
+            find(accountId);
+        }
+        int[] locked = accounts.lock(accountIds);
+        try {
+            var lockedAccounts = new LongObjectHashMap<Account>();
+            for (long accountId : accountIds) {
+                Account account = accounts.getLocked(accountId);
+                if (account != null) {
+                    lockedAccounts.put(accountId, account);
+                }
+            }
+            var batch = new TransactionBatch(lockedAccounts);
+            T result = update.apply(batch);
+            batch.changed().forEach(accounts::putLocked);
+            return result;
+        } finally {
+            accounts.unlock(locked);
+        }
+    }
+
+    private Account updateAmount(long accountId, Money amountDiff) {
+        if (find(accountId) == null) {
+            throw new AccountApiBadRequest("Account not found");
+        }
+        int[] locked = accounts.lock(accountId);
+        try {
+            Account account = accounts.getLocked(accountId);
+            var amountAfter = account.getAmount().plus(amountDiff);
+            if (amountAfter.isNegative()) {
+                throw new AccountApiBadRequest("Not enough amount for transfer");
+            }
+            Account updated = withAmount(account, amountAfter);
+            accounts.putLocked(updated);
+            return updated;
+        } finally {
+            accounts.unlock(locked);
+        }
+    }
+
+    /**
+     * @return account from memory, loaded from H2 on first access, {@code null} if it does not exist
+     */
+    private Account find(long accountId) {
+        Account account = accounts.get(accountId);
+        if (account != null) {
+            return account;
+        }
+        return accountDao.getAccount(accountId)
+                .map(accounts::putIfAbsent)
+                .orElse(null);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Can not write accounts to database, will retry", e);
+        }
+    }
+
+    private static Account withAmount(Account account, Money amount) {
+        return new Account.Builder()
+                .setId(account.getId())
+                .setAmount(amount)
+                .build();
+    }
+}
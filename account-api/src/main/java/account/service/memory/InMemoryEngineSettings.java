@@ -0,0 +1,98 @@
+package account.service.memory;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.Duration;
+
+/**
+ * Settings of {@link InMemoryAccountService}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class InMemoryEngineSettings {
+
+    /**
+     * Number of lock stripes (rounded up to power of two).
+     */
+    private final int stripes;
+
+    /**
+     * Period of writing changed accounts to database.
+     */
+    private final Duration flushInterval;
+
+    /**
+     * Max accounts in one JDBC batch (one database transaction).
+     */
+    private final int flushBatchSize;
+
+    public InMemoryEngineSettings(Builder builder) {
+        this.stripes = builder.stripes;
+        this.flushInterval = builder.flushInterval;
+        this.flushBatchSize = builder.flushBatchSize;
+        Preconditions.checkArgument(stripes > 0, "Stripes count should be positive");
+        Preconditions.checkArgument(!flushInterval.isNegative() && !flushInterval.isZero(),
+                "Flush interval should be positive");
+        Preconditions.checkArgument(flushBatchSize > 0, "Flush batch size should be positive");
+    }
+
+    /**
+     * Settings from {@code account.memory.*} system properties.
+     */
+    public static InMemoryEngineSettings fromSystemProperties() {
+        return new Builder()
+                .setStripes(Integer.getInteger("account.memory.stripes", 64))
+                .setFlushInterval(Duration.ofMillis(Long.getLong("account.memory.flushIntervalMillis", 50L)))
+                .setFlushBatchSize(Integer.getInteger("account.memory.flushBatchSize", 1000))
+                .build();
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public int getFlushBatchSize() {
+        return flushBatchSize;
+    }
+
+    public static class Builder {
+        private int stripes = 64;
+        private Duration flushInterval = Duration.ofMillis(50);
+        private int flushBatchSize = 1000;
+
+        public Builder setStripes(int stripes) {
+            this.stripes = stripes;
+            return this;
+        }
+
+        public Builder setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        public Builder setFlushBatchSize(int flushBatchSize) {
+            this.flushBatchSize = flushBatchSize;
+            return this;
+        }
+
+        public InMemoryEngineSettings build() {
+            return new InMemoryEngineSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("stripes", stripes)
+                .add("flushInterval", flushInterval)
+                .add("flushBatchSize", flushBatchSize)
+                .toString();
+    }
+}
@@ -0,0 +1,207 @@
+package account.service.memory;
+
+import account.model.Account;
+import account.util.LongObjectHashMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Accounts kept in memory, split into stripes by account id.
+ * <p>
+ * Every stripe is a primitive long-keyed map guarded by its own lock. Operations on several accounts
+ * lock stripes in ascending stripe order (the same idea as sorting ids in {@code AccountDao.transaction}),
+ * ordering by id itself is not enough because different ids share stripes.
+ * Changed accounts are remembered per stripe until {@link #drainDirty()}.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class StripedAccounts {
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    /**
+     * @param stripes number of stripes, rounded up to power of two
+     */
+    public StripedAccounts(int stripes) {
+        this(stripes, 0);
+    }
+
+    /**
+     * @param stripes          number of stripes, rounded up to power of two
+     * @param expectedAccounts accounts to allocate space for (e.g. size of a snapshot to load)
+     */
+    public StripedAccounts(int stripes, long expectedAccounts) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        int expectedPerStripe = (int) Math.min(Integer.MAX_VALUE / 2, expectedAccounts / size);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe(expectedPerStripe);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return account or {@code null} if it is not in memory
+     */
+    public Account get(long accountId) {
+        Stripe stripe = stripe(accountId);
+        stripe.lock.lock();
+        try {
+            return stripe.accounts.get(accountId);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Put account loaded from storage unless it is in memory already (memory is always newer).
+     *
+     * @return account in memory after the call
+     */
+    public Account putIfAbsent(Account account) {
+        Stripe stripe = stripe(account.getId());
+        stripe.lock.lock();
+        try {
+            return stripe.accounts.putIfAbsent(account.getId(), account);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Lock stripes of all accounts in ascending stripe order.
+     *
+     * @return stripe indexes to pass to {@link #unlock(int[])}
+     */
+    public int[] lock(long... accountIds) {
+        int[] indexes = new int[accountIds.length];
+        for (int i = 0; i < accountIds.length; i++) {
+            indexes[i] = stripeIndex(accountIds[i]);
+        }
+        Arrays.sort(indexes);
+        int distinct = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        int[] locked = Arrays.copyOf(indexes, distinct);
+        for (int index : locked) {
+            stripes[index].lock.lock();
+        }
+        return locked;
+    }
+
+    public void unlock(int[] lockedStripes) {
+        for (int i = lockedStripes.length - 1; i >= 0; i--) {
+            stripes[lockedStripes[i]].lock.unlock();
+        }
+    }
+
+    /**
+     * Caller should hold lock of account stripe.
+     */
+    public Account getLocked(long accountId) {
+        return stripe(accountId).accounts.get(accountId);
+    }
+
+    /**
+     * Replace account and mark it dirty, caller should hold lock of account stripe.
+     */
+    public void putLocked(Account account) {
+        Stripe stripe = stripe(account.getId());
+        stripe.accounts.put(account.getId(), account);
+        stripe.dirty.put(account.getId(), account);
+    }
+
+    /**
+     * Replace account without marking it dirty (caller writes storage itself),
+     * caller should hold lock of account stripe.
+     */
+    public void replaceLocked(Account account) {
+        stripe(account.getId()).accounts.put(account.getId(), account);
+    }
+
+    /**
+     * Take latest versions of accounts changed since previous call, stripe by stripe.
+     */
+    public List<Account> drainDirty() {
+        List<Account> result = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            LongObjectHashMap<Account> dirty;
+            stripe.lock.lock();
+            try {
+                if (stripe.dirty.isEmpty()) {
+                    continue;
+                }
+                dirty = stripe.dirty;
+                stripe.dirty = new LongObjectHashMap<>();
+            } finally {
+                stripe.lock.unlock();
+            }
+            dirty.forEachEntry((id, account) -> result.add(account));
+        }
+        return result;
+    }
+
+    /**
+     * Pass copy of every stripe to {@code consumer} holding one stripe lock at a time (while accounts are copied),
+     * so writers wait for one stripe copy at most. Stripes are copied at different moments.
+     */
+    public void forEachStripe(Consumer<List<Account>> consumer) {
+        for (Stripe stripe : stripes) {
+            List<Account> copy;
+            stripe.lock.lock();
+            try {
+                copy = new ArrayList<>(stripe.accounts.size());
+                stripe.accounts.forEachEntry((id, account) -> copy.add(account));
+            } finally {
+                stripe.lock.unlock();
+            }
+            consumer.accept(copy);
+        }
+    }
+
+    /**
+     * Mark accounts dirty again (e.g. storage write failed) unless newer versions are waiting already.
+     */
+    public void redirty(List<Account> accounts) {
+        for (Account account : accounts) {
+            Stripe stripe = stripe(account.getId());
+            stripe.lock.lock();
+            try {
+                if (!stripe.dirty.containsKey(account.getId())) {
+                    stripe.dirty.put(account.getId(), stripe.accounts.get(account.getId()));
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private Stripe stripe(long accountId) {
+        return stripes[stripeIndex(accountId)];
+    }
+
+    private int stripeIndex(long accountId) {
+        //high bits of the product, low bits are used by stripe map itself
+        return (int) ((accountId * 0x9E3779B97F4A7C15L) >>> 48) & mask;
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongObjectHashMap<Account> accounts;
+        private LongObjectHashMap<Account> dirty = new LongObjectHashMap<>();
+
+        private Stripe(int expectedSize) {
+            this.accounts = new LongObjectHashMap<>(Math.max(16, expectedSize));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package account.service.partition;
+
+/**
+ * Account is not in memory of its {@link Partition}: caller loads it from database, registers it
+ * and submits the command again, so partition thread never waits for database.
+ * <p>
+ * Thrown before the command changes anything, has no stack trace.
+ *
+ * @author fbokovikov
+ */
+final class AccountMiss extends RuntimeException {
+
+    private final long accountId;
+
+    AccountMiss(long accountId) {
+        super("Account " + accountId + " is not loaded", null, false, false);
+        this.accountId = accountId;
+    }
+
+    long getAccountId() {
+        return accountId;
+    }
+}
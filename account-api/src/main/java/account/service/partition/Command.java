@@ -0,0 +1,52 @@
+package account.service.partition;
+
+import account.model.Account;
+import account.model.Money;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mutable ring buffer slot: request to a partition writer.
+ *
+ * @author fbokovikov
+ */
+final class Command {
+
+    enum Type {
+        /**
+         * Put account created in database, no result.
+         */
+        REGISTER,
+        /**
+         * Result is account or {@code null}.
+         */
+        GET,
+        /**
+         * Add signed amount to account (deposit, withdrawal, debit of cross-partition transfer),
+         * result is updated account.
+         */
+        ADD,
+        /**
+         * Transfer between two accounts of the same partition, result is {@code null}.
+         */
+        TRANSFER,
+        /**
+         * Hand changed accounts to write-behind, result is {@code null}.
+         */
+        FLUSH
+    }
+
+    Type type;
+    long accountId;
+    long otherAccountId;
+    Money amount;
+    Account account;
+    CompletableFuture<Account> result;
+
+    void clear() {
+        type = null;
+        amount = null;
+        account = null;
+        result = null;
+    }
+}
@@ -0,0 +1,156 @@
+package account.service.partition;
+
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.Money;
+import account.util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Single writer of a share of accounts.
+ * <p>
+ * Accounts of the partition are touched only by its thread, so no locks are taken:
+ * requests come through {@link RingBuffer} and are handled one by one. Database is never read here:
+ * command on account which is not in memory fails with {@link AccountMiss} before changing anything.
+ * Changed accounts are handed to write-behind every {@code flushIntervalNanos}.
+ *
+ * @author fbokovikov
+ */
+class Partition implements Runnable {
+
+    private static final int DRAIN_LIMIT = 256;
+
+    private final RingBuffer<Command> ring;
+    private final Consumer<List<Account>> writeBehind;
+    private final long flushIntervalNanos;
+
+    private final LongObjectHashMap<Account> accounts = new LongObjectHashMap<>();
+    private LongObjectHashMap<Account> dirty = new LongObjectHashMap<>();
+    private long lastFlush = System.nanoTime();
+
+    private volatile boolean running = true;
+
+    Partition(int ringSize, Consumer<List<Account>> writeBehind, long flushIntervalNanos) {
+        this.ring = new RingBuffer<>(ringSize, Command::new);
+        this.writeBehind = writeBehind;
+        this.flushIntervalNanos = flushIntervalNanos;
+    }
+
+    RingBuffer<Command> ring() {
+        return ring;
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        int idle = 0;
+        while (running) {
+            int handled = ring.drain(this::handle, DRAIN_LIMIT);
+            if (System.nanoTime() - lastFlush >= flushIntervalNanos) {
+                flush();
+            }
+            idle = handled > 0 ? 0 : RingBuffer.IdleStrategy.idle(idle);
+        }
+        while (ring.drain(this::handle, DRAIN_LIMIT) > 0) {
+            //handle commands published before stop
+        }
+        flush();
+    }
+
+    private void handle(Command command) {
+        CompletableFuture<Account> result = command.result;
+        try {
+            Account account = execute(command);
+            if (result != null) {
+                result.complete(account);
+            }
+        } catch (RuntimeException e) {
+            if (result != null) {
+                result.completeExceptionally(e);
+            }
+        } finally {
+            command.clear();
+        }
+    }
+
+    private Account execute(Command command) {
+        switch (command.type) {
+            case REGISTER:
+                accounts.putIfAbsent(command.account.getId(), command.account);
+                return null;
+            case GET:
+                return find(command.accountId);
+            case ADD:
+                return add(command.accountId, command.amount);
+            case TRANSFER:
+                transfer(command.accountId, command.otherAccountId, command.amount);
+                return null;
+            case FLUSH:
+                flush();
+                return null;
+            default:
+                throw new IllegalStateException("Unknown command " + command.type);
+        }
+    }
+
+    private Account add(long accountId, Money amountDiff) {
+        Account account = find(accountId);
+        var amountAfter = account.getAmount().plus(amountDiff);
+        if (amountAfter.isNegative()) {
+            throw new AccountApiBadRequest("Not enough amount for transfer");
+        }
+        return put(account, amountAfter);
+    }
+
+    private void transfer(long fromId, long toId, Money amount) {
+        Account from = find(fromId);
+        Account to = find(toId);
+        var fromFinalAmount = from.getAmount().minus(amount);
+        if (fromFinalAmount.isNegative()) {
+            throw new AccountApiBadRequest("Not enough amount for transfer");
+        }
+        var toFinalAmount = to.getAmount().plus(amount);
+        put(from, fromFinalAmount);
+        put(to, toFinalAmount);
+    }
+
+    /**
+     * @return account of the partition
+     * @throws AccountMiss if account is not in memory
+     */
+    private Account find(long accountId) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            throw new AccountMiss(accountId);
+        }
+        return account;
+    }
+
+    private Account put(Account account, Money amount) {
+        Account updated = new Account.Builder()
+                .setId(account.getId())
+                .setAmount(amount)
+                .build();
+        accounts.put(updated.getId(), updated);
+        dirty.put(updated.getId(), updated);
+        return updated;
+    }
+
+    private void flush() {
+        lastFlush = System.nanoTime();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Account> changed = new ArrayList<>(dirty.size());
+        dirty.forEachEntry((id, account) -> changed.add(account));
+        dirty = new LongObjectHashMap<>();
+        writeBehind.accept(changed);
+    }
+}
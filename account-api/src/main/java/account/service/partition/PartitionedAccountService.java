@@ -0,0 +1,259 @@
+package account.service.partition;
+
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.service.AccountService;
+import account.service.AccountServiceChecks;
+import account.service.TransactionBatchSettings;
+import account.service.db.AccountDao;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Partitioned single-writer implementation for {@link AccountService}.
+ * <p>
+ * Accounts are hash-partitioned between {@link Partition} threads, every partition owns its accounts
+ * outright, so there are no locks: callers publish requests into partition {@link RingBuffer} and wait.
+ * <ul>
+ *     <li>transfer inside of a partition is one request</li>
+ *     <li>transfer between partitions is coordinated by caller without global locks:
+ *     check that receiver exists, debit sender (fails on missing account or not enough amount),
+ *     credit receiver (fails only on overflow, then the debit is returned to sender)</li>
+ * </ul>
+ * Like {@link account.service.memory.InMemoryAccountService} H2 stays the system of record:
+ * accounts are created there, loaded on first access (by the caller thread, see {@link AccountMiss})
+ * and written back in background.
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class PartitionedAccountService implements AccountService, AutoCloseable {
+
+    private final AccountDao accountDao;
+    private final TransactionBatchSettings batchSettings;
+    private final Partition[] partitions;
+    private final Thread[] threads;
+    private final WriteBehind writeBehind;
+    private final Thread writeBehindThread;
+
+    @Inject
+    public PartitionedAccountService(AccountDao accountDao, PartitionedEngineSettings settings,
+                                     TransactionBatchSettings batchSettings) {
+        this.accountDao = accountDao;
+        this.batchSettings = batchSettings;
+        this.writeBehind = new WriteBehind(accountDao);
+        this.writeBehindThread = startDaemon(writeBehind, "account-partition-write-behind");
+        this.partitions = new Partition[settings.getPartitions()];
+        this.threads = new Thread[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(
+                    settings.getRingSize(),
+                    writeBehind,
+                    settings.getFlushInterval().toNanos()
+            );
+            threads[i] = startDaemon(partitions[i], "account-partition-" + i);
+        }
+    }
+
+    @Override
+    public Account createAccount(Money amount) {
+        AccountServiceChecks.checkInitialAmount(amount);
+        Account account = accountDao.createAccount(amount);
+        register(account);
+        return account;
+    }
+
+    @Override
+    public List<Account> createAccounts(List<Money> amounts) {
+        AccountServiceChecks.checkInitialAmounts(amounts);
+        List<Account> created = accountDao.createAccounts(amounts, batchSettings.getChunkSize());
+        created.forEach(this::register);
+        return created;
+    }
+
+    @Override
+    public Optional<Account> getAccount(long accountId) {
+        return Optional.ofNullable(execute(Command.Type.GET, accountId, 0, null));
+    }
+
+    /**
+     * Ids of the page are read from database (accounts are inserted there on creation), amounts are asked
+     * from owning partitions, which are newer than write-behind storage.
+     */
+    @Override
+    public List<Account> getAccountsAfter(long afterId, int limit) {
+        List<Account> stored = accountDao.getAccountsAfter(afterId, limit);
+        List<Account> page = new ArrayList<>(stored.size());
+        for (Account account : stored) {
+            page.add(getAccount(account.getId()).orElse(account));
+        }
+        return page;
+    }
+
+    /**
+     * Supply of write-behind storage: it lags partitions by writes not flushed yet.
+     */
+    @Override
+    public Money getTotalSupply() {
+        return accountDao.getTotalSupply();
+    }
+
+    @Override
+    public Money auditSupply(int stripe) {
+        return accountDao.auditSupply(stripe);
+    }
+
+    @Override
+    public Account deposit(long accountId, Money amount) {
+        AccountServiceChecks.checkDeposit(amount);
+        return execute(Command.Type.ADD, accountId, 0, amount);
+    }
+
+    @Override
+    public Account withdraw(long accountId, Money amount) {
+        AccountServiceChecks.checkWithdrawal(amount);
+        return execute(Command.Type.ADD, accountId, 0, amount);
+    }
+
+    @Override
+    public void transaction(AccountTransaction transaction) {
+        AccountServiceChecks.checkTransaction(transaction);
+        long fromId = transaction.getFromId();
+        long toId = transaction.getToId();
+        if (partition(fromId) == partition(toId)) {
+            execute(Command.Type.TRANSFER, fromId, toId, transaction.getAmount());
+            return;
+        }
+        if (execute(Command.Type.GET, toId, 0, null) == null) {
+            throw new AccountApiBadRequest("Account not found");
+        }
+        execute(Command.Type.ADD, fromId, 0, transaction.getAmount().negate());
+        try {
+            execute(Command.Type.ADD, toId, 0, transaction.getAmount());
+        } catch (AccountApiBadRequest e) {
+            execute(Command.Type.ADD, fromId, 0, transaction.getAmount());
+            throw e;
+        }
+    }
+
+    /**
+     * Write all changed accounts to H2.
+     */
+    public void flush() {
+        for (Partition partition : partitions) {
+            await(submit(partition, Command.Type.FLUSH, 0, 0, null));
+        }
+        writeBehind.awaitWritten();
+    }
+
+    /**
+     * Stop partitions and write remaining changes.
+     */
+    @Override
+    public void close() {
+        for (Partition partition : partitions) {
+            partition.stop();
+        }
+        join(threads);
+        writeBehind.stop();
+        join(writeBehindThread);
+    }
+
+    private void register(Account account) {
+        RingBuffer<Command> ring = partition(account.getId()).ring();
+        long sequence = ring.next();
+        Command command = ring.get(sequence);
+        command.type = Command.Type.REGISTER;
+        command.account = account;
+        ring.publish(sequence);
+    }
+
+    /**
+     * Submit command to partition of the account and wait for result. Account missing in partition memory
+     * is loaded from database here and registered, then the command is submitted again.
+     *
+     * @return result of command, {@code null} for {@link Command.Type#GET} of absent account
+     */
+    @Nullable
+    private Account execute(Command.Type type, long accountId, long otherAccountId, @Nullable Money amount) {
+        while (true) {
+            try {
+                return await(submit(type, accountId, otherAccountId, amount));
+            } catch (AccountMiss miss) {
+                Optional<Account> stored = accountDao.getAccount(miss.getAccountId());
+                if (!stored.isPresent()) {
+                    if (type == Command.Type.GET) {
+                        return null;
+                    }
+                    throw new AccountApiBadRequest("Account not found");
+                }
+                register(stored.get());
+            }
+        }
+    }
+
+    private CompletableFuture<Account> submit(Command.Type type, long accountId, long otherAccountId,
+                                              Money amount) {
+        return submit(partition(accountId), type, accountId, otherAccountId, amount);
+    }
+
+    private static CompletableFuture<Account> submit(Partition partition, Command.Type type, long accountId,
+                                                     long otherAccountId, Money amount) {
+        CompletableFuture<Account> result = new CompletableFuture<>();
+        RingBuffer<Command> ring = partition.ring();
+        long sequence = ring.next();
+        Command command = ring.get(sequence);
+        command.type = type;
+        command.accountId = accountId;
+        command.otherAccountId = otherAccountId;
+        command.amount = amount;
+        command.result = result;
+        ring.publish(sequence);
+        return result;
+    }
+
+    private Partition partition(long accountId) {
+        //high bits of the product, low bits are used by partition map itself
+        int hash = (int) ((accountId * 0x9E3779B97F4A7C15L) >>> 33);
+        return partitions[hash % partitions.length];
+    }
+
+    private static Account await(CompletableFuture<Account> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Thread startDaemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void join(Thread... threads) {
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
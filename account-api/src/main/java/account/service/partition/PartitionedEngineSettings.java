@@ -0,0 +1,99 @@
+package account.service.partition;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.Duration;
+
+/**
+ * Settings of {@link PartitionedAccountService}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class PartitionedEngineSettings {
+
+    /**
+     * Number of single-writer threads.
+     */
+    private final int partitions;
+
+    /**
+     * Pre-allocated requests per partition (rounded up to power of two).
+     */
+    private final int ringSize;
+
+    /**
+     * Period of handing changed accounts to database writer.
+     */
+    private final Duration flushInterval;
+
+    public PartitionedEngineSettings(Builder builder) {
+        this.partitions = builder.partitions;
+        this.ringSize = builder.ringSize;
+        this.flushInterval = builder.flushInterval;
+        Preconditions.checkArgument(partitions > 0, "Partitions count should be positive");
+        Preconditions.checkArgument(ringSize > 0, "Ring size should be positive");
+        Preconditions.checkArgument(!flushInterval.isNegative() && !flushInterval.isZero(),
+                "Flush interval should be positive");
+    }
+
+    /**
+     * Settings from {@code account.partition.*} system properties.
+     */
+    public static PartitionedEngineSettings fromSystemProperties() {
+        return new Builder()
+                .setPartitions(Integer.getInteger("account.partition.count",
+                        Runtime.getRuntime().availableProcessors()))
+                .setRingSize(Integer.getInteger("account.partition.ringSize", 1024))
+                .setFlushInterval(Duration.ofMillis(Long.getLong("account.partition.flushIntervalMillis", 50L)))
+                .build();
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public static class Builder {
+        private int partitions = Runtime.getRuntime().availableProcessors();
+        private int ringSize = 1024;
+        private Duration flushInterval = Duration.ofMillis(50);
+
+        public Builder setPartitions(int partitions) {
+            this.partitions = partitions;
+            return this;
+        }
+
+        public Builder setRingSize(int ringSize) {
+            this.ringSize = ringSize;
+            return this;
+        }
+
+        public Builder setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        public PartitionedEngineSettings build() {
+            return new PartitionedEngineSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("partitions", partitions)
+                .add("ringSize", ringSize)
+                .add("flushInterval", flushInterval)
+                .toString();
+    }
+}
@@ -0,0 +1,129 @@
+package account.service.partition;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded multi-producer single-consumer ring of pre-allocated mutable slots.
+ * <p>
+ * Producer claims sequence with {@link #next()}, fills slot {@link #get(long)} and makes it visible
+ * to consumer with {@link #publish(long)}. Producer waits while ring is full.
+ * The only consumer handles published slots in sequence order with {@link #drain(Consumer, int)}.
+ *
+ * @param <E> slot type
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class RingBuffer<E> {
+
+    private final Object[] slots;
+    private final int mask;
+    private final int shift;
+
+    /**
+     * Round number ({@code sequence >>> shift}) of the last published sequence per slot.
+     */
+    private final AtomicIntegerArray published;
+
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    /**
+     * @param capacity slots count, rounded up to power of two
+     * @param factory  creates slots once
+     */
+    public RingBuffer(int capacity, Supplier<E> factory) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Object[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = factory.get();
+        }
+        this.mask = size - 1;
+        this.shift = Integer.numberOfTrailingZeros(size);
+        this.published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Claim next sequence, waits while consumer frees a slot.
+     */
+    public long next() {
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        int idle = 0;
+        while (wrapPoint > consumed.get()) {
+            idle = IdleStrategy.idle(idle);
+        }
+        return sequence;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) slots[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> shift));
+    }
+
+    /**
+     * Handle published slots in order, not more than {@code limit} at once. Called by consumer only.
+     *
+     * @return handled slots count
+     */
+    public int drain(Consumer<E> handler, int limit) {
+        long current = consumed.get();
+        int handled = 0;
+        while (handled < limit) {
+            long sequence = current + 1;
+            if (published.get((int) sequence & mask) != (int) (sequence >>> shift)) {
+                break;
+            }
+            handler.accept(get(sequence));
+            current = sequence;
+            handled++;
+        }
+        if (handled > 0) {
+            consumed.lazySet(current);
+        }
+        return handled;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Spin, then yield, then park: short waits stay cheap, long waits do not burn a core.
+     */
+    static final class IdleStrategy {
+
+        private static final int SPINS = 100;
+        private static final int YIELDS = 200;
+
+        private IdleStrategy() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * @param idle iterations waited so far
+         * @return iterations waited after this one
+         */
+        static int idle(int idle) {
+            if (idle < SPINS) {
+                Thread.onSpinWait();
+            } else if (idle < YIELDS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(50_000);
+            }
+            return idle + 1;
+        }
+    }
+}
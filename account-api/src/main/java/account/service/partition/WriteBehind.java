@@ -0,0 +1,105 @@
+package account.service.partition;
+
+import account.model.Account;
+import account.service.db.AccountDao;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Writes accounts handed by partitions to database with one background thread.
+ * <p>
+ * Batches are written in the order they were handed, so database never goes back in time
+ * for an account (account always belongs to one partition). Failed batch is retried.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+class WriteBehind implements Consumer<List<Account>>, Runnable {
+
+    private static final Logger log = LogManager.getLogger(WriteBehind.class);
+
+    private static final long RETRY_DELAY_MILLIS = 100;
+
+    private final AccountDao accountDao;
+    private final BlockingQueue<List<Account>> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Batches handed but not written yet, guarded by this.
+     */
+    private int pending;
+
+    private volatile boolean running = true;
+
+    WriteBehind(AccountDao accountDao) {
+        this.accountDao = accountDao;
+    }
+
+    @Override
+    public void accept(List<Account> accounts) {
+        synchronized (this) {
+            pending++;
+        }
+        queue.add(accounts);
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    /**
+     * Wait until all batches handed so far are written (or dropped on stop).
+     */
+    synchronized void awaitWritten() {
+        try {
+            while (pending > 0) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running || !queue.isEmpty()) {
+                List<Account> batch = queue.poll(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    write(batch);
+                    written();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void written() {
+        if (--pending == 0) {
+            notifyAll();
+        }
+    }
+
+    private void write(List<Account> batch) throws InterruptedException {
+        while (true) {
+            try {
+                accountDao.updateAmounts(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.error("Can not write {} accounts to database on stop", batch.size(), e);
+                    return;
+                }
+                log.error("Can not write accounts to database, will retry", e);
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+}
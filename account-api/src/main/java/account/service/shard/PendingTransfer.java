@@ -0,0 +1,44 @@
+package account.service.shard;
+
+import account.model.Money;
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Cross-shard transfer prepared on shard of the sender and not finished yet.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+final class PendingTransfer {
+
+    final long id;
+    final long fromId;
+    final long toId;
+    final Money amount;
+
+    /**
+     * Commit is decided: receiver has to be credited. Not committed transfer is aborted by recovery.
+     */
+    final boolean committed;
+
+    PendingTransfer(long id, long fromId, long toId, Money amount, boolean committed) {
+        this.id = id;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.amount = amount;
+        this.committed = committed;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("id", id)
+                .add("fromId", fromId)
+                .add("toId", toId)
+                .add("amount", amount)
+                .add("committed", committed)
+                .toString();
+    }
+}
@@ -0,0 +1,98 @@
+package account.service.shard;
+
+import account.db.DatabasePopulator;
+import account.db.pool.ConnectionPool;
+import account.service.db.AccountDao;
+import account.service.db.LockContentionTracker;
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * One independent H2 database of {@link ShardedAccountService} with its own connection pool.
+ * <p>
+ * Shard of an account and of a cross-shard transfer is encoded in its id: shard sequences start
+ * at {@code MAX_SHARDS + index} and are incremented by {@link #MAX_SHARDS}, so {@code id % MAX_SHARDS}
+ * is the index of the shard that created the id. Routing never changes when shards are added.
+ *
+ * @author fbokovikov
+ */
+class Shard implements AutoCloseable {
+
+    static final int MAX_SHARDS = 1024;
+
+    private static final List<String> SCRIPTS = List.of("ACCOUNT.sql", "ACCOUNT_SHARD.sql");
+
+    private static final String TABLE_EXISTS = "" +
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'TRANSFER_OUT'";
+
+    private final int index;
+    private final ConnectionPool pool;
+    private final AccountDao accountDao;
+    private final TransferLogDao transferLogDao;
+
+    Shard(int index, ShardSettings settings, LockContentionTracker contentionTracker) {
+        this.index = index;
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL(settings.url(index));
+        ds.setUser("sa");
+        ds.setPassword("sa");
+        this.pool = new ConnectionPool(ds, settings.getPoolSettings());
+        this.accountDao = new AccountDao(pool, contentionTracker);
+        this.transferLogDao = new TransferLogDao(pool, contentionTracker);
+        populate();
+    }
+
+    /**
+     * @return index of shard of the account or transfer id
+     */
+    static int indexOf(long id) {
+        return (int) Math.floorMod(id, (long) MAX_SHARDS);
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    ConnectionPool getPool() {
+        return pool;
+    }
+
+    AccountDao getAccountDao() {
+        return accountDao;
+    }
+
+    TransferLogDao getTransferLogDao() {
+        return transferLogDao;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * Create tables and sequences of new shard, existing shard is left as is.
+     */
+    private void populate() {
+        try (var connection = pool.getConnection();
+             var statement = connection.prepareStatement(TABLE_EXISTS);
+             var rs = statement.executeQuery()
+        ) {
+            rs.next();
+            if (rs.getLong(1) > 0) {
+                return;
+            }
+            new DatabasePopulator(pool).runScripts(SCRIPTS);
+            try (var alter = connection.createStatement()) {
+                for (String sequence : List.of("S_ACCOUNT_ID", "S_TRANSFER_ID")) {
+                    alter.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (MAX_SHARDS + index)
+                            + " INCREMENT BY " + MAX_SHARDS);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("SQL Error while populating shard " + index, e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package account.service.shard;
+
+import account.db.pool.ConnectionPoolSettings;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Settings of {@link ShardedAccountService}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class ShardSettings {
+
+    /**
+     * Shards of existing and new accounts. Shards can be added (with restart), never removed.
+     */
+    private final int count;
+
+    /**
+     * Directory of shard database files, {@code null} for in-memory shards.
+     */
+    @Nullable
+    private final Path directory;
+
+    /**
+     * Name distinguishing in-memory shards of different services in one process.
+     */
+    private final String name;
+
+    /**
+     * Period of completing or aborting cross-shard transfers left by failed requests.
+     */
+    private final Duration recoveryInterval;
+
+    /**
+     * Settings of connection pool of every shard.
+     */
+    private final ConnectionPoolSettings poolSettings;
+
+    public ShardSettings(Builder builder) {
+        this.count = builder.count;
+        this.directory = builder.directory;
+        this.name = builder.name;
+        this.recoveryInterval = builder.recoveryInterval;
+        this.poolSettings = builder.poolSettings;
+        Preconditions.checkArgument(count > 0 && count <= Shard.MAX_SHARDS,
+                "Shards count should be from 1 to %s", Shard.MAX_SHARDS);
+        Preconditions.checkArgument(name != null, "Shards name should be set");
+        Preconditions.checkArgument(!recoveryInterval.isNegative() && !recoveryInterval.isZero(),
+                "Recovery interval should be positive");
+        Preconditions.checkArgument(poolSettings != null, "Pool settings should be set");
+    }
+
+    /**
+     * Settings from {@code account.shard.*} system properties, shard pools use {@code account.db.pool.*}.
+     * Without {@code account.shard.dir} shards are in-memory databases.
+     */
+    public static ShardSettings fromSystemProperties() {
+        String directory = System.getProperty("account.shard.dir");
+        return new Builder()
+                .setCount(Integer.getInteger("account.shard.count", 4))
+                .setDirectory(directory == null ? null : Paths.get(directory))
+                .setRecoveryInterval(Duration.ofMillis(Long.getLong("account.shard.recoveryIntervalMillis", 1000L)))
+                .setPoolSettings(ConnectionPoolSettings.fromSystemProperties())
+                .build();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Nullable
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Duration getRecoveryInterval() {
+        return recoveryInterval;
+    }
+
+    public ConnectionPoolSettings getPoolSettings() {
+        return poolSettings;
+    }
+
+    /**
+     * @return JDBC url of shard database
+     */
+    String url(int index) {
+        if (directory == null) {
+            //use DB_CLOSE_DELAY=-1 to keep content after closing last connection to db
+            return "jdbc:h2:mem:account-shard-" + name + "-" + index + ";DB_CLOSE_DELAY=-1";
+        }
+        return "jdbc:h2:" + directory.resolve("shard-" + index).toAbsolutePath();
+    }
+
+    public static class Builder {
+        private int count = 4;
+        private Path directory;
+        private String name = Instant.now().toString();
+        private Duration recoveryInterval = Duration.ofSeconds(1);
+        private ConnectionPoolSettings poolSettings = new ConnectionPoolSettings.Builder().build();
+
+        public Builder setCount(int count) {
+            this.count = count;
+            return this;
+        }
+
+        public Builder setDirectory(@Nullable Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder setRecoveryInterval(Duration recoveryInterval) {
+            this.recoveryInterval = recoveryInterval;
+            return this;
+        }
+
+        public Builder setPoolSettings(ConnectionPoolSettings poolSettings) {
+            this.poolSettings = poolSettings;
+            return this;
+        }
+
+        public ShardSettings build() {
+            return new ShardSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("count", count)
+                .add("directory", directory)
+                .add("name", name)
+                .add("recoveryInterval", recoveryInterval)
+                .add("poolSettings", poolSettings)
+                .toString();
+    }
+}
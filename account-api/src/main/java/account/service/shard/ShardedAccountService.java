@@ -0,0 +1,426 @@
+package account.service.shard;
+
+import account.db.pool.ConnectionPool;
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionResult;
+import account.service.AccountService;
+import account.service.AccountServiceChecks;
+import account.service.TransactionBatch;
+import account.service.TransactionBatchSettings;
+import account.service.db.LockContentionTracker;
+import account.util.LongObjectHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * {@link AccountService} over several independent H2 databases ({@link Shard shards}), account id
+ * determines its shard, so every shard has its own lock manager and storage and writes scale with shards.
+ * <ul>
+ *     <li>new accounts are spread between shards round-robin</li>
+ *     <li>deposits, withdrawals, transfers, batches and multi-leg transactions within one shard are
+ *     made by {@link account.service.db.AccountDao} of the shard, as in {@link account.service.H2AccountService}
+ *     </li>
+ *     <li>transfer between shards is made with two-phase commit, see {@link #transferBetweenShards}</li>
+ * </ul>
+ * All-or-nothing batches and multi-leg transactions spanning several shards are rejected.
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class ShardedAccountService implements AccountService, AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(ShardedAccountService.class);
+
+    private final List<Shard> shards;
+    private final TransactionBatchSettings batchSettings;
+    private final AtomicLong nextShard = new AtomicLong();
+
+    /**
+     * Cross-shard transfers in progress in this process, recovery does not touch them.
+     */
+    private final Set<Long> activeTransfers = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService recoverer;
+
+    @Inject
+    public ShardedAccountService(ShardSettings settings, TransactionBatchSettings batchSettings,
+                                 LockContentionTracker contentionTracker) {
+        this.batchSettings = batchSettings;
+        List<Shard> shards = new ArrayList<>(settings.getCount());
+        for (int i = 0; i < settings.getCount(); i++) {
+            shards.add(new Shard(i, settings, contentionTracker));
+        }
+        this.shards = List.copyOf(shards);
+        recover();
+        this.recoverer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-shard-recovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = settings.getRecoveryInterval().toMillis();
+        recoverer.scheduleWithFixedDelay(this::recoverQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Account createAccount(Money amount) {
+        AccountServiceChecks.checkInitialAmount(amount);
+        return shards.get(nextShardIndex(1)).getAccountDao().createAccount(amount);
+    }
+
+    /**
+     * Spread accounts between shards round-robin, every shard creates its part in one database transaction.
+     */
+    @Override
+    public List<Account> createAccounts(List<Money> amounts) {
+        AccountServiceChecks.checkInitialAmounts(amounts);
+        int first = nextShardIndex(amounts.size());
+        Account[] created = new Account[amounts.size()];
+        for (int offset = 0; offset < Math.min(shards.size(), amounts.size()); offset++) {
+            Shard shard = shards.get((first + offset) % shards.size());
+            List<Money> part = new ArrayList<>();
+            for (int i = offset; i < amounts.size(); i += shards.size()) {
+                part.add(amounts.get(i));
+            }
+            List<Account> accounts = shard.getAccountDao().createAccounts(part, batchSettings.getChunkSize());
+            for (int i = 0; i < accounts.size(); i++) {
+                created[offset + i * shards.size()] = accounts.get(i);
+            }
+        }
+        return Arrays.asList(created);
+    }
+
+    @Override
+    public Optional<Account> getAccount(long accountId) {
+        Shard shard = shard(accountId);
+        return shard == null ? Optional.empty() : shard.getAccountDao().getAccount(accountId);
+    }
+
+    /**
+     * Read accounts of every chunk of ids with one query per shard of the chunk. Every chunk is passed
+     * to consumer before the next one is read. At most {@code account.batch.maxSize} ids are accepted.
+     */
+    @Override
+    public void getAccounts(long[] accountIds, Consumer<Optional<Account>> consumer) {
+        AccountServiceChecks.checkAccountIds(accountIds, batchSettings.getMaxSize());
+        int chunkSize = batchSettings.getChunkSize();
+        var found = new LongObjectHashMap<Account>(Math.min(accountIds.length, chunkSize));
+        for (int from = 0; from < accountIds.length; from += chunkSize) {
+            long[] chunk = Arrays.copyOfRange(accountIds, from, Math.min(accountIds.length, from + chunkSize));
+            found.clear();
+            readChunk(chunk, found);
+            for (long accountId : chunk) {
+                consumer.accept(Optional.ofNullable(found.get(accountId)));
+            }
+        }
+    }
+
+    /**
+     * Read accounts of {@code chunk} from their shards into {@code found}.
+     */
+    private void readChunk(long[] chunk, LongObjectHashMap<Account> found) {
+        long[][] idsByShard = new long[shards.size()][];
+        int[] counts = new int[shards.size()];
+        for (long accountId : chunk) {
+            Shard shard = shard(accountId);
+            if (shard != null) {
+                counts[shard.getIndex()]++;
+            }
+        }
+        for (int i = 0; i < shards.size(); i++) {
+            idsByShard[i] = new long[counts[i]];
+            counts[i] = 0;
+        }
+        for (long accountId : chunk) {
+            Shard shard = shard(accountId);
+            if (shard != null) {
+                idsByShard[shard.getIndex()][counts[shard.getIndex()]++] = accountId;
+            }
+        }
+        for (int i = 0; i < shards.size(); i++) {
+            if (idsByShard[i].length > 0) {
+                shards.get(i).getAccountDao().getAccounts(idsByShard[i], batchSettings.getChunkSize(), found);
+            }
+        }
+    }
+
+    /**
+     * @return connection pools of shards in order of shard index
+     */
+    public List<ConnectionPool> getShardPools() {
+        return shards.stream().map(Shard::getPool).collect(Collectors.toList());
+    }
+
+    /**
+     * Merge of keyset pages of every shard: the smallest {@code limit} ids of them make the page.
+     * Amount of cross-shard transfer in progress is in escrow, neither on the sender nor on the receiver.
+     */
+    @Override
+    public List<Account> getAccountsAfter(long afterId, int limit) {
+        List<Account> merged = new ArrayList<>();
+        for (Shard shard : shards) {
+            merged.addAll(shard.getAccountDao().getAccountsAfter(afterId, limit));
+        }
+        merged.sort(Comparator.comparingLong(Account::getId));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Sum of supplies of shards and of escrow of cross-shard transfers. Shards are read one by one,
+     * so a cross-shard transfer in progress may be counted twice (after receiver is credited, before
+     * sender forgets it) or missed (between shards read); total is exact when transfers are quiet.
+     */
+    @Override
+    public Money getTotalSupply() {
+        Money total = Money.ZERO;
+        for (Shard shard : shards) {
+            total = total.plus(shard.getAccountDao().getTotalSupply())
+                    .plus(shard.getTransferLogDao().getEscrow());
+        }
+        return total;
+    }
+
+    @Override
+    public Money auditSupply(int stripe) {
+        Money discrepancy = Money.ZERO;
+        for (Shard shard : shards) {
+            discrepancy = discrepancy.plus(shard.getAccountDao().auditSupply(stripe));
+        }
+        return discrepancy;
+    }
+
+    @Override
+    public Account deposit(long accountId, Money amount) {
+        AccountServiceChecks.checkDeposit(amount);
+        return existingShard(accountId).getAccountDao().updateAmount(accountId, amount);
+    }
+
+    @Override
+    public Account withdraw(long accountId, Money amount) {
+        AccountServiceChecks.checkWithdrawal(amount);
+        return existingShard(accountId).getAccountDao().updateAmount(accountId, amount);
+    }
+
+    @Override
+    public void transaction(AccountTransaction transaction) {
+        AccountServiceChecks.checkTransaction(transaction);
+        Shard from = existingShard(transaction.getFromId());
+        Shard to = existingShard(transaction.getToId());
+        if (from == to) {
+            from.getAccountDao().transaction(transaction);
+        } else {
+            transferBetweenShards(from, to, transaction);
+        }
+    }
+
+    /**
+     * Make batch on the shard of its accounts, {@link BatchMode#PER_ITEM} batch spanning several shards
+     * is made transaction by transaction.
+     */
+    @Override
+    public List<TransactionResult> transactions(List<AccountTransaction> transactions, BatchMode mode) {
+        AccountServiceChecks.checkTransactions(transactions);
+        Shard shard = commonShard(TransactionBatch.accountIds(transactions));
+        if (shard != null) {
+            return shard.getAccountDao().transactions(transactions, mode, batchSettings.getChunkSize());
+        }
+        if (mode != BatchMode.PER_ITEM) {
+            throw new AccountApiBadRequest("Batch mode " + mode + " is not supported across shards");
+        }
+        return AccountService.super.transactions(transactions, mode);
+    }
+
+    @Override
+    public void transaction(MultiLegTransaction transaction) {
+        AccountServiceChecks.checkMultiLegTransaction(transaction);
+        Shard shard = commonShard(TransactionBatch.accountIds(transaction));
+        if (shard == null) {
+            throw new AccountApiBadRequest("Multi-leg transactions are not supported across shards");
+        }
+        shard.getAccountDao().transaction(transaction, batchSettings.getChunkSize());
+    }
+
+    /**
+     * Complete cross-shard transfers with decided commit and abort undecided ones, skipping transfers
+     * in progress. Called on start (transfers interrupted by restart) and periodically (transfers whose
+     * request failed after prepare).
+     */
+    public synchronized void recover() {
+        //votes are read before transfers: vote is written after its transfer and dropped before it
+        List<List<Long>> pendingIn = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            pendingIn.add(shard.getTransferLogDao().pendingIn());
+        }
+        Set<Long> pendingOut = new HashSet<>();
+        for (Shard shard : shards) {
+            for (PendingTransfer transfer : shard.getTransferLogDao().pendingOut()) {
+                pendingOut.add(transfer.id);
+                if (!activeTransfers.contains(transfer.id)) {
+                    recover(shard, transfer);
+                }
+            }
+        }
+        for (int i = 0; i < shards.size(); i++) {
+            for (long transferId : pendingIn.get(i)) {
+                if (!pendingOut.contains(transferId) && !activeTransfers.contains(transferId)) {
+                    //sender aborted the transfer, but the vote was written after its failure was reported
+                    log.warn("Dropping vote of aborted transfer {}", transferId);
+                    shards.get(i).getTransferLogDao().abortIn(transferId);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return records of unfinished cross-shard transfers on all shards (sender and receiver records)
+     */
+    int pendingTransfers() {
+        int pending = 0;
+        for (Shard shard : shards) {
+            pending += shard.getTransferLogDao().pendingOut().size() + shard.getTransferLogDao().pendingIn().size();
+        }
+        return pending;
+    }
+
+    /**
+     * Stop recovery and close shard connection pools.
+     */
+    @Override
+    public void close() {
+        recoverer.shutdown();
+        try {
+            recoverer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shards.forEach(Shard::close);
+    }
+
+    /**
+     * Two-phase commit coordinated by this process, both participants are durable on their shards:
+     * <ol>
+     *     <li>prepare sender shard: take amount from the sender into escrow, record prepared transfer</li>
+     *     <li>prepare receiver shard: check the receiver, record its vote</li>
+     *     <li>decide commit on sender shard (commit point), before it any failure aborts the transfer:
+     *     the vote is dropped and amount returns to the sender</li>
+     *     <li>credit the receiver and drop its vote in one local transaction, forget the transfer</li>
+     * </ol>
+     * Transfer interrupted after prepare (failure or restart) is finished by {@link #recover()}
+     * according to its decision. Until transfer is finished its amount is taken from the sender
+     * and not yet added to the receiver. No lock is held across shards, so there is no distributed deadlock.
+     */
+    private void transferBetweenShards(Shard from, Shard to, AccountTransaction transaction) {
+        if (!to.getAccountDao().getAccount(transaction.getToId()).isPresent()) {
+            throw new AccountApiBadRequest("Account not found");
+        }
+        long transferId = from.getTransferLogDao().nextTransferId();
+        activeTransfers.add(transferId);
+        try {
+            from.getTransferLogDao().prepareOut(
+                    transferId, transaction.getFromId(), transaction.getToId(), transaction.getAmount());
+            try {
+                to.getTransferLogDao().prepareIn(transferId, transaction.getToId(), transaction.getAmount());
+            } catch (RuntimeException e) {
+                to.getTransferLogDao().abortIn(transferId);
+                from.getTransferLogDao().abortOut(transferId);
+                throw e;
+            }
+            if (!from.getTransferLogDao().commitOut(transferId)) {
+                throw new IllegalStateException("Transfer " + transferId + " is aborted before commit");
+            }
+            to.getTransferLogDao().commitIn(transferId);
+            from.getTransferLogDao().forgetOut(transferId);
+        } finally {
+            activeTransfers.remove(transferId);
+        }
+    }
+
+    private void recover(Shard from, PendingTransfer transfer) {
+        Shard to = shard(transfer.toId);
+        if (transfer.committed) {
+            if (to != null) {
+                to.getTransferLogDao().commitIn(transfer.id);
+            }
+            from.getTransferLogDao().forgetOut(transfer.id);
+        } else {
+            if (to != null) {
+                to.getTransferLogDao().abortIn(transfer.id);
+            }
+            from.getTransferLogDao().abortOut(transfer.id);
+        }
+        log.info("Recovered {}", transfer);
+    }
+
+    /**
+     * @return shard of all accounts or {@code null} if they are in different shards
+     */
+    @Nullable
+    private Shard commonShard(long[] accountIds) {
+        Shard common = existingShard(accountIds[0]);
+        for (long accountId : accountIds) {
+            if (shard(accountId) != common) {
+                return null;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * @return shard of the account id, {@code null} if there is no such shard (so no such account)
+     */
+    @Nullable
+    private Shard shard(long accountId) {
+        int index = Shard.indexOf(accountId);
+        return index < shards.size() ? shards.get(index) : null;
+    }
+
+    /**
+     * @throws AccountApiBadRequest if there is no shard of the account id
+     */
+    private Shard existingShard(long accountId) {
+        Shard shard = shard(accountId);
+        if (shard == null) {
+            throw new AccountApiBadRequest("Account not found");
+        }
+        return shard;
+    }
+
+    /**
+     * @return shard of the first of {@code accounts} new accounts
+     */
+    private int nextShardIndex(int accounts) {
+        return (int) (nextShard.getAndAdd(accounts) % shards.size());
+    }
+
+    private void recoverQuietly() {
+        try {
+            recover();
+        } catch (RuntimeException e) {
+            log.error("Can not recover cross-shard transfers, will retry", e);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package account.service.shard;
+
+import account.exception.AccountApiBadRequest;
+import account.model.Money;
+import account.service.db.LockContentionTracker;
+import account.service.db.SupplyChange;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Database layer of one shard for cross-shard transfers.
+ * <p>
+ * Shard of the sender keeps {@code TRANSFER_OUT}: money taken from the sender (escrow) and the decision
+ * of the transfer ({@code PREPARED} or {@code COMMITTED}). Shard of the receiver keeps {@code TRANSFER_IN}:
+ * its vote that the receiver exists, deleted together with crediting the receiver, so the credit is made
+ * exactly once. Every method is one local database transaction, every change of account amount changes
+ * supply of the shard in the same transaction (see {@link SupplyChange}), so escrow is out of the supply.
+ *
+ * @author fbokovikov
+ */
+class TransferLogDao {
+
+    private static final String PREPARED = "PREPARED";
+    private static final String COMMITTED = "COMMITTED";
+
+    private static final String NEXT_TRANSFER_ID = "" +
+            "SELECT S_TRANSFER_ID.NEXTVAL";
+
+    private static final String LOCK_AMOUNT = "" +
+            "SELECT amount FROM account WHERE id = ? FOR UPDATE";
+
+    private static final String ACCOUNT_EXISTS = "" +
+            "SELECT COUNT(*) FROM account WHERE id = ?";
+
+    private static final String ADD_AMOUNT = "" +
+            "UPDATE account SET amount = amount + ? WHERE id = ?";
+
+    private static final String INSERT_OUT = "" +
+            "INSERT INTO transfer_out(id, from_id, to_id, amount, state) VALUES(?, ?, ?, ?, '" + PREPARED + "')";
+
+    private static final String COMMIT_OUT = "" +
+            "UPDATE transfer_out SET state = '" + COMMITTED + "' WHERE id = ? AND state = '" + PREPARED + "'";
+
+    private static final String LOCK_PREPARED_OUT = "" +
+            "SELECT from_id, amount FROM transfer_out WHERE id = ? AND state = '" + PREPARED + "' FOR UPDATE";
+
+    private static final String DELETE_OUT = "" +
+            "DELETE FROM transfer_out WHERE id = ?";
+
+    private static final String GET_OUT = "" +
+            "SELECT id, from_id, to_id, amount, state FROM transfer_out";
+
+    private static final String INSERT_IN = "" +
+            "INSERT INTO transfer_in(id, to_id, amount) VALUES(?, ?, ?)";
+
+    private static final String LOCK_IN = "" +
+            "SELECT to_id, amount FROM transfer_in WHERE id = ? FOR UPDATE";
+
+    private static final String DELETE_IN = "" +
+            "DELETE FROM transfer_in WHERE id = ?";
+
+    private static final String GET_IN_IDS = "" +
+            "SELECT id FROM transfer_in";
+
+    private static final String SUM_OUT = "" +
+            "SELECT COALESCE(SUM(amount), 0) FROM transfer_out";
+
+    private final DataSource dataSource;
+    private final LockContentionTracker contentionTracker;
+
+    TransferLogDao(DataSource dataSource, LockContentionTracker contentionTracker) {
+        this.dataSource = dataSource;
+        this.contentionTracker = contentionTracker;
+    }
+
+    /**
+     * @return id of new transfer, its shard is the shard of this dao
+     */
+    long nextTransferId() {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(NEXT_TRANSFER_ID);
+             var rs = statement.executeQuery()
+        ) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    /**
+     * Phase one on shard of the sender: take amount from the sender and record prepared transfer.
+     *
+     * @throws AccountApiBadRequest if sender is not found or has not enough amount
+     */
+    void prepareOut(long transferId, long fromId, long toId, Money amount) {
+        inTransaction(connection -> {
+            long amountBefore;
+            try (var lockStatement = connection.prepareStatement(LOCK_AMOUNT)) {
+                lockStatement.setLong(1, fromId);
+                long start = System.nanoTime();
+                try (var rs = lockStatement.executeQuery()) {
+                    contentionTracker.record(fromId, System.nanoTime() - start);
+                    if (!rs.next()) {
+                        throw new AccountApiBadRequest("Account not found");
+                    }
+                    amountBefore = rs.getLong(1);
+                }
+            }
+            if (Money.ofUnits(amountBefore).minus(amount).isNegative()) {
+                throw new AccountApiBadRequest("Not enough amount for transfer");
+            }
+            addAmount(connection, fromId, amount.negate());
+            try (var statement = connection.prepareStatement(INSERT_OUT)) {
+                statement.setLong(1, transferId);
+                statement.setLong(2, fromId);
+                statement.setLong(3, toId);
+                statement.setLong(4, amount.getUnits());
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Phase one on shard of the receiver: record that receiver is ready to be credited.
+     *
+     * @throws AccountApiBadRequest if receiver is not found
+     */
+    void prepareIn(long transferId, long toId, Money amount) {
+        inTransaction(connection -> {
+            try (var statement = connection.prepareStatement(ACCOUNT_EXISTS)) {
+                statement.setLong(1, toId);
+                try (var rs = statement.executeQuery()) {
+                    rs.next();
+                    if (rs.getLong(1) == 0) {
+                        throw new AccountApiBadRequest("Account not found");
+                    }
+                }
+            }
+            try (var statement = connection.prepareStatement(INSERT_IN)) {
+                statement.setLong(1, transferId);
+                statement.setLong(2, toId);
+                statement.setLong(3, amount.getUnits());
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Record commit decision on shard of the sender, the commit point of the transfer.
+     *
+     * @return {@code false} if transfer is not prepared (it was aborted)
+     */
+    boolean commitOut(long transferId) {
+        return inTransaction(connection -> update(connection, COMMIT_OUT, transferId) == 1);
+    }
+
+    /**
+     * Phase two on shard of the receiver: credit receiver and forget prepared transfer.
+     *
+     * @return {@code false} if transfer is not prepared on this shard (receiver is already credited)
+     */
+    boolean commitIn(long transferId) {
+        return inTransaction(connection -> {
+            try (var statement = connection.prepareStatement(LOCK_IN)) {
+                statement.setLong(1, transferId);
+                try (var rs = statement.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    addAmount(connection, rs.getLong("to_id"), Money.ofUnits(rs.getLong("amount")));
+                }
+            }
+            update(connection, DELETE_IN, transferId);
+            return true;
+        });
+    }
+
+    /**
+     * Abort on shard of the receiver: forget prepared transfer without credit.
+     */
+    void abortIn(long transferId) {
+        inTransaction(connection -> update(connection, DELETE_IN, transferId));
+    }
+
+    /**
+     * Abort on shard of the sender: return amount to the sender if commit is not decided.
+     *
+     * @return {@code false} if transfer is not prepared (it is committed or already aborted)
+     */
+    boolean abortOut(long transferId) {
+        return inTransaction(connection -> {
+            try (var statement = connection.prepareStatement(LOCK_PREPARED_OUT)) {
+                statement.setLong(1, transferId);
+                try (var rs = statement.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    addAmount(connection, rs.getLong("from_id"), Money.ofUnits(rs.getLong("amount")));
+                }
+            }
+            update(connection, DELETE_OUT, transferId);
+            return true;
+        });
+    }
+
+    /**
+     * Forget committed transfer after receiver is credited.
+     */
+    void forgetOut(long transferId) {
+        inTransaction(connection -> update(connection, DELETE_OUT, transferId));
+    }
+
+    /**
+     * @return transfers prepared on this shard as the shard of the sender
+     */
+    List<PendingTransfer> pendingOut() {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(GET_OUT);
+             var rs = statement.executeQuery()
+        ) {
+            List<PendingTransfer> transfers = new ArrayList<>();
+            while (rs.next()) {
+                transfers.add(new PendingTransfer(
+                        rs.getLong("id"),
+                        rs.getLong("from_id"),
+                        rs.getLong("to_id"),
+                        Money.ofUnits(rs.getLong("amount")),
+                        COMMITTED.equals(rs.getString("state"))
+                ));
+            }
+            return transfers;
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    /**
+     * @return ids of transfers prepared on this shard as the shard of the receiver
+     */
+    List<Long> pendingIn() {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(GET_IN_IDS);
+             var rs = statement.executeQuery()
+        ) {
+            List<Long> ids = new ArrayList<>();
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+            return ids;
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    /**
+     * @return money taken from senders of this shard by transfers not forgotten yet
+     */
+    Money getEscrow() {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(SUM_OUT);
+             var rs = statement.executeQuery()
+        ) {
+            rs.next();
+            return Money.ofUnits(rs.getLong(1));
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    private <T> T inTransaction(SqlFunction<T> work) {
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.apply(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
+                throw new RuntimeException("SQL Exception", e);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception", e);
+        }
+    }
+
+    private static void addAmount(Connection connection, long accountId, Money amount) throws SQLException {
+        try (var statement = connection.prepareStatement(ADD_AMOUNT)) {
+            statement.setLong(1, amount.getUnits());
+            statement.setLong(2, accountId);
+            statement.executeUpdate();
+        }
+        new SupplyChange().add(accountId, amount).apply(connection);
+    }
+
+    private static int update(Connection connection, String sql, long transferId) throws SQLException {
+        try (var statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, transferId);
+            return statement.executeUpdate();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlFunction<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+}
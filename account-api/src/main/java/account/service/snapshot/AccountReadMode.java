@@ -0,0 +1,26 @@
+package account.service.snapshot;
+
+/**
+ * Where {@code H2} and {@code GROUP_COMMIT} engines read account balances from.
+ *
+ * @author fbokovikov
+ */
+public enum AccountReadMode {
+
+    /**
+     * Read balances from database with the pooled connections of writers.
+     */
+    DATABASE,
+
+    /**
+     * Read balances from {@link CommittedAccounts}, see {@link SnapshotAccountService}.
+     */
+    SNAPSHOT;
+
+    /**
+     * Mode from {@code account.read.mode} system property, {@link #DATABASE} by default.
+     */
+    public static AccountReadMode fromSystemProperties() {
+        return valueOf(System.getProperty("account.read.mode", DATABASE.name()).toUpperCase());
+    }
+}
@@ -0,0 +1,141 @@
+package account.service.snapshot;
+
+import account.metrics.Histogram;
+import account.model.Account;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Versioned in-memory copy of committed account balances.
+ * <p>
+ * {@link account.service.db.AccountDao} publishes after-images of accounts right after every commit:
+ * <ul>
+ *     <li>version is taken with {@link #nextVersion()} while rows of the accounts are still locked,
+ *     so versions of one account grow in its commit order</li>
+ *     <li>published account replaces the current copy only if its version is newer, so publications
+ *     racing after commit never bring an older amount back</li>
+ *     <li>accounts read from database on miss are {@link #load loaded} with version {@code 0},
+ *     any publication replaces them</li>
+ * </ul>
+ * Readers never lock: every read sees the latest published amount of an account. A commit is not visible
+ * until it is published, so staleness is bounded by the time from commit start to publication,
+ * recorded in {@link #getPublishLag()}.
+ * <p>
+ * Disabled copy keeps nothing, its methods do nothing.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class CommittedAccounts {
+
+    private final boolean enabled;
+    private final ConcurrentMap<Long, Version> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final Histogram publishLag = new Histogram();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CommittedAccounts(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static CommittedAccounts disabled() {
+        return new CommittedAccounts(false);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return version for accounts of a transaction, taken while the accounts are locked
+     */
+    public long nextVersion() {
+        return enabled ? versions.incrementAndGet() : 0;
+    }
+
+    public void publish(Account account, long version, long commitStartNanos) {
+        publish(List.of(account), version, commitStartNanos);
+    }
+
+    /**
+     * Publish accounts changed by committed transaction.
+     *
+     * @param version          {@link #nextVersion()} taken before commit
+     * @param commitStartNanos {@link System#nanoTime()} before commit, start of staleness window
+     */
+    public void publish(Collection<Account> changed, long version, long commitStartNanos) {
+        if (!enabled) {
+            return;
+        }
+        for (Account account : changed) {
+            accounts.merge(account.getId(), new Version(account, version),
+                    (current, published) -> current.version > published.version ? current : published);
+        }
+        publishLag.record(System.nanoTime() - commitStartNanos);
+    }
+
+    /**
+     * Keep account read from database, unless it is published meanwhile.
+     */
+    public void load(Account account) {
+        if (enabled) {
+            accounts.putIfAbsent(account.getId(), new Version(account, 0));
+        }
+    }
+
+    /**
+     * @return latest published amount of account or {@code null} if it is neither published nor loaded
+     */
+    @Nullable
+    public Account get(long accountId) {
+        Version version = accounts.get(accountId);
+        if (version == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return version.account;
+    }
+
+    /**
+     * Time from commit start to publication, the staleness bound of reads.
+     */
+    public Histogram getPublishLag() {
+        return publishLag;
+    }
+
+    public long getVersion() {
+        return versions.get();
+    }
+
+    public long getSize() {
+        return accounts.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static final class Version {
+
+        final Account account;
+        final long version;
+
+        Version(Account account, long version) {
+            this.account = account;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package account.service.snapshot;
+
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.model.TransactionResult;
+import account.service.AccountService;
+import account.service.AccountServiceChecks;
+import account.service.TransactionBatchSettings;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * {@link AccountService} serving reads from {@link CommittedAccounts}, so balance reads never wait
+ * for row locks or pooled connections of writers.
+ * <p>
+ * Writes go to the delegate as is, its {@link account.service.db.AccountDao} publishes every commit.
+ * Accounts which are neither published nor loaded yet are read from delegate once and kept.
+ * Absent accounts are always read from delegate.
+ *
+ * @author fbokovikov
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class SnapshotAccountService implements AccountService, AutoCloseable {
+
+    /**
+     * Name of {@link AccountService} binding behind the snapshot reads.
+     */
+    public static final String DELEGATE = "account.snapshot.delegate";
+
+    private final AccountService delegate;
+    private final CommittedAccounts committedAccounts;
+    private final TransactionBatchSettings batchSettings;
+
+    @Inject
+    public SnapshotAccountService(@Named(DELEGATE) AccountService delegate, CommittedAccounts committedAccounts,
+                                  TransactionBatchSettings batchSettings) {
+        this.delegate = delegate;
+        this.committedAccounts = committedAccounts;
+        this.batchSettings = batchSettings;
+    }
+
+    @Override
+    public Account createAccount(Money amount) {
+        return delegate.createAccount(amount);
+    }
+
+    @Override
+    public List<Account> createAccounts(List<Money> amounts) {
+        return delegate.createAccounts(amounts);
+    }
+
+    @Override
+    public Optional<Account> getAccount(long accountId) {
+        Account committed = committedAccounts.get(accountId);
+        if (committed != null) {
+            return Optional.of(committed);
+        }
+        Optional<Account> account = delegate.getAccount(accountId);
+        account.ifPresent(committedAccounts::load);
+        return account;
+    }
+
+    /**
+     * Ids are taken by chunks of {@code account.batch.chunkSize}: committed accounts of a chunk are passed as is,
+     * the rest are read from delegate with one call, then the chunk is passed to consumer.
+     */
+    @Override
+    public void getAccounts(long[] accountIds, Consumer<Optional<Account>> consumer) {
+        AccountServiceChecks.checkAccountIds(accountIds, batchSettings.getMaxSize());
+        int chunkSize = batchSettings.getChunkSize();
+        for (int from = 0; from < accountIds.length; from += chunkSize) {
+            getChunk(Arrays.copyOfRange(accountIds, from, Math.min(accountIds.length, from + chunkSize)))
+                    .forEach(consumer);
+        }
+    }
+
+    private List<Optional<Account>> getChunk(long[] accountIds) {
+        List<Optional<Account>> accounts = new ArrayList<>(accountIds.length);
+        long[] missed = new long[accountIds.length];
+        int misses = 0;
+        for (long accountId : accountIds) {
+            Account committed = committedAccounts.get(accountId);
+            if (committed == null) {
+                missed[misses++] = accountId;
+            }
+            accounts.add(Optional.ofNullable(committed));
+        }
+        if (misses == 0) {
+            return accounts;
+        }
+        List<Optional<Account>> loaded = delegate.getAccounts(Arrays.copyOf(missed, misses));
+        int miss = 0;
+        for (int i = 0; i < accountIds.length; i++) {
+            if (!accounts.get(i).isPresent()) {
+                Optional<Account> account = loaded.get(miss++);
+                account.ifPresent(committedAccounts::load);
+                accounts.set(i, account);
+            }
+        }
+        return accounts;
+    }
+
+    @Override
+    public List<Account> getAccountsAfter(long afterId, int limit) {
+        return delegate.getAccountsAfter(afterId, limit);
+    }
+
+    @Override
+    public Money getTotalSupply() {
+        return delegate.getTotalSupply();
+    }
+
+    @Override
+    public Money auditSupply(int stripe) {
+        return delegate.auditSupply(stripe);
+    }
+
+    @Override
+    public Account deposit(long accountId, Money amount) {
+        return delegate.deposit(accountId, amount);
+    }
+
+    @Override
+    public Account withdraw(long accountId, Money amount) {
+        return delegate.withdraw(accountId, amount);
+    }
+
+    @Override
+    public void transaction(AccountTransaction transaction) {
+        delegate.transaction(transaction);
+    }
+
+    @Override
+    public void transaction(MultiLegTransaction transaction) {
+        delegate.transaction(transaction);
+    }
+
+    @Override
+    public List<TransactionResult> transactions(List<AccountTransaction> transactions, BatchMode mode) {
+        return delegate.transactions(transactions, mode);
+    }
+
+    /**
+     * @return service behind the snapshot reads (the engine)
+     */
+    public AccountService getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+}
@@ -1,8 +1,20 @@
-CREATE SEQUENCE S_ACCOUNT_ID;
+CREATE SEQUENCE S_ACCOUNT_ID CACHE 1024;
 
 CREATE TABLE ACCOUNT (
-  ID NUMBER DEFAULT S_ACCOUNT_ID.NEXTVAL NOT NULL,
-  AMOUNT NUMBER NOT NULL
+  ID BIGINT DEFAULT S_ACCOUNT_ID.NEXTVAL NOT NULL,
+  AMOUNT BIGINT NOT NULL,
+  SUPPLY_STRIPE INT AS MOD(ID + ID / 1024, 256)
 );
 
-ALTER TABLE ACCOUNT ADD CONSTRAINT PK_ACCOUNT_ID PRIMARY KEY (ID);
\ No newline at end of file
+ALTER TABLE ACCOUNT ADD CONSTRAINT PK_ACCOUNT_ID PRIMARY KEY (ID);
+
+CREATE INDEX I_ACCOUNT_SUPPLY_STRIPE ON ACCOUNT (SUPPLY_STRIPE);
+
+CREATE TABLE ACCOUNT_SUPPLY (
+  STRIPE INT NOT NULL,
+  AMOUNT BIGINT NOT NULL
+);
+
+ALTER TABLE ACCOUNT_SUPPLY ADD CONSTRAINT PK_ACCOUNT_SUPPLY_STRIPE PRIMARY KEY (STRIPE);
+
+INSERT INTO ACCOUNT_SUPPLY (STRIPE, AMOUNT) SELECT X - 1, 0 FROM SYSTEM_RANGE(1, 256);
@@ -0,0 +1,19 @@
+CREATE SEQUENCE S_TRANSFER_ID CACHE 1024;
+
+CREATE TABLE TRANSFER_OUT (
+  ID BIGINT NOT NULL,
+  FROM_ID BIGINT NOT NULL,
+  TO_ID BIGINT NOT NULL,
+  AMOUNT BIGINT NOT NULL,
+  STATE VARCHAR(16) NOT NULL
+);
+
+ALTER TABLE TRANSFER_OUT ADD CONSTRAINT PK_TRANSFER_OUT_ID PRIMARY KEY (ID);
+
+CREATE TABLE TRANSFER_IN (
+  ID BIGINT NOT NULL,
+  TO_ID BIGINT NOT NULL,
+  AMOUNT BIGINT NOT NULL
+);
+
+ALTER TABLE TRANSFER_IN ADD CONSTRAINT PK_TRANSFER_IN_ID PRIMARY KEY (ID);
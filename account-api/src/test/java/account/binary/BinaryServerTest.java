@@ -0,0 +1,125 @@
+package account.binary;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.module.UnitTestModule;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for {@link BinaryServer} with {@link BinaryClient}.
+ *
+ * @author fbokovikov
+ */
+public class BinaryServerTest {
+
+    private static BinaryServer server;
+    private static BinaryClient client;
+
+    @BeforeAll
+    static void start() throws IOException {
+        Injector injector = Guice.createInjector(new UnitTestModule(AccountEngine.GROUP_COMMIT));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        server = new BinaryServer(
+                injector.getInstance(AccountService.class),
+                new BinaryServerSettings.Builder()
+                        .setPort(0)
+                        .setWorkers(8)
+                        .setMaxInFlight(16)
+                        .build()
+        );
+        server.start();
+        client = new BinaryClient(new InetSocketAddress("localhost", server.getPort()));
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Operations return the same results as account service")
+    void operations() {
+        Account created = client.createAccount(Money.of("10.5")).join();
+        long accountId = created.getId();
+        Assertions.assertEquals(Money.of("10.5"), created.getAmount());
+        Assertions.assertEquals(Money.of("13"), client.deposit(accountId, Money.of("2.5")).join().getAmount());
+        Assertions.assertEquals(Money.of("12"), client.withdraw(accountId, Money.of("-1")).join().getAmount());
+
+        long otherId = client.createAccount(Money.ZERO).join().getId();
+        client.transaction(transaction(accountId, otherId, "2")).join();
+        Assertions.assertEquals(Money.of("10"), client.getAccount(accountId).join().getAmount());
+        Assertions.assertEquals(Money.of("2"), client.getAccount(otherId).join().getAmount());
+    }
+
+    @Test
+    @DisplayName("Rejected requests fail with the same messages as http api")
+    void rejected() {
+        long accountId = client.createAccount(Money.of("1")).join().getId();
+        assertBadRequest("Account not found", client.getAccount(100_000L));
+        assertBadRequest("Can not create account with negative amount", client.createAccount(Money.of("-1")));
+        assertBadRequest("Expecting amount less than 0 for withdrawal", client.withdraw(accountId, Money.of("1")));
+        assertBadRequest("Not enough amount for transfer", client.withdraw(accountId, Money.of("-2")));
+        assertBadRequest("From should be different with to", client.transaction(transaction(accountId, accountId, "1")));
+        assertBadRequest("Account id should be positive", client.transaction(transaction(-1L, accountId, "1")));
+    }
+
+    @Test
+    @DisplayName("Pipelined requests over max in flight are all served")
+    void pipelining() {
+        long accountId = client.createAccount(Money.ZERO).join().getId();
+        List<CompletableFuture<Account>> deposits = IntStream.range(0, 2000)
+                .mapToObj(i -> client.deposit(accountId, Money.of("1")))
+                .collect(Collectors.toList());
+        deposits.forEach(CompletableFuture::join);
+        Assertions.assertEquals(Money.of("2000"), client.getAccount(accountId).join().getAmount());
+    }
+
+    @Test
+    @DisplayName("Malformed frame closes connection, other connections are served")
+    void malformedFrame() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(1_000_000);
+            out.flush();
+            Assertions.assertEquals(-1, new DataInputStream(socket.getInputStream()).read());
+        }
+        Assertions.assertNotNull(client.createAccount(Money.ZERO).join());
+    }
+
+    private static void assertBadRequest(String message, CompletableFuture<?> result) {
+        CompletionException exception = Assertions.assertThrows(CompletionException.class, result::join);
+        Assertions.assertTrue(exception.getCause() instanceof AccountApiBadRequest);
+        Assertions.assertEquals(message, exception.getCause().getMessage());
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, String amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package account.controller;
+
+import account.db.DatabasePopulator;
+import account.model.Money;
+import account.module.UnitTestModule;
+import account.service.AccountService;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Unit tests for {@link AccountExportRoute}.
+ *
+ * @author fbokovikov
+ */
+public class AccountExportRouteTest {
+
+    private static final Injector INJECTOR = Guice.createInjector(new UnitTestModule());
+
+    private static AccountService accountService;
+
+    @BeforeAll
+    static void initDb() {
+        INJECTOR.getInstance(DatabasePopulator.class).populateDbTables();
+        accountService = INJECTOR.getInstance(AccountService.class);
+        accountService.createAccounts(List.of(Money.of("1"), Money.of("2.5"), Money.of("3"), Money.of("4")));
+    }
+
+    @Test
+    @DisplayName("Every account is one json line, pages are followed to the end")
+    void ndjson() throws IOException {
+        var route = new AccountExportRoute(accountService, 2);
+        var out = new ByteArrayOutputStream();
+
+        long exported = route.export(accountService.getAccountsAfter(1L, 2), out);
+
+        Assertions.assertEquals(3, exported);
+        Assertions.assertEquals("{\"id\":2,\"amount\":2.5}\n{\"id\":3,\"amount\":3}\n{\"id\":4,\"amount\":4}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Gzipped export is a complete gzip stream")
+    void gzip() throws IOException {
+        var route = new AccountExportRoute(accountService, 3);
+        var out = new ByteArrayOutputStream();
+
+        route.export(accountService.getAccountsAfter(0L, 3), new GZIPOutputStream(out, 64, true));
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            Assertions.assertEquals(4, text.split("\n").length);
+            Assertions.assertTrue(text.startsWith("{\"id\":1,\"amount\":1}\n"));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package account.controller;
+
+import account.db.DatabasePopulator;
+import account.model.Money;
+import account.module.UnitTestModule;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import account.service.cache.AccountCacheSettings;
+import account.service.db.AccountDaoMode;
+import account.service.shard.ShardedAccountService;
+import account.service.snapshot.AccountReadMode;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Unit tests for {@link MetricsController}.
+ *
+ * @author fbokovikov
+ */
+public class MetricsControllerTest {
+
+    @Test
+    @DisplayName("Statement cache hits and misses are exported")
+    void statementCache() {
+        Injector injector = injector(new UnitTestModule(AccountEngine.H2));
+        AccountService accountService = injector.getInstance(AccountService.class);
+        long accountId = accountService.createAccount(Money.of("10")).getId();
+        for (int i = 0; i < 3; i++) {
+            accountService.deposit(accountId, Money.of("1"));
+        }
+
+        String text = injector.getInstance(MetricsController.class).render();
+
+        Assertions.assertTrue(sample(text, "account_jdbc_statement_cache_total{result=\"hit\"}") > 0, text);
+        Assertions.assertTrue(sample(text, "account_jdbc_statement_cache_total{result=\"miss\"}") > 0, text);
+    }
+
+    @Test
+    @DisplayName("Cache hits, misses and evictions are exported when cache is enabled")
+    void cache() {
+        Injector injector = injector(new UnitTestModule(
+                AccountEngine.H2,
+                new AccountCacheSettings.Builder().setMaxSize(1).build()
+        ));
+        AccountService accountService = injector.getInstance(AccountService.class);
+        long first = accountService.createAccount(Money.of("10")).getId();
+        long second = accountService.createAccount(Money.of("10")).getId();
+        accountService.getAccount(first);
+        accountService.getAccount(first);
+        accountService.getAccount(second);
+
+        String text = injector.getInstance(MetricsController.class).render();
+
+        Assertions.assertEquals(1, sample(text, "account_cache_reads_total{result=\"hit\"}"), text);
+        Assertions.assertEquals(2, sample(text, "account_cache_reads_total{result=\"miss\"}"), text);
+        Assertions.assertEquals(1, sample(text, "account_cache_evictions_total"), text);
+        Assertions.assertEquals(1, sample(text, "account_cache_accounts"), text);
+        Assertions.assertFalse(injector(new UnitTestModule(AccountEngine.H2)).getInstance(MetricsController.class)
+                .render().contains("account_cache_"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(AccountReadMode.class)
+    @DisplayName("Group commit sizes are exported for group commit engine")
+    void groupCommit(AccountReadMode readMode) {
+        Injector injector = injector(new UnitTestModule(AccountEngine.GROUP_COMMIT, AccountDaoMode.LOCKING, readMode));
+        AccountService accountService = injector.getInstance(AccountService.class);
+        long accountId = accountService.createAccount(Money.of("10")).getId();
+        accountService.deposit(accountId, Money.of("1"));
+        accountService.deposit(accountId, Money.of("1"));
+
+        String text = injector.getInstance(MetricsController.class).render();
+
+        Assertions.assertEquals(2, sample(text, "account_group_commit_size_count"), text);
+        Assertions.assertEquals(2, sample(text, "account_group_commit_size_bucket{le=\"1\"}"), text);
+        Assertions.assertFalse(injector(new UnitTestModule(AccountEngine.H2)).getInstance(MetricsController.class)
+                .render().contains("account_group_commit_"));
+    }
+
+    @Test
+    @DisplayName("JDBC and pool metrics of every shard are exported with shard label")
+    void shards() {
+        Injector injector = injector(new UnitTestModule(AccountEngine.SHARDED));
+        try (ShardedAccountService accountService = injector.getInstance(ShardedAccountService.class)) {
+            long accountId = accountService.createAccount(Money.of("10")).getId();
+            accountService.deposit(accountId, Money.of("1"));
+
+            String text = injector.getInstance(MetricsController.class).render();
+
+            double commits = 0;
+            double misses = 0;
+            for (int i = 0; i < accountService.getShardPools().size(); i++) {
+                String shard = "shard=\"" + i + "\"";
+                commits += sample(text, "account_jdbc_commits_total{" + shard + "}");
+                misses += sample(text, "account_jdbc_statement_cache_total{" + shard + ",result=\"miss\"}");
+                sample(text, "account_db_pool_connections{" + shard + ",state=\"idle\"}");
+            }
+            Assertions.assertTrue(commits >= 2, text);
+            Assertions.assertTrue(misses > 0, text);
+            sample(text, "account_jdbc_commits_total");
+        }
+    }
+
+    private static Injector injector(UnitTestModule module) {
+        Injector injector = Guice.createInjector(module);
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        return injector;
+    }
+
+    /**
+     * @return value of the sample with {@code nameAndLabels}
+     */
+    private static double sample(String text, String nameAndLabels) {
+        for (String line : text.split("\n")) {
+            if (line.startsWith(nameAndLabels + " ")) {
+                return Double.parseDouble(line.substring(nameAndLabels.length() + 1));
+            }
+        }
+        throw new AssertionError("No sample " + nameAndLabels + " in\n" + text);
+    }
+}
@@ -0,0 +1,161 @@
+package account.controller.dto;
+
+import account.exception.AccountApiBadRequest;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for {@link AccountTransactionParser}.
+ *
+ * @author fbokovikov
+ */
+public class AccountTransactionParserTest {
+
+    @Test
+    @DisplayName("Fields in any order, ids and amounts as numbers or strings, unknown fields are skipped")
+    void parseTransaction() throws IOException {
+        AccountTransactionDTO transaction = AccountTransactionParser.parseTransaction(body(
+                " {\"amount\": \"10.25\", \"comment\": {\"text\": \"\u0437\u0430 \u043e\u0431\u0435\u0434 \\\" ok\","
+                        + " \"tags\": [1, null, true]},"
+                        + " \"toId\": 200, \"fromId\": \"100\"} "
+        ));
+        Assertions.assertEquals(100L, transaction.getFromId().longValue());
+        Assertions.assertEquals(200L, transaction.getToId().longValue());
+        Assertions.assertEquals(Money.of("10.25"), transaction.getAmount());
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidTransactions")
+    @DisplayName("Invalid transaction requests")
+    void invalidTransaction(String body, String message) {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> AccountTransactionParser.parseTransaction(body(body))
+        );
+        Assertions.assertEquals(message, exception.getMessage());
+    }
+
+    static Stream<Arguments> invalidTransactions() {
+        return Stream.of(
+                Arguments.of("", "Transaction is not present in request"),
+                Arguments.of("null", "Transaction is not present in request"),
+                Arguments.of("{\"fromId\": 1, \"toId\": 2, \"amount\": 1", "Bad json data"),
+                Arguments.of("{\"fromId\": 1 \"toId\": 2, \"amount\": 1}", "Bad json data"),
+                Arguments.of("{\"fromId\": 1, \"toId\": 2, \"amount\": 1} {}", "Bad json data"),
+                Arguments.of("{\"toId\": 2, \"amount\": 1}", "Account id is not present"),
+                Arguments.of("{\"fromId\": 1, \"toId\": 2}", "Amount is not present in request"),
+                Arguments.of("{\"fromId\": 1.5, \"toId\": 2, \"amount\": 1}", "Bad account id"),
+                Arguments.of("{\"fromId\": 1, \"toId\": 2, \"amount\": 1e3}", "Bad amount format"),
+                Arguments.of("{\"fromId\": 300, \"toId\": 300, \"amount\": 1}", "From should be different with to"),
+                // rejected as soon as field is read, broken rest of request is not reached
+                Arguments.of("{\"fromId\": -1, #", "Account id should be positive"),
+                Arguments.of("{\"amount\": 0, #", "Transaction amount should be positive")
+        );
+    }
+
+    @Test
+    @DisplayName("Batch longer than reader buffer")
+    void parseBatch() throws IOException {
+        String transactions = IntStream.range(0, 5000)
+                .mapToObj(i -> "{\"fromId\": " + (i + 1) + ", \"toId\": " + (i + 2) + ", \"amount\": " + i + ".5}")
+                .collect(Collectors.joining(",\n"));
+        AccountTransactionBatchDTO batch = AccountTransactionParser.parseBatch(
+                body("{\"transactions\": [" + transactions + "], \"mode\": \"ALL_OR_NOTHING\"}"),
+                5000
+        );
+        Assertions.assertEquals(BatchMode.ALL_OR_NOTHING, batch.getMode());
+        Assertions.assertEquals(5000, batch.getTransactions().size());
+        AccountTransactionDTO last = batch.getTransactions().get(4999);
+        Assertions.assertEquals(5000L, last.getFromId().longValue());
+        Assertions.assertEquals(Money.of("4999.5"), last.getAmount());
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidBatches")
+    @DisplayName("Invalid batch requests")
+    void invalidBatch(String body, String message) {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> AccountTransactionParser.parseBatch(body(body), 2)
+        );
+        Assertions.assertEquals(message, exception.getMessage());
+    }
+
+    static Stream<Arguments> invalidBatches() {
+        String transaction = "{\"fromId\": 1, \"toId\": 2, \"amount\": 1}";
+        return Stream.of(
+                Arguments.of("", "Transactions are not present in request"),
+                Arguments.of("{\"mode\": \"PER_ITEM\"}", "Transactions are not present in request"),
+                Arguments.of("{\"mode\": \"PER_ITEM\", \"transactions\": []}", "Transactions are not present in request"),
+                Arguments.of("{\"mode\": \"SOME\", \"transactions\": [" + transaction + "]}",
+                        "Unknown batch mode SOME"),
+                Arguments.of("{\"transactions\": [" + transaction + "]}", "Batch mode is not present in request"),
+                Arguments.of("{\"mode\": \"PER_ITEM\", \"transactions\": [" + transaction + ", null]}",
+                        "Transaction #1: Transaction is not present"),
+                Arguments.of("{\"transactions\": [" + transaction + ", {\"fromId\": 0, #",
+                        "Transaction #1: Account id should be positive"),
+                Arguments.of("{\"transactions\": [" + transaction + ", " + transaction + ", " + transaction + ", #",
+                        "Too many transactions in batch, max is 2"),
+                Arguments.of("{\"transactions\": [" + transaction + ", {\"fromId\": 1 \"toId\": 2}]}",
+                        "Bad json data")
+        );
+    }
+
+    @Test
+    @DisplayName("Multi-leg transaction keeps legs in request order, negative amounts debit accounts")
+    void parseMultiLegTransaction() throws IOException {
+        MultiLegTransaction transaction = AccountTransactionParser.parseMultiLegTransaction(body(
+                "{\"legs\": [{\"accountId\": 1, \"amount\": -30}, {\"amount\": \"12.5\", \"accountId\": \"2\"},"
+                        + " {\"accountId\": 3, \"amount\": 17.5, \"memo\": \"tip\"}]}"
+        ), 3);
+        Assertions.assertEquals(3, transaction.getLegs().size());
+        Assertions.assertEquals(1L, transaction.getLegs().get(0).getAccountId());
+        Assertions.assertEquals(Money.of("-30"), transaction.getLegs().get(0).getAmount());
+        Assertions.assertEquals(2L, transaction.getLegs().get(1).getAccountId());
+        Assertions.assertEquals(Money.of("17.5"), transaction.getLegs().get(2).getAmount());
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidMultiLegTransactions")
+    @DisplayName("Invalid multi-leg transaction requests")
+    void invalidMultiLegTransaction(String body, String message) {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> AccountTransactionParser.parseMultiLegTransaction(body(body), 2)
+        );
+        Assertions.assertEquals(message, exception.getMessage());
+    }
+
+    static Stream<Arguments> invalidMultiLegTransactions() {
+        String leg = "{\"accountId\": 1, \"amount\": -1}";
+        return Stream.of(
+                Arguments.of("", "Legs are not present in request"),
+                Arguments.of("{\"legs\": []}", "Legs are not present in request"),
+                Arguments.of("{\"legs\": [" + leg + ", null]}", "Leg #1: Leg is not present"),
+                Arguments.of("{\"legs\": [" + leg + ", {\"accountId\": 2}]}",
+                        "Leg #1: Amount is not present in request"),
+                Arguments.of("{\"legs\": [" + leg + ", {\"amount\": 0, #", "Leg #1: Leg amount should not be zero"),
+                Arguments.of("{\"legs\": [" + leg + ", " + leg + ", " + leg + ", #",
+                        "Too many legs in transaction, max is 2")
+        );
+    }
+
+    private static InputStream body(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,13 +1,13 @@
 package account.controller.dto;
 
 import account.exception.AccountApiBadRequest;
+import account.model.Money;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
-import java.math.BigDecimal;
 import java.util.stream.Stream;
 
 /**
@@ -29,12 +29,12 @@ public class AccountTransactionValidatorTest {
 
     static Stream<Arguments> invalidArgs() {
         return Stream.of(
-                Arguments.of(new AccountTransactionDTO(10L, 10L, BigDecimal.ONE)),
-                Arguments.of(new AccountTransactionDTO(10L, 15L, BigDecimal.ZERO)),
-                Arguments.of(new AccountTransactionDTO(10L, 15L, BigDecimal.ONE.negate())),
-                Arguments.of(new AccountTransactionDTO(-10L, 15L, BigDecimal.ONE)),
-                Arguments.of(new AccountTransactionDTO(10L, -15L, BigDecimal.ONE)),
-                Arguments.of(new AccountTransactionDTO(-10L, -15L, BigDecimal.ZERO))
+                Arguments.of(new AccountTransactionDTO(10L, 10L, Money.of("1"))),
+                Arguments.of(new AccountTransactionDTO(10L, 15L, Money.ZERO)),
+                Arguments.of(new AccountTransactionDTO(10L, 15L, Money.of("1").negate())),
+                Arguments.of(new AccountTransactionDTO(-10L, 15L, Money.of("1"))),
+                Arguments.of(new AccountTransactionDTO(10L, -15L, Money.of("1"))),
+                Arguments.of(new AccountTransactionDTO(-10L, -15L, Money.ZERO))
         );
     }
 
@@ -49,7 +49,7 @@ public class AccountTransactionValidatorTest {
 
     static Stream<Arguments> validArgs() {
         return Stream.of(
-                Arguments.of(new AccountTransactionDTO(10L, 15L, BigDecimal.ONE))
+                Arguments.of(new AccountTransactionDTO(10L, 15L, Money.of("1")))
         );
     }
 }
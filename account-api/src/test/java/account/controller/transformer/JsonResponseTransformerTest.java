@@ -0,0 +1,131 @@
+package account.controller.transformer;
+
+import account.controller.dto.AccountLookupResultDTO;
+import account.controller.dto.AccountTransactionBatchResultDTO;
+import account.controller.dto.AccountTransactionDTO;
+import account.model.Account;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.ResponseError;
+import account.model.TransactionResult;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for {@link JsonResponseTransformer}.
+ *
+ * @author fbokovikov
+ */
+public class JsonResponseTransformerTest {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Money.class, new MoneyTypeAdapter())
+            .disableHtmlEscaping()
+            .create();
+
+    private static final JsonResponseTransformer TRANSFORMER = new JsonResponseTransformer();
+
+    @ParameterizedTest
+    @MethodSource("responses")
+    @DisplayName("Hand-written serializers write the same json as Gson")
+    void sameAsGson(Object response) {
+        Assertions.assertEquals(GSON.toJson(response), TRANSFORMER.render(response));
+    }
+
+    static Stream<Arguments> responses() {
+        return Stream.of(
+                Arguments.of(account(1L, "10.5")),
+                Arguments.of(List.of(account(1L, "0"), account(2L, "-0.0001"))),
+                Arguments.of(new AccountTransactionDTO(1L, 2L, Money.of("4"))),
+                Arguments.of(new AccountTransactionDTO(1L, null, null)),
+                Arguments.of(new ResponseError("Not enough amount for transfer")),
+                Arguments.of(new AccountTransactionBatchResultDTO(
+                        BatchMode.PER_ITEM,
+                        List.of(TransactionResult.applied(), TransactionResult.rejected("Account not found"))
+                ))
+        );
+    }
+
+    @Test
+    @DisplayName("Strings are escaped and encoded as UTF-8")
+    void escaping() {
+        String message = "\"quoted\" \\ tab\t new\nline, été € 💰";
+        String json = TRANSFORMER.render(new ResponseError(message));
+        Assertions.assertEquals(
+                "{\"message\":\"\\\"quoted\\\" \\\\ tab\\u0009 new\\u000aline, été € 💰\"}",
+                json
+        );
+        Assertions.assertEquals(message, GSON.fromJson(json, ErrorMessage.class).message);
+    }
+
+    @Test
+    @DisplayName("Response larger than writer buffer is streamed in parts")
+    void largeResponse() throws IOException {
+        List<Account> accounts = LongStream.rangeClosed(1, 10_000)
+                .mapToObj(id -> account(id, id + ".25"))
+                .collect(Collectors.toList());
+        CountingOutputStream out = new CountingOutputStream();
+        TRANSFORMER.render(accounts, out);
+
+        Assertions.assertTrue(out.writes > 10, "Response should be written in many parts");
+        Assertions.assertEquals(GSON.toJson(accounts), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Multi-get results are written while accounts are read, counts follow them")
+    void lookupStreaming() throws IOException {
+        long[] accountIds = LongStream.rangeClosed(1, 10_000).toArray();
+        CountingOutputStream out = new CountingOutputStream();
+        int[] writesAtHalf = {0};
+        TRANSFORMER.render(new AccountLookupResultDTO(accountIds, (ids, consumer) -> {
+            for (long id : ids) {
+                if (id == ids.length / 2) {
+                    writesAtHalf[0] = out.writes;
+                }
+                consumer.accept(id % 2 == 0 ? Optional.of(account(id, "1")) : Optional.empty());
+            }
+        }), out);
+
+        Assertions.assertTrue(writesAtHalf[0] > 0, "Read results should be written before the rest are read");
+        String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        Assertions.assertTrue(json.startsWith("{\"accounts\":[{\"id\":1,\"error\":\"Account not found\"},"
+                + "{\"id\":2,\"amount\":1},"), json.substring(0, 100));
+        Assertions.assertTrue(json.endsWith("{\"id\":10000,\"amount\":1}],\"found\":5000,\"missing\":5000}"));
+    }
+
+    private static Account account(long id, String amount) {
+        return new Account.Builder()
+                .setId(id)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+
+    private static class ErrorMessage {
+        private String message;
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+        private int writes;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+    }
+}
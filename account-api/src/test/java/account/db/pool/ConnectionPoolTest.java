@@ -0,0 +1,204 @@
+package account.db.pool;
+
+import account.exception.AccountApiUnavailable;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Unit tests for {@link ConnectionPool}.
+ *
+ * @author fbokovikov
+ */
+public class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void initPool() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:pool-test" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        ds.setPassword("sa");
+        pool = new ConnectionPool(
+                ds,
+                new ConnectionPoolSettings.Builder()
+                        .setMinSize(1)
+                        .setMaxSize(2)
+                        .setAcquireTimeout(Duration.ofMillis(50))
+                        .build()
+        );
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Min size connections are opened on start")
+    void prefilled() {
+        Assertions.assertEquals(1, pool.getIdle());
+        Assertions.assertEquals(0, pool.getActive());
+    }
+
+    @Test
+    @DisplayName("Closed connection returns to the pool")
+    void reuse() throws SQLException {
+        Connection first = pool.getConnection();
+        Connection physical = first.unwrap(Connection.class);
+        Assertions.assertEquals(1, pool.getActive());
+        first.close();
+
+        Assertions.assertTrue(first.isClosed());
+        Assertions.assertEquals(0, pool.getActive());
+        try (Connection second = pool.getConnection()) {
+            Assertions.assertSame(physical, second.unwrap(Connection.class));
+        }
+        Assertions.assertEquals(2, pool.getAcquireLatency().getCount());
+    }
+
+    @Test
+    @DisplayName("Exhausted pool fails fast")
+    void exhausted() throws SQLException {
+        try (Connection ignored1 = pool.getConnection();
+             Connection ignored2 = pool.getConnection()
+        ) {
+            Assertions.assertThrows(AccountApiUnavailable.class, () -> pool.getConnection());
+            Assertions.assertEquals(1, pool.getTimeouts());
+            Assertions.assertEquals(0, pool.getWaiters());
+        }
+        Assertions.assertEquals(2, pool.getIdle());
+    }
+
+    @Test
+    @DisplayName("Uncommitted work is rolled back on return")
+    void rollbackOnReturn() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             var statement = connection.createStatement()
+        ) {
+            statement.execute("CREATE TABLE t(id INT)");
+        }
+        try (Connection connection = pool.getConnection();
+             var statement = connection.createStatement()
+        ) {
+            connection.setAutoCommit(false);
+            statement.execute("INSERT INTO t VALUES(1)");
+        }
+        try (Connection connection = pool.getConnection();
+             var statement = connection.createStatement();
+             var rs = statement.executeQuery("SELECT COUNT(*) FROM t")
+        ) {
+            Assertions.assertTrue(connection.getAutoCommit());
+            rs.next();
+            Assertions.assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Prepared statements are reused by the next borrower")
+    void statementCache() throws SQLException {
+        String sql = "SELECT ? FROM DUAL";
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = pool.getConnection();
+                 var statement = connection.prepareStatement(sql)
+            ) {
+                statement.setInt(1, i);
+                try (var rs = statement.executeQuery()) {
+                    rs.next();
+                    Assertions.assertEquals(i, rs.getInt(1));
+                }
+            }
+        }
+        Assertions.assertEquals(1, pool.getStatementCacheMisses());
+        Assertions.assertEquals(2, pool.getStatementCacheHits());
+    }
+
+    @Test
+    @DisplayName("Same statement borrowed twice on one connection is not shared")
+    void nestedStatements() throws SQLException {
+        String sql = "SELECT ? FROM DUAL";
+        try (Connection connection = pool.getConnection();
+             var first = connection.prepareStatement(sql);
+             var second = connection.prepareStatement(sql)
+        ) {
+            first.setInt(1, 1);
+            second.setInt(1, 2);
+            try (var rs1 = first.executeQuery(); var rs2 = second.executeQuery()) {
+                rs1.next();
+                rs2.next();
+                Assertions.assertEquals(1, rs1.getInt(1));
+                Assertions.assertEquals(2, rs2.getInt(1));
+            }
+        }
+        Assertions.assertEquals(2, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    @DisplayName("Statements return borrowed connection, closing it returns connection to the pool")
+    void statementConnection() throws SQLException {
+        Connection connection = pool.getConnection();
+        Connection physical = connection.unwrap(Connection.class);
+        try (var prepared = connection.prepareStatement("SELECT 1 FROM DUAL");
+             var created = connection.createStatement();
+             var call = connection.prepareCall("CALL 1")
+        ) {
+            Assertions.assertSame(connection, prepared.getConnection());
+            Assertions.assertSame(connection, created.getConnection());
+            Assertions.assertSame(connection, call.getConnection());
+
+            created.getConnection().close();
+        }
+
+        Assertions.assertTrue(connection.isClosed());
+        Assertions.assertFalse(physical.isClosed());
+        Assertions.assertEquals(0, pool.getActive());
+        try (Connection second = pool.getConnection()) {
+            Assertions.assertSame(physical, second.unwrap(Connection.class));
+        }
+    }
+
+    @Test
+    @DisplayName("Statements, locking selects, commits and rollbacks are counted")
+    void jdbcMetrics() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             var statement = connection.createStatement()
+        ) {
+            statement.execute("CREATE TABLE t(id INT PRIMARY KEY)");
+            statement.execute("INSERT INTO t VALUES(1)");
+        }
+        JdbcMetrics metrics = pool.getJdbcMetrics();
+        for (boolean commit : new boolean[]{true, false}) {
+            try (Connection connection = pool.getConnection();
+                 var lock = connection.prepareStatement("SELECT id FROM t WHERE id = ? FOR UPDATE")
+            ) {
+                connection.setAutoCommit(false);
+                lock.setInt(1, 1);
+                lock.executeQuery().close();
+                if (commit) {
+                    connection.commit();
+                }
+            }
+        }
+        try (Connection connection = pool.getConnection();
+             var select = connection.prepareStatement("SELECT id FROM t")
+        ) {
+            connection.setAutoCommit(false);
+            select.executeQuery().close();
+            connection.rollback();
+        }
+
+        //two statements of table setup, three prepared selects
+        Assertions.assertEquals(5, metrics.getStatementTime().getCount());
+        Assertions.assertEquals(2, metrics.getLockTime().getCount());
+        Assertions.assertEquals(1, metrics.getCommits());
+        Assertions.assertEquals(2, metrics.getRollbacks());
+    }
+}
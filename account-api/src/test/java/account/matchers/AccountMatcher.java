@@ -20,7 +20,7 @@ public class AccountMatcher extends TypeSafeMatcher<Account> {
     @Override
     protected boolean matchesSafely(Account that) {
         return Objects.equals(account.getId(), that.getId()) &&
-                Objects.equals(account.getAmount().doubleValue(), that.getAmount().doubleValue());
+                Objects.equals(account.getAmount(), that.getAmount());
     }
 
     @Override
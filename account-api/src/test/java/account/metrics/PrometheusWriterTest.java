@@ -0,0 +1,69 @@
+package account.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link PrometheusWriter}.
+ *
+ * @author fbokovikov
+ */
+public class PrometheusWriterTest {
+
+    @Test
+    @DisplayName("Counter with labels")
+    void counter() {
+        String text = new PrometheusWriter()
+                .header("requests_total", "counter", "Requests.")
+                .sample("requests_total", PrometheusWriter.label("route", "/accounts/:accountId"), 3)
+                .toString();
+
+        Assertions.assertEquals("# HELP requests_total Requests.\n"
+                + "# TYPE requests_total counter\n"
+                + "requests_total{route=\"/accounts/:accountId\"} 3\n", text);
+    }
+
+    @Test
+    @DisplayName("Label values are escaped")
+    void escaping() {
+        Assertions.assertEquals("path=\"a\\\\b\\\"c\\n\"", PrometheusWriter.label("path", "a\\b\"c\n"));
+    }
+
+    @Test
+    @DisplayName("Histogram of nanos is exposed in seconds with cumulative buckets")
+    void histogram() {
+        Histogram histogram = new Histogram();
+        histogram.record(50_000);
+        histogram.record(3_000_000);
+        histogram.record(20_000_000_000L);
+
+        String text = new PrometheusWriter().nanosHistogram("latency_seconds", "", histogram).toString();
+
+        Assertions.assertTrue(text.contains("latency_seconds_bucket{le=\"0.0001\"} 1\n"), text);
+        Assertions.assertTrue(text.contains("latency_seconds_bucket{le=\"0.005\"} 2\n"), text);
+        Assertions.assertTrue(text.contains("latency_seconds_bucket{le=\"10\"} 2\n"), text);
+        Assertions.assertTrue(text.contains("latency_seconds_bucket{le=\"+Inf\"} 3\n"), text);
+        Assertions.assertTrue(text.contains("latency_seconds_sum 20.00305\n"), text);
+        Assertions.assertTrue(text.contains("latency_seconds_count 3\n"), text);
+    }
+
+    @Test
+    @DisplayName("Histogram of sizes is exposed with given buckets")
+    void sizeHistogram() {
+        Histogram histogram = new Histogram();
+        histogram.record(1);
+        histogram.record(3);
+        histogram.record(4);
+        histogram.record(100);
+
+        String text = new PrometheusWriter().histogram("group_size", "", histogram, new long[]{1, 4, 16}).toString();
+
+        Assertions.assertTrue(text.contains("group_size_bucket{le=\"1\"} 1\n"), text);
+        Assertions.assertTrue(text.contains("group_size_bucket{le=\"4\"} 3\n"), text);
+        Assertions.assertTrue(text.contains("group_size_bucket{le=\"16\"} 3\n"), text);
+        Assertions.assertTrue(text.contains("group_size_bucket{le=\"+Inf\"} 4\n"), text);
+        Assertions.assertTrue(text.contains("group_size_sum 108\n"), text);
+        Assertions.assertTrue(text.contains("group_size_count 4\n"), text);
+    }
+}
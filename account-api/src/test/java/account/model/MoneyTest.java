@@ -0,0 +1,97 @@
+package account.model;
+
+import account.controller.transformer.JsonRequestTransformer;
+import account.controller.transformer.JsonResponseTransformer;
+import account.exception.AccountApiBadRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for {@link Money}.
+ *
+ * @author fbokovikov
+ */
+public class MoneyTest {
+
+    @ParameterizedTest
+    @MethodSource("validArgs")
+    @DisplayName("Plain decimals are parsed exactly and printed without trailing zeros")
+    void parseAndPrint(String value, long units, String printed) {
+        Money money = Money.of(value);
+        Assertions.assertEquals(units, money.getUnits());
+        Assertions.assertEquals(printed, money.toString());
+    }
+
+    static Stream<Arguments> validArgs() {
+        return Stream.of(
+                Arguments.of("0", 0L, "0"),
+                Arguments.of("10", 100_000L, "10"),
+                Arguments.of("15.10", 151_000L, "15.1"),
+                Arguments.of("0.0001", 1L, "0.0001"),
+                Arguments.of("-0.05", -500L, "-0.05"),
+                Arguments.of("+7.5000000", 75_000L, "7.5"),
+                Arguments.of(".5", 5_000L, "0.5")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidArgs")
+    @DisplayName("Bad amounts are rejected with bad request")
+    void parseImpossible(String value, String errorMessage) {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> Money.of(value)
+        );
+        Assertions.assertEquals(errorMessage, exception.getMessage());
+    }
+
+    static Stream<Arguments> invalidArgs() {
+        return Stream.of(
+                Arguments.of("", "Bad amount format"),
+                Arguments.of("-", "Bad amount format"),
+                Arguments.of("1e5", "Bad amount format"),
+                Arguments.of("1.2.3", "Bad amount format"),
+                Arguments.of("0.00001", "Amount should have not more than 4 fraction digits"),
+                Arguments.of("922337203685478", "Amount is too big")
+        );
+    }
+
+    @Test
+    @DisplayName("Arithmetic is exact and overflow-checked")
+    void arithmetic() {
+        Assertions.assertEquals(Money.of("115.6"), Money.of("15.10").plus(Money.of("100.50")));
+        Assertions.assertEquals(Money.of("0.3"), Money.of("0.1").plus(Money.of("0.2")));
+        Assertions.assertTrue(Money.of("1").minus(Money.of("1.0001")).isNegative());
+        Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> Money.ofUnits(Long.MAX_VALUE).plus(Money.ofUnits(1))
+        );
+    }
+
+    @Test
+    @DisplayName("Negation is overflow-checked")
+    void negate() {
+        Assertions.assertEquals(Money.of("-15.1"), Money.of("15.10").negate());
+        Assertions.assertEquals(Money.ofUnits(-Long.MAX_VALUE), Money.ofUnits(Long.MAX_VALUE).negate());
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> Money.ofUnits(Long.MIN_VALUE).negate()
+        );
+        Assertions.assertEquals("Amount is too big", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Json keeps amount as plain number")
+    void json() {
+        Account account = new Account.Builder().setId(1L).setAmount(Money.of("10.50")).build();
+        Assertions.assertEquals("{\"id\":1,\"amount\":10.5}", new JsonResponseTransformer().render(account));
+        Account parsed = new JsonRequestTransformer().parseBody("{\"id\":1,\"amount\":0.1}", Account.class);
+        Assertions.assertEquals(Money.of("0.1"), parsed.getAmount());
+    }
+}
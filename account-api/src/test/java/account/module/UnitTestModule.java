@@ -2,6 +2,10 @@ package account.module;
 
 import account.modules.AccountServiceModule;
 import account.modules.DataSourceModule;
+import account.service.AccountEngine;
+import account.service.cache.AccountCacheSettings;
+import account.service.db.AccountDaoMode;
+import account.service.snapshot.AccountReadMode;
 import com.google.inject.AbstractModule;
 
 /**
@@ -9,9 +13,50 @@ import com.google.inject.AbstractModule;
  */
 public class UnitTestModule extends AbstractModule {
 
+    private final AccountEngine engine;
+    private final AccountDaoMode daoMode;
+    private final AccountCacheSettings cacheSettings;
+    private final AccountReadMode readMode;
+
+    public UnitTestModule() {
+        this(AccountEngine.H2, AccountDaoMode.LOCKING);
+    }
+
+    public UnitTestModule(AccountDaoMode daoMode) {
+        this(AccountEngine.H2, daoMode);
+    }
+
+    public UnitTestModule(AccountEngine engine) {
+        this(engine, AccountDaoMode.LOCKING);
+    }
+
+    public UnitTestModule(AccountEngine engine, AccountDaoMode daoMode) {
+        this(engine, daoMode, AccountCacheSettings.disabled());
+    }
+
+    public UnitTestModule(AccountEngine engine, AccountCacheSettings cacheSettings) {
+        this(engine, AccountDaoMode.LOCKING, cacheSettings);
+    }
+
+    public UnitTestModule(AccountEngine engine, AccountDaoMode daoMode, AccountCacheSettings cacheSettings) {
+        this(engine, daoMode, cacheSettings, AccountReadMode.DATABASE);
+    }
+
+    public UnitTestModule(AccountEngine engine, AccountDaoMode daoMode, AccountReadMode readMode) {
+        this(engine, daoMode, AccountCacheSettings.disabled(), readMode);
+    }
+
+    public UnitTestModule(AccountEngine engine, AccountDaoMode daoMode, AccountCacheSettings cacheSettings,
+                          AccountReadMode readMode) {
+        this.engine = engine;
+        this.daoMode = daoMode;
+        this.cacheSettings = cacheSettings;
+        this.readMode = readMode;
+    }
+
     @Override
     protected void configure() {
         install(new DataSourceModule());
-        install(new AccountServiceModule());
+        install(new AccountServiceModule(engine, daoMode, cacheSettings, readMode));
     }
 }
@@ -0,0 +1,153 @@
+package account.service;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiBadRequest;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.TransactionResult;
+import account.module.UnitTestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit-tests on {@link AccountService#transactions(List, BatchMode)}.
+ *
+ * @author fbokovikov
+ */
+public class AccountServiceBatchTest {
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "MEMORY", "JOURNAL"})
+    @DisplayName("All-or-nothing batch sees results of its earlier transactions")
+    void allOrNothing(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "10", "0", "0");
+        List<TransactionResult> results = accountService.transactions(
+                List.of(transaction(1L, 2L, "10"), transaction(2L, 3L, "7.5")),
+                BatchMode.ALL_OR_NOTHING
+        );
+        Assertions.assertTrue(results.stream().allMatch(TransactionResult::isApplied));
+        assertAmounts(accountService, "0", "2.5", "7.5");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "MEMORY", "JOURNAL"})
+    @DisplayName("Rejected transaction rolls back the whole all-or-nothing batch")
+    void allOrNothingRejected(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "10", "0", "0");
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.transactions(
+                        List.of(transaction(1L, 2L, "5"), transaction(2L, 3L, "6"), transaction(1L, 3L, "1")),
+                        BatchMode.ALL_OR_NOTHING
+                )
+        );
+        Assertions.assertEquals("Transaction #1: Not enough amount for transfer", exception.getMessage());
+        assertAmounts(accountService, "10", "0", "0");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "MEMORY", "JOURNAL"})
+    @DisplayName("Per-item batch is applied chunk by chunk with result for every transaction")
+    void perItem(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "2", "0", "0");
+        List<AccountTransaction> transactions = new ArrayList<>(Collections.nCopies(2500, transaction(1L, 2L, "0.001")));
+        transactions.add(transaction(1L, 100L, "1"));
+        List<TransactionResult> results = accountService.transactions(transactions, BatchMode.PER_ITEM);
+
+        Assertions.assertEquals(transactions.size(), results.size());
+        Assertions.assertEquals(2000, results.stream().filter(TransactionResult::isApplied).count());
+        Assertions.assertFalse(results.get(2000).isApplied());
+        Assertions.assertEquals("Not enough amount for transfer", results.get(2000).getMessage());
+        Assertions.assertEquals("Account not found", results.get(2500).getMessage());
+        assertAmounts(accountService, "0", "2", "0");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "MEMORY", "JOURNAL"})
+    @DisplayName("Per-item transaction overflowing receiver in a later chunk is rejected alone")
+    void perItemOverflow(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "3", "0", "922337203685477");
+        List<AccountTransaction> transactions = new ArrayList<>(Collections.nCopies(1200, transaction(1L, 2L, "0.001")));
+        transactions.add(transaction(1L, 3L, "1"));
+        transactions.addAll(Collections.nCopies(299, transaction(1L, 2L, "0.001")));
+        List<TransactionResult> results = accountService.transactions(transactions, BatchMode.PER_ITEM);
+
+        Assertions.assertEquals(transactions.size(), results.size());
+        Assertions.assertEquals(1499, results.stream().filter(TransactionResult::isApplied).count());
+        Assertions.assertFalse(results.get(1200).isApplied());
+        Assertions.assertEquals("Amount is too big", results.get(1200).getMessage());
+        assertAmounts(accountService, "1.501", "1.499", "922337203685477");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "MEMORY", "JOURNAL"})
+    @DisplayName("Invalid transaction rejects batch before anything is applied")
+    void invalidTransaction(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "10", "0", "0");
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.transactions(
+                        List.of(transaction(1L, 2L, "1"), transaction(2L, 2L, "1")),
+                        BatchMode.PER_ITEM
+                )
+        );
+        Assertions.assertEquals("Transaction #1: Accounts should be different for transaction", exception.getMessage());
+        assertAmounts(accountService, "10", "0", "0");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "MEMORY", "JOURNAL"})
+    @DisplayName("Opposite parallel batches do not deadlock and keep total amount")
+    void parallelBatches(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "1000", "1000", "1000");
+        List<CompletableFuture<List<TransactionResult>>> batches = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> accountService.transactions(
+                        IntStream.range(0, 300)
+                                .mapToObj(j -> transaction(1L + (i + j) % 3, 1L + (i + j + 1 + i % 2) % 3, "1"))
+                                .collect(Collectors.toList()),
+                        i % 2 == 0 ? BatchMode.ALL_OR_NOTHING : BatchMode.PER_ITEM
+                )))
+                .collect(Collectors.toList());
+        batches.forEach(CompletableFuture::join);
+        Money total = IntStream.rangeClosed(1, 3)
+                .mapToObj(id -> accountService.getAccount(id).get().getAmount())
+                .reduce(Money.ZERO, Money::plus);
+        Assertions.assertEquals(Money.of("3000"), total);
+    }
+
+    private static AccountService accountService(AccountEngine engine, String... amounts) {
+        Injector injector = Guice.createInjector(new UnitTestModule(engine));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        AccountService accountService = injector.getInstance(AccountService.class);
+        for (String amount : amounts) {
+            accountService.createAccount(Money.of(amount));
+        }
+        return accountService;
+    }
+
+    private static void assertAmounts(AccountService accountService, String... amounts) {
+        for (int i = 0; i < amounts.length; i++) {
+            Assertions.assertEquals(Money.of(amounts[i]), accountService.getAccount(i + 1).get().getAmount());
+        }
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, String amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+}
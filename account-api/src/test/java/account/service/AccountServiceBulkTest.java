@@ -0,0 +1,68 @@
+package account.service;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.Money;
+import account.module.UnitTestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit-tests on {@link AccountService#createAccounts(List)}.
+ *
+ * @author fbokovikov
+ */
+public class AccountServiceBulkTest {
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "MEMORY", "PARTITIONED", "JOURNAL"})
+    @DisplayName("Accounts are created in order of amounts")
+    void createAccounts(AccountEngine engine) {
+        AccountService accountService = accountService(engine);
+        Account single = accountService.createAccount(Money.of("1"));
+        List<Money> amounts = IntStream.range(0, 2500)
+                .mapToObj(i -> Money.of(i + ".5"))
+                .collect(Collectors.toList());
+        List<Account> accounts = accountService.createAccounts(amounts);
+        Account next = accountService.createAccount(Money.of("2"));
+
+        Assertions.assertEquals(amounts.size(), accounts.size());
+        long previousId = single.getId();
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            Assertions.assertTrue(account.getId() > previousId, "Ids should grow in order of amounts");
+            Assertions.assertEquals(amounts.get(i), account.getAmount());
+            previousId = account.getId();
+        }
+        Assertions.assertTrue(next.getId() > previousId);
+        Assertions.assertEquals(Money.of("1234.5"), accountService.getAccount(accounts.get(1234).getId()).get().getAmount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "MEMORY", "PARTITIONED", "JOURNAL"})
+    @DisplayName("Invalid amount rejects the whole request")
+    void invalidAmount(AccountEngine engine) {
+        AccountService accountService = accountService(engine);
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.createAccounts(List.of(Money.of("1"), Money.of("-1")))
+        );
+        Assertions.assertEquals("Account #1: Can not create account with negative amount", exception.getMessage());
+        Assertions.assertFalse(accountService.getAccount(1L).isPresent());
+    }
+
+    private static AccountService accountService(AccountEngine engine) {
+        Injector injector = Guice.createInjector(new UnitTestModule(engine));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        return injector.getInstance(AccountService.class);
+    }
+}
@@ -0,0 +1,70 @@
+package account.service;
+
+import account.db.DatabasePopulator;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.module.UnitTestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit-tests on {@link AccountService#getAccountsAfter(long, int)}.
+ *
+ * @author fbokovikov
+ */
+public class AccountServiceExportTest {
+
+    @ParameterizedTest
+    @EnumSource(AccountEngine.class)
+    @DisplayName("Pages after the last id of previous page list every account once in id order with current amount")
+    void pages(AccountEngine engine) {
+        AccountService accountService = accountService(engine);
+        List<Account> created = accountService.createAccounts(IntStream.range(1, 11)
+                .mapToObj(i -> Money.of(String.valueOf(i)))
+                .collect(Collectors.toList()));
+        accountService.deposit(created.get(0).getId(), Money.of("100"));
+        accountService.transaction(new AccountTransaction.Builder()
+                .setFromId(created.get(9).getId())
+                .setToId(created.get(4).getId())
+                .setAmount(Money.of("3"))
+                .build());
+
+        List<Account> exported = new ArrayList<>();
+        List<Account> page;
+        long afterId = 0;
+        do {
+            page = accountService.getAccountsAfter(afterId, 4);
+            Assertions.assertTrue(page.size() <= 4);
+            exported.addAll(page);
+            afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+        } while (page.size() == 4);
+
+        Assertions.assertEquals(
+                created.stream().map(Account::getId).sorted().collect(Collectors.toList()),
+                exported.stream().map(Account::getId).collect(Collectors.toList())
+        );
+        for (Account account : exported) {
+            Assertions.assertEquals(accountService.getAccount(account.getId()).get().getAmount(), account.getAmount());
+        }
+        Assertions.assertEquals(Money.of("101"), exported.stream()
+                .filter(account -> account.getId() == created.get(0).getId())
+                .findFirst().get().getAmount());
+        Assertions.assertTrue(accountService.getAccountsAfter(afterId, 4).isEmpty());
+    }
+
+    private static AccountService accountService(AccountEngine engine) {
+        Injector injector = Guice.createInjector(new UnitTestModule(engine));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        return injector.getInstance(AccountService.class);
+    }
+}
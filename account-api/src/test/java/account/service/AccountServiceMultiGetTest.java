@@ -0,0 +1,75 @@
+package account.service;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.Money;
+import account.module.UnitTestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Unit-tests on {@link AccountService#getAccounts(long[])}.
+ *
+ * @author fbokovikov
+ */
+public class AccountServiceMultiGetTest {
+
+    @ParameterizedTest
+    //ids of sharded engine are not sequential, its multi-get is tested by ShardedAccountServiceTest
+    @EnumSource(value = AccountEngine.class, mode = EnumSource.Mode.EXCLUDE, names = "SHARDED")
+    @DisplayName("Accounts are returned in order of ids, missing ids are empty")
+    void getAccounts(AccountEngine engine) {
+        AccountService accountService = accountService(engine);
+        List<Account> created = accountService.createAccounts(IntStream.range(0, 2500)
+                .mapToObj(i -> Money.of(String.valueOf(i)))
+                .collect(Collectors.toList()));
+        long lastId = created.get(created.size() - 1).getId();
+        long[] accountIds = LongStream.concat(
+                LongStream.rangeClosed(1, lastId).map(id -> lastId + 1 - id),
+                LongStream.of(lastId + 1, 1L, -1L)
+        ).toArray();
+
+        List<Optional<Account>> accounts = accountService.getAccounts(accountIds);
+
+        Assertions.assertEquals(accountIds.length, accounts.size());
+        for (int i = 0; i < created.size(); i++) {
+            Account account = accounts.get(i).get();
+            Assertions.assertEquals(accountIds[i], account.getId());
+            Assertions.assertEquals(Money.of(String.valueOf(lastId - i - 1)), account.getAmount());
+        }
+        Assertions.assertFalse(accounts.get(created.size()).isPresent());
+        Assertions.assertEquals(Money.ZERO, accounts.get(created.size() + 1).get().getAmount());
+        Assertions.assertFalse(accounts.get(created.size() + 2).isPresent());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "SHARDED"})
+    @DisplayName("Number of ids is bounded by max batch size")
+    void tooManyIds(AccountEngine engine) {
+        AccountService accountService = accountService(engine);
+        int maxSize = new TransactionBatchSettings.Builder().build().getMaxSize();
+
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.getAccounts(new long[maxSize + 1])
+        );
+        Assertions.assertEquals("Too many account ids in request, max is " + maxSize, exception.getMessage());
+    }
+
+    private static AccountService accountService(AccountEngine engine) {
+        Injector injector = Guice.createInjector(new UnitTestModule(engine));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        return injector.getInstance(AccountService.class);
+    }
+}
@@ -0,0 +1,142 @@
+package account.service;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiBadRequest;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.module.UnitTestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit-tests on {@link AccountService#transaction(MultiLegTransaction)}.
+ *
+ * @author fbokovikov
+ */
+public class AccountServiceMultiLegTest {
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "GROUP_COMMIT", "MEMORY", "JOURNAL"})
+    @DisplayName("Split payment changes every account by net amount of its legs")
+    void split(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "30", "10", "0", "5");
+        accountService.transaction(new MultiLegTransaction.Builder()
+                .addLeg(1L, Money.of("-30"))
+                .addLeg(2L, Money.of("10"))
+                .addLeg(3L, Money.of("12.5"))
+                .addLeg(2L, Money.of("-15"))
+                .addLeg(4L, Money.of("22.5"))
+                .build());
+        assertAmounts(accountService, "0", "5", "12.5", "27.5");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "GROUP_COMMIT", "MEMORY", "JOURNAL"})
+    @DisplayName("Rejected leg leaves all accounts unchanged")
+    void rejected(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "30", "10", "0");
+        AccountApiBadRequest notEnough = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.transaction(new MultiLegTransaction.Builder()
+                        .addLeg(1L, Money.of("-20"))
+                        .addLeg(2L, Money.of("-11"))
+                        .addLeg(3L, Money.of("31"))
+                        .build())
+        );
+        Assertions.assertEquals("Not enough amount for transfer", notEnough.getMessage());
+        AccountApiBadRequest notFound = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.transaction(new MultiLegTransaction.Builder()
+                        .addLeg(1L, Money.of("-20"))
+                        .addLeg(100L, Money.of("20"))
+                        .build())
+        );
+        Assertions.assertEquals("Account not found", notFound.getMessage());
+        assertAmounts(accountService, "30", "10", "0");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "MEMORY", "JOURNAL", "PARTITIONED"})
+    @DisplayName("Invalid transaction is rejected before accounts are read")
+    void invalid(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "30", "10");
+        assertRejected(accountService, "Expecting at least 2 legs in transaction",
+                new MultiLegTransaction.Builder().addLeg(1L, Money.of("-1")));
+        assertRejected(accountService, "Leg #1: Leg amount should not be zero",
+                new MultiLegTransaction.Builder().addLeg(1L, Money.of("-1")).addLeg(2L, Money.ZERO));
+        assertRejected(accountService, "Accounts should be different for transaction",
+                new MultiLegTransaction.Builder().addLeg(1L, Money.of("-1")).addLeg(1L, Money.of("1")));
+        assertRejected(accountService, "Legs of transaction should net to zero, total is 0.5",
+                new MultiLegTransaction.Builder().addLeg(1L, Money.of("-1")).addLeg(2L, Money.of("1.5")));
+        assertAmounts(accountService, "30", "10");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"PARTITIONED"})
+    @DisplayName("Engine without atomic multi-account changes rejects multi-leg transaction")
+    void unsupported(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "30", "10");
+        assertRejected(accountService, "Multi-leg transactions are not supported by account engine",
+                new MultiLegTransaction.Builder().addLeg(1L, Money.of("-1")).addLeg(2L, Money.of("1")));
+        assertAmounts(accountService, "30", "10");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "GROUP_COMMIT", "MEMORY", "JOURNAL"})
+    @DisplayName("Parallel overlapping multi-leg transactions do not deadlock and keep total amount")
+    void parallel(AccountEngine engine) {
+        AccountService accountService = accountService(engine, "1000", "1000", "1000", "1000");
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Void>> transactions = IntStream.range(0, 400)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> accountService.transaction(
+                        new MultiLegTransaction.Builder()
+                                .addLeg(1L + (i + 3) % 4, Money.of("-3"))
+                                .addLeg(1L + (i + 2) % 4, Money.of("1"))
+                                .addLeg(1L + i % 4, Money.of("2"))
+                                .build()
+                ), executorService))
+                .collect(Collectors.toList());
+        transactions.forEach(CompletableFuture::join);
+        executorService.shutdown();
+        Money total = IntStream.rangeClosed(1, 4)
+                .mapToObj(id -> accountService.getAccount(id).get().getAmount())
+                .reduce(Money.ZERO, Money::plus);
+        Assertions.assertEquals(Money.of("4000"), total);
+    }
+
+    private static void assertRejected(AccountService accountService, String message,
+                                       MultiLegTransaction.Builder transaction) {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.transaction(transaction.build())
+        );
+        Assertions.assertEquals(message, exception.getMessage());
+    }
+
+    private static AccountService accountService(AccountEngine engine, String... amounts) {
+        Injector injector = Guice.createInjector(new UnitTestModule(engine));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        AccountService accountService = injector.getInstance(AccountService.class);
+        for (String amount : amounts) {
+            accountService.createAccount(Money.of(amount));
+        }
+        return accountService;
+    }
+
+    private static void assertAmounts(AccountService accountService, String... amounts) {
+        for (int i = 0; i < amounts.length; i++) {
+            Assertions.assertEquals(Money.of(amounts[i]), accountService.getAccount(i + 1).get().getAmount());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package account.service;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.module.UnitTestModule;
+import account.service.db.AccountDaoMode;
+import account.service.db.SupplyChange;
+import account.service.memory.InMemoryAccountService;
+import account.service.partition.PartitionedAccountService;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Unit-tests on {@link AccountService#getTotalSupply()} and {@link AccountService#auditSupply(int)}.
+ *
+ * @author fbokovikov
+ */
+public class AccountServiceSupplyTest {
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = "JOURNAL", mode = EnumSource.Mode.EXCLUDE)
+    @DisplayName("Total supply follows creations, deposits and withdrawals, transfers keep it")
+    void supply(AccountEngine engine) {
+        assertSupply(accountService(engine, AccountDaoMode.LOCKING));
+    }
+
+    @ParameterizedTest
+    @EnumSource(AccountDaoMode.class)
+    @DisplayName("Total supply is kept by every dao mode")
+    void daoModes(AccountDaoMode daoMode) {
+        assertSupply(accountService(AccountEngine.H2, daoMode));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "GROUP_COMMIT", "MEMORY"})
+    @DisplayName("Multi-leg and all-or-nothing transactions keep total supply")
+    void atomicTransactions(AccountEngine engine) {
+        AccountService accountService = accountService(engine, AccountDaoMode.LOCKING);
+        accountService.createAccounts(List.of(Money.of("30"), Money.of("10"), Money.of("5")));
+        accountService.transaction(new MultiLegTransaction.Builder()
+                .addLeg(1L, Money.of("-30"))
+                .addLeg(2L, Money.of("12.5"))
+                .addLeg(3L, Money.of("17.5"))
+                .build());
+        accountService.transactions(List.of(transaction(2L, 1L, "20"), transaction(3L, 1L, "2.25")),
+                BatchMode.ALL_OR_NOTHING);
+        Assertions.assertThrows(AccountApiBadRequest.class, () -> accountService.transactions(
+                List.of(transaction(1L, 3L, "22.25"), transaction(2L, 3L, "2.51")), BatchMode.ALL_OR_NOTHING));
+        flush(accountService);
+
+        Assertions.assertEquals(Money.of("45"), accountService.getTotalSupply());
+        assertConserved(accountService);
+    }
+
+    @Test
+    @DisplayName("Journal engine keeps no supply")
+    void journal() {
+        AccountService accountService = accountService(AccountEngine.JOURNAL, AccountDaoMode.LOCKING);
+        AccountApiBadRequest exception = Assertions.assertThrows(AccountApiBadRequest.class,
+                accountService::getTotalSupply);
+        Assertions.assertEquals("Total supply is not supported by account engine", exception.getMessage());
+        Assertions.assertThrows(AccountApiBadRequest.class, () -> accountService.auditSupply(0));
+    }
+
+    private static void assertSupply(AccountService accountService) {
+        Account first = accountService.createAccount(Money.of("100"));
+        List<Account> bulk = accountService.createAccounts(List.of(Money.of("1"), Money.of("2.5"), Money.of("3")));
+        accountService.deposit(bulk.get(0).getId(), Money.of("10"));
+        accountService.withdraw(first.getId(), Money.of("-40.25"));
+        accountService.transaction(transaction(first.getId(), bulk.get(2).getId(), "7"));
+        accountService.transactions(List.of(
+                transaction(bulk.get(1).getId(), first.getId(), "2.5"),
+                transaction(bulk.get(1).getId(), first.getId(), "1")
+        ), BatchMode.PER_ITEM);
+        Assertions.assertThrows(AccountApiBadRequest.class,
+                () -> accountService.withdraw(bulk.get(2).getId(), Money.of("-11")));
+        flush(accountService);
+
+        Assertions.assertEquals(Money.of("76.25"), accountService.getTotalSupply());
+        assertConserved(accountService);
+    }
+
+    private static void assertConserved(AccountService accountService) {
+        IntStream.range(0, SupplyChange.STRIPES).forEach(stripe ->
+                Assertions.assertEquals(Money.ZERO, accountService.auditSupply(stripe), "stripe " + stripe));
+    }
+
+    private static void flush(AccountService accountService) {
+        if (accountService instanceof InMemoryAccountService) {
+            ((InMemoryAccountService) accountService).flush();
+        } else if (accountService instanceof PartitionedAccountService) {
+            ((PartitionedAccountService) accountService).flush();
+        }
+    }
+
+    private static AccountService accountService(AccountEngine engine, AccountDaoMode daoMode) {
+        Injector injector = Guice.createInjector(new UnitTestModule(engine, daoMode));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        return injector.getInstance(AccountService.class);
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, String amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+}
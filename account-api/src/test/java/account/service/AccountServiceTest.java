@@ -4,6 +4,7 @@ import account.db.DatabasePopulator;
 import account.exception.AccountApiBadRequest;
 import account.matchers.AccountMatcher;
 import account.model.Account;
+import account.model.Money;
 import account.module.UnitTestModule;
 import account.modules.AccountServiceModule;
 import account.modules.DataSourceModule;
@@ -16,7 +17,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
-import java.math.BigDecimal;
 import java.util.Optional;
 
 /**
@@ -34,9 +34,9 @@ public class AccountServiceTest {
     static void initDb() {
         INJECTOR.getInstance(DatabasePopulator.class).populateDbTables();
         AccountService accountService = INJECTOR.getInstance(AccountService.class);
-        accountService.createAccount(new BigDecimal("15.10"));
-        accountService.createAccount(new BigDecimal("44.33"));
-        accountService.createAccount(new BigDecimal("46.00"));
+        accountService.createAccount(Money.of("15.10"));
+        accountService.createAccount(Money.of("44.33"));
+        accountService.createAccount(Money.of("46.00"));
     }
 
     @BeforeEach
@@ -62,7 +62,7 @@ public class AccountServiceTest {
                 new AccountMatcher(
                         new Account.Builder()
                                 .setId(2L)
-                                .setAmount(new BigDecimal(44.33))
+                                .setAmount(Money.of("44.33"))
                                 .build()
                 )
         );
@@ -71,13 +71,13 @@ public class AccountServiceTest {
     @Test
     @DisplayName("Account creating")
     void createAccount() {
-        Account account = accountService.createAccount(new BigDecimal(10.125));
+        Account account = accountService.createAccount(Money.of("10.125"));
         MatcherAssert.assertThat(
                 account,
                 new AccountMatcher(
                         new Account.Builder()
                                 .setId(4L)
-                                .setAmount(new BigDecimal(10.125))
+                                .setAmount(Money.of("10.125"))
                                 .build()
                 )
         );
@@ -91,7 +91,7 @@ public class AccountServiceTest {
     void createWithNegativeAmount() {
         AccountApiBadRequest accountApiBadRequest = Assertions.assertThrows(
                 AccountApiBadRequest.class,
-                () -> accountService.createAccount(BigDecimal.ONE.negate())
+                () -> accountService.createAccount(Money.of("1").negate())
         );
         Assertions.assertEquals(
                 "Can not create account with negative amount",
@@ -104,7 +104,7 @@ public class AccountServiceTest {
     void depositNegativeAmount() {
         AccountApiBadRequest accountApiBadRequest = Assertions.assertThrows(
                 AccountApiBadRequest.class,
-                () -> accountService.deposit(1L, BigDecimal.ONE.negate())
+                () -> accountService.deposit(1L, Money.of("1").negate())
         );
         Assertions.assertEquals(
                 "Expecting amount greater than 0 for deposit",
@@ -117,7 +117,7 @@ public class AccountServiceTest {
     void accountNotFoundForDeposit() {
         AccountApiBadRequest accountApiBadRequest = Assertions.assertThrows(
                 AccountApiBadRequest.class,
-                () -> accountService.deposit(100L, BigDecimal.ONE)
+                () -> accountService.deposit(100L, Money.of("1"))
         );
         Assertions.assertEquals(
                 "Account not found",
@@ -128,11 +128,11 @@ public class AccountServiceTest {
     @Test
     @DisplayName("Successful deposit")
     void successfulDeposit() {
-        Account account = accountService.deposit(1L, new BigDecimal(100.50));
+        Account account = accountService.deposit(1L, Money.of("100.50"));
 
         Account expected = new Account.Builder()
                 .setId(1L)
-                .setAmount(new BigDecimal(115.60))
+                .setAmount(Money.of("115.60"))
                 .build();
         MatcherAssert.assertThat(
                 account,
@@ -150,7 +150,7 @@ public class AccountServiceTest {
     void withdrawalPositiveAmount() {
         AccountApiBadRequest accountApiBadRequest = Assertions.assertThrows(
                 AccountApiBadRequest.class,
-                () -> accountService.withdraw(1L, BigDecimal.ONE)
+                () -> accountService.withdraw(1L, Money.of("1"))
         );
         Assertions.assertEquals(
                 "Expecting amount less than 0 for withdrawal",
@@ -163,7 +163,7 @@ public class AccountServiceTest {
     void accountNotFoundForWithdrawal() {
         AccountApiBadRequest accountApiBadRequest = Assertions.assertThrows(
                 AccountApiBadRequest.class,
-                () -> accountService.withdraw(100L, BigDecimal.ONE.negate())
+                () -> accountService.withdraw(100L, Money.of("1").negate())
         );
         Assertions.assertEquals(
                 "Account not found",
@@ -176,7 +176,7 @@ public class AccountServiceTest {
     void withdrawalTooBigAmount() {
         AccountApiBadRequest accountApiBadRequest = Assertions.assertThrows(
                 AccountApiBadRequest.class,
-                () -> accountService.withdraw(3, new BigDecimal("100").negate())
+                () -> accountService.withdraw(3, Money.of("100").negate())
         );
         Assertions.assertEquals(
                 "Not enough amount for transfer",
@@ -187,11 +187,11 @@ public class AccountServiceTest {
     @Test
     @DisplayName("Successful withrawal")
     void successfulWithdrawal() {
-        Account account = accountService.withdraw(3L, new BigDecimal(20).negate());
+        Account account = accountService.withdraw(3L, Money.of("20").negate());
 
         Account expected = new Account.Builder()
                 .setId(3L)
-                .setAmount(new BigDecimal(26))
+                .setAmount(Money.of("26"))
                 .build();
         MatcherAssert.assertThat(
                 account,
@@ -5,6 +5,7 @@ import account.exception.AccountApiBadRequest;
 import account.matchers.AccountMatcher;
 import account.model.Account;
 import account.model.AccountTransaction;
+import account.model.Money;
 import account.module.UnitTestModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -20,7 +21,6 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -43,9 +43,9 @@ public class AccountServiceTransactionTest {
     static void initDb() {
         INJECTOR.getInstance(DatabasePopulator.class).populateDbTables();
         AccountService accountService = INJECTOR.getInstance(AccountService.class);
-        accountService.createAccount(new BigDecimal("10"));
-        accountService.createAccount(new BigDecimal("20"));
-        accountService.createAccount(new BigDecimal("30"));
+        accountService.createAccount(Money.of("10"));
+        accountService.createAccount(Money.of("20"));
+        accountService.createAccount(Money.of("30"));
     }
 
     @BeforeEach
@@ -73,7 +73,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(10L)
                                 .setToId(1L)
-                                .setAmount(BigDecimal.ONE)
+                                .setAmount(Money.of("1"))
                                 .build(),
                         "Account not found"
                 ),
@@ -81,7 +81,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(1L)
                                 .setToId(10L)
-                                .setAmount(BigDecimal.ONE)
+                                .setAmount(Money.of("1"))
                                 .build(),
                         "Account not found"
                 ),
@@ -89,7 +89,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(10L)
                                 .setToId(10L)
-                                .setAmount(BigDecimal.ONE)
+                                .setAmount(Money.of("1"))
                                 .build(),
                         "Accounts should be different for transaction"
                 ),
@@ -97,7 +97,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(10L)
                                 .setToId(10L)
-                                .setAmount(BigDecimal.ONE)
+                                .setAmount(Money.of("1"))
                                 .build(),
                         "Accounts should be different for transaction"
                 ),
@@ -105,7 +105,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(1L)
                                 .setToId(2L)
-                                .setAmount(BigDecimal.ONE.negate())
+                                .setAmount(Money.of("1").negate())
                                 .build(),
                         "Transaction amount should be positive"
                 ),
@@ -113,7 +113,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(1L)
                                 .setToId(2L)
-                                .setAmount(BigDecimal.ZERO)
+                                .setAmount(Money.ZERO)
                                 .build(),
                         "Transaction amount should be positive"
                 ),
@@ -121,7 +121,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(1L)
                                 .setToId(2L)
-                                .setAmount(new BigDecimal("10.5"))
+                                .setAmount(Money.of("10.5"))
                                 .build(),
                         "Not enough amount for transfer"
                 )
@@ -138,7 +138,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(1L)
                                 .setToId(2L)
-                                .setAmount(new BigDecimal("3"))
+                                .setAmount(Money.of("3"))
                                 .build()),
                 executorService));
         transactions.add(CompletableFuture.runAsync(
@@ -146,7 +146,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(2L)
                                 .setToId(1L)
-                                .setAmount(new BigDecimal("4"))
+                                .setAmount(Money.of("4"))
                                 .build()),
                 executorService));
         transactions.add(CompletableFuture.runAsync(
@@ -154,7 +154,7 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(1L)
                                 .setToId(3L)
-                                .setAmount(new BigDecimal("2"))
+                                .setAmount(Money.of("2"))
                                 .build()),
                 executorService));
         transactions.add(CompletableFuture.runAsync(
@@ -162,21 +162,21 @@ public class AccountServiceTransactionTest {
                         new AccountTransaction.Builder()
                                 .setFromId(2L)
                                 .setToId(3L)
-                                .setAmount(new BigDecimal("4"))
+                                .setAmount(Money.of("4"))
                                 .build()),
                 executorService));
         transactions.forEach(c -> c.join());
         Account expectedFirst = new Account.Builder()
                 .setId(1L)
-                .setAmount(new BigDecimal(9))
+                .setAmount(Money.of("9"))
                 .build();
         Account expectedSecond = new Account.Builder()
                 .setId(2L)
-                .setAmount(new BigDecimal(15))
+                .setAmount(Money.of("15"))
                 .build();
         Account expectedThird = new Account.Builder()
                 .setId(3L)
-                .setAmount(new BigDecimal(36))
+                .setAmount(Money.of("36"))
                 .build();
         MatcherAssert.assertThat(
                 accountService.getAccount(1L).get(),
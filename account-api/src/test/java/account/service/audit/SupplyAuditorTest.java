@@ -0,0 +1,60 @@
+package account.service.audit;
+
+import account.db.DatabasePopulator;
+import account.model.Money;
+import account.module.UnitTestModule;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import account.service.db.SupplyChange;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link SupplyAuditor}.
+ *
+ * @author fbokovikov
+ */
+public class SupplyAuditorTest {
+
+    @Test
+    @DisplayName("Audit finds no discrepancy after writes and finds account changed bypassing supply")
+    void discrepancy() throws SQLException {
+        Injector injector = Guice.createInjector(new UnitTestModule(AccountEngine.H2));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        AccountService accountService = injector.getInstance(AccountService.class);
+        accountService.createAccounts(Collections.nCopies(1000, Money.of("1.5")));
+        accountService.deposit(10L, Money.of("3"));
+
+        try (SupplyAuditor auditor = new SupplyAuditor(accountService, new SupplyAuditSettings.Builder()
+                .setThreads(4)
+                .build())) {
+            SupplyAudit conserved = auditor.audit();
+            Assertions.assertTrue(conserved.isConserved());
+            Assertions.assertEquals(Money.ZERO, conserved.getDiscrepancy());
+
+            try (var connection = injector.getInstance(DataSource.class).getConnection();
+                 var statement = connection.createStatement()) {
+                statement.execute("INSERT INTO account(amount) VALUES(70000)");
+                statement.execute("UPDATE account SET amount = amount - 5000 WHERE id = 10");
+            }
+            SupplyAudit broken = auditor.audit();
+
+            Assertions.assertFalse(broken.isConserved());
+            Assertions.assertEquals(List.of(SupplyChange.stripe(10L), SupplyChange.stripe(1001L)),
+                    broken.getDiscrepantStripes());
+            Assertions.assertEquals(Money.of("6.5"), broken.getDiscrepancy());
+            Assertions.assertEquals(Money.of("1503"), accountService.getTotalSupply());
+            Assertions.assertSame(broken, auditor.getLastAudit());
+            Assertions.assertEquals(2, auditor.getAudits());
+            Assertions.assertEquals(2, auditor.getDiscrepancies());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package account.service.cache;
+
+import account.db.DatabasePopulator;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.module.UnitTestModule;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import account.service.TransactionBatchSettings;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for {@link CachingAccountService}.
+ *
+ * @author fbokovikov
+ */
+public class CachingAccountServiceTest {
+
+    private static final Injector INJECTOR = Guice.createInjector(new UnitTestModule(
+            AccountEngine.H2,
+            new AccountCacheSettings.Builder()
+                    .setMaxSize(1000)
+                    .setExpireAfterWrite(Duration.ofMinutes(1))
+                    .build()
+    ));
+
+    private static CachingAccountService accountService;
+
+    @BeforeAll
+    static void initDb() {
+        INJECTOR.getInstance(DatabasePopulator.class).populateDbTables();
+        accountService = (CachingAccountService) INJECTOR.getInstance(AccountService.class);
+        for (int i = 0; i < 6; i++) {
+            accountService.createAccount(Money.of("100"));
+        }
+    }
+
+    @Test
+    @DisplayName("Second read is a hit, absent accounts are not cached")
+    void hitsAndMisses() {
+        long hits = accountService.getHits();
+        long misses = accountService.getMisses();
+        accountService.getAccount(1L);
+        accountService.getAccount(1L);
+        Assertions.assertFalse(accountService.getAccount(100L).isPresent());
+        Assertions.assertFalse(accountService.getAccount(100L).isPresent());
+        Assertions.assertEquals(hits + 1, accountService.getHits());
+        Assertions.assertEquals(misses + 3, accountService.getMisses());
+    }
+
+    @Test
+    @DisplayName("Writes invalidate cached accounts")
+    void writeInvalidation() {
+        Assertions.assertEquals(Money.of("100"), accountService.getAccount(2L).get().getAmount());
+        Assertions.assertEquals(Money.of("100"), accountService.getAccount(3L).get().getAmount());
+        accountService.deposit(2L, Money.of("5"));
+        Assertions.assertEquals(Money.of("105"), accountService.getAccount(2L).get().getAmount());
+        accountService.transaction(new AccountTransaction.Builder()
+                .setFromId(2L)
+                .setToId(3L)
+                .setAmount(Money.of("10"))
+                .build());
+        Assertions.assertEquals(Money.of("95"), accountService.getAccount(2L).get().getAmount());
+        Assertions.assertEquals(Money.of("110"), accountService.getAccount(3L).get().getAmount());
+    }
+
+    @Test
+    @DisplayName("Multi-get reads only missed accounts from delegate and sees writes")
+    void multiGet() {
+        long accountId = accountService.createAccount(Money.of("100")).getId();
+        accountService.getAccount(1L);
+        long hits = accountService.getHits();
+        long misses = accountService.getMisses();
+        List<Optional<Account>> accounts = accountService.getAccounts(new long[] {1L, accountId, 100L});
+        Assertions.assertEquals(Money.of("100"), accounts.get(1).get().getAmount());
+        Assertions.assertFalse(accounts.get(2).isPresent());
+        Assertions.assertEquals(hits + 1, accountService.getHits());
+        Assertions.assertEquals(misses + 2, accountService.getMisses());
+
+        accountService.getAccounts(new long[] {accountId});
+        Assertions.assertEquals(hits + 2, accountService.getHits());
+        accountService.withdraw(accountId, Money.of("-1"));
+        Assertions.assertEquals(Money.of("99"), accountService.getAccounts(new long[] {accountId}).get(0).get().getAmount());
+    }
+
+    @Test
+    @DisplayName("Reads never see amount older than acknowledged write")
+    void noStaleReads() {
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<CompletableFuture<Void>> reads = IntStream.range(0, 4)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    while (writing.get()) {
+                        accountService.getAccount(4L);
+                    }
+                }, readers))
+                .collect(Collectors.toList());
+        try {
+            for (int i = 1; i <= 300; i++) {
+                Account deposited = accountService.deposit(4L, Money.of("1"));
+                Assertions.assertEquals(deposited.getAmount(), accountService.getAccount(4L).get().getAmount());
+            }
+        } finally {
+            writing.set(false);
+            reads.forEach(CompletableFuture::join);
+            readers.shutdown();
+        }
+        Assertions.assertEquals(Money.of("400"), accountService.getAccount(4L).get().getAmount());
+    }
+
+    @Test
+    @DisplayName("Concurrent misses of an account wait for one load, size bound evicts accounts")
+    void collapsedMissesAndEvictions() {
+        AccountService realService = INJECTOR.getInstance(AccountService.class);
+        AtomicInteger loads = new AtomicInteger();
+        AccountService slowReads = new SlowReadsAccountService(realService, loads);
+        CachingAccountService cachingService = new CachingAccountService(
+                slowReads,
+                new AccountCacheSettings.Builder().setMaxSize(2).build(),
+                new TransactionBatchSettings.Builder().build()
+        );
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Optional<Account>>> reads = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> cachingService.getAccount(5L), executor))
+                .collect(Collectors.toList());
+        reads.forEach(read -> Assertions.assertEquals(Money.of("100"), read.join().get().getAmount()));
+        executor.shutdown();
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(7, cachingService.getCollapsedMisses());
+
+        cachingService.getAccount(1L);
+        cachingService.getAccount(6L);
+        Assertions.assertEquals(2, cachingService.getSize());
+        Assertions.assertEquals(1, cachingService.getEvictions());
+    }
+
+    /**
+     * Delegate with slow counted reads, so concurrent misses overlap.
+     */
+    private static class SlowReadsAccountService implements AccountService {
+
+        private final AccountService delegate;
+        private final AtomicInteger loads;
+
+        SlowReadsAccountService(AccountService delegate, AtomicInteger loads) {
+            this.delegate = delegate;
+            this.loads = loads;
+        }
+
+        @Override
+        public Account createAccount(Money amount) {
+            return delegate.createAccount(amount);
+        }
+
+        @Override
+        public Optional<Account> getAccount(long accountId) {
+            loads.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return delegate.getAccount(accountId);
+        }
+
+        @Override
+        public Account deposit(long accountId, Money amount) {
+            return delegate.deposit(accountId, amount);
+        }
+
+        @Override
+        public Account withdraw(long accountId, Money amount) {
+            return delegate.withdraw(accountId, amount);
+        }
+
+        @Override
+        public void transaction(AccountTransaction transaction) {
+            delegate.transaction(transaction);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package account.service.db;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiUnavailable;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.TransactionResult;
+import account.module.UnitTestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link AccountDao}.
+ *
+ * @author fbokovikov
+ */
+public class AccountDaoTest {
+
+    @Test
+    @DisplayName("Failed chunk of per item batch is reported after committed chunks")
+    void perItemChunkFailure() {
+        Injector injector = Guice.createInjector(new UnitTestModule());
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        AccountDao accountDao = injector.getInstance(AccountDao.class);
+        long a = accountDao.createAccount(Money.of("100")).getId();
+        long b = accountDao.createAccount(Money.of("0")).getId();
+        var failingDao = new AccountDao(
+                failingConnection(injector.getInstance(DataSource.class), 2),
+                injector.getInstance(LockContentionTracker.class)
+        );
+        var transactions = List.of(
+                transaction(a, b, "1"),
+                transaction(a, b, "2"),
+                transaction(a, b, "3"),
+                transaction(a, b, "4"),
+                transaction(a, b, "5")
+        );
+
+        List<TransactionResult> results = failingDao.transactions(transactions, BatchMode.PER_ITEM, 2);
+
+        Assertions.assertEquals(5, results.size());
+        Assertions.assertTrue(results.get(0).isApplied());
+        Assertions.assertTrue(results.get(1).isApplied());
+        for (TransactionResult result : results.subList(2, 5)) {
+            Assertions.assertEquals(TransactionResult.Status.REJECTED, result.getStatus());
+            Assertions.assertEquals("Not applied: Connection pool exhausted, try again later", result.getMessage());
+        }
+        Assertions.assertEquals(Money.of("97"), accountDao.getAccount(a).get().getAmount());
+        Assertions.assertEquals(Money.of("3"), accountDao.getAccount(b).get().getAmount());
+    }
+
+    @Test
+    @DisplayName("Failed first chunk of per item batch is thrown, nothing is committed")
+    void perItemFirstChunkFailure() {
+        Injector injector = Guice.createInjector(new UnitTestModule());
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        AccountDao accountDao = injector.getInstance(AccountDao.class);
+        long a = accountDao.createAccount(Money.of("100")).getId();
+        long b = accountDao.createAccount(Money.of("0")).getId();
+        var failingDao = new AccountDao(
+                failingConnection(injector.getInstance(DataSource.class), 1),
+                injector.getInstance(LockContentionTracker.class)
+        );
+
+        Assertions.assertThrows(
+                AccountApiUnavailable.class,
+                () -> failingDao.transactions(List.of(transaction(a, b, "1")), BatchMode.PER_ITEM, 2)
+        );
+        Assertions.assertEquals(Money.of("100"), accountDao.getAccount(a).get().getAmount());
+    }
+
+    /**
+     * @return data source failing to give its {@code failing}-th connection like exhausted pool
+     */
+    private static DataSource failingConnection(DataSource dataSource, int failing) {
+        var connections = new AtomicInteger();
+        return (DataSource) Proxy.newProxyInstance(
+                AccountDaoTest.class.getClassLoader(),
+                new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection") && connections.incrementAndGet() == failing) {
+                        throw new AccountApiUnavailable("Connection pool exhausted, try again later");
+                    }
+                    try {
+                        return method.invoke(dataSource, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+        );
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, String amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+}
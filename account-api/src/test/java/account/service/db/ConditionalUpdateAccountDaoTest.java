@@ -0,0 +1,170 @@
+package account.service.db;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiBadRequest;
+import account.matchers.AccountMatcher;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.module.UnitTestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for {@link ConditionalUpdateAccountDao}.
+ *
+ * @author fbokovikov
+ */
+public class ConditionalUpdateAccountDaoTest {
+
+    private static final Injector INJECTOR = Guice.createInjector(new UnitTestModule(AccountDaoMode.CONDITIONAL));
+
+    private static AccountDao accountDao;
+
+    @BeforeAll
+    static void initDb() {
+        INJECTOR.getInstance(DatabasePopulator.class).populateDbTables();
+        accountDao = INJECTOR.getInstance(AccountDao.class);
+        accountDao.createAccount(Money.of("10"));
+        accountDao.createAccount(Money.of("20"));
+        accountDao.createAccount(Money.of("30"));
+        accountDao.createAccount(Money.of("1000"));
+        accountDao.createAccount(Money.of("1000"));
+    }
+
+    @Test
+    @DisplayName("Conditional DAO is bound in conditional mode")
+    void bound() {
+        Assertions.assertTrue(accountDao instanceof ConditionalUpdateAccountDao);
+    }
+
+    @Test
+    @DisplayName("Deposit and withdrawal return new amount")
+    void updateAmount() {
+        MatcherAssert.assertThat(
+                accountDao.updateAmount(3L, Money.of("5.5")),
+                AccountMatcher.equals(new Account.Builder().setId(3L).setAmount(Money.of("35.5")).build())
+        );
+        MatcherAssert.assertThat(
+                accountDao.updateAmount(3L, Money.of("-35.5")),
+                AccountMatcher.equals(new Account.Builder().setId(3L).setAmount(Money.ZERO).build())
+        );
+        accountDao.updateAmount(3L, Money.of("30"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("badUpdates")
+    @DisplayName("Amount can not be updated")
+    void updateImpossible(long accountId, Money amount, String errorMessage) {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountDao.updateAmount(accountId, amount)
+        );
+        Assertions.assertEquals(errorMessage, exception.getMessage());
+    }
+
+    static Stream<Arguments> badUpdates() {
+        return Stream.of(
+                Arguments.of(100L, Money.of("1"), "Account not found"),
+                Arguments.of(100L, Money.of("1").negate(), "Account not found"),
+                Arguments.of(1L, Money.of("-10.01"), "Not enough amount for transfer")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("badTransactions")
+    @DisplayName("Transaction can not be completed")
+    void transactionImpossible(long fromId, long toId, Money amount, String errorMessage) {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountDao.transaction(transaction(fromId, toId, amount))
+        );
+        Assertions.assertEquals(errorMessage, exception.getMessage());
+        Assertions.assertEquals(
+                0,
+                Money.of("10").compareTo(accountDao.getAccount(1L).get().getAmount())
+        );
+    }
+
+    static Stream<Arguments> badTransactions() {
+        return Stream.of(
+                Arguments.of(100L, 1L, Money.of("1"), "Account not found"),
+                Arguments.of(1L, 100L, Money.of("1"), "Account not found"),
+                Arguments.of(1L, 100L, Money.of("11"), "Account not found"),
+                Arguments.of(1L, 2L, Money.of("10.5"), "Not enough amount for transfer"),
+                Arguments.of(2L, 1L, Money.of("20.5"), "Not enough amount for transfer")
+        );
+    }
+
+    @ParameterizedTest
+    @EnumSource(AccountDaoMode.class)
+    @DisplayName("Overflow of receiver amount is a bad request in every DAO mode")
+    void overflow(AccountDaoMode daoMode) {
+        Injector injector = Guice.createInjector(new UnitTestModule(daoMode));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        AccountDao dao = injector.getInstance(AccountDao.class);
+        long fromId = dao.createAccount(Money.of("10")).getId();
+        long toId = dao.createAccount(Money.of("922337203685477")).getId();
+
+        AccountApiBadRequest deposit = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> dao.updateAmount(toId, Money.of("1"))
+        );
+        AccountApiBadRequest transfer = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> dao.transaction(transaction(fromId, toId, Money.of("1")))
+        );
+
+        Assertions.assertEquals("Amount is too big", deposit.getMessage());
+        Assertions.assertEquals("Amount is too big", transfer.getMessage());
+        Assertions.assertEquals(Money.of("10"), dao.getAccount(fromId).get().getAmount());
+        Assertions.assertEquals(Money.of("922337203685477"), dao.getAccount(toId).get().getAmount());
+    }
+
+    @Test
+    @DisplayName("Parallel opposite transactions keep total amount")
+    void parallelTransactions() {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        CompletableFuture<?>[] transactions = IntStream.range(0, 200)
+                .mapToObj(i -> CompletableFuture.runAsync(
+                        () -> accountDao.transaction(i % 2 == 0
+                                ? transaction(4L, 5L, Money.of("3"))
+                                : transaction(5L, 4L, Money.of("2"))),
+                        executorService))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(transactions).join();
+        executorService.shutdown();
+
+        MatcherAssert.assertThat(
+                accountDao.getAccount(4L).get(),
+                AccountMatcher.equals(new Account.Builder().setId(4L).setAmount(Money.of("900")).build())
+        );
+        MatcherAssert.assertThat(
+                accountDao.getAccount(5L).get(),
+                AccountMatcher.equals(new Account.Builder().setId(5L).setAmount(Money.of("1100")).build())
+        );
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, Money amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(amount)
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package account.service.db;
+
+import account.db.DatabasePopulator;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.module.UnitTestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for {@link LockContentionTracker}.
+ *
+ * @author fbokovikov
+ */
+public class LockContentionTrackerTest {
+
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    @DisplayName("Accounts are ordered by wait, conflicts are slow acquisitions")
+    void hottest() {
+        LockContentionTracker tracker = tracker(128);
+        tracker.record(1, 10 * MILLI);
+        tracker.record(2, 3 * MILLI);
+        tracker.record(2, 3 * MILLI);
+        tracker.record(3, 100);
+
+        List<HotAccount> hottest = tracker.hottest(2);
+
+        Assertions.assertEquals(List.of(1L, 2L), ids(hottest));
+        HotAccount second = hottest.get(1);
+        Assertions.assertEquals(6000, second.getWaitMicros());
+        Assertions.assertEquals(2, second.getAcquisitions());
+        Assertions.assertEquals(2, second.getConflicts());
+        Assertions.assertEquals(0, tracker.hottest(3).get(2).getConflicts());
+    }
+
+    @Test
+    @DisplayName("Tracked accounts are bounded, heavily waited account is kept")
+    void bounded() {
+        LockContentionTracker tracker = tracker(64);
+        for (long accountId = 1; accountId <= 10_000; accountId++) {
+            tracker.record(accountId, 1000);
+            tracker.record(42, 10_000);
+        }
+
+        List<HotAccount> hottest = tracker.hottest(100);
+
+        Assertions.assertTrue(hottest.size() <= 64, "Tracked " + hottest.size());
+        Assertions.assertEquals(42, hottest.get(0).getAccountId());
+        Assertions.assertEquals(10_001, hottest.get(0).getAcquisitions());
+        Assertions.assertEquals(0, hottest.get(0).getWaitErrorMicros());
+    }
+
+    @Test
+    @DisplayName("Reset forgets tracked accounts")
+    void reset() {
+        LockContentionTracker tracker = tracker(16);
+        tracker.record(1, MILLI);
+        tracker.reset();
+
+        Assertions.assertTrue(tracker.hottest(10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Concurrent records are all folded")
+    void concurrent() {
+        LockContentionTracker tracker = tracker(128);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        CompletableFuture.allOf(IntStream.range(0, 4)
+                .mapToObj(thread -> CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 64_000; i++) {
+                        tracker.record(i % 32, 1000);
+                    }
+                }, executorService))
+                .toArray(CompletableFuture[]::new))
+                .join();
+        executorService.shutdown();
+
+        List<HotAccount> hottest = tracker.hottest(100);
+
+        Assertions.assertEquals(32, hottest.size());
+        for (HotAccount account : hottest) {
+            Assertions.assertEquals(4 * 64_000 / 32, account.getAcquisitions());
+            Assertions.assertEquals(4 * 64_000 / 32, account.getWaitMicros());
+        }
+        tracker.close();
+    }
+
+    @Test
+    @DisplayName("Row locks of transactions are recorded")
+    void accountDao() {
+        Injector injector = Guice.createInjector(new UnitTestModule());
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        AccountDao accountDao = injector.getInstance(AccountDao.class);
+        long from = accountDao.createAccount(Money.of("100")).getId();
+        long to = accountDao.createAccount(Money.of("0")).getId();
+        for (int i = 0; i < 3; i++) {
+            accountDao.transaction(new AccountTransaction.Builder()
+                    .setFromId(from)
+                    .setToId(to)
+                    .setAmount(Money.of("1"))
+                    .build());
+        }
+        accountDao.updateAmount(to, Money.of("1"));
+
+        List<HotAccount> hottest = injector.getInstance(LockContentionTracker.class).hottest(10);
+
+        Assertions.assertEquals(2, hottest.size());
+        Assertions.assertEquals(4, hottest.stream()
+                .filter(account -> account.getAccountId() == to)
+                .findFirst()
+                .orElseThrow()
+                .getAcquisitions());
+    }
+
+    private static LockContentionTracker tracker(int trackedAccounts) {
+        return new LockContentionTracker(new LockContentionSettings.Builder()
+                .setTrackedAccounts(trackedAccounts)
+                .setConflictWait(Duration.ofMillis(1))
+                .setWindow(Duration.ofMinutes(1))
+                .build());
+    }
+
+    private static List<Long> ids(List<HotAccount> accounts) {
+        return accounts.stream().map(HotAccount::getAccountId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,172 @@
+package account.service.group;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiUnavailable;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.module.UnitTestModule;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import account.service.TransactionBatchSettings;
+import account.service.db.AccountDao;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Unit tests for {@link GroupCommitAccountService}.
+ *
+ * @author fbokovikov
+ */
+public class GroupCommitAccountServiceTest {
+
+    private static final Injector INJECTOR = Guice.createInjector(new UnitTestModule(AccountEngine.GROUP_COMMIT));
+
+    private static AccountDao accountDao;
+    private static GroupCommitAccountService accountService;
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void initDb() {
+        INJECTOR.getInstance(DatabasePopulator.class).populateDbTables();
+        accountDao = INJECTOR.getInstance(AccountDao.class);
+        accountService = new GroupCommitAccountService(
+                accountDao,
+                INJECTOR.getInstance(TransactionBatchSettings.class),
+                new GroupCommitSettings.Builder()
+                        .setWindow(Duration.ofMillis(5))
+                        .setMaxGroupSize(64)
+                        .build()
+        );
+        accountService.createAccount(Money.of("0"));
+        accountService.createAccount(Money.of("10"));
+        accountService.createAccount(Money.of("100"));
+        executor = Executors.newFixedThreadPool(32);
+    }
+
+    @AfterAll
+    static void close() {
+        executor.shutdown();
+        accountService.close();
+    }
+
+    @Test
+    @DisplayName("Engine is bound as singleton")
+    void binding() {
+        AccountService bound = INJECTOR.getInstance(AccountService.class);
+        Assertions.assertTrue(bound instanceof GroupCommitAccountService);
+        Assertions.assertSame(bound, INJECTOR.getInstance(AccountService.class));
+    }
+
+    @Test
+    @DisplayName("Every concurrent caller gets its own balance, groups hold several updates")
+    void concurrentDeposits() {
+        long groupsBefore = accountService.getGroupSizes().getCount();
+        List<CompletableFuture<Account>> deposits = IntStream.range(0, 200)
+                .mapToObj(i -> CompletableFuture.supplyAsync(
+                        () -> accountService.deposit(1L, Money.of("1")), executor))
+                .collect(Collectors.toList());
+        Set<Money> balances = deposits.stream()
+                .map(CompletableFuture::join)
+                .map(Account::getAmount)
+                .collect(Collectors.toSet());
+
+        Set<Money> expected = LongStream.rangeClosed(1, 200)
+                .mapToObj(i -> Money.of(String.valueOf(i)))
+                .collect(Collectors.toSet());
+        Assertions.assertEquals(expected, balances);
+        Assertions.assertEquals(Money.of("200"), accountDao.getAccount(1L).get().getAmount());
+        long groups = accountService.getGroupSizes().getCount() - groupsBefore;
+        Assertions.assertTrue(groups < 200, "Deposits should share commits, groups: " + groups);
+    }
+
+    @Test
+    @DisplayName("Rejected update fails alone and does not change amounts")
+    void rejectedUpdates() {
+        List<CompletableFuture<Account>> withdrawals = IntStream.range(0, 3)
+                .mapToObj(i -> CompletableFuture.supplyAsync(
+                        () -> accountService.withdraw(2L, Money.of("-4")), executor))
+                .collect(Collectors.toList());
+        CompletableFuture<Void> transaction = CompletableFuture.runAsync(
+                () -> accountService.transaction(transaction(3L, 100L, "1")), executor);
+
+        long rejected = withdrawals.stream()
+                .filter(withdrawal -> withdrawal.handle((account, e) -> e != null).join())
+                .count();
+        Assertions.assertEquals(1, rejected);
+        CompletionException exception = Assertions.assertThrows(CompletionException.class, transaction::join);
+        Assertions.assertEquals("Account not found", exception.getCause().getMessage());
+        Assertions.assertEquals(Money.of("2"), accountDao.getAccount(2L).get().getAmount());
+        Assertions.assertEquals(Money.of("100"), accountDao.getAccount(3L).get().getAmount());
+    }
+
+    @Test
+    @DisplayName("Transaction overflowing receiver is rejected and leaves sender unchanged")
+    void receiverOverflow() {
+        long from = accountService.createAccount(Money.of("5")).getId();
+        long to = accountService.createAccount(Money.of("922337203685477")).getId();
+
+        CompletionException exception = Assertions.assertThrows(CompletionException.class,
+                () -> CompletableFuture.runAsync(
+                        () -> accountService.transaction(transaction(from, to, "1")), executor).join());
+
+        Assertions.assertEquals("Amount is too big", exception.getCause().getMessage());
+        Assertions.assertEquals(Money.of("5"), accountDao.getAccount(from).get().getAmount());
+        Assertions.assertEquals(Money.of("922337203685477"), accountDao.getAccount(to).get().getAmount());
+    }
+
+    @Test
+    @DisplayName("Updates racing with close are committed or rejected, none waits forever")
+    void closeRace() throws Exception {
+        GroupCommitAccountService closing = new GroupCommitAccountService(
+                accountDao,
+                INJECTOR.getInstance(TransactionBatchSettings.class),
+                new GroupCommitSettings.Builder().setWindow(Duration.ofMillis(1)).build()
+        );
+        long accountId = closing.createAccount(Money.of("0")).getId();
+        List<CompletableFuture<Boolean>> deposits = IntStream.range(0, 200)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        closing.deposit(accountId, Money.of("1"));
+                        return true;
+                    } catch (AccountApiUnavailable e) {
+                        return false;
+                    }
+                }, executor))
+                .collect(Collectors.toList());
+        closing.close();
+
+        long committed = 0;
+        for (CompletableFuture<Boolean> deposit : deposits) {
+            committed += deposit.get(5, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        Assertions.assertEquals(Money.of(String.valueOf(committed)),
+                accountDao.getAccount(accountId).get().getAmount());
+        Assertions.assertThrows(AccountApiUnavailable.class, () -> closing.deposit(accountId, Money.of("1")));
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, String amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+}
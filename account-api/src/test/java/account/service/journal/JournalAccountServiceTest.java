@@ -0,0 +1,406 @@
+package account.service.journal;
+
+import account.exception.AccountApiBadRequest;
+import account.exception.AccountApiUnavailable;
+import account.matchers.AccountMatcher;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.service.TransactionBatchSettings;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for {@link JournalAccountService}.
+ *
+ * @author fbokovikov
+ */
+public class JournalAccountServiceTest {
+
+    @Test
+    @DisplayName("Balances and ids are restored from journal segments")
+    void restore() throws IOException {
+        JournalSettings settings = settings(FsyncPolicy.NEVER);
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccount(Money.of("100"));
+            accountService.createAccounts(Collections.nCopies(50, Money.of("10")));
+            accountService.deposit(2L, Money.of("5.5"));
+            accountService.withdraw(3L, Money.of("-10"));
+            accountService.transaction(transaction(1L, 4L, Money.of("30")));
+            accountService.transactions(List.of(
+                    transaction(1L, 5L, Money.of("20")),
+                    transaction(5L, 6L, Money.of("1000"))
+            ), BatchMode.PER_ITEM);
+        }
+        Assertions.assertTrue(segments(settings) > 1, "Journal should roll to new segments");
+
+        try (JournalAccountService accountService = accountService(settings)) {
+            MatcherAssert.assertThat(accountService.getAccount(1L).get(), AccountMatcher.equals(account(1L, "50")));
+            MatcherAssert.assertThat(accountService.getAccount(2L).get(), AccountMatcher.equals(account(2L, "15.5")));
+            MatcherAssert.assertThat(accountService.getAccount(3L).get(), AccountMatcher.equals(account(3L, "0")));
+            MatcherAssert.assertThat(accountService.getAccount(4L).get(), AccountMatcher.equals(account(4L, "40")));
+            MatcherAssert.assertThat(accountService.getAccount(5L).get(), AccountMatcher.equals(account(5L, "30")));
+            MatcherAssert.assertThat(accountService.getAccount(51L).get(), AccountMatcher.equals(account(51L, "10")));
+            Assertions.assertFalse(accountService.getAccount(52L).isPresent());
+            Assertions.assertEquals(52L, accountService.createAccount(Money.of("1")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Multi-leg transaction is restored with net amount of every account")
+    void multiLeg() {
+        JournalSettings settings = settings(FsyncPolicy.ALWAYS);
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccounts(List.of(Money.of("30"), Money.of("10"), Money.of("0")));
+            accountService.transaction(new MultiLegTransaction.Builder()
+                    .addLeg(1L, Money.of("-30"))
+                    .addLeg(2L, Money.of("5"))
+                    .addLeg(2L, Money.of("-5"))
+                    .addLeg(3L, Money.of("30"))
+                    .build());
+        }
+        try (JournalAccountService accountService = accountService(settings)) {
+            MatcherAssert.assertThat(accountService.getAccount(1L).get(), AccountMatcher.equals(account(1L, "0")));
+            MatcherAssert.assertThat(accountService.getAccount(2L).get(), AccountMatcher.equals(account(2L, "10")));
+            MatcherAssert.assertThat(accountService.getAccount(3L).get(), AccountMatcher.equals(account(3L, "30")));
+        }
+    }
+
+    @Test
+    @DisplayName("Rejected operations are not journaled")
+    void rejected() {
+        JournalSettings settings = settings(FsyncPolicy.ALWAYS);
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccount(Money.of("10"));
+            accountService.createAccount(Money.of("10"));
+            Assertions.assertThrows(AccountApiBadRequest.class,
+                    () -> accountService.transaction(transaction(1L, 2L, Money.of("11"))));
+            Assertions.assertThrows(AccountApiBadRequest.class,
+                    () -> accountService.transaction(transaction(1L, 3L, Money.of("1"))));
+            Assertions.assertThrows(AccountApiBadRequest.class,
+                    () -> accountService.transactions(List.of(
+                            transaction(1L, 2L, Money.of("5")),
+                            transaction(1L, 2L, Money.of("6"))
+                    ), BatchMode.ALL_OR_NOTHING));
+            Assertions.assertThrows(AccountApiBadRequest.class,
+                    () -> accountService.withdraw(2L, Money.of("-10.01")));
+        }
+        try (JournalAccountService accountService = accountService(settings)) {
+            MatcherAssert.assertThat(accountService.getAccount(1L).get(), AccountMatcher.equals(account(1L, "10")));
+            MatcherAssert.assertThat(accountService.getAccount(2L).get(), AccountMatcher.equals(account(2L, "10")));
+        }
+    }
+
+    @Test
+    @DisplayName("Torn record at the end of journal is dropped")
+    void tornRecord() throws IOException {
+        JournalSettings settings = settings(FsyncPolicy.NEVER);
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccount(Money.of("10"));
+            accountService.createAccount(Money.of("10"));
+            accountService.transaction(transaction(1L, 2L, Money.of("1")));
+            accountService.transaction(transaction(1L, 2L, Money.of("2")));
+        }
+        damageByte(settings, position(settings) - 1);
+
+        try (JournalAccountService accountService = accountService(settings)) {
+            MatcherAssert.assertThat(accountService.getAccount(1L).get(), AccountMatcher.equals(account(1L, "9")));
+            accountService.deposit(1L, Money.of("100"));
+        }
+        try (JournalAccountService accountService = accountService(settings)) {
+            MatcherAssert.assertThat(accountService.getAccount(1L).get(), AccountMatcher.equals(account(1L, "109")));
+            MatcherAssert.assertThat(accountService.getAccount(2L).get(), AccountMatcher.equals(account(2L, "11")));
+        }
+    }
+
+    @Test
+    @DisplayName("Multi-leg transaction torn in the middle of its legs is dropped whole")
+    void tornMultiLeg() throws IOException {
+        JournalSettings settings = settings(FsyncPolicy.NEVER);
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccounts(List.of(Money.of("30"), Money.of("10"), Money.of("0")));
+            accountService.transaction(new MultiLegTransaction.Builder()
+                    .addLeg(1L, Money.of("-30"))
+                    .addLeg(2L, Money.of("12"))
+                    .addLeg(3L, Money.of("18"))
+                    .build());
+        }
+        //the last leg is 3 longs, damage the leg before it as if only the first leg was written
+        damageByte(settings, position(settings) - 4 * Long.BYTES);
+
+        try (JournalAccountService accountService = accountService(settings)) {
+            MatcherAssert.assertThat(accountService.getAccount(1L).get(), AccountMatcher.equals(account(1L, "30")));
+            MatcherAssert.assertThat(accountService.getAccount(2L).get(), AccountMatcher.equals(account(2L, "10")));
+            MatcherAssert.assertThat(accountService.getAccount(3L).get(), AccountMatcher.equals(account(3L, "0")));
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel transactions are restored with the same total")
+    void parallelTransactions() {
+        JournalSettings settings = settings(FsyncPolicy.ALWAYS);
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccounts(Collections.nCopies(10, Money.of("100")));
+            ExecutorService executorService = Executors.newFixedThreadPool(8);
+            CompletableFuture<?>[] transactions = IntStream.range(0, 2000)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        try {
+                            accountService.transaction(transaction(1 + i % 10, 1 + (i * 7 + 3) % 10, Money.of("7")));
+                        } catch (AccountApiBadRequest e) {
+                            //not enough amount or the same account
+                        }
+                    }, executorService))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(transactions).join();
+            executorService.shutdown();
+        }
+        try (JournalAccountService accountService = accountService(settings)) {
+            Money total = Money.ZERO;
+            for (long id = 1; id <= 10; id++) {
+                Account account = accountService.getAccount(id).get();
+                Assertions.assertFalse(account.getAmount().isNegative());
+                total = total.plus(account.getAmount());
+            }
+            Assertions.assertEquals(Money.of("1000"), total);
+        }
+    }
+
+    @Test
+    @DisplayName("Closed journal rejects operations")
+    void closed() {
+        JournalAccountService accountService = accountService(settings(FsyncPolicy.INTERVAL));
+        accountService.createAccount(Money.of("1"));
+        accountService.close();
+        Assertions.assertThrows(AccountApiUnavailable.class, () -> accountService.deposit(1L, Money.of("1")));
+        MatcherAssert.assertThat(accountService.getAccount(1L).get(), AccountMatcher.equals(account(1L, "1")));
+    }
+
+    @Test
+    @DisplayName("Restart loads snapshot and replays journal after it")
+    void snapshotAndTail() throws IOException {
+        JournalSettings settings = settings(FsyncPolicy.NEVER, 64 * 1024, Duration.ZERO);
+        Snapshot snapshot;
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccounts(Collections.nCopies(200_000, Money.of("1")));
+            snapshot = accountService.snapshot();
+            accountService.transaction(transaction(1L, 2L, Money.of("0.5")));
+            accountService.deposit(3L, Money.of("2"));
+            Assertions.assertEquals(200_001L, accountService.createAccount(Money.of("7")).getId());
+        }
+        Assertions.assertEquals(200_000L, snapshot.getCount());
+        Assertions.assertEquals(200_000L, snapshot.getMaxId());
+        Assertions.assertTrue(segments(settings) <= 3, "Segments before snapshot should be deleted");
+
+        try (JournalAccountService accountService = accountService(settings)) {
+            MatcherAssert.assertThat(accountService.getAccount(1L).get(), AccountMatcher.equals(account(1L, "0.5")));
+            MatcherAssert.assertThat(accountService.getAccount(2L).get(), AccountMatcher.equals(account(2L, "1.5")));
+            MatcherAssert.assertThat(accountService.getAccount(3L).get(), AccountMatcher.equals(account(3L, "3")));
+            MatcherAssert.assertThat(accountService.getAccount(150_000L).get(),
+                    AccountMatcher.equals(account(150_000L, "1")));
+            MatcherAssert.assertThat(accountService.getAccount(200_001L).get(),
+                    AccountMatcher.equals(account(200_001L, "7")));
+            Assertions.assertEquals(200_002L, accountService.createAccount(Money.of("1")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshots taken during transactions restore the same amounts")
+    void snapshotDuringTransactions() {
+        JournalSettings settings = settings(FsyncPolicy.NEVER, 16 * 1024, Duration.ZERO);
+        Map<Long, Money> expected = new HashMap<>();
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccounts(Collections.nCopies(100, Money.of("100")));
+            ExecutorService executorService = Executors.newFixedThreadPool(4);
+            CompletableFuture<?>[] transactions = IntStream.range(0, 20_000)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        try {
+                            accountService.transaction(transaction(1 + i % 100, 1 + (i * 31 + 7) % 100, Money.of("3")));
+                        } catch (AccountApiBadRequest e) {
+                            //not enough amount or the same account
+                        }
+                    }, executorService))
+                    .toArray(CompletableFuture[]::new);
+            for (int i = 0; i < 5; i++) {
+                accountService.snapshot();
+            }
+            CompletableFuture.allOf(transactions).join();
+            executorService.shutdown();
+            for (long id = 1; id <= 100; id++) {
+                expected.put(id, accountService.getAccount(id).get().getAmount());
+            }
+        }
+        try (JournalAccountService accountService = accountService(settings)) {
+            for (long id = 1; id <= 100; id++) {
+                Assertions.assertEquals(expected.get(id), accountService.getAccount(id).get().getAmount());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshot taken during transfers keeps total amount after crash losing journal tail")
+    void snapshotAndCrash() throws IOException {
+        JournalSettings settings = settings(FsyncPolicy.NEVER, 1024 * 1024, Duration.ZERO);
+        long synced;
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccounts(Collections.nCopies(100, Money.of("100")));
+            ExecutorService executorService = Executors.newFixedThreadPool(4);
+            CompletableFuture<?>[] transactions = IntStream.range(0, 20_000)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        try {
+                            accountService.transaction(transaction(1 + i % 100, 1 + (i * 31 + 7) % 100, Money.of("3")));
+                        } catch (AccountApiBadRequest e) {
+                            //not enough amount or the same account
+                        }
+                    }, executorService))
+                    .toArray(CompletableFuture[]::new);
+            accountService.snapshot();
+            //with NEVER policy only the snapshot forced journal
+            synced = accountService.getJournal().getSyncedPosition();
+            CompletableFuture.allOf(transactions).join();
+            executorService.shutdown();
+        }
+        loseJournalAfter(settings, synced);
+
+        try (JournalAccountService accountService = accountService(settings)) {
+            Money total = Money.ZERO;
+            for (long id = 1; id <= 100; id++) {
+                total = total.plus(accountService.getAccount(id).get().getAmount());
+            }
+            Assertions.assertEquals(Money.of("10000"), total);
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshot is written on close")
+    void snapshotOnClose() throws IOException {
+        JournalSettings settings = settings(FsyncPolicy.INTERVAL, 1024, Duration.ofHours(1));
+        try (JournalAccountService accountService = accountService(settings)) {
+            accountService.createAccounts(Collections.nCopies(100, Money.of("10")));
+            accountService.transaction(transaction(10L, 20L, Money.of("10")));
+        }
+        Assertions.assertEquals(2L, segments(settings), "One segment and one snapshot should be left");
+        Snapshot snapshot = Snapshot.latest(settings.getDirectory()).get();
+        Assertions.assertEquals(position(settings), snapshot.getJournalPosition());
+
+        try (JournalAccountService accountService = accountService(settings)) {
+            MatcherAssert.assertThat(accountService.getAccount(10L).get(), AccountMatcher.equals(account(10L, "0")));
+            MatcherAssert.assertThat(accountService.getAccount(20L).get(), AccountMatcher.equals(account(20L, "20")));
+        }
+    }
+
+    private static JournalSettings settings(FsyncPolicy fsyncPolicy) {
+        return settings(fsyncPolicy, 1024, Duration.ZERO);
+    }
+
+    private static JournalSettings settings(FsyncPolicy fsyncPolicy, int segmentSize, Duration snapshotInterval) {
+        try {
+            return new JournalSettings.Builder()
+                    .setDirectory(Files.createTempDirectory("journal-test"))
+                    .setSegmentSize(segmentSize)
+                    .setFsyncPolicy(fsyncPolicy)
+                    .setSnapshotInterval(snapshotInterval)
+                    .setLoadThreads(4)
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JournalAccountService accountService(JournalSettings settings) {
+        return new JournalAccountService(settings, new TransactionBatchSettings.Builder().build());
+    }
+
+    private static long position(JournalSettings settings) {
+        try (Journal journal = new Journal(settings, record -> { })) {
+            return journal.position();
+        }
+    }
+
+    private static long segments(JournalSettings settings) throws IOException {
+        try (Stream<Path> files = Files.list(settings.getDirectory())) {
+            return files.count();
+        }
+    }
+
+    /**
+     * Drop journal records after {@code position}, as if they were not on disk at crash.
+     */
+    private static void loseJournalAfter(JournalSettings settings, long position) throws IOException {
+        List<Long> starts;
+        try (Stream<Path> files = Files.list(settings.getDirectory())) {
+            starts = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".journal"))
+                    .map(name -> Long.parseLong(name.substring(0, name.indexOf('.'))))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (long start : starts) {
+            Path segment = Journal.segmentPath(settings.getDirectory(), start);
+            if (start > position) {
+                Files.delete(segment);
+            } else {
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    long from = position - start;
+                    channel.write(ByteBuffer.allocate((int) (channel.size() - from)), from);
+                }
+            }
+        }
+    }
+
+    /**
+     * Damage byte of the last record at journal {@code position}, as if the record was not written completely.
+     */
+    private static void damageByte(JournalSettings settings, long position) throws IOException {
+        List<Long> starts;
+        try (Stream<Path> files = Files.list(settings.getDirectory())) {
+            starts = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".journal"))
+                    .map(name -> Long.parseLong(name.substring(0, name.indexOf('.'))))
+                    .filter(start -> start <= position)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        long start = starts.get(starts.size() - 1);
+        try (FileChannel channel = FileChannel.open(Journal.segmentPath(settings.getDirectory(), start),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), position - start);
+        }
+    }
+
+    private static Account account(long id, String amount) {
+        return new Account.Builder()
+                .setId(id)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, Money amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(amount)
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+package account.service.memory;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiBadRequest;
+import account.matchers.AccountMatcher;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.module.UnitTestModule;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import account.service.db.AccountDao;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for {@link InMemoryAccountService}.
+ *
+ * @author fbokovikov
+ */
+public class InMemoryAccountServiceTest {
+
+    private static final Injector INJECTOR = Guice.createInjector(new UnitTestModule(AccountEngine.MEMORY));
+
+    private static AccountService accountService;
+    private static AccountDao accountDao;
+
+    @BeforeAll
+    static void initDb() {
+        INJECTOR.getInstance(DatabasePopulator.class).populateDbTables();
+        accountService = INJECTOR.getInstance(AccountService.class);
+        accountDao = INJECTOR.getInstance(AccountDao.class);
+        accountService.createAccount(Money.of("10"));
+        accountService.createAccount(Money.of("20"));
+        accountService.createAccount(Money.of("1000"));
+        accountService.createAccount(Money.of("1000"));
+        //created behind engine back, should be loaded on first access
+        accountDao.createAccount(Money.of("50"));
+    }
+
+    @Test
+    @DisplayName("Service is a singleton")
+    void singleton() {
+        Assertions.assertSame(accountService, INJECTOR.getInstance(AccountService.class));
+    }
+
+    @Test
+    @DisplayName("Account is loaded from database on first access")
+    void loadOnFirstAccess() {
+        MatcherAssert.assertThat(
+                accountService.getAccount(5L).get(),
+                AccountMatcher.equals(account(5L, "50"))
+        );
+        Assertions.assertFalse(accountService.getAccount(100L).isPresent());
+    }
+
+    @ParameterizedTest
+    @MethodSource("badTransactions")
+    @DisplayName("Transaction can not be completed")
+    void transactionImpossible(long fromId, long toId, Money amount, String errorMessage) {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.transaction(transaction(fromId, toId, amount))
+        );
+        Assertions.assertEquals(errorMessage, exception.getMessage());
+    }
+
+    static Stream<Arguments> badTransactions() {
+        return Stream.of(
+                Arguments.of(100L, 1L, Money.of("1"), "Account not found"),
+                Arguments.of(1L, 100L, Money.of("11"), "Account not found"),
+                Arguments.of(1L, 1L, Money.of("1"), "Accounts should be different for transaction"),
+                Arguments.of(1L, 2L, Money.ZERO, "Transaction amount should be positive"),
+                Arguments.of(1L, 2L, Money.of("10.5"), "Not enough amount for transfer")
+        );
+    }
+
+    @Test
+    @DisplayName("Withdrawal of too big amount")
+    void withdrawalTooBigAmount() {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.withdraw(2L, Money.of("-20.01"))
+        );
+        Assertions.assertEquals("Not enough amount for transfer", exception.getMessage());
+        exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.deposit(100L, Money.of("1"))
+        );
+        Assertions.assertEquals("Account not found", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Parallel transactions are written to database")
+    void parallelTransactions() {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        CompletableFuture<?>[] transactions = IntStream.range(0, 1000)
+                .mapToObj(i -> CompletableFuture.runAsync(
+                        () -> accountService.transaction(i % 2 == 0
+                                ? transaction(3L, 4L, Money.of("3"))
+                                : transaction(4L, 3L, Money.of("2"))),
+                        executorService))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(transactions).join();
+        executorService.shutdown();
+
+        MatcherAssert.assertThat(accountService.getAccount(3L).get(), AccountMatcher.equals(account(3L, "500")));
+        MatcherAssert.assertThat(accountService.getAccount(4L).get(), AccountMatcher.equals(account(4L, "1500")));
+
+        ((InMemoryAccountService) accountService).flush();
+        MatcherAssert.assertThat(accountDao.getAccount(3L).get(), AccountMatcher.equals(account(3L, "500")));
+        MatcherAssert.assertThat(accountDao.getAccount(4L).get(), AccountMatcher.equals(account(4L, "1500")));
+    }
+
+    private static Account account(long id, String amount) {
+        return new Account.Builder()
+                .setId(id)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, Money amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(amount)
+                .build();
+    }
+}
@@ -0,0 +1,171 @@
+package account.service.partition;
+
+import account.db.DatabasePopulator;
+import account.exception.AccountApiBadRequest;
+import account.matchers.AccountMatcher;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.module.UnitTestModule;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import account.service.TransactionBatchSettings;
+import account.service.db.AccountDao;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for {@link PartitionedAccountService}.
+ *
+ * @author fbokovikov
+ */
+public class PartitionedAccountServiceTest {
+
+    private static final int ACCOUNTS = 8;
+
+    private static final Injector INJECTOR = Guice.createInjector(new UnitTestModule(AccountEngine.PARTITIONED));
+
+    private static AccountService accountService;
+    private static AccountDao accountDao;
+
+    @BeforeAll
+    static void initDb() {
+        INJECTOR.getInstance(DatabasePopulator.class).populateDbTables();
+        accountService = INJECTOR.getInstance(AccountService.class);
+        accountDao = INJECTOR.getInstance(AccountDao.class);
+        accountService.createAccount(Money.of("10"));
+        accountService.createAccount(Money.of("20"));
+        for (int i = 3; i <= ACCOUNTS; i++) {
+            accountService.createAccount(Money.of("1000"));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("badTransactions")
+    @DisplayName("Transaction can not be completed")
+    void transactionImpossible(long fromId, long toId, Money amount, String errorMessage) {
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.transaction(transaction(fromId, toId, amount))
+        );
+        Assertions.assertEquals(errorMessage, exception.getMessage());
+        MatcherAssert.assertThat(accountService.getAccount(1L).get(), AccountMatcher.equals(account(1L, "10")));
+    }
+
+    static Stream<Arguments> badTransactions() {
+        return Stream.of(
+                Arguments.of(100L, 1L, Money.of("1"), "Account not found"),
+                Arguments.of(1L, 100L, Money.of("11"), "Account not found"),
+                Arguments.of(1L, 2L, Money.of("10.5"), "Not enough amount for transfer")
+        );
+    }
+
+    @Test
+    @DisplayName("Deposit and withdrawal")
+    void depositAndWithdrawal() {
+        MatcherAssert.assertThat(accountService.deposit(2L, Money.of("5")), AccountMatcher.equals(account(2L, "25")));
+        MatcherAssert.assertThat(accountService.withdraw(2L, Money.of("-5")), AccountMatcher.equals(account(2L, "20")));
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.withdraw(2L, Money.of("-21"))
+        );
+        Assertions.assertEquals("Not enough amount for transfer", exception.getMessage());
+        Assertions.assertFalse(accountService.getAccount(100L).isPresent());
+    }
+
+    @Test
+    @DisplayName("Parallel transactions between partitions keep total amount")
+    void parallelTransactions() {
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        CompletableFuture<?>[] transactions = IntStream.range(0, 5000)
+                .mapToObj(i -> CompletableFuture.runAsync(
+                        () -> accountService.transaction(transaction(
+                                3 + i % (ACCOUNTS - 2),
+                                3 + (i * 7 + 1) % (ACCOUNTS - 2),
+                                Money.of("1"))),
+                        executorService)
+                        .exceptionally(e -> null))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(transactions).join();
+        executorService.shutdown();
+
+        Money total = LongStream.rangeClosed(3, ACCOUNTS)
+                .mapToObj(id -> accountService.getAccount(id).get().getAmount())
+                .reduce(Money.ZERO, Money::plus);
+        Assertions.assertEquals(Money.of(String.valueOf(1000 * (ACCOUNTS - 2))), total);
+
+        ((PartitionedAccountService) accountService).flush();
+        for (long id = 3; id <= ACCOUNTS; id++) {
+            MatcherAssert.assertThat(accountDao.getAccount(id).get(),
+                    AccountMatcher.equals(accountService.getAccount(id).get()));
+        }
+    }
+
+    @Test
+    @DisplayName("Accounts not in partition memory are loaded by caller on first access")
+    void loadOnMiss() {
+        long a = accountDao.createAccount(Money.of("50")).getId();
+        long b = accountDao.createAccount(Money.of("5")).getId();
+
+        accountService.transaction(transaction(a, b, Money.of("20")));
+        MatcherAssert.assertThat(accountService.deposit(b, Money.of("1")), AccountMatcher.equals(account(b, "26")));
+        MatcherAssert.assertThat(accountService.getAccount(a).get(), AccountMatcher.equals(account(a, "30")));
+        AccountApiBadRequest exception = Assertions.assertThrows(
+                AccountApiBadRequest.class,
+                () -> accountService.deposit(100_000L, Money.of("1"))
+        );
+        Assertions.assertEquals("Account not found", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Transaction overflowing receiver leaves sender unchanged within and between partitions")
+    void receiverOverflow() {
+        try (PartitionedAccountService partitioned = new PartitionedAccountService(
+                accountDao,
+                new PartitionedEngineSettings.Builder().setPartitions(4).build(),
+                INJECTOR.getInstance(TransactionBatchSettings.class))) {
+            long receiver = partitioned.createAccount(Money.of("922337203685477")).getId();
+            List<Account> senders = partitioned.createAccounts(Collections.nCopies(8, Money.of("5")));
+            for (Account sender : senders) {
+                AccountApiBadRequest exception = Assertions.assertThrows(
+                        AccountApiBadRequest.class,
+                        () -> partitioned.transaction(transaction(sender.getId(), receiver, Money.of("1")))
+                );
+                Assertions.assertEquals("Amount is too big", exception.getMessage());
+                MatcherAssert.assertThat(partitioned.getAccount(sender.getId()).get(), AccountMatcher.equals(sender));
+            }
+        }
+    }
+
+    private static Account account(long id, String amount) {
+        return new Account.Builder()
+                .setId(id)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, Money amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(amount)
+                .build();
+    }
+}
@@ -0,0 +1,237 @@
+package account.service.shard;
+
+import account.exception.AccountApiBadRequest;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.TransactionResult;
+import account.service.TransactionBatchSettings;
+import account.service.db.LockContentionSettings;
+import account.service.db.LockContentionTracker;
+import account.service.db.SupplyChange;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for {@link ShardedAccountService}.
+ *
+ * @author fbokovikov
+ */
+public class ShardedAccountServiceTest {
+
+    private static final LockContentionTracker TRACKER =
+            new LockContentionTracker(new LockContentionSettings.Builder().build());
+
+    @Test
+    @DisplayName("Accounts are spread between shards, id keeps its shard")
+    void routing() {
+        try (ShardedAccountService accountService = accountService(settings(3, null))) {
+            Account first = accountService.createAccount(Money.of("1"));
+            List<Account> bulk = accountService.createAccounts(List.of(Money.of("2"), Money.of("3"), Money.of("4")));
+
+            Assertions.assertEquals(0, Shard.indexOf(first.getId()));
+            Assertions.assertEquals(List.of(1, 2, 0), List.of(
+                    Shard.indexOf(bulk.get(0).getId()),
+                    Shard.indexOf(bulk.get(1).getId()),
+                    Shard.indexOf(bulk.get(2).getId())));
+            Assertions.assertEquals(Money.of("3"), bulk.get(1).getAmount());
+            Assertions.assertEquals(Money.of("4"), accountService.getAccount(bulk.get(2).getId()).get().getAmount());
+            Assertions.assertFalse(accountService.getAccount(first.getId() + 3).isPresent());
+            Assertions.assertEquals(4, accountService.getAccounts(new long[]{
+                    bulk.get(2).getId(), first.getId(), bulk.get(0).getId(), bulk.get(1).getId()
+            }).stream().filter(Optional::isPresent).count());
+        }
+    }
+
+    @Test
+    @DisplayName("Transfers within and between shards")
+    void transfers() {
+        try (ShardedAccountService accountService = accountService(settings(2, null))) {
+            List<Account> accounts = accountService.createAccounts(Collections.nCopies(4, Money.of("10")));
+            long a0 = accounts.get(0).getId();
+            long b0 = accounts.get(1).getId();
+            long a1 = accounts.get(2).getId();
+            Assertions.assertEquals(Shard.indexOf(a0), Shard.indexOf(a1));
+
+            accountService.transaction(transaction(a0, a1, "3"));
+            accountService.transaction(transaction(a1, b0, "13"));
+            AccountApiBadRequest notEnough = Assertions.assertThrows(AccountApiBadRequest.class,
+                    () -> accountService.transaction(transaction(a0, b0, "7.01")));
+            AccountApiBadRequest notFound = Assertions.assertThrows(AccountApiBadRequest.class,
+                    () -> accountService.transaction(transaction(a0, b0 + 2 * Shard.MAX_SHARDS, "1")));
+
+            Assertions.assertEquals("Not enough amount for transfer", notEnough.getMessage());
+            Assertions.assertEquals("Account not found", notFound.getMessage());
+            assertAmount(accountService, a0, "7");
+            assertAmount(accountService, a1, "0");
+            assertAmount(accountService, b0, "23");
+            assertNoPendingTransfers(accountService);
+        }
+    }
+
+    @Test
+    @DisplayName("All-or-nothing batch is made on one shard only")
+    void batches() {
+        try (ShardedAccountService accountService = accountService(settings(2, null))) {
+            List<Account> accounts = accountService.createAccounts(Collections.nCopies(3, Money.of("10")));
+            long a0 = accounts.get(0).getId();
+            long b0 = accounts.get(1).getId();
+            long a1 = accounts.get(2).getId();
+
+            accountService.transactions(List.of(transaction(a0, a1, "1"), transaction(a1, a0, "5")),
+                    BatchMode.ALL_OR_NOTHING);
+            AccountApiBadRequest exception = Assertions.assertThrows(AccountApiBadRequest.class,
+                    () -> accountService.transactions(List.of(transaction(a0, b0, "1")), BatchMode.ALL_OR_NOTHING));
+            List<TransactionResult> results = accountService.transactions(
+                    List.of(transaction(a0, b0, "1"), transaction(a1, b0, "100")), BatchMode.PER_ITEM);
+
+            Assertions.assertEquals("Batch mode ALL_OR_NOTHING is not supported across shards", exception.getMessage());
+            Assertions.assertTrue(results.get(0).isApplied());
+            Assertions.assertFalse(results.get(1).isApplied());
+            assertAmount(accountService, a0, "13");
+            assertAmount(accountService, a1, "6");
+            assertAmount(accountService, b0, "11");
+        }
+    }
+
+    @Test
+    @DisplayName("Transfers interrupted by restart are committed or aborted by their decision")
+    void restartMidTransfer() throws IOException {
+        ShardSettings settings = settings(2, Files.createTempDirectory("account-shards"));
+        long a;
+        long b;
+        try (ShardedAccountService accountService = accountService(settings)) {
+            List<Account> accounts = accountService.createAccounts(List.of(Money.of("100"), Money.of("0")));
+            a = accounts.get(0).getId();
+            b = accounts.get(1).getId();
+        }
+        try (Shard from = new Shard(0, settings, TRACKER); Shard to = new Shard(1, settings, TRACKER)) {
+            //decided, but receiver is not credited
+            long committed = from.getTransferLogDao().nextTransferId();
+            from.getTransferLogDao().prepareOut(committed, a, b, Money.of("30"));
+            to.getTransferLogDao().prepareIn(committed, b, Money.of("30"));
+            Assertions.assertTrue(from.getTransferLogDao().commitOut(committed));
+            //both shards prepared, not decided
+            long prepared = from.getTransferLogDao().nextTransferId();
+            from.getTransferLogDao().prepareOut(prepared, a, b, Money.of("20"));
+            to.getTransferLogDao().prepareIn(prepared, b, Money.of("20"));
+            //only sender prepared
+            from.getTransferLogDao().prepareOut(from.getTransferLogDao().nextTransferId(), a, b, Money.of("10"));
+            Assertions.assertEquals(Money.of("40"), from.getAccountDao().getAccount(a).get().getAmount());
+        }
+        try (ShardedAccountService accountService = accountService(settings)) {
+            assertAmount(accountService, a, "70");
+            assertAmount(accountService, b, "30");
+            assertNoPendingTransfers(accountService);
+        }
+    }
+
+    @Test
+    @DisplayName("Shards can be added, existing accounts keep their shard")
+    void addShard() throws IOException {
+        Path directory = Files.createTempDirectory("account-shards");
+        long a;
+        try (ShardedAccountService accountService = accountService(settings(1, directory))) {
+            a = accountService.createAccount(Money.of("10")).getId();
+        }
+        try (ShardedAccountService accountService = accountService(settings(2, directory))) {
+            Account b = accountService.createAccounts(List.of(Money.of("0"), Money.of("0"))).get(1);
+            accountService.transaction(transaction(a, b.getId(), "4"));
+
+            Assertions.assertEquals(1, Shard.indexOf(b.getId()));
+            assertAmount(accountService, a, "6");
+            assertAmount(accountService, b.getId(), "4");
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel opposite cross-shard transfers keep total amount")
+    void parallelTransfers() {
+        try (ShardedAccountService accountService = accountService(settings(4, null))) {
+            List<Account> accounts = accountService.createAccounts(Collections.nCopies(8, Money.of("100")));
+            ExecutorService executorService = Executors.newFixedThreadPool(8);
+            CompletableFuture<?>[] transfers = IntStream.range(0, 2000)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        try {
+                            accountService.transaction(transaction(accounts.get(i % 8).getId(),
+                                    accounts.get((i * 3 + 1) % 8).getId(), "7"));
+                        } catch (AccountApiBadRequest e) {
+                            //not enough amount or the same account
+                        }
+                    }, executorService))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(transfers).join();
+            executorService.shutdown();
+
+            Money total = accounts.stream()
+                    .map(account -> accountService.getAccount(account.getId()).get().getAmount())
+                    .reduce(Money.ZERO, Money::plus);
+            Assertions.assertEquals(Money.of("800"), total);
+            assertNoPendingTransfers(accountService);
+        }
+    }
+
+    @Test
+    @DisplayName("Total supply counts escrow of cross-shard transfers in progress")
+    void supply() throws IOException {
+        ShardSettings settings = settings(2, Files.createTempDirectory("account-shards"));
+        try (ShardedAccountService accountService = accountService(settings)) {
+            List<Account> accounts = accountService.createAccounts(List.of(Money.of("100"), Money.of("5")));
+            long a = accounts.get(0).getId();
+            long b = accounts.get(1).getId();
+            accountService.transaction(transaction(a, b, "30"));
+            //only sender prepared, amount is in escrow
+            try (Shard from = new Shard(Shard.indexOf(a), settings, TRACKER)) {
+                from.getTransferLogDao().prepareOut(from.getTransferLogDao().nextTransferId(), a, b, Money.of("20"));
+            }
+
+            Assertions.assertEquals(Money.of("50"), accountService.getAccount(a).get().getAmount());
+            Assertions.assertEquals(Money.of("105"), accountService.getTotalSupply());
+            for (int stripe = 0; stripe < SupplyChange.STRIPES; stripe++) {
+                Assertions.assertEquals(Money.ZERO, accountService.auditSupply(stripe));
+            }
+        }
+    }
+
+    private static void assertNoPendingTransfers(ShardedAccountService accountService) {
+        Assertions.assertEquals(0, accountService.pendingTransfers());
+    }
+
+    private static ShardedAccountService accountService(ShardSettings settings) {
+        return new ShardedAccountService(settings, new TransactionBatchSettings.Builder().build(), TRACKER);
+    }
+
+    private static ShardSettings settings(int count, Path directory) {
+        return new ShardSettings.Builder()
+                .setCount(count)
+                .setDirectory(directory)
+                .setRecoveryInterval(Duration.ofHours(1))
+                .build();
+    }
+
+    private static void assertAmount(ShardedAccountService accountService, long accountId, String amount) {
+        Assertions.assertEquals(Money.of(amount), accountService.getAccount(accountId).get().getAmount());
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, String amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package account.service.snapshot;
+
+import account.db.DatabasePopulator;
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.model.BatchMode;
+import account.model.Money;
+import account.model.MultiLegTransaction;
+import account.module.UnitTestModule;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import account.service.db.AccountDaoMode;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link SnapshotAccountService} and {@link CommittedAccounts}.
+ *
+ * @author fbokovikov
+ */
+public class SnapshotAccountServiceTest {
+
+    @ParameterizedTest
+    @EnumSource(value = AccountEngine.class, names = {"H2", "GROUP_COMMIT"})
+    @DisplayName("Every acknowledged write is read from snapshot, without database")
+    void writesArePublished(AccountEngine engine) {
+        for (AccountDaoMode daoMode : AccountDaoMode.values()) {
+            Injector injector = injector(engine, daoMode);
+            AccountService accountService = injector.getInstance(AccountService.class);
+            CommittedAccounts committedAccounts = injector.getInstance(CommittedAccounts.class);
+            Assertions.assertTrue(accountService instanceof SnapshotAccountService);
+
+            accountService.createAccount(Money.of("100"));
+            accountService.createAccounts(List.of(Money.of("10"), Money.of("1")));
+            accountService.deposit(2L, Money.of("5"));
+            accountService.withdraw(1L, Money.of("-20"));
+            accountService.transaction(transaction(1L, 3L, "30"));
+            accountService.transactions(List.of(transaction(3L, 2L, "10"), transaction(2L, 1L, "1")),
+                    BatchMode.ALL_OR_NOTHING);
+            accountService.transaction(new MultiLegTransaction.Builder()
+                    .addLeg(1L, Money.of("-6"))
+                    .addLeg(2L, Money.of("2"))
+                    .addLeg(3L, Money.of("4"))
+                    .build());
+
+            long misses = committedAccounts.getMisses();
+            Assertions.assertEquals(Money.of("45"), amount(accountService, 1L), daoMode.name());
+            Assertions.assertEquals(Money.of("26"), amount(accountService, 2L), daoMode.name());
+            Assertions.assertEquals(Money.of("25"), amount(accountService, 3L), daoMode.name());
+            Assertions.assertEquals(List.of(Money.of("25"), Money.of("45")), List.of(
+                    accountService.getAccounts(new long[]{3L, 1L}).get(0).get().getAmount(),
+                    accountService.getAccounts(new long[]{3L, 1L}).get(1).get().getAmount()));
+            Assertions.assertEquals(misses, committedAccounts.getMisses());
+            Assertions.assertEquals(3, committedAccounts.getSize());
+        }
+    }
+
+    @Test
+    @DisplayName("Absent and not published accounts are read from database")
+    void misses() throws SQLException {
+        Injector injector = injector(AccountEngine.H2, AccountDaoMode.LOCKING);
+        AccountService accountService = injector.getInstance(AccountService.class);
+        CommittedAccounts committedAccounts = injector.getInstance(CommittedAccounts.class);
+        try (var connection = injector.getInstance(DataSource.class).getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute("INSERT INTO account(amount) VALUES(70000)");
+        }
+
+        Assertions.assertFalse(accountService.getAccount(2L).isPresent());
+        List<Optional<Account>> accounts = accountService.getAccounts(new long[]{2L, 1L});
+        Assertions.assertEquals(Money.of("7"), accounts.get(1).get().getAmount());
+        Assertions.assertFalse(accounts.get(0).isPresent());
+        Assertions.assertEquals(Money.of("7"), amount(accountService, 1L));
+        Assertions.assertEquals(3, committedAccounts.getMisses());
+        Assertions.assertEquals(1, committedAccounts.getHits());
+    }
+
+    @Test
+    @DisplayName("Read does not wait for locked row and returns its committed amount")
+    void readDoesNotWaitForWriter() throws Exception {
+        Injector injector = injector(AccountEngine.H2, AccountDaoMode.LOCKING);
+        AccountService accountService = injector.getInstance(AccountService.class);
+        accountService.createAccount(Money.of("10"));
+        CompletableFuture<Account> deposit;
+        try (var connection = injector.getInstance(DataSource.class).getConnection();
+             var statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeQuery("SELECT * FROM account WHERE id = 1 FOR UPDATE").close();
+            deposit = CompletableFuture.supplyAsync(() -> accountService.deposit(1L, Money.of("5")));
+
+            Assertions.assertEquals(Money.of("10"), CompletableFuture.supplyAsync(() -> amount(accountService, 1L))
+                    .get(5, TimeUnit.SECONDS));
+            Assertions.assertFalse(deposit.isDone());
+            connection.commit();
+        }
+        Assertions.assertEquals(Money.of("15"), deposit.get(5, TimeUnit.SECONDS).getAmount());
+        Assertions.assertEquals(Money.of("15"), amount(accountService, 1L));
+    }
+
+    @Test
+    @DisplayName("Older publication and loaded account do not replace newer one")
+    void versions() {
+        CommittedAccounts committedAccounts = new CommittedAccounts(true);
+        long older = committedAccounts.nextVersion();
+        long newer = committedAccounts.nextVersion();
+        committedAccounts.publish(account(1L, "2"), newer, System.nanoTime());
+        committedAccounts.publish(account(1L, "1"), older, System.nanoTime());
+        committedAccounts.load(account(1L, "0"));
+        committedAccounts.load(account(2L, "5"));
+        committedAccounts.publish(account(2L, "6"), committedAccounts.nextVersion(), System.nanoTime());
+
+        Assertions.assertEquals(Money.of("2"), committedAccounts.get(1L).getAmount());
+        Assertions.assertEquals(Money.of("6"), committedAccounts.get(2L).getAmount());
+        Assertions.assertEquals(3, committedAccounts.getPublishLag().getCount());
+        Assertions.assertNull(CommittedAccounts.disabled().get(1L));
+    }
+
+    private static Injector injector(AccountEngine engine, AccountDaoMode daoMode) {
+        Injector injector = Guice.createInjector(new UnitTestModule(engine, daoMode, AccountReadMode.SNAPSHOT));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        return injector;
+    }
+
+    private static Money amount(AccountService accountService, long accountId) {
+        return accountService.getAccount(accountId).get().getAmount();
+    }
+
+    private static Account account(long id, String amount) {
+        return new Account.Builder()
+                .setId(id)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+
+    private static AccountTransaction transaction(long fromId, long toId, String amount) {
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(Money.of(amount))
+                .build();
+    }
+}
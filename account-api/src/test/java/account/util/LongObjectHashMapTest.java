@@ -0,0 +1,41 @@
+package account.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link LongObjectHashMap}.
+ *
+ * @author fbokovikov
+ */
+public class LongObjectHashMapTest {
+
+    @Test
+    @DisplayName("Random puts and removes behave like HashMap")
+    void sameAsHashMap() {
+        Random random = new Random(42);
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) - 100;
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                Assertions.assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        Assertions.assertEquals(expected.size(), map.size());
+        for (long key = -100; key < 1_900; key++) {
+            Assertions.assertEquals(expected.get(key), map.get(key));
+        }
+        Map<Long, String> iterated = new HashMap<>();
+        map.forEachEntry(iterated::put);
+        Assertions.assertEquals(expected, iterated);
+    }
+}
@@ -0,0 +1,74 @@
+package account.benchmark;
+
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.service.AccountEngine;
+import account.service.db.AccountDao;
+import account.service.db.AccountDaoMode;
+import com.google.inject.Injector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountDao} row locking against H2 in both {@link AccountDaoMode}s.
+ *
+ * @author fbokovikov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AccountDaoBenchmark {
+
+    @Param({"1000", "100000"})
+    private int accounts;
+
+    /**
+     * Zipf exponent of account choice, 0 is uniform.
+     */
+    @Param({"0", "0.99"})
+    private double skew;
+
+    @Param({"LOCKING", "CONDITIONAL"})
+    private AccountDaoMode daoMode;
+
+    private Injector injector;
+    private AccountDao accountDao;
+    private AccountIds accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        injector = Benchmarks.injector(AccountEngine.H2, daoMode, accounts);
+        accountDao = injector.getInstance(AccountDao.class);
+        accountIds = new AccountIds(accounts, skew);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Benchmarks.close(injector);
+    }
+
+    @Benchmark
+    public void transaction() {
+        long fromId = accountIds.next();
+        accountDao.transaction(new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(accountIds.nextOtherThan(fromId))
+                .setAmount(Benchmarks.UNIT)
+                .build());
+    }
+
+    @Benchmark
+    public Account updateAmount() {
+        return accountDao.updateAmount(accountIds.next(), Benchmarks.UNIT);
+    }
+}
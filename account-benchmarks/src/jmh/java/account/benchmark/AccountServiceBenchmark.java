@@ -0,0 +1,80 @@
+package account.benchmark;
+
+import account.model.Account;
+import account.model.AccountTransaction;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import account.service.db.AccountDaoMode;
+import com.google.inject.Injector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountService} of every {@link AccountEngine} ({@code H2} is {@code H2AccountService}).
+ *
+ * @author fbokovikov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AccountServiceBenchmark {
+
+    @Param({"H2", "GROUP_COMMIT", "MEMORY", "PARTITIONED", "JOURNAL"})
+    private AccountEngine engine;
+
+    @Param({"1000", "100000"})
+    private int accounts;
+
+    /**
+     * Zipf exponent of account choice, 0 is uniform.
+     */
+    @Param({"0", "0.99"})
+    private double skew;
+
+    private Injector injector;
+    private AccountService accountService;
+    private AccountIds accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        injector = Benchmarks.injector(engine, AccountDaoMode.fromSystemProperties(), accounts);
+        accountService = injector.getInstance(AccountService.class);
+        accountIds = new AccountIds(accounts, skew);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Benchmarks.close(injector);
+    }
+
+    @Benchmark
+    public void transaction() {
+        long fromId = accountIds.next();
+        accountService.transaction(new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(accountIds.nextOtherThan(fromId))
+                .setAmount(Benchmarks.UNIT)
+                .build());
+    }
+
+    @Benchmark
+    public Account deposit() {
+        return accountService.deposit(accountIds.next(), Benchmarks.UNIT);
+    }
+
+    @Benchmark
+    public Optional<Account> getAccount() {
+        return accountService.getAccount(accountIds.next());
+    }
+}
@@ -0,0 +1,48 @@
+package account.benchmark;
+
+import account.controller.dto.AccountTransactionDTO;
+import account.controller.dto.AccountTransactionValidator;
+import account.exception.AccountApiBadRequest;
+import account.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountTransactionValidator} of valid and rejected requests.
+ * Batches are validated while parsed, see {@link JsonBenchmark#parseBatch()}.
+ *
+ * @author fbokovikov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountTransactionValidatorBenchmark {
+
+    private final AccountTransactionDTO valid = new AccountTransactionDTO(1L, 2L, Money.of("10.5"));
+    private final AccountTransactionDTO sameAccounts = new AccountTransactionDTO(1L, 1L, Money.of("10.5"));
+
+    @Benchmark
+    public AccountTransactionDTO validTransaction() {
+        AccountTransactionValidator.validate(valid);
+        return valid;
+    }
+
+    /**
+     * Rejection cost, including {@link AccountApiBadRequest} creation.
+     */
+    @Benchmark
+    public Object rejectedTransaction() {
+        try {
+            AccountTransactionValidator.validate(sameAccounts);
+            return sameAccounts;
+        } catch (AccountApiBadRequest e) {
+            return e;
+        }
+    }
+}
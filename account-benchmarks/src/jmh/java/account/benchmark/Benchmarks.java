@@ -0,0 +1,58 @@
+package account.benchmark;
+
+import account.db.DatabasePopulator;
+import account.model.Money;
+import account.modules.AccountServiceModule;
+import account.modules.DataSourceModule;
+import account.service.AccountEngine;
+import account.service.AccountService;
+import account.service.db.AccountDaoMode;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import java.util.Collections;
+
+/**
+ * Application setup shared by benchmarks.
+ *
+ * @author fbokovikov
+ */
+final class Benchmarks {
+
+    /**
+     * Initial amount of benchmark accounts, transfers of {@link #UNIT} never exhaust it.
+     */
+    static final Money INITIAL_AMOUNT = Money.of("1000000000");
+    static final Money UNIT = Money.ofUnits(1);
+
+    private static final int CREATE_CHUNK = 10_000;
+
+    private Benchmarks() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Injector of fresh in-memory database with {@code accounts} accounts of {@link #INITIAL_AMOUNT}
+     * (ids {@code 1..accounts}).
+     */
+    static Injector injector(AccountEngine engine, AccountDaoMode daoMode, int accounts) {
+        Injector injector = Guice.createInjector(new DataSourceModule(), new AccountServiceModule(engine, daoMode));
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        AccountService accountService = injector.getInstance(AccountService.class);
+        for (int created = 0; created < accounts; created += CREATE_CHUNK) {
+            accountService.createAccounts(Collections.nCopies(Math.min(CREATE_CHUNK, accounts - created),
+                    INITIAL_AMOUNT));
+        }
+        return injector;
+    }
+
+    /**
+     * Close account service of {@code injector} if it has background work (write-behind, journal).
+     */
+    static void close(Injector injector) throws Exception {
+        AccountService accountService = injector.getInstance(AccountService.class);
+        if (accountService instanceof AutoCloseable) {
+            ((AutoCloseable) accountService).close();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package account.benchmark;
+
+import account.controller.dto.AccountLookupResultDTO;
+import account.controller.dto.AccountTransactionBatchDTO;
+import account.controller.dto.AccountTransactionDTO;
+import account.controller.dto.AccountTransactionParser;
+import account.controller.transformer.JsonRequestTransformer;
+import account.controller.transformer.JsonResponseTransformer;
+import account.model.Account;
+import account.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Json codecs of account api: streaming parser and writer against Gson ones used before them.
+ *
+ * @author fbokovikov
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JsonResponseTransformer responseTransformer = new JsonResponseTransformer();
+    private final JsonRequestTransformer requestTransformer = new JsonRequestTransformer();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+
+    private final Account account = new Account.Builder()
+            .setId(123456L)
+            .setAmount(Money.of("1050.25"))
+            .build();
+
+    private final AccountLookupResultDTO lookup = lookup();
+
+    private final String transaction = "{\"fromId\":123456, \"toId\":654321, \"amount\":1050.25}";
+    private final byte[] transactionBytes = transaction.getBytes(StandardCharsets.UTF_8);
+
+    private final String batch = IntStream.range(0, BATCH_SIZE)
+            .mapToObj(i -> "{\"fromId\":" + (i + 1) + ", \"toId\":" + (i + 2) + ", \"amount\":" + i + ".5}")
+            .collect(Collectors.joining(",", "{\"mode\":\"PER_ITEM\", \"transactions\":[", "]}"));
+    private final byte[] batchBytes = batch.getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public String renderAccount() {
+        return responseTransformer.render(account);
+    }
+
+    @Benchmark
+    public int streamLookup() throws IOException {
+        out.reset();
+        responseTransformer.render(lookup, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public String renderLookup() {
+        return responseTransformer.render(lookup);
+    }
+
+    @Benchmark
+    public AccountTransactionDTO parseTransaction() throws IOException {
+        return AccountTransactionParser.parseTransaction(new ByteArrayInputStream(transactionBytes));
+    }
+
+    @Benchmark
+    public AccountTransactionDTO gsonParseTransaction() {
+        return requestTransformer.parseBody(transaction, AccountTransactionDTO.class);
+    }
+
+    @Benchmark
+    public AccountTransactionBatchDTO parseBatch() throws IOException {
+        return AccountTransactionParser.parseBatch(new ByteArrayInputStream(batchBytes), BATCH_SIZE);
+    }
+
+    @Benchmark
+    public AccountTransactionBatchDTO gsonParseBatch() {
+        return requestTransformer.parseBody(batch, AccountTransactionBatchDTO.class);
+    }
+
+    private static AccountLookupResultDTO lookup() {
+        long[] ids = new long[BATCH_SIZE];
+        List<Optional<Account>> accounts = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ids[i] = i + 1;
+            accounts.add(i % 10 == 0
+                    ? Optional.empty()
+                    : Optional.of(new Account.Builder().setId(i + 1).setAmount(Money.ofUnits(i * 12345L)).build()));
+        }
+        return new AccountLookupResultDTO(ids, (accountIds, consumer) -> accounts.forEach(consumer));
+    }
+}
@@ -0,0 +1,89 @@
+package account.benchmark;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ids of benchmark accounts {@code 1..count} drawn uniformly ({@code skew} 0) or by Zipf law with
+ * exponent {@code skew}, so a few hot accounts get most operations and contend for the same locks.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class AccountIds {
+
+    private final int count;
+
+    /**
+     * Cumulative probability of ids {@code 1..i+1}, {@code null} for uniform distribution.
+     */
+    private final double[] cumulative;
+
+    /**
+     * Probability of the single hot account 1, 0 for uniform and Zipf distributions.
+     */
+    private final double hotShare;
+
+    public AccountIds(int count, double skew) {
+        this(count, skew == 0 ? null : zipf(count, skew), 0);
+    }
+
+    private AccountIds(int count, double[] cumulative, double hotShare) {
+        this.count = count;
+        this.cumulative = cumulative;
+        this.hotShare = hotShare;
+    }
+
+    /**
+     * Account 1 drawn with probability {@code hotShare}, other accounts uniformly
+     * (e.g. merchant account receiving a share of all payments).
+     */
+    public static AccountIds hot(int count, double hotShare) {
+        return new AccountIds(count, null, hotShare);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (hotShare > 0 && random.nextDouble() < hotShare) {
+            return 1;
+        }
+        if (cumulative == null) {
+            return 1 + random.nextInt(count);
+        }
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return 1 + Math.min(count - 1, index >= 0 ? index : -index - 1);
+    }
+
+    /**
+     * @return id other than {@code accountId}
+     */
+    public long nextOtherThan(long accountId) {
+        //hot account with share 1 is never other than itself, take uniform id then
+        for (int attempt = 0; attempt < 8; attempt++) {
+            long next = next();
+            if (next != accountId) {
+                return next;
+            }
+        }
+        long other = 1 + ThreadLocalRandom.current().nextInt(count - 1);
+        return other >= accountId ? other + 1 : other;
+    }
+
+    private static double[] zipf(int count, double skew) {
+        double[] cumulative = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < count; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+}
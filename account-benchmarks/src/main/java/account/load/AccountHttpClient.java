@@ -0,0 +1,170 @@
+package account.load;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+/**
+ * Blocking client of account http api. Connections are kept alive and reused by {@link HttpURLConnection} itself.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class AccountHttpClient {
+
+    /**
+     * Accounts per bulk create or lookup request, below default {@code account.batch.maxSize}.
+     */
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final String url;
+
+    /**
+     * @param url api root, e.g. {@code http://localhost:4567}
+     */
+    public AccountHttpClient(String url) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * @return http status, body is read and dropped
+     * @throws IOException if server did not answer (outcome of the call is unknown)
+     */
+    public int call(String method, String path, String body) throws IOException {
+        return send(method, path, body).status;
+    }
+
+    /**
+     * Create accounts by {@code POST /accounts/bulk}.
+     *
+     * @return ids of created accounts
+     */
+    public long[] createAccounts(int count, BigDecimal amount) {
+        long[] ids = new long[count];
+        for (int from = 0; from < count; from += CHUNK_SIZE) {
+            int size = Math.min(CHUNK_SIZE, count - from);
+            String body = String.join(",", Collections.nCopies(size, amount.toPlainString()));
+            JsonArray accounts = parse(post("/accounts/bulk", "[" + body + "]")).getAsJsonArray();
+            for (int i = 0; i < size; i++) {
+                ids[from + i] = accounts.get(i).getAsJsonObject().get("id").getAsLong();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Read accounts by {@code POST /accounts/lookup}.
+     */
+    public Balances balances(long[] ids) {
+        BigDecimal total = BigDecimal.ZERO;
+        int missing = 0;
+        int negative = 0;
+        for (int from = 0; from < ids.length; from += CHUNK_SIZE) {
+            String body = Arrays.stream(ids, from, Math.min(ids.length, from + CHUNK_SIZE))
+                    .mapToObj(Long::toString)
+                    .collect(Collectors.joining(",", "[", "]"));
+            JsonObject response = parse(post("/accounts/lookup", body)).getAsJsonObject();
+            missing += response.get("missing").getAsInt();
+            for (JsonElement element : response.getAsJsonArray("accounts")) {
+                JsonElement amount = element.getAsJsonObject().get("amount");
+                if (amount == null) {
+                    continue;
+                }
+                BigDecimal value = amount.getAsBigDecimal();
+                total = total.add(value);
+                if (value.signum() < 0) {
+                    negative++;
+                }
+            }
+        }
+        return new Balances(total, missing, negative);
+    }
+
+    private String post(String path, String body) {
+        try {
+            Response response = send("POST", path, body);
+            if (response.status != HttpURLConnection.HTTP_OK) {
+                throw new IllegalStateException("POST " + path + " failed with " + response.status + ": "
+                        + response.body);
+            }
+            return response.body;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Response send(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + path).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        //body is read to the end, otherwise connection is not returned to keep-alive cache
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new Response(status, in == null ? "" : new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static JsonElement parse(String json) {
+        return new JsonParser().parse(json);
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Sum of account balances read by {@link #balances(long[])}.
+     */
+    public static final class Balances {
+        private final BigDecimal total;
+        private final int missing;
+        private final int negative;
+
+        private Balances(BigDecimal total, int missing, int negative) {
+            this.total = total;
+            this.missing = missing;
+            this.negative = negative;
+        }
+
+        public BigDecimal getTotal() {
+            return total;
+        }
+
+        public int getMissing() {
+            return missing;
+        }
+
+        public int getNegative() {
+            return negative;
+        }
+    }
+}
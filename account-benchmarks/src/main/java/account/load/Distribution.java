@@ -0,0 +1,40 @@
+package account.load;
+
+import account.benchmark.AccountIds;
+
+/**
+ * Which of generated accounts operations touch.
+ *
+ * @author fbokovikov
+ */
+public enum Distribution {
+
+    UNIFORM,
+
+    /**
+     * Zipf law with exponent {@code skew}, a few accounts get most operations.
+     */
+    ZIPF,
+
+    /**
+     * Single hot account gets {@code hotShare} of operations, other accounts uniformly the rest.
+     */
+    HOT;
+
+    AccountIds accountIds(LoadSettings settings) {
+        switch (this) {
+            case UNIFORM:
+                return new AccountIds(settings.getAccounts(), 0);
+            case ZIPF:
+                return new AccountIds(settings.getAccounts(), settings.getSkew());
+            case HOT:
+                return AccountIds.hot(settings.getAccounts(), settings.getHotShare());
+            default:
+                throw new IllegalStateException("Unknown distribution " + this);
+        }
+    }
+
+    static Distribution of(String value) {
+        return valueOf(value.toUpperCase());
+    }
+}
@@ -0,0 +1,239 @@
+package account.load;
+
+import account.benchmark.AccountIds;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load of running account api through its http endpoints.
+ * <p>
+ * Creates {@code load.accounts} accounts, sends a mix of creates, reads, deposits, withdrawals and transfers
+ * to accounts of chosen {@link Distribution} in {@link LoadMode#CLOSED closed} or {@link LoadMode#OPEN open}
+ * loop, prints outcomes and latency percentiles of every operation (see {@link OperationStats})
+ * and finally checks that total balance of the accounts changed exactly by applied deposits and withdrawals.
+ * Exits with 1 if it did not.
+ * <pre>
+ * java -Dload.mode=open -Dload.rate=5000 -Dload.distribution=zipf -cp ... account.load.LoadGenerator
+ * </pre>
+ *
+ * @author fbokovikov
+ */
+public class LoadGenerator {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final LoadSettings settings;
+    private final AccountHttpClient client;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final OperationStats total = new OperationStats();
+
+    /**
+     * Deposits and withdrawals by outcome, of warmup too.
+     */
+    private final LongAdder deposits = new LongAdder();
+    private final LongAdder withdrawals = new LongAdder();
+    private final LongAdder unknownDeposits = new LongAdder();
+    private final LongAdder unknownWithdrawals = new LongAdder();
+
+    private long[] ids;
+    private AccountIds accountIds;
+    private long measureFrom;
+
+    public LoadGenerator(LoadSettings settings) {
+        this.settings = settings;
+        this.client = new AccountHttpClient(settings.getUrl());
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = LoadSettings.fromSystemProperties();
+        System.out.println(settings);
+        boolean conserved = new LoadGenerator(settings).run(System.out);
+        System.exit(conserved ? 0 : 1);
+    }
+
+    /**
+     * @return whether total balance is conserved
+     */
+    public boolean run(PrintStream out) throws InterruptedException {
+        ids = client.createAccounts(settings.getAccounts(), settings.getInitialAmount());
+        accountIds = settings.getDistribution().accountIds(settings);
+
+        long start = System.nanoTime();
+        measureFrom = start + settings.getWarmupSeconds() * NANOS_PER_SECOND;
+        long end = measureFrom + settings.getSeconds() * NANOS_PER_SECOND;
+        if (settings.getMode() == LoadMode.OPEN) {
+            runOpen(start, end);
+        } else {
+            runClosed(start, end);
+        }
+
+        printStats(out);
+        return checkBalances(out);
+    }
+
+    /**
+     * Every connection sends its requests one by one. With rate every request has its planned send time and
+     * response time of a request sent late includes the delay.
+     */
+    private void runClosed(long start, long end) throws InterruptedException {
+        long interval = settings.getRate() == 0
+                ? 0
+                : settings.getConnections() * NANOS_PER_SECOND / settings.getRate();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < settings.getConnections(); i++) {
+            //spread paced connections over the interval
+            long first = start + interval * i / settings.getConnections();
+            Thread thread = new Thread(() -> {
+                long intended = first;
+                while (intended < end) {
+                    if (interval == 0) {
+                        intended = System.nanoTime();
+                    } else {
+                        parkUntil(intended);
+                    }
+                    execute(intended);
+                    intended += interval;
+                }
+            }, "load-connection-" + i);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Requests are scheduled at fixed rate and queue for free connection when server is slow.
+     */
+    private void runOpen(long start, long end) throws InterruptedException {
+        ExecutorService connections = Executors.newFixedThreadPool(settings.getConnections());
+        long interval = NANOS_PER_SECOND / settings.getRate();
+        for (long i = 0; start + i * interval < end; i++) {
+            long intended = start + i * interval;
+            parkUntil(intended);
+            connections.execute(() -> execute(intended));
+        }
+        connections.shutdown();
+        connections.awaitTermination(1, TimeUnit.HOURS);
+    }
+
+    private void execute(long intended) {
+        Operation operation = settings.getMix().next();
+        long sent = System.nanoTime();
+        int status = send(operation);
+        long received = System.nanoTime();
+        account(operation, status);
+        if (intended >= measureFrom) {
+            stats.get(operation).record(status, received - intended, received - sent);
+            total.record(status, received - intended, received - sent);
+        }
+    }
+
+    /**
+     * @return http status, -1 if server did not answer
+     */
+    private int send(Operation operation) {
+        String amount = settings.getAmount().toPlainString();
+        try {
+            switch (operation) {
+                case CREATE:
+                    return client.call("POST", "/accounts?amount=0", null);
+                case GET:
+                    return client.call("GET", "/accounts/" + nextId(), null);
+                case DEPOSIT:
+                    return client.call("PUT", "/accounts/" + nextId() + "/deposits?amount=" + amount, null);
+                case WITHDRAWAL:
+                    return client.call("PUT", "/accounts/" + nextId() + "/withdrawals?amount=-" + amount, null);
+                case TRANSFER:
+                    long from = accountIds.next();
+                    long to = accountIds.nextOtherThan(from);
+                    return client.call("POST", "/accounts/transactions",
+                            "{\"fromId\":" + ids[(int) from - 1] + ",\"toId\":" + ids[(int) to - 1]
+                                    + ",\"amount\":" + amount + "}");
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation);
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Remember applied deposits and withdrawals. Rejected ones (400) did not change balance, outcome of failed
+     * ones is unknown. Transfers and zero amount creates do not change total balance of the accounts.
+     */
+    private void account(Operation operation, int status) {
+        if (operation != Operation.DEPOSIT && operation != Operation.WITHDRAWAL
+                || status == HttpURLConnection.HTTP_BAD_REQUEST) {
+            return;
+        }
+        boolean deposit = operation == Operation.DEPOSIT;
+        if (status == HttpURLConnection.HTTP_OK) {
+            (deposit ? deposits : withdrawals).increment();
+        } else {
+            (deposit ? unknownDeposits : unknownWithdrawals).increment();
+        }
+    }
+
+    private long nextId() {
+        return ids[(int) accountIds.next() - 1];
+    }
+
+    private void printStats(PrintStream out) {
+        OperationStats.printHeader(out);
+        stats.forEach((operation, operationStats) -> {
+            if (operationStats.getCount() > 0) {
+                operationStats.print(out, operation.name().toLowerCase(), settings.getSeconds());
+            }
+        });
+        total.print(out, "total", settings.getSeconds());
+        if (settings.getMode() == LoadMode.CLOSED && settings.getRate() == 0) {
+            out.println("closed loop without load.rate: requests have no planned send time, "
+                    + "response time equals service time");
+        }
+    }
+
+    /**
+     * Total must change by applied deposits and withdrawals exactly, failed ones widen the expected range.
+     */
+    private boolean checkBalances(PrintStream out) {
+        AccountHttpClient.Balances balances = client.balances(ids);
+        BigDecimal amount = settings.getAmount();
+        BigDecimal expected = settings.getInitialAmount().multiply(BigDecimal.valueOf(ids.length))
+                .add(amount.multiply(BigDecimal.valueOf(deposits.sum() - withdrawals.sum())));
+        BigDecimal min = expected.subtract(amount.multiply(BigDecimal.valueOf(unknownWithdrawals.sum())));
+        BigDecimal max = expected.add(amount.multiply(BigDecimal.valueOf(unknownDeposits.sum())));
+        BigDecimal actual = balances.getTotal();
+        boolean conserved = actual.compareTo(min) >= 0 && actual.compareTo(max) <= 0
+                && balances.getMissing() == 0 && balances.getNegative() == 0;
+        out.printf("balance check: %s, total %s, expected %s (deposits %d, withdrawals %d, unknown outcome %d),"
+                        + " missing accounts %d, negative balances %d%n",
+                conserved ? "OK" : "FAILED", actual.toPlainString(), expected.toPlainString(),
+                deposits.sum(), withdrawals.sum(), unknownDeposits.sum() + unknownWithdrawals.sum(),
+                balances.getMissing(), balances.getNegative());
+        return conserved;
+    }
+
+    private static void parkUntil(long nanoTime) {
+        long delay;
+        while ((delay = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(delay);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package account.load;
+
+/**
+ * How {@link LoadGenerator} issues requests.
+ *
+ * @author fbokovikov
+ */
+public enum LoadMode {
+
+    /**
+     * Every connection sends next request after response to previous one, paced by its share of
+     * {@code rate} when rate is set. Slow responses slow down the load like they slow down real clients.
+     */
+    CLOSED,
+
+    /**
+     * Requests are scheduled at fixed {@code rate} regardless of responses and wait for a free connection,
+     * so a stalled server meets a growing queue (as with many independent clients).
+     */
+    OPEN;
+
+    static LoadMode of(String value) {
+        return valueOf(value.toUpperCase());
+    }
+}
@@ -0,0 +1,257 @@
+package account.load;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.math.BigDecimal;
+
+/**
+ * Settings of {@link LoadGenerator}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class LoadSettings {
+
+    private final String url;
+    private final LoadMode mode;
+
+    /**
+     * Http connections (closed loop) or threads sending scheduled requests (open loop).
+     */
+    private final int connections;
+
+    /**
+     * Requests per second of all connections, 0 for closed loop without pacing.
+     */
+    private final int rate;
+
+    private final int seconds;
+
+    /**
+     * Load before measurement, latencies of warmup are dropped.
+     */
+    private final int warmupSeconds;
+
+    private final int accounts;
+    private final BigDecimal initialAmount;
+
+    /**
+     * Amount of every deposit, withdrawal and transfer.
+     */
+    private final BigDecimal amount;
+
+    private final Distribution distribution;
+    private final double skew;
+    private final double hotShare;
+    private final OperationMix mix;
+
+    public LoadSettings(Builder builder) {
+        this.url = builder.url;
+        this.mode = builder.mode;
+        this.connections = builder.connections;
+        this.rate = builder.rate;
+        this.seconds = builder.seconds;
+        this.warmupSeconds = builder.warmupSeconds;
+        this.accounts = builder.accounts;
+        this.initialAmount = builder.initialAmount;
+        this.amount = builder.amount;
+        this.distribution = builder.distribution;
+        this.skew = builder.skew;
+        this.hotShare = builder.hotShare;
+        this.mix = builder.mix;
+        Preconditions.checkArgument(connections > 0, "Connections count should be positive");
+        Preconditions.checkArgument(rate >= 0, "Rate should not be negative");
+        Preconditions.checkArgument(mode == LoadMode.CLOSED || rate > 0, "Open loop needs positive rate");
+        Preconditions.checkArgument(seconds > 0, "Load duration should be positive");
+        Preconditions.checkArgument(warmupSeconds >= 0, "Warmup duration should not be negative");
+        Preconditions.checkArgument(accounts > 1, "Load needs at least two accounts");
+        Preconditions.checkArgument(initialAmount.signum() >= 0, "Initial amount should not be negative");
+        Preconditions.checkArgument(amount.signum() > 0, "Amount should be positive");
+        Preconditions.checkArgument(skew >= 0, "Skew should not be negative");
+        Preconditions.checkArgument(hotShare >= 0 && hotShare <= 1, "Hot share should be in [0, 1]");
+    }
+
+    /**
+     * Settings from {@code load.*} system properties.
+     */
+    public static LoadSettings fromSystemProperties() {
+        return new Builder()
+                .setUrl(System.getProperty("load.url", "http://localhost:4567"))
+                .setMode(LoadMode.of(System.getProperty("load.mode", LoadMode.CLOSED.name())))
+                .setConnections(Integer.getInteger("load.connections", 16))
+                .setRate(Integer.getInteger("load.rate", 0))
+                .setSeconds(Integer.getInteger("load.seconds", 30))
+                .setWarmupSeconds(Integer.getInteger("load.warmupSeconds", 5))
+                .setAccounts(Integer.getInteger("load.accounts", 10_000))
+                .setInitialAmount(new BigDecimal(System.getProperty("load.initialAmount", "1000")))
+                .setAmount(new BigDecimal(System.getProperty("load.amount", "0.01")))
+                .setDistribution(Distribution.of(System.getProperty("load.distribution", Distribution.UNIFORM.name())))
+                .setSkew(Double.parseDouble(System.getProperty("load.skew", "0.99")))
+                .setHotShare(Double.parseDouble(System.getProperty("load.hotShare", "0.5")))
+                .setMix(OperationMix.parse(System.getProperty("load.mix", Builder.DEFAULT_MIX)))
+                .build();
+    }
+
+    /**
+     * @return api root, e.g. {@code http://localhost:4567}
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public LoadMode getMode() {
+        return mode;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getAccounts() {
+        return accounts;
+    }
+
+    public BigDecimal getInitialAmount() {
+        return initialAmount;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    public double getHotShare() {
+        return hotShare;
+    }
+
+    public OperationMix getMix() {
+        return mix;
+    }
+
+    public static class Builder {
+        private static final String DEFAULT_MIX = "transfer:80,deposit:5,withdrawal:5,get:10";
+
+        private String url = "http://localhost:4567";
+        private LoadMode mode = LoadMode.CLOSED;
+        private int connections = 16;
+        private int rate;
+        private int seconds = 30;
+        private int warmupSeconds = 5;
+        private int accounts = 10_000;
+        private BigDecimal initialAmount = new BigDecimal("1000");
+        private BigDecimal amount = new BigDecimal("0.01");
+        private Distribution distribution = Distribution.UNIFORM;
+        private double skew = 0.99;
+        private double hotShare = 0.5;
+        private OperationMix mix = OperationMix.parse(DEFAULT_MIX);
+
+        public Builder setUrl(String url) {
+            this.url = url;
+            return this;
+        }
+
+        public Builder setMode(LoadMode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder setConnections(int connections) {
+            this.connections = connections;
+            return this;
+        }
+
+        public Builder setRate(int rate) {
+            this.rate = rate;
+            return this;
+        }
+
+        public Builder setSeconds(int seconds) {
+            this.seconds = seconds;
+            return this;
+        }
+
+        public Builder setWarmupSeconds(int warmupSeconds) {
+            this.warmupSeconds = warmupSeconds;
+            return this;
+        }
+
+        public Builder setAccounts(int accounts) {
+            this.accounts = accounts;
+            return this;
+        }
+
+        public Builder setInitialAmount(BigDecimal initialAmount) {
+            this.initialAmount = initialAmount;
+            return this;
+        }
+
+        public Builder setAmount(BigDecimal amount) {
+            this.amount = amount;
+            return this;
+        }
+
+        public Builder setDistribution(Distribution distribution) {
+            this.distribution = distribution;
+            return this;
+        }
+
+        public Builder setSkew(double skew) {
+            this.skew = skew;
+            return this;
+        }
+
+        public Builder setHotShare(double hotShare) {
+            this.hotShare = hotShare;
+            return this;
+        }
+
+        public Builder setMix(OperationMix mix) {
+            this.mix = mix;
+            return this;
+        }
+
+        public LoadSettings build() {
+            return new LoadSettings(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("url", url)
+                .add("mode", mode)
+                .add("connections", connections)
+                .add("rate", rate)
+                .add("seconds", seconds)
+                .add("warmupSeconds", warmupSeconds)
+                .add("accounts", accounts)
+                .add("initialAmount", initialAmount)
+                .add("amount", amount)
+                .add("distribution", distribution)
+                .add("skew", skew)
+                .add("hotShare", hotShare)
+                .add("mix", mix)
+                .toString();
+    }
+}
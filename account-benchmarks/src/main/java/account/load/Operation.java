@@ -0,0 +1,34 @@
+package account.load;
+
+/**
+ * Http api call made by {@link LoadGenerator}.
+ *
+ * @author fbokovikov
+ */
+public enum Operation {
+
+    /**
+     * {@code POST /accounts} with zero amount.
+     */
+    CREATE,
+
+    /**
+     * {@code GET /accounts/:accountId}.
+     */
+    GET,
+
+    /**
+     * {@code PUT /accounts/:accountId/deposits}.
+     */
+    DEPOSIT,
+
+    /**
+     * {@code PUT /accounts/:accountId/withdrawals}.
+     */
+    WITHDRAWAL,
+
+    /**
+     * {@code POST /accounts/transactions}.
+     */
+    TRANSFER
+}
@@ -0,0 +1,57 @@
+package account.load;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted choice of {@link Operation}, e.g. {@code transfer:80,deposit:5,withdrawal:5,get:10}.
+ *
+ * @author fbokovikov
+ */
+@Immutable
+public class OperationMix {
+
+    private final Map<Operation, Integer> weights;
+
+    /**
+     * Operation of every weight unit, drawn by index.
+     */
+    private final Operation[] units;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.units = weights.entrySet().stream()
+                .flatMap(e -> Collections.nCopies(e.getValue(), e.getKey()).stream())
+                .toArray(Operation[]::new);
+        Preconditions.checkArgument(units.length > 0, "Operation mix should have positive weight");
+    }
+
+    /**
+     * @param value comma separated {@code operation:weight} pairs, operation names are case insensitive
+     */
+    public static OperationMix parse(String value) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String pair : value.split(",")) {
+            String[] parts = pair.trim().split(":");
+            Preconditions.checkArgument(parts.length == 2, "Operation mix item should be operation:weight, got %s", pair);
+            int weight = Integer.parseInt(parts[1].trim());
+            Preconditions.checkArgument(weight >= 0, "Operation weight should not be negative");
+            weights.merge(Operation.valueOf(parts[0].trim().toUpperCase()), weight, Integer::sum);
+        }
+        return new OperationMix(weights);
+    }
+
+    public Operation next() {
+        return units[ThreadLocalRandom.current().nextInt(units.length)];
+    }
+
+    @Override
+    public String toString() {
+        return weights.toString();
+    }
+}
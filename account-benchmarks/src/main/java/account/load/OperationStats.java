@@ -0,0 +1,68 @@
+package account.load;
+
+import account.metrics.Histogram;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes and latencies of one {@link Operation} measured by {@link LoadGenerator}.
+ * <p>
+ * Response time is counted from the moment request was scheduled to be sent, not from the moment it was sent,
+ * so requests delayed by a stalled server or by busy connections are charged with the wait
+ * (coordinated omission correction). Service time is counted from the actual send.
+ *
+ * @author fbokovikov
+ */
+@ThreadSafe
+public class OperationStats {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 1};
+
+    private final Histogram responseTime = new Histogram();
+    private final Histogram serviceTime = new Histogram();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * @param status http status, negative if server did not answer
+     */
+    public void record(int status, long responseNanos, long serviceNanos) {
+        if (status == HttpURLConnection.HTTP_OK) {
+            ok.increment();
+        } else if (status == HttpURLConnection.HTTP_BAD_REQUEST) {
+            rejected.increment();
+        } else {
+            failed.increment();
+        }
+        responseTime.record(responseNanos);
+        serviceTime.record(serviceNanos);
+    }
+
+    public long getCount() {
+        return responseTime.getCount();
+    }
+
+    public Histogram getResponseTime() {
+        return responseTime;
+    }
+
+    public static void printHeader(PrintStream out) {
+        out.printf("%-10s %9s %9s %8s %7s %9s  response ms:%7s %7s %7s %7s %7s  service ms:%7s %7s%n",
+                "operation", "count", "ok", "rejected", "failed", "per sec",
+                "p50", "p90", "p99", "p99.9", "max", "p50", "p99");
+    }
+
+    public void print(PrintStream out, String name, double seconds) {
+        out.printf("%-10s %9d %9d %8d %7d %9.0f  %12s",
+                name, getCount(), ok.sum(), rejected.sum(), failed.sum(), getCount() / seconds, "");
+        for (double quantile : QUANTILES) {
+            out.printf("%7.2f ", responseTime.getValueAtQuantile(quantile) / 1e6);
+        }
+        out.printf(" %11s%7.2f %7.2f%n",
+                "", serviceTime.getValueAtQuantile(0.5) / 1e6, serviceTime.getValueAtQuantile(0.99) / 1e6);
+    }
+}
@@ -0,0 +1,151 @@
+package account.load;
+
+import account.binary.BinaryClient;
+import account.binary.BinaryServer;
+import account.binary.BinaryServerSettings;
+import account.controller.AccountController;
+import account.db.DatabasePopulator;
+import account.metrics.Histogram;
+import account.model.AccountTransaction;
+import account.model.Money;
+import account.modules.MainModule;
+import account.service.AccountService;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import spark.Spark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Transfers through http api against binary api of the same in-process service.
+ * <p>
+ * Run with {@code account.*} system properties of the server (engine etc.) and
+ * {@code benchmark.threads}, {@code benchmark.seconds}, {@code benchmark.window} (binary requests in flight
+ * per connection).
+ * <pre>
+ * java -Dbenchmark.threads=16 -Daccount.engine=memory -cp ... account.load.TransferBenchmark
+ * </pre>
+ *
+ * @author fbokovikov
+ */
+public class TransferBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        int seconds = Integer.getInteger("benchmark.seconds", 15);
+        int window = Integer.getInteger("benchmark.window", 64);
+
+        Injector injector = Guice.createInjector(new MainModule());
+        injector.getInstance(DatabasePopulator.class).populateDbTables();
+        injector.getInstance(AccountService.class).createAccounts(
+                Collections.nCopies(ACCOUNTS, Money.of("1000000")));
+        injector.getInstance(AccountController.class).init();
+        Spark.awaitInitialization();
+        BinaryServer binaryServer = new BinaryServer(
+                injector.getInstance(AccountService.class),
+                new BinaryServerSettings.Builder().setPort(0).build()
+        );
+        binaryServer.start();
+
+        run("http", threads, seconds, TransferBenchmark::httpTransfers);
+        run("binary", threads, seconds, (deadline, latencies) ->
+                binaryTransfers(binaryServer.getPort(), window, deadline, latencies));
+
+        binaryServer.close();
+        Spark.stop();
+        System.exit(0);
+    }
+
+    private static void run(String name, int threads, int seconds, Worker worker) {
+        Histogram latencies = new Histogram();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<CompletableFuture<Void>> workers = IntStream.range(0, threads)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    try {
+                        worker.run(deadline, latencies);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, executor))
+                .collect(Collectors.toList());
+        workers.forEach(CompletableFuture::join);
+        executor.shutdown();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-6s %9.0f transfers/s  p50 %7.3f ms  p99 %7.3f ms%n",
+                name,
+                latencies.getCount() / elapsed,
+                latencies.getValueAtQuantile(0.5) / 1e6,
+                latencies.getValueAtQuantile(0.99) / 1e6);
+    }
+
+    private static void httpTransfers(long deadline, Histogram latencies) throws IOException {
+        URL url = new URL("http://localhost:4567/accounts/transactions");
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                AccountTransaction transaction = randomTransaction();
+                out.write(("{\"fromId\":" + transaction.getFromId() + ",\"toId\":" + transaction.getToId()
+                        + ",\"amount\":" + transaction.getAmount() + "}").getBytes(StandardCharsets.UTF_8));
+            }
+            try (InputStream in = connection.getResponseCode() < 400
+                    ? connection.getInputStream()
+                    : connection.getErrorStream()) {
+                in.readAllBytes();
+            }
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+
+    private static void binaryTransfers(int port, int window, long deadline, Histogram latencies) throws Exception {
+        Semaphore inFlight = new Semaphore(window);
+        try (BinaryClient client = new BinaryClient(new InetSocketAddress("localhost", port))) {
+            while (System.nanoTime() < deadline) {
+                inFlight.acquire();
+                long start = System.nanoTime();
+                client.transaction(randomTransaction()).whenComplete((result, e) -> {
+                    latencies.record(System.nanoTime() - start);
+                    inFlight.release();
+                });
+            }
+            inFlight.acquire(window);
+        }
+    }
+
+    private static AccountTransaction randomTransaction() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long fromId = 1 + random.nextInt(ACCOUNTS);
+        long toId = 1 + (fromId + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        return new AccountTransaction.Builder()
+                .setFromId(fromId)
+                .setToId(toId)
+                .setAmount(Money.of("0.01"))
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface Worker {
+        void run(long deadline, Histogram latencies) throws Exception;
+    }
+}